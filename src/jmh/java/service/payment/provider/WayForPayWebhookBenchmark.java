@@ -0,0 +1,112 @@
+package service.payment.provider;
+
+import dto.payment.PaymentWebhookData;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускна здатність перевірки webhook WayForPay (розбір тіла + HMAC_MD5 підпису).
+ *
+ * - handleWebhook: поточна реалізація (потоковий розбір, Mac на потік, hex через таблицю)
+ * - naiveVerify: підхід до змін - дерево org.json, Mac.getInstance на кожен виклик,
+ *   String.format на кожен байт
+ *
+ * Запуск: mvn -P benchmark test-compile exec:exec
+ * (інші параметри JMH: -Djmh.args="WayForPayWebhookBenchmark -t 4")
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WayForPayWebhookBenchmark {
+
+    private static final String MERCHANT_ACCOUNT = "test_merch_n1";
+    private static final String SECRET_KEY = "flk3409refn54t54t*FNJRET";
+
+    private WayForPayProvider provider;
+    private String body;
+
+    @Setup
+    public void setUp() throws Exception {
+        provider = new WayForPayProvider(null);
+        ReflectionTestUtils.setField(provider, "merchantAccount", MERCHANT_ACCOUNT);
+        ReflectionTestUtils.setField(provider, "secretKey", SECRET_KEY);
+
+        String[] fields = {MERCHANT_ACCOUNT, "ORDER_12345_1700000000", "299", "UAH",
+                "541963", "41****8217", "Approved", "1100"};
+        body = new JSONObject()
+                .put("merchantAccount", fields[0])
+                .put("orderReference", fields[1])
+                .put("merchantSignature", naiveSignature(fields))
+                .put("amount", 299)
+                .put("currency", fields[3])
+                .put("authCode", fields[4])
+                .put("email", "client@example.com")
+                .put("phone", "380501234567")
+                .put("createdDate", 1700000000)
+                .put("processingDate", 1700000042)
+                .put("cardPan", fields[5])
+                .put("cardType", "Visa")
+                .put("issuerBankCountry", "Ukraine")
+                .put("issuerBankName", "Example Bank")
+                .put("recToken", "c8d1f5f0-1b2a-4c3d-9e8f-0a1b2c3d4e5f")
+                .put("transactionStatus", fields[6])
+                .put("reason", "Ok")
+                .put("reasonCode", 1100)
+                .put("fee", 5.98)
+                .put("paymentSystem", "card")
+                .toString();
+
+        if (!handleWebhook().isSignatureValid() || !naiveVerify()) {
+            throw new IllegalStateException("Benchmark body must carry a valid signature");
+        }
+    }
+
+    @Benchmark
+    public PaymentWebhookData handleWebhook() {
+        return provider.handleWebhook(body, null);
+    }
+
+    @Benchmark
+    public boolean naiveVerify() throws Exception {
+        JSONObject json = new JSONObject(body);
+        String signature = naiveSignature(new String[]{
+                json.optString("merchantAccount"),
+                json.optString("orderReference"),
+                json.optString("amount"),
+                json.optString("currency"),
+                json.optString("authCode"),
+                json.optString("cardPan"),
+                json.optString("transactionStatus"),
+                json.optString("reasonCode")});
+        return signature.equals(json.optString("merchantSignature"));
+    }
+
+    private static String naiveSignature(String[] fields) throws Exception {
+        Mac hmac = Mac.getInstance("HmacMD5");
+        hmac.init(new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), "HmacMD5"));
+        byte[] hash = hmac.doFinal(String.join(";", fields).getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import service.subscription.SubscriptionMetricsService;
 
 /**
  * Контролер для адміністративної панелі.
@@ -21,6 +22,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @PreAuthorize("hasRole('ADMIN')")
 public class AdminController {
 
+    private static final int DASHBOARD_DAYS = 30;
+
+    private final SubscriptionMetricsService subscriptionMetricsService;
+
     /**
      * Головна сторінка адмін-панелі
      * URL: /admin
@@ -30,6 +35,7 @@ public class AdminController {
         log.info("Admin dashboard accessed");
 
         model.addAttribute("pageTitle", "Admin Dashboard");
+        model.addAttribute("subscriptionMetrics", subscriptionMetricsService.getDashboard(DASHBOARD_DAYS));
 
         return "admin/dashboard";
     }
@@ -0,0 +1,69 @@
+package admin.controller;
+
+import entity.enums.WebhookEventStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import service.payment.WebhookInboxService;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Вхідна черга платіжних webhooks: проблемні події та їх повторна обробка
+ */
+@Controller
+@RequestMapping("/admin/webhooks")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminWebhookController {
+
+    private static final int LIST_LIMIT = 100;
+
+    private final WebhookInboxService webhookInbox;
+
+    /**
+     * Лічильники черги та останні події у статусі (за замовчуванням - FAILED та REJECTED)
+     */
+    @GetMapping
+    public String listEvents(@RequestParam(required = false) WebhookEventStatus status, Model model) {
+        List<WebhookEventStatus> statuses = status != null
+                ? Collections.singletonList(status)
+                : Arrays.asList(WebhookEventStatus.FAILED, WebhookEventStatus.REJECTED);
+
+        model.addAttribute("events", webhookInbox.getRecentEvents(statuses, LIST_LIMIT));
+        model.addAttribute("statusCounts", webhookInbox.getStatusCounts());
+        model.addAttribute("statuses", WebhookEventStatus.values());
+        model.addAttribute("selectedStatus", status);
+        return "admin/webhooks";
+    }
+
+    /**
+     * Повторно обробити подію
+     */
+    @PostMapping("/{id}/replay")
+    public String replayEvent(@PathVariable Long id, RedirectAttributes redirectAttributes) {
+        if (webhookInbox.replay(id)) {
+            log.info("Payment webhook event {} replayed from admin", id);
+            redirectAttributes.addFlashAttribute("successMessage", "Подію #" + id + " повернуто в чергу");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage", "Подія #" + id + " вже в черзі або не існує");
+        }
+        return "redirect:/admin/webhooks";
+    }
+
+    /**
+     * Повторно обробити всі події FAILED за останні days днів
+     */
+    @PostMapping("/replay-failed")
+    public String replayFailed(@RequestParam(defaultValue = "7") int days, RedirectAttributes redirectAttributes) {
+        int replayed = webhookInbox.replayFailed(LocalDateTime.now().minusDays(days));
+        redirectAttributes.addFlashAttribute("successMessage", "Повернуто в чергу подій: " + replayed);
+        return "redirect:/admin/webhooks";
+    }
+}
@@ -10,8 +10,10 @@ import entity.attributes.AttributeTranslation;
 import entity.attributes.OptionTranslation;
 import repository.AttributeRepository;
 import repository.AttributePlacementRepository;
+import service.lesson.LessonChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +28,7 @@ public class AttributeService {
 
     private final AttributeRepository attributeRepository;
     private final AttributePlacementRepository placementRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========== ОСНОВНІ МЕТОДИ ДЛЯ АТРИБУТІВ ==========
 
@@ -177,6 +180,9 @@ public class AttributeService {
         Attribute saved = attributeRepository.save(attribute);
         log.info("Attribute created successfully with id: {}", saved.getId());
 
+        // Новий атрибут і його опції - у фільтрах каталогу (LessonFacetIndex) та на картках
+        eventPublisher.publishEvent(LessonChangedEvent.allLessons());
+
         return convertToDtoWithOptions(saved);
     }
 
@@ -206,6 +212,9 @@ public class AttributeService {
         Attribute updated = attributeRepository.save(attribute);
         log.info("Attribute updated successfully: id={}", updated.getId());
 
+        // Атрибути показуються на картках усіх уроків
+        eventPublisher.publishEvent(LessonChangedEvent.allLessons());
+
         return convertToDtoWithOptions(updated);
     }
 
@@ -226,6 +235,8 @@ public class AttributeService {
 
         attributeRepository.deleteById(id);
         log.info("Attribute deleted successfully: id={}", id);
+
+        eventPublisher.publishEvent(LessonChangedEvent.allLessons());
     }
 
     // ========== МЕТОДИ ДЛЯ PLACEMENTS ==========
@@ -268,6 +279,8 @@ public class AttributeService {
         AttributePlacement saved = placementRepository.save(placement);
         log.info("Placement created successfully with id: {}", saved.getId());
 
+        eventPublisher.publishEvent(LessonChangedEvent.allLessons());
+
         return convertPlacementToDto(saved);
     }
 
@@ -288,6 +301,8 @@ public class AttributeService {
 
         placementRepository.deleteById(id);
         log.info("Placement deleted successfully: id={}", id);
+
+        eventPublisher.publishEvent(LessonChangedEvent.allLessons());
     }
 
     // ========== ДОПОМІЖНІ МЕТОДИ - ВАЛІДАЦІЯ ==========
@@ -8,8 +8,11 @@ import entity.lesson.*;
 import repository.AttributeOptionRepository;
 import repository.AttributeRepository;
 import repository.LessonRepository;
+import service.lesson.LessonChangedEvent;
+import service.lesson.LessonSlugIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +30,8 @@ public class LessonService {
     private final LessonRepository lessonRepository;
     private final AttributeRepository attributeRepository;
     private final AttributeOptionRepository attributeOptionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LessonSlugIndex lessonSlugIndex;
 
     private static final List<String> SUPPORTED_LANGUAGES = Arrays.asList("uk", "en", "de");
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
@@ -76,6 +81,9 @@ public class LessonService {
         Lesson saved = lessonRepository.save(lesson);
         log.info("Lesson created successfully with id: {}", saved.getId());
 
+        // Кеші публічної частини оновляться після коміту
+        eventPublisher.publishEvent(LessonChangedEvent.created(saved.getId()));
+
         return convertToDto(saved);
     }
 
@@ -103,6 +111,8 @@ public class LessonService {
         Lesson updated = lessonRepository.save(lesson);
         log.info("Lesson updated successfully: id={}", updated.getId());
 
+        eventPublisher.publishEvent(LessonChangedEvent.updated(updated.getId()));
+
         return convertToDto(updated);
     }
 
@@ -119,6 +129,8 @@ public class LessonService {
 
         lessonRepository.deleteById(id);
         log.info("Lesson deleted successfully: id={}", id);
+
+        eventPublisher.publishEvent(LessonChangedEvent.deleted(id));
     }
 
     /**
@@ -127,11 +139,12 @@ public class LessonService {
     public LessonDto getLessonBySlugAndLang(String slug, String lang) {
         log.info("Getting lesson by slug: {}, lang: {}", slug, lang);
 
-        Lesson lesson = lessonRepository.findBySlugAndLang(slug, lang)
+        // ID береться з in-memory індексу slug-ів, без окремого запиту за сутністю
+        Long lessonId = lessonSlugIndex.resolve(lang, slug)
                 .orElseThrow(() -> new IllegalArgumentException(
                         "Lesson not found with slug: " + slug + " for language: " + lang));
 
-        return getLessonById(lesson.getId());
+        return getLessonById(lessonId);
     }
 
     // ========== ДОПОМІЖНІ МЕТОДИ - ЗАВАНТАЖЕННЯ ==========
@@ -3,15 +3,19 @@ package controller;
 import dto.LessonCardDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.ServletWebRequest;
+import platform.config.ConditionalGetSupport;
+import platform.config.security.CustomUserDetails;
 import service.LessonCardService;
+import service.subscription.LessonAccessService;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Controller
@@ -20,20 +24,36 @@ import java.util.stream.Collectors;
 public class HomeController {
 
     private final LessonCardService lessonCardService;
+    private final ConditionalGetSupport conditionalGet;
+    private final LessonAccessService lessonAccessService;
+
+    /** Кількість уроків у блоці "останні уроки" */
+    private static final int LATEST_LESSONS_LIMIT = 9;
 
     /**
      * Обробляє GET-запити на кореневий URL ("/{lang}/"), а також на "/{lang}/home" та "/{lang}/index".
      *
      * @param lang  змінна шляху, що містить код мови (напр., "uk", "en").
+     * @param userDetails поточний користувач (null для анонімів) - для позначки відкритих уроків.
      * @param model об'єкт Model для передачі даних у шаблон.
-     * @return назва Thymeleaf-шаблону для відображення ("home").
+     * @return назва Thymeleaf-шаблону для відображення ("home") або null для відповіді 304.
      */
     @GetMapping({"/", "/home", "/index"})
-    public String homePage(@PathVariable String lang, Model model) {
+    public String homePage(@PathVariable String lang,
+                           @AuthenticationPrincipal CustomUserDetails userDetails,
+                           ServletWebRequest webRequest,
+                           Model model) {
         log.info("Home page accessed for language: {}", lang);
 
+        // 304, якщо список уроків не змінювався з попереднього візиту
+        if (conditionalGet.checkCatalogNotModified(webRequest)) {
+            return null;
+        }
+
         // Отримуємо останні 9 уроків для поточної мови
-        List<LessonCardDto> latestLessons = lessonCardService.getLatestLessonCards(lang, 9);
+        List<LessonCardDto> latestLessons = lessonAccessService.withAccessFlags(
+                userDetails != null ? userDetails.getId() : null,
+                lessonCardService.getLatestLessonCards(lang, LATEST_LESSONS_LIMIT));
 
         log.debug("Loaded {} latest lessons for home page", latestLessons.size());
 
@@ -1,16 +1,28 @@
 package controller;
 
-import dto.LessonCardDto;
+import dto.LessonCardPage;
+import dto.LessonSearchHitDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import platform.config.ConditionalGetSupport;
+import platform.config.security.CustomUserDetails;
 import service.LessonCardService;
+import service.lesson.LessonFacetIndex;
+import service.lesson.LessonFacetResult;
+import service.lesson.LessonSearchIndex;
+import service.subscription.LessonAccessService;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * ПРИКЛАД контролера для сторінки зі списком уроків
@@ -25,22 +37,107 @@ import java.util.List;
 public class LessonCatalogController {
 
     private final LessonCardService lessonCardService;
+    private final LessonFacetIndex lessonFacetIndex;
+    private final LessonSearchIndex lessonSearchIndex;
+    private final ConditionalGetSupport conditionalGet;
+    private final LessonAccessService lessonAccessService;
+
+    /** Максимальна кількість результатів пошуку за один запит */
+    private static final int SEARCH_MAX_LIMIT = 20;
 
     /**
-     * Сторінка зі списком усіх уроків
-     * URL: /uk/lessons, /en/lessons, /de/lessons
+     * Сторінка зі списком уроків (keyset-пагінація + фасетні фільтри)
+     * URL: /uk/lessons, /uk/lessons?after=...&page=1, /uk/lessons?before=...&page=0,
+     *      /uk/lessons?option=3&option=7
+     *
+     * @param after курсор для переходу на наступну сторінку
+     * @param before курсор для переходу на попередню сторінку
+     * @param page номер сторінки (тільки для відображення, вибірка йде по курсору)
+     * @param options вибрані опції фільтрів (AttributeOption.id)
+     * @param userDetails поточний користувач (null для анонімів) - для позначки відкритих уроків
+     * @return назва темплейту (null - відповідь 304)
      */
     @GetMapping
-    public String lessonCatalog(@PathVariable String lang, Model model) {
-        log.info("Lesson catalog page accessed for language: {}", lang);
+    public String lessonCatalog(
+            @PathVariable String lang,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(name = "option", required = false) List<Long> options,
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            ServletWebRequest webRequest,
+            Model model) {
+        log.info("Lesson catalog page accessed for language: {}, page={}, options={}", lang, page, options);
+
+        // 304, якщо каталог не змінювався з попереднього візиту (до пошуку та рендерингу)
+        if (conditionalGet.checkCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        // Фасети та множина уроків під фільтр - з in-memory індексу
+        LessonFacetResult facets = lessonFacetIndex.search(lang, options);
+
+        // Отримуємо одну сторінку карток для поточної мови
+        LessonCardPage cardPage = lessonCardService.getLessonCardPage(lang, after, before, facets);
 
-        // Отримуємо картки всіх уроків для поточної мови
-        List<LessonCardDto> lessonCards = lessonCardService.getAllLessonCards(lang);
+        // Номер сторінки не може вийти за межі (наприклад, якщо уроки видалили)
+        int totalPages = cardPage.getTotalPages();
+        int currentPage = Math.max(0, Math.min(page, Math.max(totalPages - 1, 0)));
 
         // Передаємо дані у view
-        model.addAttribute("lessonCards", lessonCards);
+        // Позначка відкритих уроків: один знімок прав на всю сторінку
+        model.addAttribute("lessonCards", lessonAccessService.withAccessFlags(
+                userDetails != null ? userDetails.getId() : null, cardPage.getCards()));
+        model.addAttribute("totalCount", cardPage.getTotalCount());
+        model.addAttribute("currentPage", currentPage);
+        model.addAttribute("totalPages", totalPages);
+        model.addAttribute("nextCursor", cardPage.getNextCursor());
+        model.addAttribute("previousCursor", cardPage.getPreviousCursor());
         model.addAttribute("pageTitle", "All Lessons");
 
+        // Фільтри
+        model.addAttribute("showFilters", !facets.getFacets().isEmpty());
+        model.addAttribute("facets", facets.getFacets());
+        model.addAttribute("filtered", facets.isFiltered());
+        model.addAttribute("filterQuery", buildFilterQuery(facets));
+
         return "lessons/catalog";
     }
+
+    /**
+     * Пошук уроків (typeahead) по назві та опису з in-process індексу
+     * URL: /uk/lessons/search?q=грам&limit=10
+     *
+     * @param q пошуковий запит (останнє слово шукається по префіксу)
+     * @param limit максимальна кількість результатів (не більше 20)
+     * @return JSON-масив результатів за спаданням релевантності
+     */
+    @GetMapping("/search")
+    @ResponseBody
+    public List<LessonSearchHitDto> searchLessons(
+            @PathVariable String lang,
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Lesson search: lang={}, q={}", lang, q);
+
+        return lessonSearchIndex.search(lang, q, Math.min(limit, SEARCH_MAX_LIMIT)).stream()
+                .map(hit -> new LessonSearchHitDto(
+                        hit.getLessonId(),
+                        hit.getTitle(),
+                        hit.getSlug(),
+                        "/" + lang + "/lessons/" + hit.getSlug(),
+                        hit.getScore()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Параметри вибраних фільтрів для посилань пагінації ("&option=3&option=7")
+     */
+    private String buildFilterQuery(LessonFacetResult facets) {
+        StringBuilder query = new StringBuilder();
+        for (Long optionId : facets.getSelectedOptionIds()) {
+            query.append("&option=").append(optionId);
+        }
+        return query.toString();
+    }
 }
@@ -1,8 +1,5 @@
 package controller;
 
-import admin.dto.LessonDto;
-import admin.dto.LessonTranslationDto;
-import admin.service.LessonService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -10,6 +7,12 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.ServletWebRequest;
+import platform.config.ConditionalGetSupport;
+import service.LessonPageService;
+import service.lesson.LessonPageView;
+
+import java.util.Optional;
 
 /**
  * Контролер для відображення окремого уроку на фронтенді
@@ -20,7 +23,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @RequestMapping("/{lang}/lessons")
 public class LessonViewController {
 
-    private final LessonService lessonService;
+    private final LessonPageService lessonPageService;
+    private final ConditionalGetSupport conditionalGet;
 
     /**
      * Відображення уроку за slug
@@ -29,41 +33,45 @@ public class LessonViewController {
      * @param lang код мови (uk, en, de)
      * @param slug slug уроку для певної мови
      * @param model модель для передачі даних у view
-     * @return назва темплейту
+     * @return назва темплейту (null - відповідь 304, сторінка в клієнта актуальна)
      */
     @GetMapping("/{slug}")
     public String viewLesson(
             @PathVariable String lang,
             @PathVariable String slug,
+            ServletWebRequest webRequest,
             Model model) {
 
         log.info("Viewing lesson: lang={}, slug={}", lang, slug);
 
-        try {
-            // Отримуємо повні дані уроку
-            LessonDto lesson = lessonService.getLessonBySlugAndLang(slug, lang);
+        // Read-модель уроку (кешується по ID до збереження в адмінці)
+        Optional<LessonPageView> lesson = lessonPageService.getLessonPage(lang, slug);
+        if (!lesson.isPresent()) {
+            log.error("Lesson not found: slug={}, lang={}", slug, lang);
+            return "redirect:/{lang}/lessons";
+        }
 
-            // Отримуємо переклад для поточної мови
-            LessonTranslationDto translation = lesson.getTranslations().get(lang);
+        // Отримуємо переклад для поточної мови
+        LessonPageView.Translation translation = lesson.get().getTranslation(lang);
 
-            if (translation == null) {
-                log.warn("No translation found for lesson slug={}, lang={}", slug, lang);
-                return "redirect:/{lang}/lessons";
-            }
+        if (translation == null) {
+            log.warn("No translation found for lesson slug={}, lang={}", slug, lang);
+            return "redirect:/{lang}/lessons";
+        }
 
-            // Передаємо дані у view
-            model.addAttribute("lesson", lesson);
-            model.addAttribute("translation", translation);
-            model.addAttribute("pageTitle", translation.getTitle());
+        // ETag / Last-Modified з updatedAt уроку та стану глядача
+        if (conditionalGet.checkLessonNotModified(webRequest, lesson.get())) {
+            return null;
+        }
 
-            log.debug("Lesson loaded: id={}, title={}", lesson.getId(), translation.getTitle());
+        // Передаємо дані у view
+        model.addAttribute("lesson", lesson.get());
+        model.addAttribute("translation", translation);
+        model.addAttribute("pageTitle", translation.getTitle());
 
-            return "lessons/lesson";
+        log.debug("Lesson loaded: id={}, title={}", lesson.get().getId(), translation.getTitle());
 
-        } catch (IllegalArgumentException e) {
-            log.error("Lesson not found: slug={}, lang={}", slug, lang);
-            return "redirect:/{lang}/lessons";
-        }
+        return "lessons/lesson";
     }
 
     /**
@@ -76,28 +84,32 @@ public class LessonViewController {
     public String viewLessonById(
             @PathVariable String lang,
             @PathVariable Long id,
+            ServletWebRequest webRequest,
             Model model) {
 
         log.info("Viewing lesson by ID: lang={}, id={}", lang, id);
 
-        try {
-            LessonDto lesson = lessonService.getLessonById(id);
-            LessonTranslationDto translation = lesson.getTranslations().get(lang);
-
-            if (translation == null) {
-                log.warn("No translation found for lesson id={}, lang={}", id, lang);
-                return "redirect:/{lang}/lessons";
-            }
-
-            model.addAttribute("lesson", lesson);
-            model.addAttribute("translation", translation);
-            model.addAttribute("pageTitle", translation.getTitle());
+        Optional<LessonPageView> lesson = lessonPageService.getLessonPage(id);
+        if (!lesson.isPresent()) {
+            log.error("Lesson not found: id={}", id);
+            return "redirect:/{lang}/lessons";
+        }
 
-            return "lessons/lesson";
+        LessonPageView.Translation translation = lesson.get().getTranslation(lang);
 
-        } catch (IllegalArgumentException e) {
-            log.error("Lesson not found: id={}", id);
+        if (translation == null) {
+            log.warn("No translation found for lesson id={}, lang={}", id, lang);
             return "redirect:/{lang}/lessons";
         }
+
+        if (conditionalGet.checkLessonNotModified(webRequest, lesson.get())) {
+            return null;
+        }
+
+        model.addAttribute("lesson", lesson.get());
+        model.addAttribute("translation", translation);
+        model.addAttribute("pageTitle", translation.getTitle());
+
+        return "lessons/lesson";
     }
 }
@@ -1,5 +1,6 @@
 package controller;
 
+import dto.SubscriptionHistoryPage;
 import entity.order.Order;
 import entity.order.SubscriptionPlan;
 import entity.order.UserSubscription;
@@ -15,7 +16,6 @@ import service.order.OrderService;
 import service.subscription.SubscriptionService;
 import service.user.UserService;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Controller
@@ -69,20 +69,21 @@ public class UserCabinetController {
     }
 
     /**
-     * Історія підписок
+     * Історія підписок (посторінково, before - курсор наступної сторінки)
      */
     @GetMapping("/subscription/history")
     public String subscriptionHistory(
             @PathVariable String lang,
+            @RequestParam(required = false) Long before,
             @AuthenticationPrincipal CustomUserDetails userDetails,
             Model model
     ) {
         User user = userService.findById(userDetails.getId());
-        List<UserSubscription> history = subscriptionService.getUserSubscriptionHistory(user.getId())
-                .orElse(new ArrayList<>());
+        SubscriptionHistoryPage history = subscriptionService.getSubscriptionHistory(user.getId(), lang, before);
 
         model.addAttribute("user", user);
         model.addAttribute("subscriptionHistory", history);
+        model.addAttribute("lang", lang);
 
         return "cabinet/subscription-history";
     }
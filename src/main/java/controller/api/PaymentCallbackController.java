@@ -1,11 +1,17 @@
 package controller.api;
 
+import dto.payment.PaymentStatusResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import service.payment.PaymentService;
+import org.springframework.web.context.request.async.DeferredResult;
+import platform.config.security.CustomUserDetails;
+import service.payment.PaymentStatusService;
+import service.payment.WebhookInboxService;
 
 
 /**
@@ -17,7 +23,8 @@ import service.payment.PaymentService;
 @Slf4j
 public class PaymentCallbackController {
 
-    private final PaymentService paymentService;
+    private final WebhookInboxService webhookInbox;
+    private final PaymentStatusService paymentStatusService;
 
     /**
      * Webhook від WayForPay
@@ -25,30 +32,9 @@ public class PaymentCallbackController {
     @PostMapping("/callback/wayforpay")
     public ResponseEntity<String> wayforpayCallback(
             @RequestBody String requestBody,
-            @RequestHeader(value = "merchantSignature", required = false) String signature
+            @RequestHeader HttpHeaders headers
     ) {
-        log.info("Received WayForPay callback");
-        log.debug("Request body: {}", requestBody);
-
-        try {
-            boolean success = paymentService.handlePaymentCallback(
-                    "wayforpay",
-                    requestBody,
-                    signature
-            );
-
-            if (success) {
-                return ResponseEntity.ok("{\"status\":\"success\"}");
-            } else {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("{\"status\":\"error\",\"message\":\"Invalid signature\"}");
-            }
-
-        } catch (Exception e) {
-            log.error("Error processing WayForPay callback", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}");
-        }
+        return acknowledge("wayforpay", requestBody, headers);
     }
 
     /**
@@ -57,44 +43,47 @@ public class PaymentCallbackController {
     @PostMapping("/callback/fondy")
     public ResponseEntity<String> fondyCallback(
             @RequestBody String requestBody,
-            @RequestHeader(value = "signature", required = false) String signature
+            @RequestHeader HttpHeaders headers
     ) {
-        log.info("Received Fondy callback");
+        return acknowledge("fondy", requestBody, headers);
+    }
+
+    /**
+     * Зберегти webhook у вхідну чергу і одразу відповісти провайдеру.
+     * Підпис перевіряється та платіж застосовується асинхронно (WebhookInboxService);
+     * повторна доставка теж отримує успішну відповідь, щоб провайдер припинив повтори.
+     * Помилка збереження - 500, провайдер повторить запит.
+     */
+    private ResponseEntity<String> acknowledge(String provider, String requestBody, HttpHeaders headers) {
+        log.info("Received {} callback", provider);
         log.debug("Request body: {}", requestBody);
 
         try {
-            boolean success = paymentService.handlePaymentCallback(
-                    "fondy",
-                    requestBody,
-                    signature
-            );
-
-            if (success) {
-                return ResponseEntity.ok("{\"status\":\"success\"}");
-            } else {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body("{\"status\":\"error\",\"message\":\"Invalid signature\"}");
-            }
-
+            webhookInbox.receive(provider, requestBody, headers);
+            return ResponseEntity.ok("{\"status\":\"success\"}");
         } catch (Exception e) {
-            log.error("Error processing Fondy callback", e);
+            log.error("Error storing {} callback", provider, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"status\":\"error\",\"message\":\"" + e.getMessage() + "\"}");
+                    .body("{\"status\":\"error\"}");
         }
     }
 
     /**
-     * Перевірка статусу платежу (для polling з фронтенду)
+     * Статус оплати для сторінки повернення (long-poll).
+     * known - статус, який клієнт уже показує: відповідь прийде, коли він зміниться,
+     * або після тайм-ауту (тоді клієнт повторює запит).
      */
     @GetMapping("/status/{orderId}")
-    public ResponseEntity<String> checkPaymentStatus(@PathVariable Long orderId) {
-        try {
-            // TODO: Реалізувати перевірку через OrderService
-            return ResponseEntity.ok("{\"status\":\"pending\"}");
-        } catch (Exception e) {
-            log.error("Error checking payment status", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"status\":\"error\"}");
+    public DeferredResult<ResponseEntity<PaymentStatusResponse>> checkPaymentStatus(
+            @PathVariable Long orderId,
+            @RequestParam(required = false) String known,
+            @AuthenticationPrincipal CustomUserDetails userDetails
+    ) {
+        if (userDetails == null) {
+            DeferredResult<ResponseEntity<PaymentStatusResponse>> result = new DeferredResult<>();
+            result.setResult(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+            return result;
         }
+        return paymentStatusService.awaitStatus(userDetails.getId(), orderId, known);
     }
 }
@@ -0,0 +1,18 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоский рядок активної підписки для статусу в header (без завантаження сутностей).
+ */
+@Getter
+@AllArgsConstructor
+public class ActiveSubscriptionRow {
+    private final Long subscriptionId;
+    private final String planKey;
+    private final LocalDateTime endDate;
+    private final Boolean autoRenew;
+}
@@ -0,0 +1,26 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Фасет фільтра каталогу: атрибут з placement "filters" та його опції з кількістю уроків.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogFacetDto {
+
+    /** ID атрибута */
+    private final Long attributeId;
+
+    /** Системна назва атрибута (наприклад, language_level) */
+    private final String name;
+
+    /** Назва атрибута для поточної мови */
+    private final String label;
+
+    /** Опції у порядку sort_order */
+    private final List<CatalogFacetOptionDto> options;
+}
@@ -0,0 +1,28 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Опція фасета з кількістю уроків, які залишаться після її вибору
+ * (з урахуванням фільтрів по інших атрибутах).
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogFacetOptionDto {
+
+    /** ID опції (AttributeOption) - передається у запиті як option=... */
+    private final Long optionId;
+
+    /** Значення опції (ключ, наприклад "beginner") */
+    private final String value;
+
+    /** Назва опції для поточної мови */
+    private final String label;
+
+    /** Кількість уроків з цією опцією серед уроків, що підходять під інші фільтри */
+    private final int count;
+
+    /** Чи вибрана опція у поточному запиті */
+    private final boolean selected;
+}
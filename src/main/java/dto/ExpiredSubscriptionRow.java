@@ -0,0 +1,16 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок деактивованої підписки (для слухачів пакетної деактивації).
+ */
+@Getter
+@AllArgsConstructor
+public class ExpiredSubscriptionRow {
+    private final Long subscriptionId;
+    private final Long userId;
+    private final Long planId;
+    private final Boolean autoRenew;
+}
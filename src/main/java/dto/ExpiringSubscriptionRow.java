@@ -0,0 +1,17 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоский рядок підписки, що скоро закінчується (для черги нагадувань).
+ */
+@Getter
+@AllArgsConstructor
+public class ExpiringSubscriptionRow {
+    private final Long subscriptionId;
+    private final Long userId;
+    private final LocalDateTime endDate;
+}
@@ -0,0 +1,15 @@
+package dto;
+
+import entity.lesson.Lesson;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок "рівень доступу уроку" для пакетної перевірки доступу.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonAccessLevelRow {
+    private final Long lessonId;
+    private final Lesson.AccessLevel accessLevel;
+}
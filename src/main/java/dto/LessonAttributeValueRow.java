@@ -0,0 +1,25 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Плоский рядок "значення атрибута уроку" разом з атрибутом та опцією.
+ *
+ * Заповнюється JPQL constructor expression, тому атрибут і опція не довантажуються
+ * lazy-запитами для кожного LessonAttribute.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonAttributeValueRow {
+    private final Long lessonId;
+    private final Long attributeId;
+    private final String attributeName;
+    private final String attributeType;
+    private final Long optionId;
+    private final String optionValue;
+    private final String textValue;
+    private final BigDecimal numberValue;
+}
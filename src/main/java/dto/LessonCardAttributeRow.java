@@ -0,0 +1,24 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Плоский рядок "значення атрибута уроку в певному placement картки".
+ *
+ * Один рядок = LessonAttribute x AttributePlacement (+ переклад опції для мови),
+ * заповнюється JPQL constructor expression.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonCardAttributeRow {
+    private final Long lessonId;
+    private final String placementKey;
+    private final String attributeType;
+    private final String optionValue;
+    private final String optionLabel;
+    private final String textValue;
+    private final BigDecimal numberValue;
+}
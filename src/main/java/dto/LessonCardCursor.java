@@ -0,0 +1,62 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset-курсор каталогу уроків: позиція (createdAt, id) в порядку
+ * "найновіші спочатку".
+ *
+ * В URL передається як рядок "2024-05-01T10:15:30.123456_42".
+ */
+@Getter
+@AllArgsConstructor
+public class LessonCardCursor {
+
+    private static final char SEPARATOR = '_';
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    /**
+     * Курсор, що вказує на картку
+     */
+    public static LessonCardCursor of(LessonCardDto card) {
+        return new LessonCardCursor(card.getCreatedAt(), card.getId());
+    }
+
+    /**
+     * Розібрати курсор з URL
+     *
+     * @param token рядок курсора
+     * @return курсор або null, якщо токен порожній чи некоректний
+     */
+    public static LessonCardCursor parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        int separator = token.lastIndexOf(SEPARATOR);
+        if (separator <= 0 || separator == token.length() - 1) {
+            return null;
+        }
+
+        try {
+            LocalDateTime createdAt = LocalDateTime.parse(token.substring(0, separator));
+            Long id = Long.valueOf(token.substring(separator + 1));
+            return new LessonCardCursor(createdAt, id);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Закодувати курсор для URL
+     */
+    public String encode() {
+        return createdAt.toString() + SEPARATOR + id;
+    }
+}
@@ -2,6 +2,7 @@ package dto;
 
 import lombok.Data;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -37,6 +38,41 @@ public class LessonCardDto {
      */
     private List<String> cardBodyAttributes;
 
+    /** Дата створення уроку (з Lesson) - ключ сортування та keyset-курсора */
+    private LocalDateTime createdAt;
+
+    /**
+     * Чи відкритий урок для поточного користувача (FREE, підписка або покупка).
+     * Заповнюється LessonAccessService.withAccessFlags на копії картки.
+     */
+    private boolean unlocked;
+
+    /**
+     * Чи безкоштовний урок (за сирим значенням accessLevel)
+     */
+    public boolean isFree() {
+        return "FREE".equals(this.accessLevel);
+    }
+
+    /**
+     * Копія картки з прапорцем доступу.
+     * Картки з кешу каталогу спільні для всіх запитів - змінювати їх не можна.
+     */
+    public LessonCardDto copyWithUnlocked(boolean unlocked) {
+        LessonCardDto copy = new LessonCardDto();
+        copy.setId(this.id);
+        copy.setMainImageUrl(this.mainImageUrl);
+        copy.setTitle(this.title);
+        copy.setDescription(this.description);
+        copy.setSlug(this.slug);
+        copy.setAccessLevel(this.accessLevel);
+        copy.setCardHeaderAttributes(this.cardHeaderAttributes);
+        copy.setCardBodyAttributes(this.cardBodyAttributes);
+        copy.setCreatedAt(this.createdAt);
+        copy.setUnlocked(unlocked);
+        return copy;
+    }
+
     // ==================================================================
     // КАСТОМНИЙ ГЕТТЕР
     // ==================================================================
@@ -0,0 +1,41 @@
+package dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Одна сторінка каталогу уроків з keyset-курсорами для навігації
+ */
+@Getter
+@Builder
+public class LessonCardPage {
+
+    /** Картки поточної сторінки */
+    private final List<LessonCardDto> cards;
+
+    /** Курсор для наступної сторінки (null, якщо її немає) */
+    private final String nextCursor;
+
+    /** Курсор для попередньої сторінки (null, якщо її немає) */
+    private final String previousCursor;
+
+    /** Загальна кількість уроків для мови */
+    private final long totalCount;
+
+    /** Розмір сторінки */
+    private final int pageSize;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    public int getTotalPages() {
+        return pageSize > 0 ? (int) ((totalCount + pageSize - 1) / pageSize) : 0;
+    }
+}
@@ -0,0 +1,25 @@
+package dto;
+
+import entity.lesson.Lesson;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоский рядок для картки уроку: Lesson + LessonTranslation однієї мови.
+ *
+ * Заповнюється JPQL constructor expression, тому Hibernate не створює
+ * managed-сутностей і не тягне колекцію translations цілком.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonCardRow {
+    private final Long id;
+    private final String mainImageUrl;
+    private final Lesson.AccessLevel accessLevel;
+    private final String title;
+    private final String description;
+    private final String slug;
+    private final LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок "урок має переклад мовою lang" (LessonTranslation).
+ */
+@Getter
+@AllArgsConstructor
+public class LessonLangRow {
+    private final Long lessonId;
+    private final String lang;
+}
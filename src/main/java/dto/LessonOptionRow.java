@@ -0,0 +1,16 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок "урок має опцію атрибута" (LessonAttribute з option_id).
+ *
+ * Використовується для побудови фасетного індексу каталогу.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonOptionRow {
+    private final Long lessonId;
+    private final Long optionId;
+}
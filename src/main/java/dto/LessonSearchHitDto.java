@@ -0,0 +1,27 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Результат пошуку уроків (для typeahead)
+ */
+@Getter
+@AllArgsConstructor
+public class LessonSearchHitDto {
+
+    /** ID уроку */
+    private final Long id;
+
+    /** Назва уроку мовою пошуку */
+    private final String title;
+
+    /** Slug уроку мовою пошуку */
+    private final String slug;
+
+    /** Посилання на сторінку уроку */
+    private final String url;
+
+    /** Релевантність (більше - краще) */
+    private final double score;
+}
@@ -0,0 +1,17 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок перекладу уроку для пошукового індексу.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonSearchRow {
+    private final Long lessonId;
+    private final String lang;
+    private final String title;
+    private final String description;
+    private final String slug;
+}
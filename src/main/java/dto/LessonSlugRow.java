@@ -0,0 +1,15 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Плоский рядок (lang, slug) -> lessonId для індексу slug-ів.
+ */
+@Getter
+@AllArgsConstructor
+public class LessonSlugRow {
+    private final Long lessonId;
+    private final String lang;
+    private final String slug;
+}
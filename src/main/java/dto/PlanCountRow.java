@@ -0,0 +1,14 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Кількість підписок плану (GROUP BY plan).
+ */
+@Getter
+@AllArgsConstructor
+public class PlanCountRow {
+    private final Long planId;
+    private final Long count;
+}
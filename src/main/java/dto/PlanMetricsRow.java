@@ -0,0 +1,15 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Активні підписки плану для адмінки.
+ */
+@Getter
+@AllArgsConstructor
+public class PlanMetricsRow {
+    private final Long planId;
+    private final String planKey;
+    private final Long active;
+}
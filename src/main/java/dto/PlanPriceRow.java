@@ -0,0 +1,16 @@
+package dto;
+
+import entity.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Ціна плану підписки у валюті (без завантаження плану).
+ */
+@Getter
+@AllArgsConstructor
+public class PlanPriceRow {
+    private final Long planId;
+    private final Currency currency;
+    private final Long amount;
+}
@@ -0,0 +1,16 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Стан активних підписок плану для звірки метрик.
+ */
+@Getter
+@AllArgsConstructor
+public class PlanSubscriptionStateRow {
+    private final Long planId;
+    private final Long active;
+    private final Long expiringSoon;
+    private final Long inGrace;
+}
@@ -0,0 +1,22 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Завдання на нагадування разом з адресатом (email, ім'я, мова інтерфейсу).
+ */
+@Getter
+@AllArgsConstructor
+public class ReminderJobRow {
+    private final Long reminderId;
+    private final Long subscriptionId;
+    private final Integer reminderDay;
+    private final LocalDateTime endDate;
+    private final Integer attempts;
+    private final String email;
+    private final String userName;
+    private final String language;
+}
@@ -0,0 +1,22 @@
+package dto;
+
+import entity.enums.Currency;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоский рядок підписки до автопродовження: токен картки, платіжна система
+ * та валюта першого замовлення.
+ */
+@Getter
+@AllArgsConstructor
+public class RenewalCandidateRow {
+    private final Long subscriptionId;
+    private final Long planId;
+    private final LocalDateTime nextBillingDate;
+    private final String recurringToken;
+    private final String paymentGateway;
+    private final Currency currency;
+}
@@ -0,0 +1,22 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Метрики підписок за день, сумарно по всіх планах.
+ */
+@Getter
+@AllArgsConstructor
+public class SubscriptionDailyMetricsRow {
+    private final LocalDate date;
+    private final Long created;
+    private final Long extended;
+    private final Long cancelled;
+    private final Long expired;
+    private final Long active;
+    private final Long expiringSoon;
+    private final Long inGrace;
+}
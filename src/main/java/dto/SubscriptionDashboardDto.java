@@ -0,0 +1,23 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Підписки на головній сторінці адмінки: поточний стан, підсумки за період і динаміка по днях.
+ */
+@Getter
+@AllArgsConstructor
+public class SubscriptionDashboardDto {
+    private final int days;
+    private final long active;
+    private final long expiringSoon;
+    private final long inGrace;
+    private final long createdInPeriod;
+    private final long churnedInPeriod;
+    private final List<PlanMetricsRow> plans;
+    /** Від найновішого дня */
+    private final List<SubscriptionDailyMetricsRow> daily;
+}
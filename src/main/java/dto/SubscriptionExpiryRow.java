@@ -0,0 +1,19 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Плоский рядок активної підписки для планувальника точного закінчення.
+ */
+@Getter
+@AllArgsConstructor
+public class SubscriptionExpiryRow {
+    private final Long subscriptionId;
+    private final LocalDateTime endDate;
+    private final LocalDateTime nextBillingDate;
+    private final Boolean autoRenew;
+    private final LocalDateTime cancelledAt;
+}
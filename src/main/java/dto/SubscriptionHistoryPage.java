@@ -0,0 +1,27 @@
+package dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Сторінка історії підписок, новіші спочатку (keyset по id)
+ */
+@Getter
+@Builder
+public class SubscriptionHistoryPage {
+
+    /** Підписки поточної сторінки */
+    private final List<SubscriptionHistoryRow> items;
+
+    /** Курсор наступної сторінки - id останньої підписки (null, якщо сторінки немає) */
+    private final Long nextCursor;
+
+    /** Розмір сторінки */
+    private final int pageSize;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
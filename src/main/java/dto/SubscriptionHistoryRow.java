@@ -0,0 +1,56 @@
+package dto;
+
+import entity.enums.SubscriptionStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Рядок історії підписок користувача (з user_subscription або архіву).
+ */
+@Getter
+public class SubscriptionHistoryRow {
+    private final Long id;
+    private final String planKey;
+    /** Назва плану мовою сторінки (null, якщо перекладу немає) */
+    private final String planName;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final SubscriptionStatus status;
+    private final Boolean autoRenew;
+    private final LocalDateTime cancelledAt;
+    /** Момент перенесення в архів (null - рядок з user_subscription) */
+    private final LocalDateTime archivedAt;
+
+    /**
+     * Рядок з user_subscription
+     */
+    public SubscriptionHistoryRow(Long id, String planKey, String planName,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  SubscriptionStatus status, Boolean autoRenew,
+                                  LocalDateTime cancelledAt) {
+        this(id, planKey, planName, startDate, endDate, status, autoRenew, cancelledAt, null);
+    }
+
+    /**
+     * Рядок з архіву
+     */
+    public SubscriptionHistoryRow(Long id, String planKey, String planName,
+                                  LocalDateTime startDate, LocalDateTime endDate,
+                                  SubscriptionStatus status, Boolean autoRenew,
+                                  LocalDateTime cancelledAt, LocalDateTime archivedAt) {
+        this.id = id;
+        this.planKey = planKey;
+        this.planName = planName;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.status = status;
+        this.autoRenew = autoRenew;
+        this.cancelledAt = cancelledAt;
+        this.archivedAt = archivedAt;
+    }
+
+    public boolean isArchived() {
+        return archivedAt != null;
+    }
+}
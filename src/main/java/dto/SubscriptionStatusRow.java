@@ -0,0 +1,17 @@
+package dto;
+
+import entity.enums.SubscriptionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Підписки користувача, згруповані за статусом: статус і найпізніша дата закінчення.
+ */
+@Getter
+@AllArgsConstructor
+public class SubscriptionStatusRow {
+    private final SubscriptionStatus status;
+    private final LocalDateTime maxEndDate;
+}
@@ -0,0 +1,16 @@
+package dto.payment;
+
+import entity.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Статус замовлення з власником (для реєстру статусів без завантаження сутності)
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusRow {
+    private final Long orderId;
+    private final Long userId;
+    private final OrderStatus status;
+}
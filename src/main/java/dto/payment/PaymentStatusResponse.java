@@ -0,0 +1,20 @@
+package dto.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Відповідь endpoint статусу оплати (/api/payment/status/{orderId})
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatusResponse {
+
+    private final Long orderId;
+
+    /** pending, processing, completed, failed, cancelled, refunded */
+    private final String status;
+
+    /** Статус остаточний - далі чекати немає сенсу */
+    private final boolean done;
+}
@@ -11,5 +11,6 @@ public class PaymentWebhookData {
     private String status; // success, failed, pending
     private Long amount;
     private String currency;
+    private String recurringToken; // токен картки для автопродовження, якщо провайдер його передав
     private boolean signatureValid;
 }
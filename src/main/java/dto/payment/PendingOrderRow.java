@@ -0,0 +1,23 @@
+package dto.payment;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Неоплачене замовлення для звірки з платіжною системою
+ */
+@Getter
+@AllArgsConstructor
+public class PendingOrderRow {
+    private final Long orderId;
+
+    /** Ключ провайдера (null - платіж не створювався) */
+    private final String paymentGateway;
+
+    /** Номер замовлення в платіжній системі */
+    private final String paymentReference;
+
+    private final LocalDateTime createdAt;
+}
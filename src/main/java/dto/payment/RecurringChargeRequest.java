@@ -0,0 +1,17 @@
+package dto.payment;
+
+import entity.enums.Currency;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RecurringChargeRequest {
+    private Long subscriptionId;
+    private String chargeReference; // Унікальний номер списання (ключ періоду + спроба)
+    private String recurringToken;  // Токен картки від платіжної системи
+    private Long amount;            // В копійках
+    private Currency currency;
+    private String description;
+    private String customerEmail;
+}
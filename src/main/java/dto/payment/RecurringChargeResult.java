@@ -0,0 +1,38 @@
+package dto.payment;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RecurringChargeResult {
+
+    public enum Status {
+        SUCCESS,  // Кошти списано
+        DECLINED, // Остаточна відмова (недостатньо коштів, картка заблокована)
+        PENDING,  // Результат невідомий (в обробці, таймаут) - повторювати з тим самим номером
+        NOT_SENT  // Запит не відправлено (circuit breaker, bulkhead) - списання не було, повторити пізніше
+    }
+
+    private Status status;
+    private String transactionId;
+    private String error;
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    public static RecurringChargeResult notSent(String error) {
+        return RecurringChargeResult.builder()
+                .status(Status.NOT_SENT)
+                .error(error)
+                .build();
+    }
+
+    public static RecurringChargeResult pending(String error) {
+        return RecurringChargeResult.builder()
+                .status(Status.PENDING)
+                .error(error)
+                .build();
+    }
+}
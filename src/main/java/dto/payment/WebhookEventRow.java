@@ -0,0 +1,24 @@
+package dto.payment;
+
+import entity.enums.WebhookEventStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Рядок webhook-події для адмінки (без тіла та заголовків)
+ */
+@Getter
+@AllArgsConstructor
+public class WebhookEventRow {
+    private final Long id;
+    private final String provider;
+    private final WebhookEventStatus status;
+    private final Integer attempts;
+    private final LocalDateTime receivedAt;
+    private final LocalDateTime processedAt;
+    private final String orderReference;
+    private final String transactionId;
+    private final String lastError;
+}
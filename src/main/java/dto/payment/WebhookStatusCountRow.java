@@ -0,0 +1,15 @@
+package dto.payment;
+
+import entity.enums.WebhookEventStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Кількість webhook-подій у статусі
+ */
+@Getter
+@AllArgsConstructor
+public class WebhookStatusCountRow {
+    private final WebhookEventStatus status;
+    private final Long count;
+}
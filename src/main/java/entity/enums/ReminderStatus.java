@@ -0,0 +1,8 @@
+package entity.enums;
+
+public enum ReminderStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
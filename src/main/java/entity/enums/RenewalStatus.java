@@ -0,0 +1,9 @@
+package entity.enums;
+
+public enum RenewalStatus {
+    PENDING,   // Списання відправлено, результат невідомий
+    DECLINED,  // Відмова, буде повторна спроба з новим номером списання
+    SUCCEEDED,
+    FAILED,    // Спроби вичерпано
+    UNRESOLVED // Результат так і не з'ясовано - потрібна ручна перевірка
+}
@@ -0,0 +1,19 @@
+package entity.enums;
+
+/**
+ * Стан webhook-події у вхідній черзі (payment_webhook_event)
+ */
+public enum WebhookEventStatus {
+    /** Збережена, чекає на обробку (або на повторну спробу після nextAttemptAt) */
+    RECEIVED,
+    /** Взята в роботу обробником */
+    PROCESSING,
+    /** Оброблена */
+    PROCESSED,
+    /** Транзакцію вже оброблено іншою подією */
+    DUPLICATE,
+    /** Невірний підпис або нерозбірне тіло */
+    REJECTED,
+    /** Вичерпано спроби обробки */
+    FAILED
+}
@@ -0,0 +1,40 @@
+package entity.job;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Оренда (lease) запланованого завдання: завдання виконує тільки вузол, що її тримає.
+ *
+ * token - fencing token, збільшується з кожним захопленням: запис колишнього власника,
+ * чия оренда вже перейшла до іншого вузла, відхиляється за розбіжністю токена.
+ * Час оренди рахується годинником БД (NOW(3)), а не вузлів.
+ */
+@Entity
+@Table(name = "scheduled_job_lock")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ScheduledJobLock {
+
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    /** Вузол і запуск, що тримає оренду */
+    @Column(name = "owner", length = 200)
+    private String owner;
+
+    @Column(name = "token", nullable = false)
+    private Long token = 0L;
+
+    @Column(name = "locked_at", columnDefinition = "DATETIME(3)")
+    private LocalDateTime lockedAt;
+
+    @Column(name = "locked_until", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime lockedUntil;
+}
@@ -0,0 +1,35 @@
+package entity.lesson;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Спільна для всіх вузлів версія каталогу уроків (один рядок, id = 1).
+ *
+ * Збільшується в транзакції кожної зміни уроків або атрибутів в адмінці;
+ * вузли порівнюють її зі своєю, щоб дізнатися про зміни, зроблені на інших вузлах
+ * (service.lesson.LessonCatalogVersion).
+ */
+@Entity
+@Table(name = "lesson_catalog_revision")
+@Getter
+@Setter
+@NoArgsConstructor
+public class LessonCatalogRevision {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "updated_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime updatedAt;
+}
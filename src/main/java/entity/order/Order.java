@@ -16,7 +16,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_id", columnList = "status, id")
+})
 @Data
 public class Order {
 
@@ -46,6 +48,14 @@ public class Order {
     @Column(name = "payment_gateway", length = 50)
     private String paymentGateway;
 
+    /** Номер останнього платежу в платіжній системі (ORDER_123_timestamp); усі спроби - OrderPaymentAttempt */
+    @Column(name = "payment_reference", length = 100)
+    private String paymentReference;
+
+    /** Остання перевірка статусу в платіжній системі (PaymentReconciliationService) */
+    @Column(name = "reconciled_at")
+    private LocalDateTime reconciledAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "promo_code_id")
     private PromoCode promoCode;
@@ -0,0 +1,45 @@
+package entity.order;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Платіж, створений у платіжній системі для замовлення.
+ *
+ * Кожна спроба оплати (повторне відкриття форми) отримує свій номер, а оплатити
+ * користувач може будь-яку з відкритих форм - звірка (PaymentReconciliationService)
+ * перевіряє всі номери замовлення, а не лише останній (orders.payment_reference).
+ */
+@Entity
+@Table(name = "order_payment_attempt", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payment_attempt_reference", columnNames = {"payment_gateway", "payment_reference"})
+}, indexes = {
+        @Index(name = "idx_payment_attempt_order", columnList = "order_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderPaymentAttempt {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    /** Ключ провайдера (bean PaymentProvider) */
+    @Column(name = "payment_gateway", nullable = false, length = 50)
+    private String paymentGateway;
+
+    /** Номер замовлення в платіжній системі */
+    @Column(name = "payment_reference", nullable = false, length = 100)
+    private String paymentReference;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,92 @@
+package entity.order;
+
+import entity.enums.WebhookEventStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Вхідна webhook-подія платіжної системи (inbox).
+ *
+ * Зберігається як є (тіло та заголовки) до будь-якої обробки, тож провайдер отримує
+ * відповідь одразу, а подію можна обробити повторно (WebhookInboxService.replay).
+ * Унікальність (provider, dedup_key): повторна доставка того самого тіла - без нового рядка.
+ * Індекси: (status, next_attempt_at) - вибірка до обробки,
+ * (provider, transaction_id) - ідемпотентність по транзакції.
+ */
+@Entity
+@Table(name = "payment_webhook_event", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_webhook_provider_dedup", columnNames = {"provider", "dedup_key"})
+}, indexes = {
+        @Index(name = "idx_webhook_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_webhook_provider_transaction", columnList = "provider, transaction_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class PaymentWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "provider", nullable = false, length = 20)
+    private String provider;
+
+    /** SHA-256 тіла запиту (hex) */
+    @Column(name = "dedup_key", nullable = false, length = 64)
+    private String dedupKey;
+
+    @Column(name = "body", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String body;
+
+    /** Заголовки запиту як JSON-об'єкт (імена в нижньому регістрі) */
+    @Column(name = "headers", columnDefinition = "TEXT")
+    private String headers;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /** Мілісекунди, як у received_at: інакше округлення DATETIME(0) переносить першу спробу в майбутнє */
+    @Column(name = "next_attempt_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "received_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime receivedAt;
+
+    /** Мітка обробника, що взяв подію в роботу */
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "order_reference", length = 100)
+    private String orderReference;
+
+    @Column(name = "transaction_id", length = 100)
+    private String transactionId;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public PaymentWebhookEvent(String provider, String dedupKey, String body, String headers,
+                               LocalDateTime receivedAt) {
+        this.provider = provider;
+        this.dedupKey = dedupKey;
+        this.body = body;
+        this.headers = headers;
+        this.receivedAt = receivedAt;
+        this.nextAttemptAt = receivedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package entity.order;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Лічильники підписок за день і план (read-модель для адмінки).
+ *
+ * Потокові лічильники (нові, продовжені, скасовані, закінчені) збільшуються подіями
+ * життєвого циклу; знімок стану (активні, закінчуються незабаром, у grace period)
+ * записує періодична звірка (SubscriptionMetricsService.reconcile) - останнє значення дня.
+ */
+@Entity
+@Table(name = "subscription_daily_metrics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_metrics_date_plan", columnNames = {"metric_date", "plan_id"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class SubscriptionDailyMetrics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+
+    @Column(name = "plan_id", nullable = false)
+    private Long planId;
+
+    @Column(name = "created_count", nullable = false)
+    private Long createdCount = 0L;
+
+    @Column(name = "extended_count", nullable = false)
+    private Long extendedCount = 0L;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount = 0L;
+
+    @Column(name = "expired_count", nullable = false)
+    private Long expiredCount = 0L;
+
+    @Column(name = "active_count", nullable = false)
+    private Long activeCount = 0L;
+
+    @Column(name = "expiring_soon_count", nullable = false)
+    private Long expiringSoonCount = 0L;
+
+    @Column(name = "in_grace_count", nullable = false)
+    private Long inGraceCount = 0L;
+}
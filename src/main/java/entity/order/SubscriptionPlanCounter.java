@@ -0,0 +1,30 @@
+package entity.order;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Поточна кількість активних підписок плану: +1 при створенні, -1 при закінченні,
+ * звірка періодично виправляє накопичену похибку.
+ */
+@Entity
+@Table(name = "subscription_plan_counter")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SubscriptionPlanCounter {
+
+    @Id
+    @Column(name = "plan_id")
+    private Long planId;
+
+    @Column(name = "active_count", nullable = false)
+    private Long activeCount = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
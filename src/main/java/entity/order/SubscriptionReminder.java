@@ -0,0 +1,86 @@
+package entity.order;
+
+import entity.enums.ReminderStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Завдання на відправку нагадування про закінчення підписки (outbox).
+ *
+ * Унікальність (subscription_id, reminder_day, end_date): одне нагадування на підписку
+ * та день нагадування в межах періоду; після продовження (нова end_date) - нове.
+ * Індекс (status, next_attempt_at) - вибірка завдань до відправки.
+ */
+@Entity
+@Table(name = "subscription_reminder", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_reminder_subscription_day",
+                columnNames = {"subscription_id", "reminder_day", "end_date"})
+}, indexes = {
+        @Index(name = "idx_reminder_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class SubscriptionReminder {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "subscription_id", nullable = false)
+    private Long subscriptionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** За скільки днів до закінчення відправляється нагадування */
+    @Column(name = "reminder_day", nullable = false)
+    private Integer reminderDay;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDateTime endDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ReminderStatus status = ReminderStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** Мітка відправника, що взяв завдання в роботу */
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public SubscriptionReminder(Long subscriptionId, Long userId, Integer reminderDay,
+                                LocalDateTime endDate, LocalDateTime nextAttemptAt) {
+        this.subscriptionId = subscriptionId;
+        this.userId = userId;
+        this.reminderDay = reminderDay;
+        this.endDate = endDate;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
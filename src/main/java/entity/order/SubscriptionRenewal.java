@@ -0,0 +1,105 @@
+package entity.order;
+
+import entity.enums.Currency;
+import entity.enums.RenewalStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Списання за автопродовження підписки в одному платіжному періоді.
+ *
+ * idempotency_key = підписка + дата списання: один запис на період, хоч скільки разів
+ * запускається продовження. Номер списання у платіжній системі - ключ + номер спроби;
+ * новий номер видається тільки після остаточної відмови, невідомий результат
+ * повторюється з тим самим номером (платіжна система не спише вдруге).
+ */
+@Entity
+@Table(name = "subscription_renewal", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_renewal_idempotency_key", columnNames = "idempotency_key")
+}, indexes = {
+        @Index(name = "idx_renewal_subscription", columnList = "subscription_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class SubscriptionRenewal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "subscription_id", nullable = false)
+    private Long subscriptionId;
+
+    /** Дата списання (next_billing_date підписки), за яку продовжується період */
+    @Column(name = "billing_date", nullable = false)
+    private LocalDateTime billingDate;
+
+    @Column(name = "provider", nullable = false, length = 50)
+    private String provider;
+
+    @Column(name = "amount", nullable = false)
+    private Long amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "currency", nullable = false, length = 3)
+    private Currency currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private RenewalStatus status = RenewalStatus.PENDING;
+
+    /** Номер спроби списання (частина номера списання) */
+    @Column(name = "charge_attempt", nullable = false)
+    private Integer chargeAttempt = 1;
+
+    /** Усі звернення до платіжної системи, включно з повторами з невідомим результатом */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /** Повтори з невідомим результатом для поточного номера списання */
+    @Column(name = "pending_attempts", nullable = false)
+    private Integer pendingAttempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "transaction_id")
+    private String transactionId;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Номер списання для платіжної системи
+     */
+    @Transient
+    public String getChargeReference() {
+        return idempotencyKey + "_" + chargeAttempt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        createdAt = now;
+        updatedAt = now;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "user_subscription", indexes = {
         @Index(name = "idx_user_status", columnList = "user_id, status"),
-        @Index(name = "idx_end_date", columnList = "end_date")
+        @Index(name = "idx_end_date", columnList = "end_date"),
+        // Звірка метрик підписок по днях (SubscriptionMetricsService)
+        @Index(name = "idx_created_at", columnList = "created_at"),
+        @Index(name = "idx_cancelled_at", columnList = "cancelled_at"),
+        @Index(name = "idx_status_updated_at", columnList = "status, updated_at")
 })
 @Data
 public class UserSubscription {
@@ -93,6 +97,30 @@ public class UserSubscription {
         return autoRenew && !isCancelled() && status == SubscriptionStatus.ACTIVE;
     }
 
+    /**
+     * Момент, коли підписку треба деактивувати
+     *
+     * @param gracePeriodDays grace period для підписок з автопродовженням
+     * @return дата наступного списання (або закінчення) + grace period, якщо підписка продовжується
+     */
+    public LocalDateTime getExpiryDeadline(int gracePeriodDays) {
+        return expiryDeadline(endDate, nextBillingDate, autoRenew, cancelledAt, gracePeriodDays);
+    }
+
+    /**
+     * Момент деактивації за полями підписки (для рядків-проекцій без сутності)
+     */
+    public static LocalDateTime expiryDeadline(LocalDateTime endDate, LocalDateTime nextBillingDate,
+                                               Boolean autoRenew, LocalDateTime cancelledAt,
+                                               int gracePeriodDays) {
+        LocalDateTime base = nextBillingDate != null ? nextBillingDate : endDate;
+        if (base == null) {
+            return null;
+        }
+        boolean renewing = Boolean.TRUE.equals(autoRenew) && cancelledAt == null;
+        return renewing ? base.plusDays(gracePeriodDays) : base;
+    }
+
     /**
      * Скасувати автопродовження
      * updatedAt оновиться автоматично через @PreUpdate
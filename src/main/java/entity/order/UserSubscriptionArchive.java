@@ -0,0 +1,69 @@
+package entity.order;
+
+import entity.enums.SubscriptionStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Архів завершених підписок (холодне сховище user_subscription).
+ *
+ * Рядки переносить SubscriptionArchiver без змін, id зберігається оригінальний -
+ * історія підписок (SubscriptionService.getSubscriptionHistory) читає обидві таблиці
+ * в одному порядку. Посилання на користувача, план і замовлення - прості колонки
+ * без зовнішніх ключів. Тільки для читання.
+ * Індекс (user_id, id) - сторінки історії користувача.
+ */
+@Entity
+@Table(name = "user_subscription_archive", indexes = {
+        @Index(name = "idx_archive_user_id", columnList = "user_id, id")
+})
+@Getter
+@NoArgsConstructor
+public class UserSubscriptionArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "subscription_plan_id", nullable = false)
+    private Long subscriptionPlanId;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDateTime startDate;
+
+    @Column(name = "end_date", nullable = false)
+    private LocalDateTime endDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private SubscriptionStatus status;
+
+    @Column(name = "gateway_subscription_id")
+    private String gatewaySubscriptionId;
+
+    @Column(name = "auto_renew", nullable = false)
+    private Boolean autoRenew;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "cancelled_at")
+    private LocalDateTime cancelledAt;
+
+    @Column(name = "next_billing_date")
+    private LocalDateTime nextBillingDate;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
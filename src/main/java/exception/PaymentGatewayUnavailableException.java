@@ -0,0 +1,11 @@
+package exception;
+
+/**
+ * Запит до платіжної системи не виконано: розімкнений circuit breaker
+ * або вичерпано ліміт одночасних запитів до провайдера
+ */
+public class PaymentGatewayUnavailableException extends RuntimeException {
+    public PaymentGatewayUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,504 @@
+package platform.config;
+
+import entity.enums.Language;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import service.lesson.LessonChangedEvent;
+import service.subscription.SubscriptionPlanChangedEvent;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кеш готових HTML-сторінок для анонімних відвідувачів: головна, каталог, сторінка уроку.
+ *
+ * - ключ: шлях + query string (мова входить у шлях: /{lang}/...)
+ * - зберігається тільки відповідь 200 text/html, стиснута gzip; клієнтам з
+ *   Accept-Encoding: gzip віддається як є, іншим - розпакована
+ * - Set-Cookie не зберігається; сторінки з CSRF-токеном (форми, прив'язані до сесії) не кешуються
+ * - TTL (pages.cache.ttl-seconds) + повне очищення після коміту змін уроків / атрибутів
+ *   (LessonChangedEvent) та планів підписок (SubscriptionPlanChangedEvent)
+ * - на один ключ рендериться одна сторінка одночасно: інші запити чекають її результат
+ *   (pages.cache.render-wait-ms), а не запускають рендеринг паралельно
+ * - умовні запити (If-None-Match / If-Modified-Since) перевіряються за ETag / Last-Modified,
+ *   які виставив ConditionalGetSupport при рендерингу
+ * - метрики: pages.cache.requests{result=hit|miss|coalesced|bypass}, pages.cache.render,
+ *   pages.cache.evictions, pages.cache.entries, pages.cache.bytes
+ *
+ * Фільтр зареєстрований з порядком за замовчуванням, тобто після Spring Security:
+ * на момент перевірки вже відомо, чи користувач анонімний.
+ */
+@Slf4j
+@Component
+public class AnonymousPageCacheFilter extends OncePerRequestFilter {
+
+    private static final List<String> CACHED_PATTERNS = Arrays.asList(
+            "/{lang}",
+            "/{lang}/",
+            "/{lang}/home",
+            "/{lang}/index",
+            "/{lang}/lessons",
+            "/{lang}/lessons/{slug}"
+    );
+
+    /** Шляхи під /{lang}/lessons/{slug}, що не є сторінками уроків */
+    private static final Collection<String> RESERVED_SLUGS = Collections.singletonList("search");
+
+    /** Заголовки відповіді, що зберігаються разом зі сторінкою */
+    private static final List<String> STORED_HEADERS = Arrays.asList(
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED
+    );
+
+    private static final String FLASH_MAPS_ATTRIBUTE = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+
+    private static final String CSRF_MARKER = "name=\"_csrf\"";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<String, CachedPage> pages;
+
+    /** Ключі, для яких зараз виконується рендеринг */
+    private final Map<String, CompletableFuture<CachedPage>> inflight = new ConcurrentHashMap<>();
+
+    /** Лічильник очищень: запис після рендерингу відкидається, якщо під час нього було очищення */
+    private long generation;
+
+    /** Сумарний розмір стиснутих сторінок у кеші */
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter bypasses;
+    private final Counter evictions;
+    private final Timer renderTimer;
+
+    @Value("${pages.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pages.cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${pages.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${pages.cache.render-wait-ms:3000}")
+    private long renderWaitMs;
+
+    public AnonymousPageCacheFilter(MeterRegistry meterRegistry) {
+        this.pages = new LinkedHashMap<String, CachedPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+                if (size() > maxEntries) {
+                    totalBytes -= eldest.getValue().body.length;
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("pages.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("pages.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("pages.cache.requests")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        this.bypasses = Counter.builder("pages.cache.requests")
+                .tag("result", "bypass")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("pages.cache.evictions")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("pages.cache.render")
+                .register(meterRegistry);
+        Gauge.builder("pages.cache.entries", this, AnonymousPageCacheFilter::size)
+                .register(meterRegistry);
+        Gauge.builder("pages.cache.bytes", this, AnonymousPageCacheFilter::bytes)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        return !isCachedPath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!isAnonymous() || hasFlashAttributes(request)) {
+            bypasses.increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = cacheKey(request);
+        CachedPage page = get(key);
+        if (page != null) {
+            hits.increment();
+            writePage(request, response, page);
+            return;
+        }
+
+        CompletableFuture<CachedPage> rendering = new CompletableFuture<>();
+        CompletableFuture<CachedPage> existing = inflight.putIfAbsent(key, rendering);
+        if (existing != null) {
+            // Сторінку вже рендерить інший запит - чекаємо на нього
+            page = await(existing);
+            if (page != null) {
+                coalesced.increment();
+                writePage(request, response, page);
+            } else {
+                bypasses.increment();
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        try {
+            // Інший запит міг завершити рендеринг між get і putIfAbsent
+            page = get(key);
+            if (page != null) {
+                hits.increment();
+                writePage(request, response, page);
+            } else {
+                misses.increment();
+                page = render(request, response, filterChain, key);
+            }
+            rendering.complete(page);
+        } catch (IOException | ServletException | RuntimeException e) {
+            rendering.complete(null);
+            throw e;
+        } finally {
+            inflight.remove(key, rendering);
+        }
+    }
+
+    /**
+     * Очистити кеш після коміту змін уроків або атрибутів
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLessonChanged(LessonChangedEvent event) {
+        invalidateAll(event);
+    }
+
+    /**
+     * Очистити кеш після коміту змін планів підписок (показуються на головній)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSubscriptionPlanChanged(SubscriptionPlanChangedEvent event) {
+        invalidateAll(event);
+    }
+
+    /**
+     * Видалити всі сторінки з кешу
+     */
+    public void invalidateAll(Object reason) {
+        synchronized (pages) {
+            generation++;
+            pages.clear();
+            totalBytes = 0;
+        }
+        evictions.increment();
+        log.debug("Anonymous page cache cleared after {}", reason);
+    }
+
+    public int size() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    public long bytes() {
+        synchronized (pages) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * Відрендерити сторінку, зберегти в кеш (якщо можна) і віддати клієнту
+     *
+     * @return збережена сторінка або null, якщо відповідь не кешується
+     */
+    private CachedPage render(HttpServletRequest request, HttpServletResponse response,
+                              FilterChain filterChain, String key) throws ServletException, IOException {
+        long renderGeneration;
+        synchronized (pages) {
+            renderGeneration = generation;
+        }
+
+        ContentCachingResponseWrapper wrapper =
+                new ContentCachingResponseWrapper(new NoUrlRewritingResponse(response));
+
+        long start = System.nanoTime();
+        // Умовні заголовки приховані: у кеш має потрапити повна сторінка, а не 304
+        filterChain.doFilter(new UnconditionalRequest(request), wrapper);
+        renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        CachedPage page = toCachedPage(wrapper);
+        if (page == null) {
+            wrapper.copyBodyToResponse();
+            return null;
+        }
+
+        synchronized (pages) {
+            if (generation == renderGeneration) {
+                CachedPage previous = pages.put(key, page);
+                totalBytes += page.body.length - (previous != null ? previous.body.length : 0);
+            }
+        }
+
+        writePage(request, response, page);
+        return page;
+    }
+
+    private CachedPage toCachedPage(ContentCachingResponseWrapper wrapper) throws IOException {
+        String contentType = wrapper.getContentType();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || wrapper.isCommitted()
+                || contentType == null || !contentType.startsWith("text/html")) {
+            return null;
+        }
+
+        byte[] body = wrapper.getContentAsByteArray();
+        if (new String(body, StandardCharsets.UTF_8).contains(CSRF_MARKER)) {
+            log.debug("Page with CSRF token is not cached: {}", contentType);
+            return null;
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : STORED_HEADERS) {
+            String value = wrapper.getHeader(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
+        }
+
+        HttpHeaders validators = new HttpHeaders();
+        if (headers.containsKey(HttpHeaders.LAST_MODIFIED)) {
+            validators.set(HttpHeaders.LAST_MODIFIED, headers.get(HttpHeaders.LAST_MODIFIED));
+        }
+
+        return new CachedPage(gzip(body), contentType, headers, validators.getLastModified(),
+                System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    private void writePage(HttpServletRequest request, HttpServletResponse response,
+                           CachedPage page) throws IOException {
+        response.setContentType(page.contentType);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        for (Map.Entry<String, String> header : page.headers.entrySet()) {
+            response.setHeader(header.getKey(), header.getValue());
+        }
+
+        String etag = page.headers.get(HttpHeaders.ETAG);
+        if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag, page.lastModified)) {
+            return;
+        }
+
+        byte[] body;
+        if (acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = page.body;
+        } else {
+            body = gunzip(page.body);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private CachedPage get(String key) {
+        synchronized (pages) {
+            CachedPage page = pages.get(key);
+            if (page != null && page.expiresAt < System.currentTimeMillis()) {
+                pages.remove(key);
+                totalBytes -= page.body.length;
+                return null;
+            }
+            return page;
+        }
+    }
+
+    private CachedPage await(CompletableFuture<CachedPage> rendering) {
+        try {
+            return rendering.get(renderWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private boolean isCachedPath(String path) {
+        for (String pattern : CACHED_PATTERNS) {
+            if (pathMatcher.match(pattern, path)) {
+                Map<String, String> variables = pathMatcher.extractUriTemplateVariables(pattern, path);
+                return Language.isSupported(variables.get("lang"))
+                        && !RESERVED_SLUGS.contains(variables.get("slug"));
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnonymous() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth == null || auth instanceof AnonymousAuthenticationToken;
+    }
+
+    private static boolean hasFlashAttributes(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return false;
+        }
+        Object flashMaps = session.getAttribute(FLASH_MAPS_ATTRIBUTE);
+        return flashMaps instanceof Collection && !((Collection<?>) flashMaps).isEmpty();
+    }
+
+    private static String cacheKey(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query != null ? request.getRequestURI() + "?" + query : request.getRequestURI();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(body.length / 4, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return StreamUtils.copyToByteArray(gzip);
+        }
+    }
+
+    /**
+     * Збережена сторінка (незмінна, спільна для всіх запитів)
+     */
+    private static final class CachedPage {
+        private final byte[] body;
+        private final String contentType;
+        private final Map<String, String> headers;
+
+        /** Last-Modified у мілісекундах (-1, якщо не виставлено) */
+        private final long lastModified;
+        private final long expiresAt;
+
+        private CachedPage(byte[] body, String contentType, Map<String, String> headers,
+                           long lastModified, long expiresAt) {
+            this.body = body;
+            this.contentType = contentType;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Запит без умовних заголовків
+     */
+    private static final class UnconditionalRequest extends HttpServletRequestWrapper {
+
+        private static final Collection<String> HIDDEN_HEADERS = Arrays.asList(
+                HttpHeaders.IF_NONE_MATCH.toLowerCase(),
+                HttpHeaders.IF_MODIFIED_SINCE.toLowerCase()
+        );
+
+        private UnconditionalRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.<String>emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return isHidden(name) ? -1 : super.getDateHeader(name);
+        }
+
+        private static boolean isHidden(String name) {
+            return name != null && HIDDEN_HEADERS.contains(name.toLowerCase());
+        }
+    }
+
+    /**
+     * Відповідь без додавання jsessionid до посилань: HTML у кеші спільний для всіх
+     */
+    private static final class NoUrlRewritingResponse extends HttpServletResponseWrapper {
+
+        private NoUrlRewritingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public String encodeURL(String url) {
+            return url;
+        }
+
+        @Override
+        public String encodeRedirectURL(String url) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package platform.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import platform.config.security.CustomUserDetails;
+import service.lesson.LessonCatalogVersion;
+import service.lesson.LessonPageView;
+import service.subscription.LessonAccessService;
+import service.subscription.UserEntitlements;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Conditional GET (ETag / Last-Modified / 304) для публічних сторінок.
+ *
+ * ETag = хеш від версії ресурсу (updatedAt уроку разом з версією каталогу або версія каталогу), моменту
+ * старту застосунку (новий реліз - нові шаблони) та стану глядача:
+ * - анонім: стан однаковий для всіх, відправляється ще й Last-Modified
+ * - залогінений: користувач, ролі, права доступу (підписка, куплені уроки - позначки
+ *   відкритих уроків на картках), дата (лічильник днів у header)
+ *   та сесія (CSRF-токен у формі виходу); тільки ETag та Cache-Control: private
+ *
+ * Перевірка виконується в контролері до завантаження даних і рендерингу шаблону:
+ * якщо повертається true - контролер повертає null, відповідь 304 вже сформована.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetSupport {
+
+    private final LessonCatalogVersion catalogVersion;
+    private final LessonAccessService lessonAccessService;
+
+    /**
+     * Перевірити сторінку уроку
+     *
+     * @return true, якщо клієнт має актуальну версію (відповідь 304 вже сформована)
+     */
+    public boolean checkLessonNotModified(ServletWebRequest request, LessonPageView lesson) {
+        // Сторінка уроку показує назви атрибутів та опцій: їхня зміна не чіпає updatedAt уроку,
+        // але змінює версію каталогу
+        Instant catalogModified = catalogVersion.getLastModified();
+        Instant updatedAt = lesson.getLastModified() != null
+                ? lesson.getLastModified().atZone(ZoneId.systemDefault()).toInstant()
+                : catalogModified;
+
+        return checkNotModified(request,
+                "lesson:" + lesson.getId() + ":" + updatedAt.toEpochMilli() + ":" + catalogVersion.getVersion(),
+                latest(updatedAt, catalogModified));
+    }
+
+    /**
+     * Перевірити сторінку зі списком уроків (каталог, головна)
+     *
+     * @return true, якщо клієнт має актуальну версію (відповідь 304 вже сформована)
+     */
+    public boolean checkCatalogNotModified(ServletWebRequest request) {
+        return checkNotModified(request,
+                "catalog:" + catalogVersion.getVersion(),
+                catalogVersion.getLastModified());
+    }
+
+    private boolean checkNotModified(ServletWebRequest request, String resource, Instant lastModified) {
+        HttpServletRequest servletRequest = request.getRequest();
+
+        // Flash-повідомлення після redirect є тільки в цій відповіді - завжди рендеримо
+        Map<String, ?> flashAttributes = RequestContextUtils.getInputFlashMap(servletRequest);
+        if (flashAttributes != null && !flashAttributes.isEmpty()) {
+            return false;
+        }
+
+        String viewer = viewerState(servletRequest);
+        boolean anonymous = viewer == null;
+
+        String etag = "W/\"" + DigestUtils.md5DigestAsHex(
+                (resource + "|" + catalogVersion.getStartedAt().toEpochMilli() + "|" + (anonymous ? "anonymous" : viewer))
+                        .getBytes(StandardCharsets.UTF_8)) + "\"";
+
+        // Власний Cache-Control замість no-store від Spring Security: браузер зберігає
+        // сторінку, але завжди перевіряє її актуальність
+        CacheControl cacheControl = anonymous ? CacheControl.noCache() : CacheControl.noCache().cachePrivate();
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+
+        boolean notModified = anonymous
+                ? request.checkNotModified(etag, lastModified.toEpochMilli())
+                : request.checkNotModified(etag);
+
+        if (notModified) {
+            log.debug("Not modified: {} ({})", servletRequest.getRequestURI(), anonymous ? "anonymous" : "authenticated");
+        }
+        return notModified;
+    }
+
+    /**
+     * Стан залогіненого глядача, від якого залежить сторінка (null - анонім)
+     */
+    private String viewerState(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+
+        StringBuilder state = new StringBuilder(auth.getName());
+        state.append('|').append(auth.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .collect(Collectors.joining(",")));
+
+        if (auth.getPrincipal() instanceof CustomUserDetails) {
+            Long userId = ((CustomUserDetails) auth.getPrincipal()).getId();
+            UserEntitlements entitlements = lessonAccessService.getEntitlements(userId);
+            state.append('|').append(userId)
+                    .append('|').append(entitlements.hasActiveSubscription(LocalDateTime.now())
+                            ? entitlements.getSubscriptionEndDate() : "none")
+                    .append('|').append(entitlements.getPurchasedLessonIds().hashCode())
+                    .append('|').append(LocalDate.now());
+        }
+
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            state.append('|').append(session.getId());
+        }
+
+        return state.toString();
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -4,44 +4,60 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import service.subscription.SubscriptionService;
+import service.job.JobLockService;
+import service.subscription.SubscriptionReminderService;
+
+import java.time.LocalDate;
 
 /**
  * Scheduled tasks для автоматичної обробки підписок
+ *
+ * Деактивацію прострочених підписок виконує SubscriptionExpiryScheduler (точно в момент
+ * закінчення) та нічний прохід SubscriptionScheduler як страховка.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class SubscriptionScheduledTasks {
 
-    private final SubscriptionService subscriptionService;
+    private static final String REMINDERS_ENQUEUE_JOB = "subscription-reminders-enqueue";
+    /** Спільна оренда відправки для щоденного запуску і повторних спроб */
+    private static final String REMINDERS_DISPATCH_JOB = "subscription-reminders-dispatch";
+
+    private final SubscriptionReminderService reminderService;
+    private final JobLockService jobLockService;
 
     /**
-     * Деактивувати прострочені підписки (кожні 6 годин)
+     * Відправити нагадування про закінчення підписки (щодня о 10:00)
      */
-    @Scheduled(cron = "0 0 */6 * * *")
-    public void deactivateExpiredSubscriptions() {
-        log.info("Running scheduled task: deactivateExpiredSubscriptions");
+    @Scheduled(cron = "0 0 10 * * *")
+    public void sendExpirationReminders() {
+        log.info("Running scheduled task: sendExpirationReminders");
         try {
-            subscriptionService.deactivateExpiredSubscriptions();
-            log.info("Successfully deactivated expired subscriptions");
+            jobLockService.runExclusive(REMINDERS_ENQUEUE_JOB, () -> {
+                int enqueued = reminderService.enqueueReminders(LocalDate.now());
+                log.info("Enqueued {} expiration reminders", enqueued);
+            });
+            // Якщо відправку вже виконує інший вузол - він дійде й до нових завдань
+            jobLockService.runExclusive(REMINDERS_DISPATCH_JOB, () -> {
+                int sent = reminderService.dispatchDueReminders();
+                log.info("Successfully sent expiration reminders: {} sent", sent);
+            });
         } catch (Exception e) {
-            log.error("Error deactivating expired subscriptions", e);
+            log.error("Error sending expiration reminders", e);
         }
     }
 
     /**
-     * Відправити нагадування про закінчення підписки (щодня о 10:00)
+     * Повторні спроби відправки нагадувань, що не пішли з першого разу
      */
-    @Scheduled(cron = "0 0 10 * * *")
-    public void sendExpirationReminders() {
-        log.info("Running scheduled task: sendExpirationReminders");
+    @Scheduled(fixedDelayString = "${subscription.reminders.dispatch-interval-ms:900000}",
+            initialDelayString = "${subscription.reminders.dispatch-interval-ms:900000}")
+    public void dispatchPendingReminders() {
         try {
-            // TODO: Реалізувати відправку email нагадувань
-            // subscriptionService.sendExpirationReminders();
-            log.info("Successfully sent expiration reminders");
+            jobLockService.runExclusive(REMINDERS_DISPATCH_JOB, reminderService::dispatchDueReminders);
         } catch (Exception e) {
-            log.error("Error sending expiration reminders", e);
+            log.error("Error dispatching pending expiration reminders", e);
         }
     }
 }
@@ -1,6 +1,5 @@
 package platform.config;
 
-import entity.order.UserSubscription;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -9,19 +8,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 import platform.config.security.CustomUserDetails;
-import service.subscription.SubscriptionService;
+import service.subscription.SubscriptionStatusService;
+import service.subscription.SubscriptionStatusToken;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.time.LocalDateTime;
 
 /**
  * Interceptor для автоматичного додавання інформації про підписку в Model.
  *
  * Додає в кожен view наступні змінні:
  * - hasActiveSubscription (boolean) - чи має користувач активну підписку
- * - activeSubscription (UserSubscription) - об'єкт активної підписки (якщо є)
+ * - subscriptionStatus (SubscriptionStatusToken) - ключ плану, дата закінчення, автопродовження
+ * - daysUntilExpiration (long) - днів до закінчення підписки
+ * - activeSubscription - null, якщо контролер не додав сутність підписки сам
  *
- * Використовується в header для показу статусу підписки.
+ * Використовується в header для показу статусу підписки. Статус береться з токена
+ * в сесії (SubscriptionStatusService), тому більшість переглядів сторінок не звертається до БД.
  *
  * @author DLL Community
  */
@@ -30,7 +35,10 @@ import javax.servlet.http.HttpServletResponse;
 @Slf4j
 public class SubscriptionStatusInterceptor implements HandlerInterceptor {
 
-    private final SubscriptionService subscriptionService;
+    /** Атрибут сесії з токеном статусу підписки */
+    public static final String SESSION_ATTRIBUTE = SubscriptionStatusInterceptor.class.getName() + ".STATUS";
+
+    private final SubscriptionStatusService subscriptionStatusService;
 
     /**
      * Викликається ПІСЛЯ виконання контролера, але ПЕРЕД рендерингом view.
@@ -86,28 +94,28 @@ public class SubscriptionStatusInterceptor implements HandlerInterceptor {
             CustomUserDetails userDetails = (CustomUserDetails) auth.getPrincipal();
             Long userId = userDetails.getId();
 
-            // Перевірити чи існує активна підписка
-            UserSubscription activeSubscription = subscriptionService.getActiveSubscription(userId);
-            boolean hasActiveSubscription = activeSubscription != null;
+            // Статус підписки - з токена в сесії (перезавантажується після TTL або зміни підписки)
+            HttpSession session = request.getSession(false);
+            SubscriptionStatusToken cached = session != null
+                    ? (SubscriptionStatusToken) session.getAttribute(SESSION_ATTRIBUTE)
+                    : null;
+            SubscriptionStatusToken status = subscriptionStatusService.getStatus(userId, cached);
+            if (session != null && status != cached) {
+                session.setAttribute(SESSION_ATTRIBUTE, status);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            boolean hasActiveSubscription = status.isActive(now);
 
             // Додати в Model
             modelAndView.addObject("hasActiveSubscription", hasActiveSubscription);
-            modelAndView.addObject("activeSubscription", activeSubscription);
+            modelAndView.addObject("subscriptionStatus", status);
+            modelAndView.addObject("daysUntilExpiration", status.getDaysUntilExpiration(now));
+            addActiveSubscriptionPlaceholder(modelAndView);
 
             log.debug("Added subscription status to model for user {}: hasActiveSubscription={}",
                     userId, hasActiveSubscription);
 
-            // Якщо є активна підписка - додаємо інфо про дні до закінчення
-            if (activeSubscription != null) {
-                long daysUntilExpiration = java.time.temporal.ChronoUnit.DAYS.between(
-                        java.time.LocalDateTime.now(),
-                        activeSubscription.getEndDate()
-                );
-                modelAndView.addObject("daysUntilExpiration", daysUntilExpiration);
-
-                log.debug("Subscription expires in {} days", daysUntilExpiration);
-            }
-
         } catch (Exception e) {
             log.error("Error checking subscription status in interceptor", e);
             // У випадку помилки - безпечно встановити що підписки немає
@@ -120,7 +128,18 @@ public class SubscriptionStatusInterceptor implements HandlerInterceptor {
      */
     private void addNoSubscriptionToModel(ModelAndView modelAndView) {
         modelAndView.addObject("hasActiveSubscription", false);
-        modelAndView.addObject("activeSubscription", null);
+        modelAndView.addObject("subscriptionStatus", null);
         modelAndView.addObject("daysUntilExpiration", 0);
+        addActiveSubscriptionPlaceholder(modelAndView);
+    }
+
+    /**
+     * activeSubscription (сутність) додають тільки контролери кабінету;
+     * для інших сторінок - null, щоб шаблони з перевіркою != null працювали як раніше
+     */
+    private void addActiveSubscriptionPlaceholder(ModelAndView modelAndView) {
+        if (!modelAndView.getModel().containsKey("activeSubscription")) {
+            modelAndView.addObject("activeSubscription", null);
+        }
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +51,20 @@ public interface AttributeRepository extends JpaRepository<Attribute, Long> {
             "LEFT JOIN FETCH a.translations")
     List<Attribute> findAllWithTranslations();
 
+    // ===== Атрибути для певного placement (тільки select/multiselect) =====
+    @Query("SELECT DISTINCT a FROM Attribute a " +
+            "JOIN a.placements p " +
+            "LEFT JOIN FETCH a.translations " +
+            "WHERE p.key = :placementKey " +
+            "AND a.type IN ('select', 'multiselect')")
+    List<Attribute> findSelectableByPlacementKeyWithTranslations(@Param("placementKey") String placementKey);
+
+    // ===== Опції кількох атрибутів з перекладами одним запитом =====
+    @Query("SELECT DISTINCT o FROM AttributeOption o " +
+            "LEFT JOIN FETCH o.translations " +
+            "WHERE o.attribute.id IN :attributeIds")
+    List<AttributeOption> findOptionsByAttributeIdsWithTranslations(@Param("attributeIds") Collection<Long> attributeIds);
+
     // ===== Інші методи =====
     boolean existsByName(String name);
 }
@@ -0,0 +1,83 @@
+package repository;
+
+import dto.LessonAttributeValueRow;
+import dto.LessonCardAttributeRow;
+import dto.LessonOptionRow;
+import entity.attributes.LessonAttribute;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LessonAttributeRepository extends JpaRepository<LessonAttribute, Long> {
+
+    /**
+     * Значення атрибутів для карток уроків одним запитом:
+     * атрибут + його placements (тільки потрібні ключі) + переклад опції для мови.
+     *
+     * @param lessonIds ID уроків
+     * @param placementKeys ключі placement (наприклад, "product_card_head", "product_card")
+     * @param lang код мови для перекладу опцій
+     */
+    @Query("SELECT new dto.LessonCardAttributeRow(la.lesson.id, p.key, a.type, " +
+            "o.value, ot.label, la.textValue, la.numberValue) " +
+            "FROM LessonAttribute la " +
+            "JOIN la.attribute a " +
+            "JOIN a.placements p " +
+            "LEFT JOIN la.option o " +
+            "LEFT JOIN o.translations ot ON ot.langCode = :lang " +
+            "WHERE la.lesson.id IN :lessonIds " +
+            "AND p.key IN :placementKeys " +
+            "ORDER BY la.lesson.id, a.sortOrder, la.id")
+    List<LessonCardAttributeRow> findCardAttributeRows(
+            @Param("lessonIds") Collection<Long> lessonIds,
+            @Param("placementKeys") Collection<String> placementKeys,
+            @Param("lang") String lang
+    );
+
+    /**
+     * Пари (урок, опція) для атрибутів з певним placement (для фасетного індексу)
+     *
+     * @param placementKey ключ placement (наприклад, "filters")
+     */
+    @Query("SELECT new dto.LessonOptionRow(la.lesson.id, la.option.id) " +
+            "FROM LessonAttribute la " +
+            "JOIN la.attribute a " +
+            "JOIN a.placements p " +
+            "WHERE la.option IS NOT NULL " +
+            "AND p.key = :placementKey")
+    List<LessonOptionRow> findLessonOptionRows(@Param("placementKey") String placementKey);
+
+    /**
+     * Пари (урок, опція) одного уроку для атрибутів select / multiselect з певним placement
+     * (ті самі атрибути, що й у фасетному індексі)
+     */
+    @Query("SELECT new dto.LessonOptionRow(la.lesson.id, la.option.id) " +
+            "FROM LessonAttribute la " +
+            "JOIN la.attribute a " +
+            "JOIN a.placements p " +
+            "WHERE la.option IS NOT NULL " +
+            "AND la.lesson.id = :lessonId " +
+            "AND p.key = :placementKey " +
+            "AND a.type IN ('select', 'multiselect')")
+    List<LessonOptionRow> findLessonOptionRowsByLessonId(
+            @Param("lessonId") Long lessonId,
+            @Param("placementKey") String placementKey
+    );
+
+    /**
+     * Значення всіх атрибутів уроку разом з атрибутом та опцією одним запитом
+     */
+    @Query("SELECT new dto.LessonAttributeValueRow(la.lesson.id, a.id, a.name, a.type, " +
+            "o.id, o.value, la.textValue, la.numberValue) " +
+            "FROM LessonAttribute la " +
+            "JOIN la.attribute a " +
+            "LEFT JOIN la.option o " +
+            "WHERE la.lesson.id = :lessonId " +
+            "ORDER BY a.sortOrder, la.id")
+    List<LessonAttributeValueRow> findValueRowsByLessonId(@Param("lessonId") Long lessonId);
+}
@@ -0,0 +1,39 @@
+package repository;
+
+import entity.lesson.LessonCatalogRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface LessonCatalogRevisionRepository extends JpaRepository<LessonCatalogRevision, Integer> {
+
+    /**
+     * Створити рядок версії, якщо його ще немає
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO lesson_catalog_revision (id, version, updated_at) " +
+            "VALUES (1, 0, :now)",
+            nativeQuery = true)
+    int createIfMissing(@Param("now") LocalDateTime now);
+
+    /**
+     * Збільшити версію (рядок блокується до кінця транзакції)
+     *
+     * @return кількість оновлених рядків (0 - рядка немає)
+     */
+    @Modifying
+    @Query("UPDATE LessonCatalogRevision r SET r.version = r.version + 1, r.updatedAt = :now WHERE r.id = 1")
+    int increment(@Param("now") LocalDateTime now);
+
+    /**
+     * Поточна версія (запит до БД, не до persistence context)
+     */
+    @Query("SELECT r.version FROM LessonCatalogRevision r WHERE r.id = 1")
+    Optional<Long> findVersion();
+}
@@ -1,11 +1,22 @@
 package repository;
 
+import dto.LessonAccessLevelRow;
+import dto.LessonCardRow;
+import dto.LessonLangRow;
+import dto.LessonSearchRow;
+import dto.LessonSlugRow;
 import entity.lesson.Lesson;
+import entity.lesson.LessonMaterial;
+import entity.lesson.LessonPrice;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -81,19 +92,138 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     List<Lesson> findAllWithTranslationsOrderByCreatedAtDesc();
 
     /**
-     * Завантажити перші N уроків з перекладами, відсортовані за датою створення (найновіші спочатку)
-     * Примітка: JPQL не підтримує LIMIT, тому цей метод буде працювати через назву
+     * Перші N карток уроків для мови (найновіші спочатку).
+     * LIMIT передається в БД через Pageable, тому читається рівно N рядків.
+     *
+     * @param lang код мови
+     * @param limit максимальна кількість карток
      */
-    @Query("SELECT DISTINCT l FROM Lesson l " +
-            "LEFT JOIN FETCH l.translations " +
-            "ORDER BY l.createdAt DESC")
-    List<Lesson> findTopLessonsWithTranslations();
+    default List<LessonCardRow> findLatestCardRows(String lang, int limit) {
+        return findCardRows(lang, PageRequest.of(0, limit));
+    }
 
     /**
-     * Знайти урок за slug та мовою
+     * Знайти ID уроку за slug та мовою (без завантаження сутності)
      */
-    @Query("SELECT t.lesson FROM LessonTranslation t " +
+    @Query("SELECT t.lesson.id FROM LessonTranslation t " +
             "WHERE t.slug = :slug AND t.lang = :lang")
-    Optional<Lesson> findBySlugAndLang(@Param("slug") String slug, @Param("lang") String lang);
+    Optional<Long> findLessonIdBySlugAndLang(@Param("slug") String slug, @Param("lang") String lang);
 
+    /**
+     * Усі пари (lang, slug) -> lessonId
+     */
+    @Query("SELECT new dto.LessonSlugRow(t.lesson.id, t.lang, t.slug) FROM LessonTranslation t")
+    List<LessonSlugRow> findSlugRows();
+
+    /**
+     * Пари (lang, slug) одного уроку
+     */
+    @Query("SELECT new dto.LessonSlugRow(t.lesson.id, t.lang, t.slug) " +
+            "FROM LessonTranslation t WHERE t.lesson.id = :lessonId")
+    List<LessonSlugRow> findSlugRowsByLessonId(@Param("lessonId") Long lessonId);
+
+    /**
+     * Ціни уроку (без повторного читання самого уроку)
+     */
+    @Query("SELECT p FROM LessonPrice p WHERE p.lesson.id = :lessonId ORDER BY p.id")
+    List<LessonPrice> findPricesByLessonId(@Param("lessonId") Long lessonId);
+
+    /**
+     * Матеріали уроку у порядку відображення
+     */
+    @Query("SELECT m FROM LessonMaterial m WHERE m.lesson.id = :lessonId ORDER BY m.sortOrder, m.id")
+    List<LessonMaterial> findMaterialsByLessonId(@Param("lessonId") Long lessonId);
+
+    // ========== KEYSET-ПАГІНАЦІЯ КАТАЛОГУ ==========
+
+    /**
+     * Перша сторінка карток для мови (найновіші спочатку).
+     * Розмір сторінки задається через Pageable - LIMIT виконується в БД.
+     */
+    @Query("SELECT new dto.LessonCardRow(l.id, l.mainImageUrl, l.accessLevel, " +
+            "t.title, t.description, t.slug, l.createdAt) " +
+            "FROM LessonTranslation t JOIN t.lesson l " +
+            "WHERE t.lang = :lang " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    List<LessonCardRow> findCardRows(@Param("lang") String lang, Pageable pageable);
+
+    /**
+     * Картки, старші за курсор (createdAt, id) - наступна сторінка
+     */
+    @Query("SELECT new dto.LessonCardRow(l.id, l.mainImageUrl, l.accessLevel, " +
+            "t.title, t.description, t.slug, l.createdAt) " +
+            "FROM LessonTranslation t JOIN t.lesson l " +
+            "WHERE t.lang = :lang " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) " +
+            "ORDER BY l.createdAt DESC, l.id DESC")
+    List<LessonCardRow> findCardRowsAfter(
+            @Param("lang") String lang,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Картки, новіші за курсор (createdAt, id) - попередня сторінка.
+     * Повертаються в зворотному порядку (найстаріші спочатку).
+     */
+    @Query("SELECT new dto.LessonCardRow(l.id, l.mainImageUrl, l.accessLevel, " +
+            "t.title, t.description, t.slug, l.createdAt) " +
+            "FROM LessonTranslation t JOIN t.lesson l " +
+            "WHERE t.lang = :lang " +
+            "AND (l.createdAt > :createdAt OR (l.createdAt = :createdAt AND l.id > :id)) " +
+            "ORDER BY l.createdAt ASC, l.id ASC")
+    List<LessonCardRow> findCardRowsBefore(
+            @Param("lang") String lang,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Картки конкретних уроків для мови (порядок не гарантується)
+     */
+    @Query("SELECT new dto.LessonCardRow(l.id, l.mainImageUrl, l.accessLevel, " +
+            "t.title, t.description, t.slug, l.createdAt) " +
+            "FROM LessonTranslation t JOIN t.lesson l " +
+            "WHERE t.lang = :lang AND l.id IN :ids")
+    List<LessonCardRow> findCardRowsByIds(@Param("lang") String lang, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Рівні доступу уроків за ID (пакетна перевірка доступу)
+     */
+    @Query("SELECT new dto.LessonAccessLevelRow(l.id, l.accessLevel) FROM Lesson l WHERE l.id IN :ids")
+    List<LessonAccessLevelRow> findAccessLevelRows(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Кількість уроків, що мають переклад на мову
+     */
+    @Query("SELECT COUNT(t) FROM LessonTranslation t WHERE t.lang = :lang")
+    long countByLang(@Param("lang") String lang);
+
+    /**
+     * Мови, на які перекладені уроки (для фасетного індексу)
+     */
+    @Query("SELECT new dto.LessonLangRow(t.lesson.id, t.lang) FROM LessonTranslation t")
+    List<LessonLangRow> findLessonLangRows();
+
+    /**
+     * Мови, на які перекладений урок
+     */
+    @Query("SELECT t.lang FROM LessonTranslation t WHERE t.lesson.id = :lessonId")
+    List<String> findLangsByLessonId(@Param("lessonId") Long lessonId);
+
+    /**
+     * Переклади всіх уроків для пошукового індексу
+     */
+    @Query("SELECT new dto.LessonSearchRow(t.lesson.id, t.lang, t.title, t.description, t.slug) " +
+            "FROM LessonTranslation t")
+    List<LessonSearchRow> findSearchRows();
+
+    /**
+     * Переклади одного уроку для пошукового індексу
+     */
+    @Query("SELECT new dto.LessonSearchRow(t.lesson.id, t.lang, t.title, t.description, t.slug) " +
+            "FROM LessonTranslation t WHERE t.lesson.id = :lessonId")
+    List<LessonSearchRow> findSearchRowsByLessonId(@Param("lessonId") Long lessonId);
 }
@@ -0,0 +1,33 @@
+package repository;
+
+import entity.order.OrderPaymentAttempt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderPaymentAttemptRepository extends JpaRepository<OrderPaymentAttempt, Long> {
+
+    /**
+     * Запам'ятати платіж замовлення (повторний той самий номер ігнорується)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO order_payment_attempt (order_id, payment_gateway, payment_reference, created_at) " +
+            "VALUES (:orderId, :gateway, :reference, :now)",
+            nativeQuery = true)
+    int insertIfMissing(@Param("orderId") Long orderId,
+                        @Param("gateway") String gateway,
+                        @Param("reference") String reference,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Платежі порції замовлень (одним запитом), новіші спочатку
+     */
+    List<OrderPaymentAttempt> findByOrderIdInOrderByIdDesc(Collection<Long> orderIds);
+}
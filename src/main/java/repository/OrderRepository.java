@@ -1,17 +1,88 @@
 package repository;
 
+import dto.payment.OrderStatusRow;
+import dto.payment.PendingOrderRow;
 import entity.order.Order;
 import entity.lesson.Lesson;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    /**
+     * Замовлення з блокуванням рядка до кінця транзакції (SELECT ... FOR UPDATE)
+     *
+     * @param id ID замовлення
+     * @return Optional із замовленням
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Статус замовлення та його власник одним рядком (для OrderStatusRegistry)
+     *
+     * @param id ID замовлення
+     * @return Optional з рядком статусу
+     */
+    @Query("SELECT new dto.payment.OrderStatusRow(o.id, o.user.id, o.status) " +
+            "FROM Order o WHERE o.id = :id")
+    Optional<OrderStatusRow> findStatusRow(@Param("id") Long id);
+
+    /**
+     * Запам'ятати платіжну систему та номер платежу в ній, поки замовлення не оплачене
+     *
+     * @return кількість оновлених рядків (0 - замовлення вже не PENDING)
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentGateway = :gateway, o.paymentReference = :reference " +
+            "WHERE o.id = :id AND o.status = 'PENDING'")
+    int updatePaymentReference(@Param("id") Long id,
+                               @Param("gateway") String gateway,
+                               @Param("reference") String reference);
+
+    /**
+     * Наступна порція завислих замовлень для звірки (keyset по id, індекс idx_orders_status_id).
+     * Замовлення, перевірене після checkedBefore, пропускається до наступного проходу.
+     *
+     * @param createdBefore замовлення, створені раніше
+     * @param checkedBefore остання перевірка раніше (або не було)
+     * @param afterId ID останнього замовлення попередньої порції
+     * @param pageable розмір порції (PageRequest.of(0, n))
+     */
+    @Query("SELECT new dto.payment.PendingOrderRow(o.id, o.paymentGateway, o.paymentReference, o.createdAt) " +
+            "FROM Order o " +
+            "WHERE o.status = 'PENDING' " +
+            "AND o.id > :afterId " +
+            "AND o.createdAt < :createdBefore " +
+            "AND (o.reconciledAt IS NULL OR o.reconciledAt < :checkedBefore) " +
+            "ORDER BY o.id")
+    List<PendingOrderRow> findPendingForReconciliation(@Param("createdBefore") LocalDateTime createdBefore,
+                                                       @Param("checkedBefore") LocalDateTime checkedBefore,
+                                                       @Param("afterId") long afterId,
+                                                       Pageable pageable);
+
+    /**
+     * Позначити замовлення перевіреними (статус у платіжній системі ще не остаточний)
+     *
+     * @return кількість оновлених рядків
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.reconciledAt = :now WHERE o.id IN :ids AND o.status = 'PENDING'")
+    int markReconciled(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
     /**
      * Перевірити чи користувач придбав конкретний урок
      *
@@ -48,6 +119,22 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             "ORDER BY o.createdAt DESC")
     List<Lesson> findPurchasedLessonsByUserId(@Param("userId") Long userId);
 
+    /**
+     * Отримати ID всіх придбаних уроків користувача одним запитом
+     * (для знімка прав доступу, без завантаження сутностей)
+     *
+     * @param userId ID користувача
+     * @return ID придбаних уроків
+     */
+    @Query("SELECT DISTINCT oi.lesson.id " +
+            "FROM Order o " +
+            "JOIN o.items oi " +
+            "WHERE o.user.id = :userId " +
+            "AND oi.lesson IS NOT NULL " +
+            "AND o.status = 'COMPLETED' " +
+            "AND o.orderType = 'SINGLE_PURCHASE'")
+    List<Long> findPurchasedLessonIdsByUserId(@Param("userId") Long userId);
+
     /**
      * Знайти всі замовлення користувача
      *
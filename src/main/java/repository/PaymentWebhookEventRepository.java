@@ -0,0 +1,176 @@
+package repository;
+
+import dto.payment.WebhookEventRow;
+import dto.payment.WebhookStatusCountRow;
+import entity.enums.WebhookEventStatus;
+import entity.order.PaymentWebhookEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PaymentWebhookEventRepository extends JpaRepository<PaymentWebhookEvent, Long> {
+
+    /**
+     * ID подій, час обробки яких настав
+     *
+     * @param now поточний час
+     * @param pageable розмір порції
+     * @return ID подій за зростанням (старіші спочатку)
+     */
+    @Query("SELECT e.id FROM PaymentWebhookEvent e " +
+            "WHERE e.status = 'RECEIVED' " +
+            "AND e.nextAttemptAt <= :now " +
+            "ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Взяти подію в роботу. Умова status = RECEIVED захищає від подвійної обробки,
+     * якщо ту саму подію паралельно бере інший потік або екземпляр застосунку.
+     *
+     * @return 1, якщо подію взято
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e " +
+            "SET e.status = 'PROCESSING', e.claimToken = :claimToken, e.claimedAt = :now " +
+            "WHERE e.id = :id " +
+            "AND e.status = 'RECEIVED' " +
+            "AND e.nextAttemptAt <= :now")
+    int claim(
+            @Param("id") Long id,
+            @Param("claimToken") String claimToken,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Чи оброблена вже інша подія з цією транзакцією
+     */
+    @Query("SELECT CASE WHEN COUNT(e) > 0 THEN true ELSE false END " +
+            "FROM PaymentWebhookEvent e " +
+            "WHERE e.provider = :provider " +
+            "AND e.transactionId = :transactionId " +
+            "AND e.status = 'PROCESSED' " +
+            "AND e.id <> :id")
+    boolean existsProcessedTransaction(
+            @Param("provider") String provider,
+            @Param("transactionId") String transactionId,
+            @Param("id") Long id
+    );
+
+    /**
+     * Завершити обробку події (PROCESSED, DUPLICATE або REJECTED)
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e " +
+            "SET e.status = :status, e.processedAt = :now, e.attempts = e.attempts + 1, " +
+            "e.orderReference = :orderReference, e.transactionId = :transactionId, e.lastError = :error " +
+            "WHERE e.id = :id " +
+            "AND e.claimToken = :claimToken " +
+            "AND e.status = 'PROCESSING'")
+    int complete(
+            @Param("id") Long id,
+            @Param("claimToken") String claimToken,
+            @Param("status") WebhookEventStatus status,
+            @Param("orderReference") String orderReference,
+            @Param("transactionId") String transactionId,
+            @Param("error") String error,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Невдала спроба: повернути подію в чергу (RECEIVED з nextAttemptAt)
+     * або остаточно позначити FAILED
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e " +
+            "SET e.status = :status, e.attempts = e.attempts + 1, e.nextAttemptAt = :nextAttemptAt, " +
+            "e.lastError = :error, e.claimToken = NULL " +
+            "WHERE e.id = :id " +
+            "AND e.claimToken = :claimToken " +
+            "AND e.status = 'PROCESSING'")
+    int markAttemptFailed(
+            @Param("id") Long id,
+            @Param("claimToken") String claimToken,
+            @Param("status") WebhookEventStatus status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error
+    );
+
+    /**
+     * Повернути в чергу події, взяті обробником, який не завершив роботу
+     * (перезапуск застосунку під час обробки)
+     *
+     * @return кількість повернутих подій
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e " +
+            "SET e.status = 'RECEIVED', e.claimToken = NULL " +
+            "WHERE e.status = 'PROCESSING' " +
+            "AND e.claimedAt < :staleBefore")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Повторна обробка подій (адмінка): повернути в чергу з новим лічильником спроб.
+     * Події в черзі чи в роботі не змінюються.
+     *
+     * @param ids ID подій
+     * @param now поточний час
+     * @return кількість повернутих подій
+     */
+    @Modifying
+    @Query("UPDATE PaymentWebhookEvent e " +
+            "SET e.status = 'RECEIVED', e.attempts = 0, e.nextAttemptAt = :now, " +
+            "e.claimToken = NULL, e.lastError = NULL " +
+            "WHERE e.id IN :ids " +
+            "AND e.status NOT IN ('RECEIVED', 'PROCESSING')")
+    int replay(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * ID подій у статусі, отриманих після моменту (для масової повторної обробки)
+     */
+    @Query("SELECT e.id FROM PaymentWebhookEvent e " +
+            "WHERE e.status = :status " +
+            "AND e.receivedAt >= :since " +
+            "ORDER BY e.id")
+    List<Long> findIdsByStatusSince(
+            @Param("status") WebhookEventStatus status,
+            @Param("since") LocalDateTime since,
+            Pageable pageable
+    );
+
+    /**
+     * Останні події у статусах (адмінка), новіші спочатку
+     */
+    @Query("SELECT new dto.payment.WebhookEventRow(e.id, e.provider, e.status, e.attempts, e.receivedAt, " +
+            "e.processedAt, e.orderReference, e.transactionId, e.lastError) " +
+            "FROM PaymentWebhookEvent e " +
+            "WHERE e.status IN :statuses " +
+            "ORDER BY e.id DESC")
+    List<WebhookEventRow> findRecent(
+            @Param("statuses") Collection<WebhookEventStatus> statuses,
+            Pageable pageable
+    );
+
+    /**
+     * Кількість подій у статусах (по індексу status)
+     */
+    @Query("SELECT new dto.payment.WebhookStatusCountRow(e.status, COUNT(e)) " +
+            "FROM PaymentWebhookEvent e " +
+            "WHERE e.status IN :statuses " +
+            "GROUP BY e.status")
+    List<WebhookStatusCountRow> countByStatuses(@Param("statuses") Collection<WebhookEventStatus> statuses);
+
+    /**
+     * Момент отримання найстарішої необробленої події (null - черга порожня)
+     */
+    @Query("SELECT MIN(e.receivedAt) FROM PaymentWebhookEvent e " +
+            "WHERE e.status IN ('RECEIVED', 'PROCESSING')")
+    LocalDateTime findOldestPendingReceivedAt();
+}
@@ -0,0 +1,81 @@
+package repository;
+
+import entity.job.ScheduledJobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Оренди запланованих завдань. Нативні запити MySQL: увесь час рахується NOW(3) на боці БД,
+ * тож розбіжність годинників вузлів не впливає на оренду.
+ */
+@Repository
+public interface ScheduledJobLockRepository extends JpaRepository<ScheduledJobLock, String> {
+
+    /**
+     * Створити запис завдання, якщо його ще немає (вільна оренда)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO scheduled_job_lock (name, owner, token, locked_at, locked_until) " +
+            "VALUES (:name, NULL, 0, NULL, NOW(3)) " +
+            "ON DUPLICATE KEY UPDATE name = name",
+            nativeQuery = true)
+    int createIfMissing(@Param("name") String name);
+
+    /**
+     * Захопити оренду, якщо вона вільна або прострочена; токен збільшується
+     *
+     * @return 1 - оренду захоплено, 0 - її тримає інший вузол
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_job_lock " +
+            "SET owner = :owner, token = token + 1, locked_at = NOW(3), " +
+            "locked_until = NOW(3) + INTERVAL :leaseMillis * 1000 MICROSECOND " +
+            "WHERE name = :name AND locked_until <= NOW(3)",
+            nativeQuery = true)
+    int acquire(
+            @Param("name") String name,
+            @Param("owner") String owner,
+            @Param("leaseMillis") long leaseMillis
+    );
+
+    /**
+     * Токен оренди, захопленої власником (читається в тій самій транзакції, що й acquire)
+     */
+    @Query(value = "SELECT token FROM scheduled_job_lock WHERE name = :name AND owner = :owner",
+            nativeQuery = true)
+    Long findToken(@Param("name") String name, @Param("owner") String owner);
+
+    /**
+     * Продовжити оренду. Поки токен не змінився, ніхто інший її не захопив.
+     *
+     * @return 0 - оренду втрачено
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_job_lock " +
+            "SET locked_until = NOW(3) + INTERVAL :leaseMillis * 1000 MICROSECOND " +
+            "WHERE name = :name AND token = :token",
+            nativeQuery = true)
+    int renew(
+            @Param("name") String name,
+            @Param("token") long token,
+            @Param("leaseMillis") long leaseMillis
+    );
+
+    @Modifying
+    @Query(value = "UPDATE scheduled_job_lock " +
+            "SET owner = NULL, locked_until = NOW(3) " +
+            "WHERE name = :name AND token = :token",
+            nativeQuery = true)
+    int release(@Param("name") String name, @Param("token") long token);
+
+    /**
+     * Поточний токен зі спільним блокуванням рядка до кінця транзакції:
+     * захоплення оренди іншим вузлом чекає на коміт транзакції, що перевірила токен
+     */
+    @Query(value = "SELECT token FROM scheduled_job_lock WHERE name = :name LOCK IN SHARE MODE",
+            nativeQuery = true)
+    Long findTokenForShare(@Param("name") String name);
+}
@@ -0,0 +1,101 @@
+package repository;
+
+import dto.SubscriptionDailyMetricsRow;
+import entity.order.SubscriptionDailyMetrics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Денні лічильники підписок. Оновлення - нативний upsert MySQL (рядок дня створюється
+ * першим оновленням), без читання рядка перед записом.
+ */
+@Repository
+public interface SubscriptionMetricsRepository extends JpaRepository<SubscriptionDailyMetrics, Long> {
+
+    /**
+     * Збільшити потокові лічильники дня (події життєвого циклу)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_daily_metrics " +
+            "(metric_date, plan_id, created_count, extended_count, cancelled_count, expired_count, " +
+            "active_count, expiring_soon_count, in_grace_count) " +
+            "VALUES (:date, :planId, :created, :extended, :cancelled, :expired, 0, 0, 0) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "created_count = created_count + VALUES(created_count), " +
+            "extended_count = extended_count + VALUES(extended_count), " +
+            "cancelled_count = cancelled_count + VALUES(cancelled_count), " +
+            "expired_count = expired_count + VALUES(expired_count)",
+            nativeQuery = true)
+    int increment(
+            @Param("date") LocalDate date,
+            @Param("planId") Long planId,
+            @Param("created") long created,
+            @Param("extended") long extended,
+            @Param("cancelled") long cancelled,
+            @Param("expired") long expired
+    );
+
+    /**
+     * Записати точні потокові лічильники дня, пораховані звіркою (продовження не
+     * відновлюються з user_subscription і лишаються як є)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_daily_metrics " +
+            "(metric_date, plan_id, created_count, extended_count, cancelled_count, expired_count, " +
+            "active_count, expiring_soon_count, in_grace_count) " +
+            "VALUES (:date, :planId, :created, 0, :cancelled, :expired, 0, 0, 0) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "created_count = VALUES(created_count), " +
+            "cancelled_count = VALUES(cancelled_count), " +
+            "expired_count = VALUES(expired_count)",
+            nativeQuery = true)
+    int setFlows(
+            @Param("date") LocalDate date,
+            @Param("planId") Long planId,
+            @Param("created") long created,
+            @Param("cancelled") long cancelled,
+            @Param("expired") long expired
+    );
+
+    /**
+     * Записати знімок стану плану на день
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_daily_metrics " +
+            "(metric_date, plan_id, created_count, extended_count, cancelled_count, expired_count, " +
+            "active_count, expiring_soon_count, in_grace_count) " +
+            "VALUES (:date, :planId, 0, 0, 0, 0, :active, :expiringSoon, :inGrace) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "active_count = VALUES(active_count), " +
+            "expiring_soon_count = VALUES(expiring_soon_count), " +
+            "in_grace_count = VALUES(in_grace_count)",
+            nativeQuery = true)
+    int setSnapshot(
+            @Param("date") LocalDate date,
+            @Param("planId") Long planId,
+            @Param("active") long active,
+            @Param("expiringSoon") long expiringSoon,
+            @Param("inGrace") long inGrace
+    );
+
+    /**
+     * Метрики по днях, сумарно по планах (рядків: дні x плани)
+     *
+     * @param from перший день періоду
+     * @return дні від найновішого
+     */
+    @Query("SELECT new dto.SubscriptionDailyMetricsRow(m.metricDate, SUM(m.createdCount), SUM(m.extendedCount), " +
+            "SUM(m.cancelledCount), SUM(m.expiredCount), SUM(m.activeCount), SUM(m.expiringSoonCount), " +
+            "SUM(m.inGraceCount)) " +
+            "FROM SubscriptionDailyMetrics m " +
+            "WHERE m.metricDate >= :from " +
+            "GROUP BY m.metricDate " +
+            "ORDER BY m.metricDate DESC")
+    List<SubscriptionDailyMetricsRow> findDailyTotals(@Param("from") LocalDate from);
+}
@@ -0,0 +1,45 @@
+package repository;
+
+import dto.PlanMetricsRow;
+import entity.order.SubscriptionPlanCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SubscriptionPlanCounterRepository extends JpaRepository<SubscriptionPlanCounter, Long> {
+
+    /**
+     * Змінити кількість активних підписок плану на delta (upsert)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_plan_counter (plan_id, active_count, updated_at) " +
+            "VALUES (:planId, GREATEST(:delta, 0), NOW()) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "active_count = GREATEST(active_count + :delta, 0), updated_at = NOW()",
+            nativeQuery = true)
+    int addActive(@Param("planId") Long planId, @Param("delta") long delta);
+
+    /**
+     * Записати точну кількість активних підписок плану (звірка)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO subscription_plan_counter (plan_id, active_count, updated_at) " +
+            "VALUES (:planId, :active, NOW()) " +
+            "ON DUPLICATE KEY UPDATE active_count = VALUES(active_count), updated_at = NOW()",
+            nativeQuery = true)
+    int setActive(@Param("planId") Long planId, @Param("active") long active);
+
+    /**
+     * Лічильники з ключами планів
+     */
+    @Query("SELECT new dto.PlanMetricsRow(c.planId, p.planKey, c.activeCount) " +
+            "FROM SubscriptionPlanCounter c, SubscriptionPlan p " +
+            "WHERE p.id = c.planId " +
+            "ORDER BY p.sortOrder, p.id")
+    List<PlanMetricsRow> findPlanMetrics();
+}
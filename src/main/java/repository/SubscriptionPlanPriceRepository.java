@@ -1,10 +1,13 @@
 package repository;
 
+import dto.PlanPriceRow;
 import entity.order.SubscriptionPlanPrice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Currency;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +17,10 @@ public interface SubscriptionPlanPriceRepository extends JpaRepository<Subscript
      * Знайти ціну плану в певній валюті
      */
     Optional<SubscriptionPlanPrice> findByPlanIdAndCurrency(Long planId, Currency currency);
+
+    /**
+     * Усі ціни планів плоскими рядками (для автопродовження)
+     */
+    @Query("SELECT new dto.PlanPriceRow(p.plan.id, p.currency, p.amount) FROM SubscriptionPlanPrice p")
+    List<PlanPriceRow> findPriceRows();
 }
@@ -0,0 +1,123 @@
+package repository;
+
+import dto.ReminderJobRow;
+import entity.enums.ReminderStatus;
+import entity.order.SubscriptionReminder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SubscriptionReminderRepository extends JpaRepository<SubscriptionReminder, Long> {
+
+    /**
+     * Підписки порції, для яких нагадування цього дня вже є в черзі
+     *
+     * @param subscriptionIds ID підписок порції
+     * @param reminderDay день нагадування
+     * @param from початок періоду закінчення
+     * @param to кінець періоду закінчення
+     * @return ID підписок, які вже мають нагадування
+     */
+    @Query("SELECT r.subscriptionId FROM SubscriptionReminder r " +
+            "WHERE r.subscriptionId IN :subscriptionIds " +
+            "AND r.reminderDay = :reminderDay " +
+            "AND r.endDate BETWEEN :from AND :to")
+    List<Long> findEnqueuedSubscriptionIds(
+            @Param("subscriptionIds") Collection<Long> subscriptionIds,
+            @Param("reminderDay") Integer reminderDay,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    /**
+     * ID завдань, час відправки яких настав
+     *
+     * @param now поточний час
+     * @param pageable розмір порції
+     * @return ID завдань за зростанням
+     */
+    @Query("SELECT r.id FROM SubscriptionReminder r " +
+            "WHERE r.status = 'PENDING' " +
+            "AND r.nextAttemptAt <= :now " +
+            "ORDER BY r.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Взяти завдання в роботу. Умова status = PENDING захищає від подвійної відправки,
+     * якщо ті самі завдання паралельно бере інший екземпляр застосунку.
+     *
+     * @return кількість взятих завдань
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionReminder r " +
+            "SET r.status = 'SENDING', r.claimToken = :claimToken, r.claimedAt = :now " +
+            "WHERE r.id IN :ids " +
+            "AND r.status = 'PENDING'")
+    int claim(
+            @Param("ids") Collection<Long> ids,
+            @Param("claimToken") String claimToken,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Взяті завдання разом з адресатом: основний email, ім'я та мова інтерфейсу
+     *
+     * @param claimToken мітка відправника
+     * @return рядки завдань (email null - адреси немає)
+     */
+    @Query("SELECT new dto.ReminderJobRow(r.id, r.subscriptionId, r.reminderDay, r.endDate, r.attempts, " +
+            "e.email, u.name, s.interfaceLanguage) " +
+            "FROM SubscriptionReminder r, User u " +
+            "LEFT JOIN u.emails e WITH e.isPrimary = TRUE " +
+            "LEFT JOIN u.settings s " +
+            "WHERE u.id = r.userId " +
+            "AND r.claimToken = :claimToken " +
+            "AND r.status = 'SENDING' " +
+            "ORDER BY r.id")
+    List<ReminderJobRow> findClaimedJobs(@Param("claimToken") String claimToken);
+
+    @Modifying
+    @Query("UPDATE SubscriptionReminder r " +
+            "SET r.status = 'SENT', r.sentAt = :now, r.attempts = r.attempts + 1, r.lastError = NULL " +
+            "WHERE r.id IN :ids " +
+            "AND r.status = 'SENDING'")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Невдала спроба: повернути завдання в чергу (PENDING з nextAttemptAt)
+     * або остаточно позначити FAILED
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionReminder r " +
+            "SET r.status = :status, r.attempts = r.attempts + 1, r.nextAttemptAt = :nextAttemptAt, " +
+            "r.lastError = :error " +
+            "WHERE r.id = :id " +
+            "AND r.status = 'SENDING'")
+    int markAttemptFailed(
+            @Param("id") Long id,
+            @Param("status") ReminderStatus status,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("error") String error
+    );
+
+    /**
+     * Повернути в чергу завдання, взяті відправником, який не завершив роботу
+     * (перезапуск застосунку під час відправки)
+     *
+     * @return кількість повернутих завдань
+     */
+    @Modifying
+    @Query("UPDATE SubscriptionReminder r " +
+            "SET r.status = 'PENDING', r.claimToken = NULL " +
+            "WHERE r.status = 'SENDING' " +
+            "AND r.claimedAt < :staleBefore")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore);
+}
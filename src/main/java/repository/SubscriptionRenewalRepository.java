@@ -0,0 +1,20 @@
+package repository;
+
+import entity.order.SubscriptionRenewal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SubscriptionRenewalRepository extends JpaRepository<SubscriptionRenewal, Long> {
+
+    Optional<SubscriptionRenewal> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Списання порції підписок за їхніми ключами періодів (одним запитом)
+     */
+    List<SubscriptionRenewal> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
+}
@@ -0,0 +1,75 @@
+package repository;
+
+import dto.SubscriptionHistoryRow;
+import entity.order.UserSubscriptionArchive;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface UserSubscriptionArchiveRepository extends JpaRepository<UserSubscriptionArchive, Long> {
+
+    /**
+     * Сторінка архівної історії підписок користувача, новіші спочатку (keyset по id)
+     *
+     * @param userId ID користувача
+     * @param lang мова назви плану
+     * @param beforeId курсор: тільки підписки з id менше за нього (Long.MAX_VALUE - перша сторінка)
+     * @param pageable розмір сторінки (PageRequest.of(0, size))
+     * @return рядки історії з позначкою архіву
+     */
+    @Query("SELECT new dto.SubscriptionHistoryRow(a.id, p.planKey, t.name, a.startDate, a.endDate, " +
+            "a.status, a.autoRenew, a.cancelledAt, a.archivedAt) " +
+            "FROM UserSubscriptionArchive a " +
+            "LEFT JOIN SubscriptionPlan p ON p.id = a.subscriptionPlanId " +
+            "LEFT JOIN p.translations t ON t.lang = :lang " +
+            "WHERE a.userId = :userId " +
+            "AND a.id < :beforeId " +
+            "ORDER BY a.id DESC")
+    List<SubscriptionHistoryRow> findHistory(
+            @Param("userId") Long userId,
+            @Param("lang") String lang,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable
+    );
+
+    /**
+     * Чи є у користувача архівні підписки (для причини відмови в доступі)
+     */
+    boolean existsByUserId(Long userId);
+
+    /**
+     * Скопіювати порцію підписок з user_subscription в архів.
+     * Умова завершеності повторюється, щоб не перенести підписку, змінену після вибірки ID.
+     *
+     * @param ids ID порції
+     * @param cutoff підписки, що закінчилися до цього моменту
+     * @param archivedAt момент перенесення
+     * @return кількість скопійованих рядків
+     */
+    @Modifying
+    @Query(value = "INSERT INTO user_subscription_archive " +
+            "(id, user_id, subscription_plan_id, order_id, start_date, end_date, status, " +
+            "gateway_subscription_id, auto_renew, created_at, updated_at, cancelled_at, " +
+            "next_billing_date, archived_at) " +
+            "SELECT us.id, us.user_id, us.subscription_plan_id, us.order_id, us.start_date, us.end_date, " +
+            "us.status, us.gateway_subscription_id, us.auto_renew, us.created_at, us.updated_at, " +
+            "us.cancelled_at, us.next_billing_date, :archivedAt " +
+            "FROM user_subscription us " +
+            "WHERE us.id IN (:ids) " +
+            "AND us.status IN ('EXPIRED', 'CANCELED') " +
+            "AND us.end_date < :cutoff",
+            nativeQuery = true)
+    int copyFromHot(
+            @Param("ids") Collection<Long> ids,
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("archivedAt") LocalDateTime archivedAt
+    );
+}
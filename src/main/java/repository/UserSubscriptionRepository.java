@@ -1,13 +1,26 @@
 package repository;
 
+import dto.ActiveSubscriptionRow;
+import dto.ExpiredSubscriptionRow;
+import dto.ExpiringSubscriptionRow;
+import dto.PlanCountRow;
+import dto.PlanSubscriptionStateRow;
+import dto.RenewalCandidateRow;
+import dto.SubscriptionExpiryRow;
+import dto.SubscriptionHistoryRow;
+import dto.SubscriptionStatusRow;
 import entity.enums.SubscriptionStatus;
 import entity.order.UserSubscription;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,12 +44,65 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
     );
 
     /**
-     * Знайти підписку користувача незалежно від статусу
+     * Підписки користувача, згруповані за статусом (для знімка прав доступу):
+     * одним запитом і дата закінчення ACTIVE підписки, і наявність минулих підписок
      *
      * @param userId ID користувача
-     * @return Optional з підпискою
+     * @return по рядку на кожен статус, що є у користувача
      */
-    Optional<List<UserSubscription>> findByUserId(Long userId);
+    @Query("SELECT new dto.SubscriptionStatusRow(us.status, MAX(us.endDate)) " +
+            "FROM UserSubscription us " +
+            "WHERE us.user.id = :userId " +
+            "GROUP BY us.status")
+    List<SubscriptionStatusRow> findStatusRowsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Активна підписка користувача як плоский рядок (ключ плану, дата закінчення, автопродовження)
+     *
+     * @param userId ID користувача
+     * @param now поточний час
+     * @return підписка з найпізнішою датою закінчення або empty
+     */
+    default Optional<ActiveSubscriptionRow> findActiveRowByUserId(Long userId, LocalDateTime now) {
+        return findActiveRows(userId, now, PageRequest.of(0, 1)).stream().findFirst();
+    }
+
+    @Query("SELECT new dto.ActiveSubscriptionRow(us.id, p.planKey, us.endDate, us.autoRenew) " +
+            "FROM UserSubscription us JOIN us.subscriptionPlan p " +
+            "WHERE us.user.id = :userId " +
+            "AND us.status = 'ACTIVE' " +
+            "AND us.endDate > :now " +
+            "ORDER BY us.endDate DESC")
+    List<ActiveSubscriptionRow> findActiveRows(
+            @Param("userId") Long userId,
+            @Param("now") LocalDateTime now,
+            Pageable pageable
+    );
+
+    /**
+     * Сторінка історії підписок користувача, новіші спочатку (keyset по id).
+     * Архівні підписки - UserSubscriptionArchiveRepository.findHistory.
+     *
+     * @param userId ID користувача
+     * @param lang мова назви плану
+     * @param beforeId курсор: тільки підписки з id менше за нього (Long.MAX_VALUE - перша сторінка)
+     * @param pageable розмір сторінки (PageRequest.of(0, size))
+     * @return рядки історії
+     */
+    @Query("SELECT new dto.SubscriptionHistoryRow(us.id, p.planKey, t.name, us.startDate, us.endDate, " +
+            "us.status, us.autoRenew, us.cancelledAt) " +
+            "FROM UserSubscription us " +
+            "JOIN us.subscriptionPlan p " +
+            "LEFT JOIN p.translations t ON t.lang = :lang " +
+            "WHERE us.user.id = :userId " +
+            "AND us.id < :beforeId " +
+            "ORDER BY us.id DESC")
+    List<SubscriptionHistoryRow> findHistory(
+            @Param("userId") Long userId,
+            @Param("lang") String lang,
+            @Param("beforeId") Long beforeId,
+            Pageable pageable
+    );
 
     /**
      * Перевірити чи є у користувача активна підписка
@@ -69,6 +135,32 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
             "AND us.cancelledAt IS NULL")
     List<UserSubscription> findSubscriptionsForRenewal(@Param("now") LocalDateTime now);
 
+    /**
+     * Порція підписок до автопродовження (keyset по id, без завантаження сутностей).
+     * Умова та сама, що й у findSubscriptionsForRenewal(now), плюс наявність токена
+     * картки - без нього списати неможливо.
+     *
+     * @param now поточний час
+     * @param afterId ID останньої підписки попередньої порції (0 - з початку)
+     * @param pageable розмір порції
+     * @return рядки за зростанням id
+     */
+    @Query("SELECT new dto.RenewalCandidateRow(us.id, us.subscriptionPlan.id, us.nextBillingDate, " +
+            "us.gatewaySubscriptionId, o.paymentGateway, o.currency) " +
+            "FROM UserSubscription us LEFT JOIN us.order o " +
+            "WHERE us.autoRenew = TRUE " +
+            "AND us.status = 'ACTIVE' " +
+            "AND us.nextBillingDate <= :now " +
+            "AND us.cancelledAt IS NULL " +
+            "AND us.gatewaySubscriptionId IS NOT NULL " +
+            "AND us.id > :afterId " +
+            "ORDER BY us.id")
+    List<RenewalCandidateRow> findSubscriptionsForRenewal(
+            @Param("now") LocalDateTime now,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
 
     /**
      * Знайти всі підписки що закінчилися
@@ -99,6 +191,30 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
             @Param("to") LocalDateTime to
     );
 
+    /**
+     * Порція підписок, що закінчуються в періоді (keyset по id, без завантаження сутностей).
+     * Умова та сама, що й у findExpiringSubscriptions(from, to).
+     *
+     * @param from початок періоду
+     * @param to кінець періоду
+     * @param afterId ID останньої підписки попередньої порції (0 - з початку)
+     * @param pageable розмір порції
+     * @return рядки за зростанням id
+     */
+    @Query("SELECT new dto.ExpiringSubscriptionRow(us.id, us.user.id, us.endDate) " +
+            "FROM UserSubscription us " +
+            "WHERE us.status = 'ACTIVE' " +
+            "AND us.endDate BETWEEN :from AND :to " +
+            "AND us.cancelledAt IS NULL " +
+            "AND us.id > :afterId " +
+            "ORDER BY us.id")
+    List<ExpiringSubscriptionRow> findExpiringSubscriptions(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
     /**
      * Перевірити чи була у користувача підписка раніше
      *
@@ -158,8 +274,10 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
     /**
      * Знайти всі підписки що потребують деактивації
      * Включає:
-     * - підписки БЕЗ автопродовження що закінчилися
+     * - підписки БЕЗ автопродовження (або скасовані) що закінчилися
      * - підписки З автопродовженням що прострочені більше grace period
+     * Дата закінчення - next_billing_date, а якщо її немає - end_date
+     * (те саме правило, що й UserSubscription.getExpiryDeadline)
      *
      * @param now поточний час
      * @param gracePeriodEnd межа grace period (now - N днів)
@@ -167,14 +285,170 @@ public interface UserSubscriptionRepository extends JpaRepository<UserSubscripti
      */
     @Query("SELECT us FROM UserSubscription us " +
             "WHERE us.status = 'ACTIVE' " +
-            "AND us.cancelledAt IS NULL " +
             "AND (" +
-            "  (us.autoRenew = FALSE AND us.nextBillingDate <= :now) " +
+            "  ((us.autoRenew = FALSE OR us.cancelledAt IS NOT NULL) " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :now) " +
             "  OR " +
-            "  (us.autoRenew = TRUE AND us.nextBillingDate <= :gracePeriodEnd)" +
+            "  (us.autoRenew = TRUE AND us.cancelledAt IS NULL " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :gracePeriodEnd)" +
             ")")
     List<UserSubscription> findExpiredSubscriptions(
             @Param("now") LocalDateTime now,
             @Param("gracePeriodEnd") LocalDateTime gracePeriodEnd
     );
+
+    /**
+     * ID наступної порції прострочених підписок (keyset по id, без завантаження сутностей).
+     * Умова та сама, що й у findExpiredSubscriptions.
+     *
+     * @param now поточний час
+     * @param gracePeriodEnd межа grace period (now - N днів)
+     * @param afterId ID останньої підписки попередньої порції (0 - з початку)
+     * @param pageable розмір порції
+     * @return ID підписок за зростанням
+     */
+    @Query("SELECT us.id FROM UserSubscription us " +
+            "WHERE us.status = 'ACTIVE' " +
+            "AND us.id > :afterId " +
+            "AND (" +
+            "  ((us.autoRenew = FALSE OR us.cancelledAt IS NOT NULL) " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :now) " +
+            "  OR " +
+            "  (us.autoRenew = TRUE AND us.cancelledAt IS NULL " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :gracePeriodEnd)" +
+            ") " +
+            "ORDER BY us.id")
+    List<Long> findExpiredIds(
+            @Param("now") LocalDateTime now,
+            @Param("gracePeriodEnd") LocalDateTime gracePeriodEnd,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * Деактивувати порцію підписок одним UPDATE.
+     * Умова закінчення перевіряється ще раз: підписку могли продовжити після вибірки ID.
+     *
+     * @return кількість деактивованих підписок
+     */
+    @Modifying
+    @Query("UPDATE UserSubscription us " +
+            "SET us.status = 'EXPIRED', us.updatedAt = :now " +
+            "WHERE us.id IN :ids " +
+            "AND us.status = 'ACTIVE' " +
+            "AND (" +
+            "  ((us.autoRenew = FALSE OR us.cancelledAt IS NOT NULL) " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :now) " +
+            "  OR " +
+            "  (us.autoRenew = TRUE AND us.cancelledAt IS NULL " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :gracePeriodEnd)" +
+            ")")
+    int expireByIds(
+            @Param("ids") Collection<Long> ids,
+            @Param("now") LocalDateTime now,
+            @Param("gracePeriodEnd") LocalDateTime gracePeriodEnd
+    );
+
+    /**
+     * Підписки порції, деактивовані саме цим UPDATE (status EXPIRED і updatedAt = now)
+     *
+     * @return рядки для слухачів (користувач, план)
+     */
+    @Query("SELECT new dto.ExpiredSubscriptionRow(us.id, us.user.id, us.subscriptionPlan.id, us.autoRenew) " +
+            "FROM UserSubscription us " +
+            "WHERE us.id IN :ids " +
+            "AND us.status = 'EXPIRED' " +
+            "AND us.updatedAt = :now")
+    List<ExpiredSubscriptionRow> findExpiredRows(
+            @Param("ids") Collection<Long> ids,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Стан активних підписок по планах для звірки метрик: усього, закінчуються до soon,
+     * у grace period (дата списання / закінчення минула, але підписка ще активна)
+     *
+     * @param now поточний час
+     * @param soon межа "закінчуються незабаром"
+     * @return рядок на план з активними підписками
+     */
+    @Query("SELECT new dto.PlanSubscriptionStateRow(us.subscriptionPlan.id, COUNT(us), " +
+            "SUM(CASE WHEN COALESCE(us.nextBillingDate, us.endDate) > :now " +
+            "    AND COALESCE(us.nextBillingDate, us.endDate) <= :soon THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN COALESCE(us.nextBillingDate, us.endDate) <= :now THEN 1 ELSE 0 END)) " +
+            "FROM UserSubscription us " +
+            "WHERE us.status = 'ACTIVE' " +
+            "GROUP BY us.subscriptionPlan.id")
+    List<PlanSubscriptionStateRow> findActiveStateByPlan(
+            @Param("now") LocalDateTime now,
+            @Param("soon") LocalDateTime soon
+    );
+
+    @Query("SELECT new dto.PlanCountRow(us.subscriptionPlan.id, COUNT(us)) " +
+            "FROM UserSubscription us " +
+            "WHERE us.createdAt >= :from AND us.createdAt < :to " +
+            "GROUP BY us.subscriptionPlan.id")
+    List<PlanCountRow> countCreatedByPlan(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new dto.PlanCountRow(us.subscriptionPlan.id, COUNT(us)) " +
+            "FROM UserSubscription us " +
+            "WHERE us.cancelledAt >= :from AND us.cancelledAt < :to " +
+            "GROUP BY us.subscriptionPlan.id")
+    List<PlanCountRow> countCancelledByPlan(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Закінчені за період (за часом деактивації - updated_at EXPIRED підписки)
+     */
+    @Query("SELECT new dto.PlanCountRow(us.subscriptionPlan.id, COUNT(us)) " +
+            "FROM UserSubscription us " +
+            "WHERE us.status = 'EXPIRED' " +
+            "AND us.updatedAt >= :from AND us.updatedAt < :to " +
+            "GROUP BY us.subscriptionPlan.id")
+    List<PlanCountRow> countExpiredByPlan(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Активні підписки, що закінчуються до horizon (без grace period), для планувальника
+     * точного закінчення. Прострочені теж повертаються - їх буде деактивовано одразу.
+     *
+     * @param horizon межа вибірки
+     * @return рядки з датами для обчислення моменту деактивації
+     */
+    @Query("SELECT new dto.SubscriptionExpiryRow(us.id, us.endDate, us.nextBillingDate, us.autoRenew, us.cancelledAt) " +
+            "FROM UserSubscription us " +
+            "WHERE us.status = 'ACTIVE' " +
+            "AND COALESCE(us.nextBillingDate, us.endDate) <= :horizon")
+    List<SubscriptionExpiryRow> findExpiryRows(@Param("horizon") LocalDateTime horizon);
+
+    /**
+     * Порція ID завершених підписок для перенесення в архів (keyset по id)
+     *
+     * @param cutoff підписки, що закінчилися до цього моменту
+     * @param afterId ID останньої підписки попередньої порції (0 для першої)
+     * @param pageable розмір порції (PageRequest.of(0, size))
+     * @return ID по зростанню
+     */
+    @Query("SELECT us.id FROM UserSubscription us " +
+            "WHERE us.status IN ('EXPIRED', 'CANCELED') " +
+            "AND us.endDate < :cutoff " +
+            "AND us.id > :afterId " +
+            "ORDER BY us.id")
+    List<Long> findArchivableIds(
+            @Param("cutoff") LocalDateTime cutoff,
+            @Param("afterId") Long afterId,
+            Pageable pageable
+    );
+
+    /**
+     * Видалити підписки порції, що вже є в архіві
+     * (після UserSubscriptionArchiveRepository.copyFromHot в тій самій транзакції)
+     *
+     * @param ids ID порції
+     * @return кількість видалених рядків
+     */
+    @Modifying
+    @Query(value = "DELETE us FROM user_subscription us " +
+            "JOIN user_subscription_archive a ON a.id = us.id " +
+            "WHERE us.id IN (:ids)",
+            nativeQuery = true)
+    int deleteArchived(@Param("ids") Collection<Long> ids);
 }
@@ -1,18 +1,37 @@
 package service;
 
+import dto.LessonCardCursor;
 import dto.LessonCardDto;
-import entity.attributes.LessonAttribute;
+import dto.LessonCardPage;
+import dto.LessonCardRow;
 import entity.lesson.Lesson;
 import entity.lesson.LessonTranslation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import repository.LessonRepository;
+import service.lesson.LessonCardAttributeLoader;
+import service.lesson.LessonCardAttributes;
+import service.lesson.LessonCardSnapshot;
+import service.lesson.LessonCardSnapshotCache;
+import service.lesson.LessonChangedEvent;
+import service.lesson.LessonFacetResult;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -22,34 +41,99 @@ import java.util.stream.Collectors;
 public class LessonCardService {
 
     private final LessonRepository lessonRepository;
+    private final LessonCardSnapshotCache snapshotCache;
+    private final LessonCardAttributeLoader attributeLoader;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${lessons.catalog.page-size:12}")
+    private int catalogPageSize;
 
     /**
      * Отримати картки всіх уроків для певної мови
      * Уроки сортуються за датою створення (найновіші спочатку)
      *
+     * Якщо знімок мови повний - повертається він (без звернення до БД).
+     * Повернений список незмінний.
+     *
      * @param lang код мови (uk, en, de)
      * @return список DTO для карток уроків
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<LessonCardDto> getAllLessonCards(String lang) {
         log.info("Getting all lesson cards for language: {}", lang);
 
-        // Використовуємо метод з сортуванням за датою створення
-        List<Lesson> lessons = lessonRepository.findAllWithTranslationsOrderByCreatedAtDesc();
+        LessonCardSnapshot snapshot = snapshotCache.get(lang, this::loadSnapshot);
+        if (snapshot.isComplete()) {
+            return snapshot.getCards();
+        }
 
-        List<LessonCardDto> cards = new ArrayList<>();
-        for (Lesson lesson : lessons) {
-            try {
-                LessonCardDto card = convertToCardDto(lesson, lang);
-                if (card != null) {
-                    cards.add(card);
-                }
-            } catch (Exception e) {
-                log.error("Error converting lesson {} to card: {}", lesson.getId(), e.getMessage());
-            }
+        return inReadOnlyTransaction(() -> loadAllLessonCards(lang));
+    }
+
+    /**
+     * Отримати одну сторінку карток каталогу (keyset-пагінація по createdAt, id)
+     *
+     * Сторінка вирізається зі знімка мови; до БД звертаємося тільки тоді,
+     * коли сторінка виходить за межі обрізаного знімка. У БД фільтрація за мовою
+     * та LIMIT теж виконуються на стороні MySQL.
+     *
+     * @param lang код мови (uk, en, de)
+     * @param afterToken курсор останньої картки попередньої сторінки (для "вперед")
+     * @param beforeToken курсор першої картки наступної сторінки (для "назад")
+     * @return сторінка карток з курсорами навігації
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LessonCardPage getLessonCardPage(String lang, String afterToken, String beforeToken) {
+        LessonCardCursor after = LessonCardCursor.parse(afterToken);
+        LessonCardCursor before = after == null ? LessonCardCursor.parse(beforeToken) : null;
+
+        log.info("Getting lesson card page for language: {}, after={}, before={}", lang, afterToken, beforeToken);
+
+        LessonCardSnapshot snapshot = snapshotCache.get(lang, this::loadSnapshot);
+        LessonCardPage page = pageFromSnapshot(snapshot, after, before);
+        if (page != null) {
+            return page;
         }
 
-        log.info("Loaded {} lesson cards", cards.size());
-        return cards;
+        log.debug("Lesson card page is outside of the {} snapshot, loading from database", lang);
+        return inReadOnlyTransaction(() -> loadLessonCardPage(lang, after, before));
+    }
+
+    /**
+     * Отримати одну сторінку карток каталогу з фасетним фільтром
+     *
+     * Для повного знімка сторінка вирізається з відфільтрованих карток знімка;
+     * інакше з БД читаються легкі рядки тільки підходящих уроків, а атрибути -
+     * тільки для карток сторінки.
+     *
+     * @param lang код мови (uk, en, de)
+     * @param afterToken курсор для "вперед"
+     * @param beforeToken курсор для "назад"
+     * @param filter результат фасетного пошуку (null або без вибраних опцій - без фільтра)
+     * @return сторінка карток; totalCount - кількість уроків, що підходять під фільтр
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LessonCardPage getLessonCardPage(String lang, String afterToken, String beforeToken,
+                                            LessonFacetResult filter) {
+        if (filter == null || !filter.isFiltered()) {
+            return getLessonCardPage(lang, afterToken, beforeToken);
+        }
+
+        LessonCardCursor after = LessonCardCursor.parse(afterToken);
+        LessonCardCursor before = after == null ? LessonCardCursor.parse(beforeToken) : null;
+
+        log.info("Getting filtered lesson card page for language: {}, options={}, after={}, before={}",
+                lang, filter.getSelectedOptionIds(), afterToken, beforeToken);
+
+        LessonCardSnapshot snapshot = snapshotCache.get(lang, this::loadSnapshot);
+        if (snapshot.isComplete()) {
+            List<LessonCardDto> matched = snapshot.getCards().stream()
+                    .filter(card -> filter.matches(card.getId()))
+                    .collect(Collectors.toList());
+            return pageFromSnapshot(new LessonCardSnapshot(matched, true, matched.size()), after, before);
+        }
+
+        return inReadOnlyTransaction(() -> loadFilteredCardPage(lang, filter, after, before));
     }
 
     /**
@@ -59,12 +143,22 @@ public class LessonCardService {
      * @param limit максимальна кількість уроків
      * @return список DTO для карток уроків
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<LessonCardDto> getLatestLessonCards(String lang, int limit) {
         log.info("Getting latest {} lesson cards for language: {}", limit, lang);
 
-        return getAllLessonCards(lang).stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        LessonCardSnapshot snapshot = snapshotCache.get(lang, this::loadSnapshot);
+        if (snapshot.isComplete() || snapshot.size() >= limit) {
+            return snapshot.getCards().subList(0, Math.min(limit, snapshot.size()));
+        }
+
+        // Top-N з LIMIT у БД: читаємо тільки потрібні рядки для однієї мови
+        return inReadOnlyTransaction(() ->
+                convertRowsToCardDtos(lessonRepository.findLatestCardRows(lang, limit), lang));
     }
 
     /**
@@ -80,11 +174,283 @@ public class LessonCardService {
         Lesson lesson = lessonRepository.findByIdWithTranslations(lessonId)
                 .orElseThrow(() -> new IllegalArgumentException("Lesson not found with id: " + lessonId));
 
-        // Довантажуємо атрибути, якщо потрібно
-        lessonRepository.findByIdWithAttributes(lessonId)
-                .ifPresent(l -> lesson.setAttributes(l.getAttributes()));
+        // Атрибути картки - одним запитом
+        Map<Long, LessonCardAttributes> attributes =
+                attributeLoader.load(Collections.singletonList(lessonId), lang);
+
+        return convertToCardDto(lesson, lang, attributes);
+    }
+
+    // ========== ЗНІМКИ КАРТОК ==========
+
+    /**
+     * Оновити знімки карток після зміни уроків в адмінці.
+     * Викликається після коміту транзакції адмін-сервісу, тому читає вже збережені дані.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onLessonChanged(LessonChangedEvent event) {
+        log.info("Refreshing lesson card snapshots: {}", event);
+
+        if (event.affectsAllLessons()) {
+            snapshotCache.invalidateAll();
+            return;
+        }
+
+        for (String lang : snapshotCache.cachedLanguages()) {
+            snapshotCache.update(lang, snapshot -> patchSnapshot(snapshot, event, lang));
+        }
+    }
+
+    /**
+     * Застосувати зміну одного уроку до знімка мови
+     *
+     * @return новий знімок або null, якщо знімок треба перебудувати повністю
+     */
+    private LessonCardSnapshot patchSnapshot(LessonCardSnapshot snapshot, LessonChangedEvent event, String lang) {
+        // Для обрізаного знімка не знаємо точної позиції та кількості - перебудовуємо
+        if (!snapshot.isComplete()) {
+            return null;
+        }
+
+        Long lessonId = event.getLessonId();
+        if (event.getType() == LessonChangedEvent.Type.DELETED) {
+            return snapshot.withoutLesson(lessonId);
+        }
+
+        List<LessonCardRow> rows = lessonRepository.findCardRowsByIds(lang, Collections.singletonList(lessonId));
+        if (rows.isEmpty()) {
+            // Перекладу на цю мову більше немає
+            return snapshot.withoutLesson(lessonId);
+        }
+
+        LessonCardDto card = convertRowsToCardDtos(rows, lang).get(0);
+        return snapshot.withCard(card, snapshotCache.getMaxEntries());
+    }
+
+    /**
+     * Побудувати знімок мови з БД (не більше max-entries найновіших карток)
+     */
+    private LessonCardSnapshot loadSnapshot(String lang) {
+        return inReadOnlyTransaction(() -> {
+            int maxEntries = snapshotCache.getMaxEntries();
+
+            List<LessonCardRow> rows = lessonRepository.findCardRows(lang, PageRequest.of(0, maxEntries + 1));
+            boolean complete = rows.size() <= maxEntries;
+            if (!complete) {
+                rows = rows.subList(0, maxEntries);
+            }
+
+            List<LessonCardDto> cards = convertRowsToCardDtos(rows, lang);
+            long totalCount = complete ? cards.size() : lessonRepository.countByLang(lang);
+
+            return new LessonCardSnapshot(cards, complete, totalCount);
+        });
+    }
+
+    /**
+     * Вирізати сторінку зі знімка
+     *
+     * @return сторінка або null, якщо знімок обрізаний і не покриває її
+     */
+    private LessonCardPage pageFromSnapshot(LessonCardSnapshot snapshot,
+                                            LessonCardCursor after,
+                                            LessonCardCursor before) {
+        int size = snapshot.size();
+        int from;
+        int to;
+
+        if (before != null) {
+            to = snapshot.indexBefore(before);
+            if (to == size && !snapshot.isComplete()) {
+                return null;
+            }
+            from = Math.max(0, to - catalogPageSize);
+        } else {
+            from = after != null ? snapshot.indexAfter(after) : 0;
+            // Для обрізаного знімка потрібна ще одна картка, щоб знати чи є наступна сторінка
+            if (!snapshot.isComplete() && from + catalogPageSize >= size) {
+                return null;
+            }
+            to = Math.min(size, from + catalogPageSize);
+        }
 
-        return convertToCardDto(lesson, lang);
+        return buildPage(snapshot.getCards().subList(from, to), to < size, from > 0, snapshot.getTotalCount());
+    }
+
+    /**
+     * Сторінка каталогу напряму з БД
+     */
+    private LessonCardPage loadLessonCardPage(String lang, LessonCardCursor after, LessonCardCursor before) {
+        // Беремо на один рядок більше, щоб дізнатися, чи є ще сторінка в цьому напрямку
+        Pageable limit = PageRequest.of(0, catalogPageSize + 1);
+
+        List<LessonCardRow> rows;
+        if (before != null) {
+            rows = lessonRepository.findCardRowsBefore(lang, before.getCreatedAt(), before.getId(), limit);
+        } else if (after != null) {
+            rows = lessonRepository.findCardRowsAfter(lang, after.getCreatedAt(), after.getId(), limit);
+        } else {
+            rows = lessonRepository.findCardRows(lang, limit);
+        }
+
+        boolean hasMore = rows.size() > catalogPageSize;
+        if (hasMore) {
+            rows = rows.subList(0, catalogPageSize);
+        }
+        if (before != null) {
+            // findCardRowsBefore повертає найстаріші спочатку
+            rows = new ArrayList<>(rows);
+            Collections.reverse(rows);
+        }
+
+        List<LessonCardDto> cards = convertRowsToCardDtos(rows, lang);
+
+        boolean hasNext = before != null || hasMore;
+        boolean hasPrevious = before != null ? hasMore : after != null;
+
+        return buildPage(cards, hasNext, hasPrevious, lessonRepository.countByLang(lang));
+    }
+
+    /**
+     * Сторінка каталогу з фільтром напряму з БД (коли каталог більший за знімок)
+     */
+    private LessonCardPage loadFilteredCardPage(String lang, LessonFacetResult filter,
+                                                LessonCardCursor after, LessonCardCursor before) {
+        List<Long> ids = filter.getLessonIds();
+        if (ids.isEmpty()) {
+            return buildPage(new ArrayList<>(), false, false, 0);
+        }
+
+        List<LessonCardRow> rows = new ArrayList<>(lessonRepository.findCardRowsByIds(lang, ids));
+        rows.sort(Comparator.comparing(LessonCardRow::getCreatedAt)
+                .thenComparing(LessonCardRow::getId)
+                .reversed());
+
+        int size = rows.size();
+        int from;
+        int to;
+        if (before != null) {
+            to = countRowsBefore(rows, before, false);
+            from = Math.max(0, to - catalogPageSize);
+        } else {
+            from = after != null ? countRowsBefore(rows, after, true) : 0;
+            to = Math.min(size, from + catalogPageSize);
+        }
+
+        List<LessonCardDto> cards = convertRowsToCardDtos(rows.subList(from, to), lang);
+        return buildPage(cards, to < size, from > 0, size);
+    }
+
+    /**
+     * Кількість рядків (у порядку каталогу), що стоять перед курсором
+     *
+     * @param inclusive враховувати рядок самого курсора
+     */
+    private int countRowsBefore(List<LessonCardRow> rows, LessonCardCursor cursor, boolean inclusive) {
+        int count = 0;
+        for (LessonCardRow row : rows) {
+            int byDate = cursor.getCreatedAt().compareTo(row.getCreatedAt());
+            int order = byDate != 0 ? byDate : cursor.getId().compareTo(row.getId());
+            if (order < 0 || (inclusive && order == 0)) {
+                count++;
+            } else {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private LessonCardPage buildPage(List<LessonCardDto> cards, boolean hasNext, boolean hasPrevious, long totalCount) {
+        String nextCursor = null;
+        String previousCursor = null;
+        if (!cards.isEmpty()) {
+            if (hasNext) {
+                nextCursor = LessonCardCursor.of(cards.get(cards.size() - 1)).encode();
+            }
+            if (hasPrevious) {
+                previousCursor = LessonCardCursor.of(cards.get(0)).encode();
+            }
+        }
+
+        return LessonCardPage.builder()
+                .cards(cards)
+                .nextCursor(nextCursor)
+                .previousCursor(previousCursor)
+                .totalCount(totalCount)
+                .pageSize(catalogPageSize)
+                .build();
+    }
+
+    /**
+     * Усі картки мови з БД (коли каталог більший за знімок)
+     */
+    private List<LessonCardDto> loadAllLessonCards(String lang) {
+        // Використовуємо метод з сортуванням за датою створення
+        List<Lesson> lessons = lessonRepository.findAllWithTranslationsOrderByCreatedAtDesc();
+
+        // Атрибути всіх уроків - одним запитом замість lazy-обходу
+        Map<Long, LessonCardAttributes> attributes = attributeLoader.load(
+                lessons.stream().map(Lesson::getId).collect(Collectors.toList()), lang);
+
+        List<LessonCardDto> cards = new ArrayList<>();
+        for (Lesson lesson : lessons) {
+            try {
+                LessonCardDto card = convertToCardDto(lesson, lang, attributes);
+                if (card != null) {
+                    cards.add(card);
+                }
+            } catch (Exception e) {
+                log.error("Error converting lesson {} to card: {}", lesson.getId(), e.getMessage());
+            }
+        }
+
+        log.info("Loaded {} lesson cards", cards.size());
+        return cards;
+    }
+
+    private <T> T inReadOnlyTransaction(Supplier<T> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * Конвертація рядків сторінки -> LessonCardDto
+     * Атрибути для всіх уроків сторінки завантажуються одним запитом.
+     *
+     * @param rows рядки (Lesson + переклад) у потрібному порядку
+     * @param lang код мови для перекладів
+     * @return список DTO у тому ж порядку
+     */
+    private List<LessonCardDto> convertRowsToCardDtos(List<LessonCardRow> rows, String lang) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> ids = rows.stream()
+                .map(LessonCardRow::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, LessonCardAttributes> attributesByLesson = attributeLoader.load(ids, lang);
+
+        List<LessonCardDto> cards = new ArrayList<>(rows.size());
+        for (LessonCardRow row : rows) {
+            LessonCardDto dto = new LessonCardDto();
+            dto.setId(row.getId());
+            dto.setMainImageUrl(row.getMainImageUrl());
+            dto.setAccessLevel(row.getAccessLevel() != null ? row.getAccessLevel().name() : "PAID");
+            dto.setTitle(row.getTitle());
+            dto.setDescription(row.getDescription());
+            dto.setSlug(row.getSlug());
+            dto.setCreatedAt(row.getCreatedAt());
+
+            fillCardAttributes(dto, attributesByLesson.get(row.getId()));
+
+            cards.add(dto);
+        }
+
+        return cards;
     }
 
     /**
@@ -92,15 +458,18 @@ public class LessonCardService {
      *
      * @param lesson сутність уроку
      * @param lang код мови для перекладів
+     * @param attributesByLesson попередньо завантажені атрибути карток (lessonId -> атрибути)
      * @return DTO для відображення картки
      */
-    private LessonCardDto convertToCardDto(Lesson lesson, String lang) {
+    private LessonCardDto convertToCardDto(Lesson lesson, String lang,
+                                           Map<Long, LessonCardAttributes> attributesByLesson) {
         LessonCardDto dto = new LessonCardDto();
 
         // Базові дані з Lesson
         dto.setId(lesson.getId());
         dto.setMainImageUrl(lesson.getMainImageUrl());
         dto.setAccessLevel(lesson.getAccessLevel() != null ? lesson.getAccessLevel().name() : "PAID");
+        dto.setCreatedAt(lesson.getCreatedAt());
 
         // Знаходимо переклад для потрібної мови
         LessonTranslation translation = lesson.getTranslations().stream()
@@ -118,97 +487,24 @@ public class LessonCardService {
         dto.setSlug(translation.getSlug());
 
         // Обробка атрибутів
-        if (lesson.getAttributes() != null && !lesson.getAttributes().isEmpty()) {
-            // Розділяємо атрибути за placement
-            List<String> cardHeaderAttributes = extractAttributesByPlacement(
-                    lesson.getAttributes(), "product_card_head", lang
-            );
-            List<String> cardBodyAttributes = extractAttributesByPlacement(
-                    lesson.getAttributes(), "product_card", lang
-            );
-
-            dto.setCardHeaderAttributes(cardHeaderAttributes);
-            dto.setCardBodyAttributes(cardBodyAttributes);
-        } else {
-            dto.setCardHeaderAttributes(new ArrayList<>());
-            dto.setCardBodyAttributes(new ArrayList<>());
-        }
+        fillCardAttributes(dto, attributesByLesson.get(lesson.getId()));
 
         return dto;
     }
 
     /**
-     * Витягує значення атрибутів для певного placement з перекладами
+     * Заповнює атрибути картки (header / body)
      *
-     * @param lessonAttributes всі атрибути уроку
-     * @param placementKey ключ placement (наприклад, "card_header", "card_body")
-     * @param lang код мови для перекладів
-     * @return список перекладених значень атрибутів
+     * @param dto картка, яку заповнюємо
+     * @param attributes атрибути уроку (null, якщо в уроку немає атрибутів для картки)
      */
-    private List<String> extractAttributesByPlacement(
-            Iterable<LessonAttribute> lessonAttributes,
-            String placementKey,
-            String lang) {
-
-        List<String> result = new ArrayList<>();
-
-        for (LessonAttribute lessonAttr : lessonAttributes) {
-            // Перевіряємо, чи атрибут має потрібний placement
-            boolean hasPlacement = lessonAttr.getAttribute().getPlacements().stream()
-                    .anyMatch(p -> p.getKey().equals(placementKey));
-
-            if (!hasPlacement) {
-                continue;
-            }
-
-            // Отримуємо значення атрибута
-            String value = getAttributeValue(lessonAttr, lang);
-            if (value != null && !value.trim().isEmpty()) {
-                result.add(value);
-            }
-        }
-
-        return result;
-    }
-
-    /**
-     * Отримує перекладене значення атрибута
-     *
-     * @param lessonAttribute атрибут уроку
-     * @param lang код мови
-     * @return перекладене значення або null
-     */
-    private String getAttributeValue(LessonAttribute lessonAttribute, String lang) {
-        String attributeType = lessonAttribute.getAttribute().getType();
-
-        switch (attributeType) {
-            case "select":
-            case "multiselect":
-                // Для select/multiselect беремо переклад опції
-                if (lessonAttribute.getOption() != null) {
-                    return lessonAttribute.getOption().getTranslations().stream()
-                            .filter(t -> t.getLangCode().equals(lang))
-                            .findFirst()
-                            .map(t -> t.getLabel())
-                            .orElse(lessonAttribute.getOption().getValue());
-                }
-                break;
-
-            case "text":
-                // Для text повертаємо текстове значення
-                return lessonAttribute.getTextValue();
-
-            case "number":
-                // Для number конвертуємо в рядок
-                if (lessonAttribute.getNumberValue() != null) {
-                    return lessonAttribute.getNumberValue().toString();
-                }
-                break;
-
-            default:
-                log.warn("Unknown attribute type: {}", attributeType);
+    private void fillCardAttributes(LessonCardDto dto, LessonCardAttributes attributes) {
+        if (attributes != null) {
+            dto.setCardHeaderAttributes(attributes.getHeaderAttributes());
+            dto.setCardBodyAttributes(attributes.getBodyAttributes());
+        } else {
+            dto.setCardHeaderAttributes(new ArrayList<>());
+            dto.setCardBodyAttributes(new ArrayList<>());
         }
-
-        return null;
     }
 }
@@ -0,0 +1,155 @@
+package service;
+
+import dto.LessonAttributeValueRow;
+import entity.lesson.Lesson;
+import entity.lesson.LessonMaterial;
+import entity.lesson.LessonPrice;
+import entity.lesson.LessonTranslation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.LessonAttributeRepository;
+import repository.LessonRepository;
+import service.lesson.LessonChangedEvent;
+import service.lesson.LessonPageView;
+import service.lesson.LessonPageViewCache;
+import service.lesson.LessonSlugIndex;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Дані для публічної сторінки уроку.
+ *
+ * Read-модель уроку завантажується фіксованою кількістю запитів (4) незалежно від
+ * кількості матеріалів і атрибутів та кешується по ID уроку до збереження в адмінці.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class LessonPageService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final LessonRepository lessonRepository;
+    private final LessonAttributeRepository lessonAttributeRepository;
+    private final LessonPageViewCache pageViewCache;
+    private final LessonSlugIndex lessonSlugIndex;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Отримати сторінку уроку за slug та мовою
+     *
+     * @param lang код мови (uk, en, de)
+     * @param slug slug уроку для мови
+     * @return read-модель уроку або empty, якщо урок не знайдено
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<LessonPageView> getLessonPage(String lang, String slug) {
+        return lessonSlugIndex.resolve(lang, slug).flatMap(this::getLessonPage);
+    }
+
+    /**
+     * Отримати сторінку уроку за ID
+     *
+     * @param lessonId ID уроку
+     * @return read-модель уроку або empty, якщо урок не знайдено
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Optional<LessonPageView> getLessonPage(Long lessonId) {
+        return Optional.ofNullable(pageViewCache.get(lessonId, this::loadView));
+    }
+
+    /**
+     * Прибрати read-модель з кешу після збереження уроку в адмінці
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onLessonChanged(LessonChangedEvent event) {
+        if (event.affectsAllLessons()) {
+            // Змінились атрибути / опції - їхні назви є у всіх read-моделях
+            pageViewCache.invalidateAll();
+        } else {
+            pageViewCache.evict(event.getLessonId());
+        }
+    }
+
+    /**
+     * Завантажити read-модель: урок з перекладами, ціни, матеріали, атрибути (4 запити)
+     */
+    private LessonPageView loadView(Long lessonId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        return transactionTemplate.execute(status -> {
+            Lesson lesson = lessonRepository.findByIdWithTranslations(lessonId).orElse(null);
+            if (lesson == null) {
+                log.debug("Lesson page requested for missing lesson id={}", lessonId);
+                return null;
+            }
+
+            Map<String, LessonPageView.Translation> translations = new HashMap<>();
+            for (LessonTranslation translation : lesson.getTranslations()) {
+                translations.put(translation.getLang(), new LessonPageView.Translation(
+                        translation.getLang(),
+                        translation.getTitle(),
+                        translation.getDescription(),
+                        translation.getMetaDescription(),
+                        translation.getSlug()));
+            }
+
+            List<LessonPageView.Price> prices = new ArrayList<>();
+            for (LessonPrice price : lessonRepository.findPricesByLessonId(lessonId)) {
+                prices.add(new LessonPageView.Price(price.getCurrency(), price.getAmount()));
+            }
+
+            List<LessonPageView.Material> materials = new ArrayList<>();
+            for (LessonMaterial material : lessonRepository.findMaterialsByLessonId(lessonId)) {
+                materials.add(new LessonPageView.Material(
+                        material.getId(),
+                        material.getMaterialType(),
+                        material.getTitle(),
+                        material.getContent(),
+                        material.getSortOrder()));
+            }
+
+            List<LessonPageView.AttributeValue> attributes = new ArrayList<>();
+            for (LessonAttributeValueRow row : lessonAttributeRepository.findValueRowsByLessonId(lessonId)) {
+                attributes.add(new LessonPageView.AttributeValue(
+                        row.getAttributeId(),
+                        row.getAttributeName(),
+                        row.getAttributeType(),
+                        row.getOptionId(),
+                        row.getOptionValue(),
+                        row.getTextValue(),
+                        row.getNumberValue()));
+            }
+
+            log.debug("Lesson page view loaded: id={}, {} translations, {} prices, {} materials, {} attributes",
+                    lessonId, translations.size(), prices.size(), materials.size(), attributes.size());
+
+            return new LessonPageView(
+                    lesson.getId(),
+                    lesson.getMainImageUrl(),
+                    lesson.getAccessLevel(),
+                    lesson.getCreatedAt() != null ? lesson.getCreatedAt().format(DATE_FORMATTER) : null,
+                    lesson.getUpdatedAt() != null ? lesson.getUpdatedAt().format(DATE_FORMATTER) : null,
+                    lesson.getUpdatedAt(),
+                    translations,
+                    prices,
+                    materials,
+                    attributes);
+        });
+    }
+}
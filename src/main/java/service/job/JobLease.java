@@ -0,0 +1,50 @@
+package service.job;
+
+/**
+ * Оренда, яку тримає поточний запуск завдання.
+ */
+public class JobLease {
+
+    private final String name;
+    private final String owner;
+    private final long token;
+    private final long acquiredAtNanos = System.nanoTime();
+
+    private volatile boolean lost;
+
+    JobLease(String name, String owner, long token) {
+        this.name = name;
+        this.owner = owner;
+        this.token = token;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Fencing token: більший за токени всіх попередніх власників
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * Чи оренду втрачено (не вдалося продовжити або інший вузол уже має новіший токен)
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    void markLost() {
+        lost = true;
+    }
+
+    long getAcquiredAtNanos() {
+        return acquiredAtNanos;
+    }
+}
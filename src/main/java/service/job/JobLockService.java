@@ -0,0 +1,222 @@
+package service.job;
+
+import exception.LeaseLostException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.ScheduledJobLockRepository;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Виконання запланованих завдань на одному вузлі кластера (оренда в таблиці scheduled_job_lock).
+ *
+ * - runExclusive захоплює оренду завдання; якщо її тримає інший вузол - запуск пропускається
+ * - поки завдання працює, оренда продовжується кожну третину lease-seconds
+ * - checkFence у транзакції порції перевіряє, що токен досі наш: якщо оренду перехопив
+ *   інший вузол (пауза GC, втрата зв'язку з БД), порція відкочується
+ * - завдання, запущене поза runExclusive (вручну з адмінки), перевірку fencing не проходить
+ *   і виконується як раніше
+ *
+ * Метрики: scheduling.lock.acquire{job, result}, scheduling.lock.held{job} (час утримання),
+ * scheduling.lock.renewals{job, result}
+ */
+@Slf4j
+@Service
+public class JobLockService {
+
+    private static final ThreadLocal<JobLease> CURRENT = new ThreadLocal<>();
+
+    private final ScheduledJobLockRepository lockRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final ScheduledExecutorService renewalExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "job-lease-renewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String nodeId;
+
+    @Value("${scheduling.lock.enabled:true}")
+    private boolean enabled;
+
+    @Value("${scheduling.lock.lease-seconds:60}")
+    private long leaseSeconds;
+
+    public JobLockService(ScheduledJobLockRepository lockRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${scheduling.node-id:}") String nodeId) {
+        this.lockRepository = lockRepository;
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+        // pid@hostname за замовчуванням
+        this.nodeId = nodeId.isEmpty() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    @PreDestroy
+    public void stop() {
+        renewalExecutor.shutdownNow();
+    }
+
+    /**
+     * Виконати завдання, якщо вдалося захопити його оренду
+     *
+     * @param jobName назва завдання (ключ оренди)
+     * @param task завдання
+     * @return true - завдання виконано на цьому вузлі, false - його тримає інший вузол
+     */
+    public boolean runExclusive(String jobName, Runnable task) {
+        if (!enabled) {
+            task.run();
+            return true;
+        }
+
+        JobLease lease = tryAcquire(jobName);
+        if (lease == null) {
+            log.debug("Job {} is running on another node, skipping", jobName);
+            return false;
+        }
+
+        JobLease previous = CURRENT.get();
+        CURRENT.set(lease);
+        long renewIntervalMillis = Math.max(1000, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+        ScheduledFuture<?> renewal = renewalExecutor.scheduleAtFixedRate(() -> renew(lease),
+                renewIntervalMillis, renewIntervalMillis, TimeUnit.MILLISECONDS);
+        try {
+            task.run();
+            return true;
+        } finally {
+            renewal.cancel(false);
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+            release(lease);
+        }
+    }
+
+    /**
+     * Оренда поточного запуску (null - завдання запущене поза runExclusive)
+     */
+    public JobLease currentLease() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Перевірити fencing token поточного запуску в активній транзакції
+     */
+    public void checkFence() {
+        checkFence(CURRENT.get());
+    }
+
+    /**
+     * Перевірити fencing token у активній транзакції (для потоків-виконавців завдання).
+     * Рядок оренди лишається заблокованим на читання до коміту: новий власник не може
+     * захопити оренду, поки порція старого не завершилась.
+     *
+     * @param lease оренда запуску (null - перевірка не потрібна)
+     * @throws LeaseLostException якщо оренду перехопив інший вузол
+     */
+    public void checkFence(JobLease lease) {
+        if (lease == null) {
+            return;
+        }
+        Long token = lockRepository.findTokenForShare(lease.getName());
+        if (lease.isLost() || token == null || token != lease.getToken()) {
+            lease.markLost();
+            throw new LeaseLostException("Lease of job " + lease.getName() + " (token " + lease.getToken()
+                    + ") was taken over, current token " + token);
+        }
+    }
+
+    private JobLease tryAcquire(String jobName) {
+        String owner = nodeId + "/" + UUID.randomUUID().toString().substring(0, 8);
+        long leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+
+        try {
+            Long token = requiresNew().execute(status -> {
+                lockRepository.createIfMissing(jobName);
+                if (lockRepository.acquire(jobName, owner, leaseMillis) == 0) {
+                    return null;
+                }
+                return lockRepository.findToken(jobName, owner);
+            });
+
+            counter("scheduling.lock.acquire", jobName, token != null ? "acquired" : "busy").increment();
+            if (token == null) {
+                return null;
+            }
+            log.debug("Job {} lease acquired by {} (token {})", jobName, owner, token);
+            return new JobLease(jobName, owner, token);
+
+        } catch (RuntimeException e) {
+            counter("scheduling.lock.acquire", jobName, "error").increment();
+            log.error("Failed to acquire lease of job {}, skipping this run", jobName, e);
+            return null;
+        }
+    }
+
+    private void renew(JobLease lease) {
+        if (lease.isLost()) {
+            return;
+        }
+        try {
+            Integer updated = requiresNew().execute(status -> lockRepository.renew(
+                    lease.getName(), lease.getToken(), TimeUnit.SECONDS.toMillis(leaseSeconds)));
+            if (updated == null || updated == 0) {
+                lease.markLost();
+                counter("scheduling.lock.renewals", lease.getName(), "lost").increment();
+                log.error("Lease of job {} (token {}) was lost, the run will be fenced off",
+                        lease.getName(), lease.getToken());
+            } else {
+                counter("scheduling.lock.renewals", lease.getName(), "renewed").increment();
+            }
+        } catch (RuntimeException e) {
+            // Наступна спроба через інтервал; оренда ще діє до locked_until
+            counter("scheduling.lock.renewals", lease.getName(), "error").increment();
+            log.warn("Failed to renew lease of job {}: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    private void release(JobLease lease) {
+        Timer.builder("scheduling.lock.held")
+                .tag("job", lease.getName())
+                .register(meterRegistry)
+                .record(System.nanoTime() - lease.getAcquiredAtNanos(), TimeUnit.NANOSECONDS);
+        try {
+            requiresNew().execute(status -> lockRepository.release(lease.getName(), lease.getToken()));
+        } catch (RuntimeException e) {
+            // Оренда звільниться сама після locked_until
+            log.warn("Failed to release lease of job {}: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    private Counter counter(String name, String jobName, String result) {
+        return Counter.builder(name)
+                .tag("job", jobName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+}
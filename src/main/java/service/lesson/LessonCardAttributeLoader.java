@@ -0,0 +1,95 @@
+package service.lesson;
+
+import dto.LessonCardAttributeRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import repository.LessonAttributeRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетне завантаження атрибутів для карток уроків.
+ *
+ * Замість обходу lazy-колекцій (lesson.attributes -> attribute.placements ->
+ * option.translations), що дає N x M x k запитів, усі значення для набору уроків
+ * та однієї мови читаються одним запитом.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LessonCardAttributeLoader {
+
+    public static final String PLACEMENT_CARD_HEAD = "product_card_head";
+    public static final String PLACEMENT_CARD_BODY = "product_card";
+
+    private static final List<String> CARD_PLACEMENTS = Arrays.asList(PLACEMENT_CARD_HEAD, PLACEMENT_CARD_BODY);
+
+    private final LessonAttributeRepository lessonAttributeRepository;
+
+    /**
+     * Завантажити атрибути карток для уроків
+     *
+     * @param lessonIds ID уроків
+     * @param lang код мови для перекладів опцій
+     * @return lessonId -> атрибути картки (уроки без атрибутів у мапі відсутні)
+     */
+    public Map<Long, LessonCardAttributes> load(Collection<Long> lessonIds, String lang) {
+        Map<Long, LessonCardAttributes> result = new HashMap<>();
+        if (lessonIds == null || lessonIds.isEmpty()) {
+            return result;
+        }
+
+        List<LessonCardAttributeRow> rows =
+                lessonAttributeRepository.findCardAttributeRows(lessonIds, CARD_PLACEMENTS, lang);
+
+        for (LessonCardAttributeRow row : rows) {
+            String value = resolveValue(row);
+            if (value == null || value.trim().isEmpty()) {
+                continue;
+            }
+
+            LessonCardAttributes attributes =
+                    result.computeIfAbsent(row.getLessonId(), id -> new LessonCardAttributes());
+
+            if (PLACEMENT_CARD_HEAD.equals(row.getPlacementKey())) {
+                attributes.getHeaderAttributes().add(value);
+            } else {
+                attributes.getBodyAttributes().add(value);
+            }
+        }
+
+        log.debug("Loaded card attributes for {} of {} lessons ({} rows, lang={})",
+                result.size(), lessonIds.size(), rows.size(), lang);
+
+        return result;
+    }
+
+    /**
+     * Перекладене значення атрибута залежно від його типу
+     */
+    private String resolveValue(LessonCardAttributeRow row) {
+        String attributeType = row.getAttributeType();
+
+        switch (attributeType) {
+            case "select":
+            case "multiselect":
+                // Для select/multiselect беремо переклад опції, або ключ опції як запасний варіант
+                return row.getOptionLabel() != null ? row.getOptionLabel() : row.getOptionValue();
+
+            case "text":
+                return row.getTextValue();
+
+            case "number":
+                return row.getNumberValue() != null ? row.getNumberValue().toString() : null;
+
+            default:
+                log.warn("Unknown attribute type: {}", attributeType);
+                return null;
+        }
+    }
+}
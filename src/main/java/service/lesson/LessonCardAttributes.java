@@ -0,0 +1,19 @@
+package service.lesson;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Перекладені значення атрибутів картки одного уроку, розкладені по placement
+ */
+@Getter
+public class LessonCardAttributes {
+
+    /** Атрибути для верхньої частини картки (placement "product_card_head") */
+    private final List<String> headerAttributes = new ArrayList<>();
+
+    /** Атрибути для тіла картки (placement "product_card") */
+    private final List<String> bodyAttributes = new ArrayList<>();
+}
@@ -0,0 +1,142 @@
+package service.lesson;
+
+import dto.LessonCardCursor;
+import dto.LessonCardDto;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Незмінний знімок упорядкованого списку карток уроків для однієї мови.
+ *
+ * Порядок: createdAt DESC, id DESC (як у каталозі). Зміни не модифікують знімок,
+ * а створюють новий (copy-on-write), тому читачі працюють без блокувань.
+ *
+ * ВАЖЛИВО: LessonCardDto всередині знімка спільні для всіх запитів -
+ * їх не можна змінювати після побудови знімка.
+ */
+@Getter
+public class LessonCardSnapshot {
+
+    /** Картки у порядку каталогу (незмінний список) */
+    private final List<LessonCardDto> cards;
+
+    /** true, якщо знімок містить усі уроки мови (не обрізаний за лімітом) */
+    private final boolean complete;
+
+    /** Загальна кількість уроків для мови */
+    private final long totalCount;
+
+    public LessonCardSnapshot(List<LessonCardDto> cards, boolean complete, long totalCount) {
+        this.cards = Collections.unmodifiableList(new ArrayList<>(cards));
+        this.complete = complete;
+        this.totalCount = totalCount;
+    }
+
+    public int size() {
+        return cards.size();
+    }
+
+    /**
+     * Індекс першої картки, що стоїть у каталозі ПІСЛЯ курсора (старіша за нього)
+     */
+    public int indexAfter(LessonCardCursor cursor) {
+        int low = 0;
+        int high = cards.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToCursor(cards.get(mid), cursor) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Індекс першої картки, що НЕ стоїть у каталозі перед курсором.
+     * Картки [0, indexBefore) - новіші за курсор.
+     */
+    public int indexBefore(LessonCardCursor cursor) {
+        int low = 0;
+        int high = cards.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToCursor(cards.get(mid), cursor) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Новий знімок з доданою або заміненою карткою.
+     * Застосовується тільки до повних знімків - для обрізаних позиція
+     * нової картки може бути за межами знімка.
+     *
+     * @param card картка уроку
+     * @param maxEntries максимальний розмір знімка
+     */
+    public LessonCardSnapshot withCard(LessonCardDto card, int maxEntries) {
+        List<LessonCardDto> updated = new ArrayList<>(cards.size() + 1);
+        for (LessonCardDto existing : cards) {
+            if (!existing.getId().equals(card.getId())) {
+                updated.add(existing);
+            }
+        }
+
+        int position = 0;
+        while (position < updated.size() && compare(updated.get(position), card) < 0) {
+            position++;
+        }
+        updated.add(position, card);
+
+        long total = updated.size();
+        boolean full = true;
+        if (updated.size() > maxEntries) {
+            updated = updated.subList(0, maxEntries);
+            full = false;
+        }
+        return new LessonCardSnapshot(updated, full, total);
+    }
+
+    /**
+     * Новий знімок без картки уроку (для повних знімків)
+     */
+    public LessonCardSnapshot withoutLesson(Long lessonId) {
+        List<LessonCardDto> updated = new ArrayList<>(cards.size());
+        for (LessonCardDto existing : cards) {
+            if (!existing.getId().equals(lessonId)) {
+                updated.add(existing);
+            }
+        }
+        if (updated.size() == cards.size()) {
+            return this;
+        }
+        return new LessonCardSnapshot(updated, complete, updated.size());
+    }
+
+    // ========== ПОРІВНЯННЯ ==========
+
+    private static int compareToCursor(LessonCardDto card, LessonCardCursor cursor) {
+        return compare(card.getCreatedAt(), card.getId(), cursor.getCreatedAt(), cursor.getId());
+    }
+
+    private static int compare(LessonCardDto a, LessonCardDto b) {
+        return compare(a.getCreatedAt(), a.getId(), b.getCreatedAt(), b.getId());
+    }
+
+    /**
+     * Від'ємне значення, якщо a стоїть у каталозі раніше за b (новіша)
+     */
+    private static int compare(LocalDateTime aCreatedAt, Long aId, LocalDateTime bCreatedAt, Long bId) {
+        int byDate = bCreatedAt.compareTo(aCreatedAt);
+        return byDate != 0 ? byDate : bId.compareTo(aId);
+    }
+}
@@ -0,0 +1,153 @@
+package service.lesson;
+
+import entity.enums.Language;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-process кеш знімків карток уроків (LessonCardSnapshot) по мовах.
+ *
+ * - читання без блокувань (volatile-посилання в ConcurrentHashMap)
+ * - побудова знімка один раз на мову, навіть при паралельних промахах
+ * - пам'ять обмежена: тільки підтримувані мови, не більше max-entries карток на мову
+ * - кеш локальний для вузла: зміни з інших вузлів скидають його повністю
+ *   (LessonChangedEvent.remote() від LessonCatalogVersion)
+ * - метрики: lesson.cards.cache.requests{result=hit|miss}, lesson.cards.cache.load,
+ *   lesson.cards.cache.evictions, lesson.cards.cache.entries
+ */
+@Slf4j
+@Component
+public class LessonCardSnapshotCache {
+
+    private final Map<String, LessonCardSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer loadTimer;
+
+    @Value("${lessons.card-cache.max-entries:5000}")
+    private int maxEntries;
+
+    public LessonCardSnapshotCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("lesson.cards.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lesson.cards.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("lesson.cards.cache.evictions")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("lesson.cards.cache.load")
+                .register(meterRegistry);
+        Gauge.builder("lesson.cards.cache.entries", snapshots,
+                        map -> map.values().stream().mapToInt(LessonCardSnapshot::size).sum())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Максимальна кількість карток у знімку однієї мови
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Отримати знімок для мови, побудувавши його при промаху.
+     * Для непідтримуваних мов знімок будується, але не кешується.
+     *
+     * @param lang код мови
+     * @param loader побудова знімка з БД
+     */
+    public LessonCardSnapshot get(String lang, Function<String, LessonCardSnapshot> loader) {
+        LessonCardSnapshot snapshot = snapshots.get(lang);
+        if (snapshot != null) {
+            hits.increment();
+            return snapshot;
+        }
+
+        misses.increment();
+
+        if (!Language.isSupported(lang)) {
+            return loadTimer.record(() -> loader.apply(lang));
+        }
+
+        synchronized (lockFor(lang)) {
+            snapshot = snapshots.get(lang);
+            if (snapshot == null) {
+                snapshot = loadTimer.record(() -> loader.apply(lang));
+                snapshots.put(lang, snapshot);
+                log.info("Lesson card snapshot built for language {}: {} cards (complete={})",
+                        lang, snapshot.size(), snapshot.isComplete());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Змінити знімок мови, якщо він є в кеші.
+     * Patch виконується під блокуванням мови, тож не перетинається з побудовою знімка.
+     * Якщо patch повертає null - знімок видаляється (буде перебудований при наступному читанні).
+     */
+    public void update(String lang, UnaryOperator<LessonCardSnapshot> patch) {
+        synchronized (lockFor(lang)) {
+            LessonCardSnapshot current = snapshots.get(lang);
+            if (current == null) {
+                return;
+            }
+
+            LessonCardSnapshot updated;
+            try {
+                updated = patch.apply(current);
+            } catch (RuntimeException e) {
+                log.error("Error patching lesson card snapshot for language {}, evicting", lang, e);
+                updated = null;
+            }
+
+            if (updated == null) {
+                snapshots.remove(lang);
+                evictions.increment();
+            } else {
+                snapshots.put(lang, updated);
+            }
+        }
+    }
+
+    /**
+     * Видалити знімки всіх мов
+     */
+    public void invalidateAll() {
+        for (String lang : cachedLanguages()) {
+            synchronized (lockFor(lang)) {
+                if (snapshots.remove(lang) != null) {
+                    evictions.increment();
+                }
+            }
+        }
+        log.info("Lesson card snapshots invalidated");
+    }
+
+    /**
+     * Мови, для яких зараз є знімок
+     */
+    public Set<String> cachedLanguages() {
+        return new HashSet<>(snapshots.keySet());
+    }
+
+    private Object lockFor(String lang) {
+        return locks.computeIfAbsent(lang, key -> new Object());
+    }
+}
@@ -0,0 +1,202 @@
+package service.lesson;
+
+import entity.lesson.LessonCatalogRevision;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.LessonCatalogRevisionRepository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Версія каталогу уроків для валідаторів HTTP-кешу (ETag / Last-Modified)
+ * сторінок зі списками уроків (каталог, головна).
+ *
+ * Версія зберігається в БД (lesson_catalog_revision) і збільшується в транзакції
+ * будь-якої зміни уроків або атрибутів в адмінці, тож однакова на всіх вузлах.
+ * Кожні lessons.catalog.version-check-ms вузол перечитує її: якщо версія зросла
+ * через зміну на іншому вузлі, публікується LessonChangedEvent.remote() - локальні
+ * кеші та індекси перебудовуються, валідатори змінюються.
+ * У валідатори також входить момент старту застосунку (новий реліз - нові шаблони).
+ */
+@Slf4j
+@Component
+public class LessonCatalogVersion {
+
+    /** Версія до та після змін поточної транзакції (від BEFORE_COMMIT до AFTER_COMMIT) */
+    private static final ThreadLocal<long[]> COMMITTED = new ThreadLocal<>();
+
+    private final LessonCatalogRevisionRepository revisionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Момент запуску застосунку (секундна точність, як у HTTP-датах) */
+    private final Instant startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    /** Остання версія з БД, яку бачив цей вузол */
+    private volatile long version;
+
+    private volatile Instant lastModified = startedAt;
+
+    public LessonCatalogVersion(LessonCatalogRevisionRepository revisionRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.revisionRepository = revisionRepository;
+        this.transactionManager = transactionManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Прочитати версію з БД (створити рядок при першому запуску)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            new TransactionTemplate(transactionManager).execute(status ->
+                    revisionRepository.createIfMissing(LocalDateTime.now()));
+            LessonCatalogRevision revision = readRevision();
+            if (revision != null) {
+                synchronized (this) {
+                    version = revision.getVersion();
+                    lastModified = latest(toInstant(revision.getUpdatedAt()), startedAt);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to load lesson catalog version", e);
+        }
+    }
+
+    /**
+     * Збільшити версію в транзакції зміни (до коміту)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onLessonChanging(LessonChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        if (revisionRepository.increment(LocalDateTime.now()) == 0) {
+            log.warn("Lesson catalog revision row is missing, version not changed by {}", event);
+            return;
+        }
+
+        long committed = revisionRepository.findVersion().orElse(0L);
+        long[] previous = COMMITTED.get();
+        COMMITTED.set(new long[]{previous != null ? previous[0] : committed - 1, committed});
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLessonChanged(LessonChangedEvent event) {
+        long[] committed = COMMITTED.get();
+        COMMITTED.remove();
+        if (committed == null || event.isRemote()) {
+            return;
+        }
+
+        boolean missedRemote;
+        synchronized (this) {
+            if (committed[1] <= version) {
+                return;
+            }
+            // Між відомою версією та нашою зміною комітились зміни інших вузлів
+            missedRemote = committed[0] > version;
+            version = committed[1];
+            lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        }
+        log.debug("Lesson catalog version {} after {}", committed[1], event);
+
+        if (missedRemote) {
+            publishRemoteChange();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onLessonChangeRolledBack(LessonChangedEvent event) {
+        COMMITTED.remove();
+    }
+
+    /**
+     * Перевірити, чи не змінився каталог на іншому вузлі
+     */
+    @Scheduled(fixedDelayString = "${lessons.catalog.version-check-ms:5000}",
+            initialDelayString = "${lessons.catalog.version-check-ms:5000}")
+    public void checkForRemoteChanges() {
+        LessonCatalogRevision revision;
+        try {
+            revision = readRevision();
+        } catch (RuntimeException e) {
+            log.warn("Failed to check lesson catalog version: {}", e.getMessage());
+            return;
+        }
+        if (revision == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (revision.getVersion() <= version) {
+                return;
+            }
+            version = revision.getVersion();
+            lastModified = latest(toInstant(revision.getUpdatedAt()), startedAt);
+        }
+
+        log.info("Lesson catalog changed on another node (version {}), refreshing local caches", revision.getVersion());
+        publishRemoteChange();
+    }
+
+    /**
+     * Поточна версія каталогу
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Час останньої зміни каталогу (або старту застосунку)
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Момент старту застосунку (шаблони могли змінитися з новим релізом)
+     */
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Опублікувати подію в транзакції, щоб її отримали слухачі AFTER_COMMIT
+     */
+    private void publishRemoteChange() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.execute(status -> {
+            eventPublisher.publishEvent(LessonChangedEvent.remote());
+            return null;
+        });
+    }
+
+    private LessonCatalogRevision readRevision() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> revisionRepository.findById(1).orElse(null));
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,64 @@
+package service.lesson;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Подія зміни уроків в адмін-панелі.
+ *
+ * Публікується з admin.service.LessonService / AttributeService всередині транзакції,
+ * слухачі (кеші та індекси публічної частини) обробляють її після коміту.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class LessonChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** Зміна, що зачіпає всі уроки (атрибути, опції, placements) */
+        ALL,
+        /** Каталог змінено на іншому вузлі (невідомо що саме) - перебудувати все */
+        REMOTE
+    }
+
+    private final Type type;
+
+    /** ID уроку (null для Type.ALL) */
+    private final Long lessonId;
+
+    public static LessonChangedEvent created(Long lessonId) {
+        return new LessonChangedEvent(Type.CREATED, lessonId);
+    }
+
+    public static LessonChangedEvent updated(Long lessonId) {
+        return new LessonChangedEvent(Type.UPDATED, lessonId);
+    }
+
+    public static LessonChangedEvent deleted(Long lessonId) {
+        return new LessonChangedEvent(Type.DELETED, lessonId);
+    }
+
+    public static LessonChangedEvent allLessons() {
+        return new LessonChangedEvent(Type.ALL, null);
+    }
+
+    public static LessonChangedEvent remote() {
+        return new LessonChangedEvent(Type.REMOTE, null);
+    }
+
+    public boolean affectsAllLessons() {
+        return type == Type.ALL || type == Type.REMOTE;
+    }
+
+    public boolean isRemote() {
+        return type == Type.REMOTE;
+    }
+
+    @Override
+    public String toString() {
+        return "LessonChangedEvent{" + type + (lessonId != null ? ", lessonId=" + lessonId : "") + "}";
+    }
+}
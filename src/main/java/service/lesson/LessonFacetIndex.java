@@ -0,0 +1,394 @@
+package service.lesson;
+
+import dto.CatalogFacetDto;
+import dto.CatalogFacetOptionDto;
+import dto.LessonLangRow;
+import dto.LessonOptionRow;
+import entity.attributes.Attribute;
+import entity.attributes.AttributeOption;
+import entity.attributes.AttributeTranslation;
+import entity.attributes.OptionTranslation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.AttributeRepository;
+import repository.LessonAttributeRepository;
+import repository.LessonRepository;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory фасетний індекс каталогу уроків.
+ *
+ * Для кожної опції атрибута з placement "filters" зберігається бітова мапа
+ * ID уроків (біт = lessonId), для кожної мови - бітова мапа уроків з перекладом.
+ * Фільтр = перетин мапи мови з об'єднаннями вибраних опцій по кожному атрибуту
+ * (OR всередині атрибута, AND між атрибутами), кількості по опціях - перетини тих самих мап.
+ * Запит до фільтрів не звертається до БД і не робить JOIN по lesson_attributes.
+ *
+ * - стан індексу незмінний, читачі працюють без блокувань (volatile-посилання)
+ * - зміна одного уроку (LessonChangedEvent) копіює тільки змінені бітові мапи
+ * - зміна атрибутів / опцій скидає індекс, він перебудовується при наступному запиті
+ * - метрики: lesson.facets.search, lesson.facets.build, lesson.facets.options
+ */
+@Slf4j
+@Component
+public class LessonFacetIndex {
+
+    public static final String PLACEMENT_FILTERS = "filters";
+
+    private final AttributeRepository attributeRepository;
+    private final LessonAttributeRepository lessonAttributeRepository;
+    private final LessonRepository lessonRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Timer searchTimer;
+    private final Timer buildTimer;
+
+    /** Поточний стан (null - ще не побудований або скинутий) */
+    private volatile State state;
+
+    /** Побудова та зміни стану виконуються послідовно */
+    private final Object writeLock = new Object();
+
+    public LessonFacetIndex(AttributeRepository attributeRepository,
+                            LessonAttributeRepository lessonAttributeRepository,
+                            LessonRepository lessonRepository,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
+        this.attributeRepository = attributeRepository;
+        this.lessonAttributeRepository = lessonAttributeRepository;
+        this.lessonRepository = lessonRepository;
+        this.transactionManager = transactionManager;
+
+        this.searchTimer = Timer.builder("lesson.facets.search")
+                .register(meterRegistry);
+        this.buildTimer = Timer.builder("lesson.facets.build")
+                .register(meterRegistry);
+        Gauge.builder("lesson.facets.options", this,
+                        index -> index.state == null ? 0 : index.state.lessonsByOption.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Фасетний пошук для мови
+     *
+     * @param lang код мови (uk, en, de)
+     * @param selectedOptionIds вибрані опції (null або порожньо - без фільтра)
+     * @return уроки, що підходять, та фасети з кількостями
+     */
+    public LessonFacetResult search(String lang, Collection<Long> selectedOptionIds) {
+        State current = getState();
+        Collection<Long> selected = selectedOptionIds != null ? selectedOptionIds : Collections.<Long>emptyList();
+        return searchTimer.record(() -> current.search(lang, selected));
+    }
+
+    /**
+     * Оновити індекс після зміни уроків в адмінці (після коміту транзакції)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onLessonChanged(LessonChangedEvent event) {
+        synchronized (writeLock) {
+            State current = state;
+            if (current == null) {
+                // Індекс ще не будувався - побудується з актуальних даних при першому запиті
+                return;
+            }
+
+            if (event.affectsAllLessons()) {
+                log.info("Facet index reset: {}", event);
+                state = null;
+                return;
+            }
+
+            Long lessonId = event.getLessonId();
+            Set<Long> optionIds = new HashSet<>();
+            Set<String> langs = new HashSet<>();
+
+            if (event.getType() != LessonChangedEvent.Type.DELETED) {
+                for (LessonOptionRow row : lessonAttributeRepository
+                        .findLessonOptionRowsByLessonId(lessonId, PLACEMENT_FILTERS)) {
+                    optionIds.add(row.getOptionId());
+                }
+                langs.addAll(lessonRepository.findLangsByLessonId(lessonId));
+            }
+
+            State updated = current.withLesson(lessonId, optionIds, langs);
+            if (updated == null) {
+                // Урок прив'язаний до опції, якої ще немає в індексі - перебудувати з БД
+                log.info("Facet index rebuilt: lesson {} has options unknown to the index {}", lessonId, optionIds);
+                state = buildTimer.record(this::loadState);
+                return;
+            }
+            state = updated;
+            log.debug("Facet index updated for lesson {}: options={}, langs={}", lessonId, optionIds, langs);
+        }
+    }
+
+    private State getState() {
+        State current = state;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (writeLock) {
+            if (state == null) {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                state = buildTimer.record(() -> transactionTemplate.execute(status -> loadState()));
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Побудувати індекс з БД (4 запити незалежно від кількості уроків та опцій)
+     */
+    private State loadState() {
+        List<Attribute> attributes = new ArrayList<>(
+                attributeRepository.findSelectableByPlacementKeyWithTranslations(PLACEMENT_FILTERS));
+        attributes.sort(Comparator
+                .comparing(Attribute::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Attribute::getId));
+
+        Map<Long, List<AttributeOption>> optionsByAttribute = new HashMap<>();
+        if (!attributes.isEmpty()) {
+            List<Long> attributeIds = attributes.stream().map(Attribute::getId).collect(Collectors.toList());
+            for (AttributeOption option : attributeRepository.findOptionsByAttributeIdsWithTranslations(attributeIds)) {
+                optionsByAttribute
+                        .computeIfAbsent(option.getAttribute().getId(), id -> new ArrayList<>())
+                        .add(option);
+            }
+        }
+
+        List<FacetAttribute> facetAttributes = new ArrayList<>();
+        Map<Long, Long> attributeByOption = new HashMap<>();
+        Map<Long, BitSet> lessonsByOption = new HashMap<>();
+
+        for (Attribute attribute : attributes) {
+            List<AttributeOption> options = optionsByAttribute.getOrDefault(attribute.getId(), new ArrayList<>());
+            options.sort(Comparator
+                    .comparing(AttributeOption::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(AttributeOption::getId));
+
+            List<FacetOption> facetOptions = new ArrayList<>();
+            for (AttributeOption option : options) {
+                Map<String, String> labels = new HashMap<>();
+                for (OptionTranslation translation : option.getTranslations()) {
+                    labels.put(translation.getLangCode(), translation.getLabel());
+                }
+                facetOptions.add(new FacetOption(option.getId(), option.getValue(), labels));
+                attributeByOption.put(option.getId(), attribute.getId());
+                lessonsByOption.put(option.getId(), new BitSet());
+            }
+
+            Map<String, String> labels = new HashMap<>();
+            for (AttributeTranslation translation : attribute.getTranslations()) {
+                labels.put(translation.getLangCode(), translation.getLabel());
+            }
+            facetAttributes.add(new FacetAttribute(attribute.getId(), attribute.getName(), labels, facetOptions));
+        }
+
+        for (LessonOptionRow row : lessonAttributeRepository.findLessonOptionRows(PLACEMENT_FILTERS)) {
+            BitSet lessons = lessonsByOption.get(row.getOptionId());
+            if (lessons != null) {
+                lessons.set(toBit(row.getLessonId()));
+            }
+        }
+
+        Map<String, BitSet> lessonsByLang = new HashMap<>();
+        for (LessonLangRow row : lessonRepository.findLessonLangRows()) {
+            lessonsByLang.computeIfAbsent(row.getLang(), lang -> new BitSet()).set(toBit(row.getLessonId()));
+        }
+
+        log.info("Facet index built: {} attributes, {} options, languages={}",
+                facetAttributes.size(), lessonsByOption.size(), lessonsByLang.keySet());
+
+        return new State(facetAttributes, attributeByOption, lessonsByOption, lessonsByLang);
+    }
+
+    private static int toBit(Long lessonId) {
+        return Math.toIntExact(lessonId);
+    }
+
+    // ========== СТАН ІНДЕКСУ ==========
+
+    /**
+     * Незмінний стан індексу. Бітові мапи всередині не змінюються після публікації.
+     */
+    private static final class State {
+
+        private final List<FacetAttribute> attributes;
+        private final Map<Long, Long> attributeByOption;
+        private final Map<Long, BitSet> lessonsByOption;
+        private final Map<String, BitSet> lessonsByLang;
+
+        State(List<FacetAttribute> attributes,
+              Map<Long, Long> attributeByOption,
+              Map<Long, BitSet> lessonsByOption,
+              Map<String, BitSet> lessonsByLang) {
+            this.attributes = attributes;
+            this.attributeByOption = attributeByOption;
+            this.lessonsByOption = lessonsByOption;
+            this.lessonsByLang = lessonsByLang;
+        }
+
+        /**
+         * Новий стан з актуальними опціями та мовами одного уроку (copy-on-write).
+         * Копіюються тільки ті бітові мапи, в яких змінюється біт уроку.
+         *
+         * @return null, якщо серед optionIds є опція, якої немає в стані (стан треба перебудувати)
+         */
+        State withLesson(Long lessonId, Set<Long> optionIds, Set<String> langs) {
+            if (!attributeByOption.keySet().containsAll(optionIds)) {
+                return null;
+            }
+            int bit = toBit(lessonId);
+
+            Map<Long, BitSet> options = new HashMap<>(lessonsByOption);
+            for (Map.Entry<Long, BitSet> entry : lessonsByOption.entrySet()) {
+                BitSet updated = withBit(entry.getValue(), bit, optionIds.contains(entry.getKey()));
+                if (updated != null) {
+                    options.put(entry.getKey(), updated);
+                }
+            }
+
+            Map<String, BitSet> languages = new HashMap<>(lessonsByLang);
+            for (String lang : langs) {
+                languages.putIfAbsent(lang, new BitSet());
+            }
+            for (Map.Entry<String, BitSet> entry : languages.entrySet()) {
+                BitSet updated = withBit(entry.getValue(), bit, langs.contains(entry.getKey()));
+                if (updated != null) {
+                    entry.setValue(updated);
+                }
+            }
+
+            return new State(attributes, attributeByOption, options, languages);
+        }
+
+        /**
+         * Копія бітової мапи зі зміненим бітом або null, якщо біт вже має потрібне значення
+         */
+        private static BitSet withBit(BitSet source, int bit, boolean value) {
+            if (source.get(bit) == value) {
+                return null;
+            }
+            BitSet copy = (BitSet) source.clone();
+            copy.set(bit, value);
+            return copy;
+        }
+
+        LessonFacetResult search(String lang, Collection<Long> selectedOptionIds) {
+            BitSet base = lessonsByLang.getOrDefault(lang, new BitSet());
+
+            // OR вибраних опцій всередині кожного атрибута
+            Map<Long, BitSet> selectedByAttribute = new LinkedHashMap<>();
+            Set<Long> selected = new LinkedHashSet<>();
+            for (Long optionId : selectedOptionIds) {
+                Long attributeId = optionId != null ? attributeByOption.get(optionId) : null;
+                if (attributeId == null) {
+                    continue;
+                }
+                selected.add(optionId);
+                selectedByAttribute
+                        .computeIfAbsent(attributeId, id -> new BitSet())
+                        .or(lessonsByOption.get(optionId));
+            }
+
+            // AND між атрибутами
+            BitSet matches = (BitSet) base.clone();
+            for (BitSet union : selectedByAttribute.values()) {
+                matches.and(union);
+            }
+
+            List<CatalogFacetDto> facets = new ArrayList<>();
+            for (FacetAttribute attribute : attributes) {
+                // Кількості для опцій атрибута рахуються без урахування його власного вибору
+                BitSet context = matches;
+                if (selectedByAttribute.containsKey(attribute.id)) {
+                    context = (BitSet) base.clone();
+                    for (Map.Entry<Long, BitSet> entry : selectedByAttribute.entrySet()) {
+                        if (!entry.getKey().equals(attribute.id)) {
+                            context.and(entry.getValue());
+                        }
+                    }
+                }
+
+                List<CatalogFacetOptionDto> options = new ArrayList<>();
+                for (FacetOption option : attribute.options) {
+                    BitSet lessons = (BitSet) lessonsByOption.get(option.id).clone();
+                    lessons.and(context);
+                    int count = lessons.cardinality();
+                    boolean isSelected = selected.contains(option.id);
+
+                    if (count > 0 || isSelected) {
+                        options.add(new CatalogFacetOptionDto(
+                                option.id, option.value, option.label(lang), count, isSelected));
+                    }
+                }
+
+                if (!options.isEmpty()) {
+                    facets.add(new CatalogFacetDto(attribute.id, attribute.name, attribute.label(lang), options));
+                }
+            }
+
+            return new LessonFacetResult(matches, selected, facets);
+        }
+    }
+
+    private static final class FacetAttribute {
+        private final Long id;
+        private final String name;
+        private final Map<String, String> labels;
+        private final List<FacetOption> options;
+
+        FacetAttribute(Long id, String name, Map<String, String> labels, List<FacetOption> options) {
+            this.id = id;
+            this.name = name;
+            this.labels = labels;
+            this.options = options;
+        }
+
+        String label(String lang) {
+            return labels.getOrDefault(lang, name);
+        }
+    }
+
+    private static final class FacetOption {
+        private final Long id;
+        private final String value;
+        private final Map<String, String> labels;
+
+        FacetOption(Long id, String value, Map<String, String> labels) {
+            this.id = id;
+            this.value = value;
+            this.labels = labels;
+        }
+
+        String label(String lang) {
+            return labels.getOrDefault(lang, value);
+        }
+    }
+}
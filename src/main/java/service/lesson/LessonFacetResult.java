@@ -0,0 +1,64 @@
+package service.lesson;
+
+import dto.CatalogFacetDto;
+import lombok.Getter;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Результат фасетного пошуку по каталогу для однієї мови:
+ * множина уроків, що підходять під вибрані опції, та фасети з кількістю уроків.
+ */
+public class LessonFacetResult {
+
+    /** Бітова мапа ID уроків, що підходять під фільтр (біт = lessonId) */
+    private final BitSet matches;
+
+    /** Вибрані опції, відомі індексу (невідомі ID відкидаються) */
+    @Getter
+    private final Set<Long> selectedOptionIds;
+
+    /** Фасети для панелі фільтрів */
+    @Getter
+    private final List<CatalogFacetDto> facets;
+
+    LessonFacetResult(BitSet matches, Set<Long> selectedOptionIds, List<CatalogFacetDto> facets) {
+        this.matches = matches;
+        this.selectedOptionIds = Collections.unmodifiableSet(selectedOptionIds);
+        this.facets = Collections.unmodifiableList(facets);
+    }
+
+    /**
+     * true, якщо вибрана хоча б одна опція (інакше каталог не фільтрується)
+     */
+    public boolean isFiltered() {
+        return !selectedOptionIds.isEmpty();
+    }
+
+    /**
+     * Кількість уроків, що підходять під фільтр
+     */
+    public int getMatchCount() {
+        return matches.cardinality();
+    }
+
+    /**
+     * Чи підходить урок під фільтр
+     */
+    public boolean matches(Long lessonId) {
+        return lessonId != null && lessonId <= Integer.MAX_VALUE && matches.get(lessonId.intValue());
+    }
+
+    /**
+     * ID уроків, що підходять під фільтр (за зростанням)
+     */
+    public List<Long> getLessonIds() {
+        return matches.stream()
+                .mapToObj(Long::valueOf)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,116 @@
+package service.lesson;
+
+import entity.lesson.Lesson;
+import entity.lesson.LessonMaterial;
+import entity.lesson.LessonPrice;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Незмінна read-модель публічної сторінки уроку (усі мови одразу).
+ *
+ * Поля названі так само, як у LessonDto, тому шаблон lessons/lesson.html
+ * працює з нею без змін. Екземпляр спільний для всіх запитів - не змінюється.
+ */
+@Getter
+public class LessonPageView {
+
+    private final Long id;
+    private final String mainImageUrl;
+    private final Lesson.AccessLevel accessLevel;
+
+    /** Дата створення у форматі yyyy-MM-dd HH:mm (як у LessonDto) */
+    private final String createdAt;
+
+    /** Дата оновлення у форматі yyyy-MM-dd HH:mm (як у LessonDto) */
+    private final String updatedAt;
+
+    /** Дата оновлення без форматування */
+    private final LocalDateTime lastModified;
+
+    /** lang -> переклад */
+    private final Map<String, Translation> translations;
+
+    private final List<Price> prices;
+
+    /** Матеріали у порядку sort_order */
+    private final List<Material> materials;
+
+    private final List<AttributeValue> attributes;
+
+    public LessonPageView(Long id, String mainImageUrl, Lesson.AccessLevel accessLevel,
+                          String createdAt, String updatedAt, LocalDateTime lastModified,
+                          Map<String, Translation> translations, List<Price> prices,
+                          List<Material> materials, List<AttributeValue> attributes) {
+        this.id = id;
+        this.mainImageUrl = mainImageUrl;
+        this.accessLevel = accessLevel;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.lastModified = lastModified;
+        this.translations = Collections.unmodifiableMap(new HashMap<>(translations));
+        this.prices = Collections.unmodifiableList(new ArrayList<>(prices));
+        this.materials = Collections.unmodifiableList(new ArrayList<>(materials));
+        this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+    }
+
+    /**
+     * Переклад для мови або null
+     */
+    public Translation getTranslation(String lang) {
+        return translations.get(lang);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Translation {
+        private final String lang;
+        private final String title;
+        private final String description;
+        private final String metaDescription;
+        private final String slug;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Price {
+        private final LessonPrice.Currency currency;
+
+        /** В копійках/центах */
+        private final Long amount;
+
+        public Double getAmountInMainUnits() {
+            return amount != null ? amount / 100.0 : 0.0;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Material {
+        private final Long id;
+        private final LessonMaterial.MaterialType materialType;
+        private final String title;
+        private final String content;
+        private final Integer sortOrder;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class AttributeValue {
+        private final Long attributeId;
+        private final String attributeName;
+        private final String attributeType;
+        private final Long optionId;
+        private final String optionValue;
+        private final String textValue;
+        private final BigDecimal numberValue;
+    }
+}
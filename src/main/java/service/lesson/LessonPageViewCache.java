@@ -0,0 +1,123 @@
+package service.lesson;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-process LRU-кеш read-моделей сторінок уроків (LessonPageView) по ID уроку.
+ *
+ * - обмежений за кількістю уроків (lessons.page-cache.max-entries)
+ * - після змін уроків на іншому вузлі очищується повністю (LessonChangedEvent.remote())
+ * - запис після завантаження відкидається, якщо під час завантаження був evict
+ *   (інакше повільне читання могло б повернути в кеш версію до збереження в адмінці)
+ * - метрики: lesson.page.cache.requests{result=hit|miss}, lesson.page.cache.load,
+ *   lesson.page.cache.evictions, lesson.page.cache.entries
+ */
+@Slf4j
+@Component
+public class LessonPageViewCache {
+
+    private final Map<Long, LessonPageView> views;
+
+    /** Лічильник evict-ів: змінюється при кожному видаленні з кешу */
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer loadTimer;
+
+    @Value("${lessons.page-cache.max-entries:1000}")
+    private int maxEntries;
+
+    public LessonPageViewCache(MeterRegistry meterRegistry) {
+        this.views = new LinkedHashMap<Long, LessonPageView>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, LessonPageView> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hits = Counter.builder("lesson.page.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lesson.page.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("lesson.page.cache.evictions")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("lesson.page.cache.load")
+                .register(meterRegistry);
+        Gauge.builder("lesson.page.cache.entries", this, LessonPageViewCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отримати read-модель уроку, завантаживши її при промаху
+     *
+     * @param lessonId ID уроку
+     * @param loader завантаження з БД (null - урок не знайдено, не кешується)
+     */
+    public LessonPageView get(Long lessonId, Function<Long, LessonPageView> loader) {
+        long loadGeneration;
+        synchronized (views) {
+            LessonPageView view = views.get(lessonId);
+            if (view != null) {
+                hits.increment();
+                return view;
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        LessonPageView view = loadTimer.record(() -> loader.apply(lessonId));
+
+        if (view != null) {
+            synchronized (views) {
+                if (generation == loadGeneration) {
+                    views.put(lessonId, view);
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Видалити read-модель уроку
+     */
+    public void evict(Long lessonId) {
+        synchronized (views) {
+            generation++;
+            if (views.remove(lessonId) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Видалити всі read-моделі
+     */
+    public void invalidateAll() {
+        synchronized (views) {
+            generation++;
+            views.clear();
+        }
+        evictions.increment();
+        log.info("Lesson page views invalidated");
+    }
+
+    public int size() {
+        synchronized (views) {
+            return views.size();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package service.lesson;
+
+import dto.LessonSearchRow;
+import entity.enums.Language;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.LessonRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-process повнотекстовий індекс уроків: окремий інвертований індекс для кожної мови
+ * по LessonTranslation.title / description.
+ *
+ * - пошук по префіксу (typeahead) для недописаного останнього слова: "gram" знаходить "grammar"
+ * - ранжування: збіг у назві важить більше, ніж в описі; точний збіг - більше, ніж префікс
+ * - усі слова запиту мають збігтися (AND), крім недописаного стоп-слова (LessonSearchTokenizer)
+ * - стан незмінний, читачі без блокувань; зміна уроку (LessonChangedEvent) перебудовує
+ *   тільки його документи (copy-on-write для зачеплених термінів)
+ * - метрики: lesson.search.query, lesson.search.build, lesson.search.documents
+ */
+@Slf4j
+@Component
+public class LessonSearchIndex {
+
+    /** Вага входження слова в назву */
+    private static final double TITLE_WEIGHT = 3.0;
+
+    /** Вага входження слова в опис */
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    /** Множник для збігу по префіксу (слово ще не дописане) */
+    private static final double PREFIX_FACTOR = 0.6;
+
+    /** Мінімальна довжина префікса, з якої шукаємо по префіксу (коротші - тільки точний збіг) */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /** Максимум термінів, на які розгортається один префікс */
+    private static final int MAX_PREFIX_TERMS = 64;
+
+    private final LessonRepository lessonRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Timer queryTimer;
+    private final Timer buildTimer;
+
+    /** Індекси по мовах (null - ще не побудовані або скинуті) */
+    private volatile Map<String, LanguageIndex> indexes;
+
+    private final Object writeLock = new Object();
+
+    public LessonSearchIndex(LessonRepository lessonRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.lessonRepository = lessonRepository;
+        this.transactionManager = transactionManager;
+
+        this.queryTimer = Timer.builder("lesson.search.query")
+                .register(meterRegistry);
+        this.buildTimer = Timer.builder("lesson.search.build")
+                .register(meterRegistry);
+        Gauge.builder("lesson.search.documents", this,
+                        index -> index.indexes == null ? 0 : index.indexes.values().stream()
+                                .mapToInt(languageIndex -> languageIndex.documents.size()).sum())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Знайти уроки мовою lang
+     *
+     * @param lang код мови (uk, en, de)
+     * @param query пошуковий запит (останнє слово може бути недописаним)
+     * @param limit максимальна кількість результатів
+     * @return результати за спаданням релевантності
+     */
+    public List<Hit> search(String lang, String query, int limit) {
+        if (!Language.isSupported(lang) || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<LessonSearchTokenizer.QueryToken> tokens = LessonSearchTokenizer.tokenizeQuery(lang, query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        LanguageIndex index = getIndexes().get(lang);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+
+        return queryTimer.record(() -> index.search(tokens, limit));
+    }
+
+    /**
+     * Оновити індекс після зміни уроків в адмінці (після коміту транзакції)
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onLessonChanged(LessonChangedEvent event) {
+        synchronized (writeLock) {
+            Map<String, LanguageIndex> current = indexes;
+            if (current == null) {
+                return;
+            }
+
+            if (event.affectsAllLessons()) {
+                indexes = null;
+                return;
+            }
+
+            Long lessonId = event.getLessonId();
+            Map<String, LessonSearchRow> rowsByLang = new HashMap<>();
+            if (event.getType() != LessonChangedEvent.Type.DELETED) {
+                for (LessonSearchRow row : lessonRepository.findSearchRowsByLessonId(lessonId)) {
+                    rowsByLang.put(row.getLang(), row);
+                }
+            }
+
+            Map<String, LanguageIndex> updated = new HashMap<>(current);
+            for (String lang : rowsByLang.keySet()) {
+                if (Language.isSupported(lang)) {
+                    updated.putIfAbsent(lang, LanguageIndex.empty(lang));
+                }
+            }
+            for (Map.Entry<String, LanguageIndex> entry : updated.entrySet()) {
+                entry.setValue(entry.getValue().withDocument(lessonId, rowsByLang.get(entry.getKey())));
+            }
+
+            indexes = updated;
+            log.debug("Search index updated for lesson {}: languages={}", lessonId, rowsByLang.keySet());
+        }
+    }
+
+    private Map<String, LanguageIndex> getIndexes() {
+        Map<String, LanguageIndex> current = indexes;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (writeLock) {
+            if (indexes == null) {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setReadOnly(true);
+                indexes = buildTimer.record(() -> transactionTemplate.execute(status -> loadIndexes()));
+            }
+            return indexes;
+        }
+    }
+
+    private Map<String, LanguageIndex> loadIndexes() {
+        Map<String, Map<Long, Document>> documentsByLang = new HashMap<>();
+        for (LessonSearchRow row : lessonRepository.findSearchRows()) {
+            if (Language.isSupported(row.getLang())) {
+                documentsByLang
+                        .computeIfAbsent(row.getLang(), lang -> new HashMap<>())
+                        .put(row.getLessonId(), Document.of(row));
+            }
+        }
+
+        Map<String, LanguageIndex> result = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Document>> entry : documentsByLang.entrySet()) {
+            result.put(entry.getKey(), LanguageIndex.of(entry.getKey(), entry.getValue()));
+        }
+
+        log.info("Search index built: {}", documentsByLang.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().size())
+                .reduce((a, b) -> a + ", " + b)
+                .orElse("empty"));
+
+        return result;
+    }
+
+    // ========== МОДЕЛЬ ІНДЕКСУ ==========
+
+    /**
+     * Результат пошуку
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Hit {
+        private final Long lessonId;
+        private final String title;
+        private final String slug;
+        private final double score;
+    }
+
+    /**
+     * Проіндексований переклад уроку: терміни з вагами
+     */
+    private static final class Document {
+        private final Long lessonId;
+        private final String title;
+        private final String slug;
+        private final Map<String, Double> termWeights;
+
+        private Document(Long lessonId, String title, String slug, Map<String, Double> termWeights) {
+            this.lessonId = lessonId;
+            this.title = title;
+            this.slug = slug;
+            this.termWeights = termWeights;
+        }
+
+        static Document of(LessonSearchRow row) {
+            Map<String, Double> weights = new HashMap<>();
+            for (String term : LessonSearchTokenizer.tokenize(row.getLang(), row.getTitle())) {
+                weights.merge(term, TITLE_WEIGHT, Double::sum);
+            }
+            for (String term : LessonSearchTokenizer.tokenize(row.getLang(), row.getDescription())) {
+                weights.merge(term, DESCRIPTION_WEIGHT, Double::sum);
+            }
+            // Логарифм частоти: довгий опис з повторами не переважає влучну назву
+            weights.replaceAll((term, weight) -> 1.0 + Math.log(weight));
+            return new Document(row.getLessonId(), row.getTitle(), row.getSlug(), weights);
+        }
+    }
+
+    /**
+     * Незмінний інвертований індекс однієї мови: термін -> (lessonId -> вага)
+     */
+    private static final class LanguageIndex {
+        private final String lang;
+        private final Map<Long, Document> documents;
+        private final NavigableMap<String, Map<Long, Double>> postings;
+
+        private LanguageIndex(String lang, Map<Long, Document> documents,
+                              NavigableMap<String, Map<Long, Double>> postings) {
+            this.lang = lang;
+            this.documents = documents;
+            this.postings = postings;
+        }
+
+        static LanguageIndex empty(String lang) {
+            return new LanguageIndex(lang, new HashMap<>(), new TreeMap<>());
+        }
+
+        static LanguageIndex of(String lang, Map<Long, Document> documents) {
+            Map<String, Map<Long, Double>> postings = new HashMap<>();
+            for (Document document : documents.values()) {
+                for (Map.Entry<String, Double> term : document.termWeights.entrySet()) {
+                    postings.computeIfAbsent(term.getKey(), t -> new HashMap<>())
+                            .put(document.lessonId, term.getValue());
+                }
+            }
+            return new LanguageIndex(lang, documents, new TreeMap<>(postings));
+        }
+
+        /**
+         * Новий індекс з заміненим документом уроку (row == null - документ видаляється).
+         * Копіюються тільки списки термінів старого та нового документа.
+         */
+        LanguageIndex withDocument(Long lessonId, LessonSearchRow row) {
+            Document previous = documents.get(lessonId);
+            if (previous == null && row == null) {
+                return this;
+            }
+
+            Document next = row != null ? Document.of(row) : null;
+
+            Map<Long, Document> newDocuments = new HashMap<>(documents);
+            NavigableMap<String, Map<Long, Double>> newPostings = new TreeMap<>(postings);
+
+            Set<String> affectedTerms = new LinkedHashSet<>();
+            if (previous != null) {
+                affectedTerms.addAll(previous.termWeights.keySet());
+                newDocuments.remove(lessonId);
+            }
+            if (next != null) {
+                affectedTerms.addAll(next.termWeights.keySet());
+                newDocuments.put(lessonId, next);
+            }
+
+            for (String term : affectedTerms) {
+                Map<Long, Double> termPostings = new HashMap<>(
+                        newPostings.getOrDefault(term, Collections.<Long, Double>emptyMap()));
+                termPostings.remove(lessonId);
+                if (next != null && next.termWeights.containsKey(term)) {
+                    termPostings.put(lessonId, next.termWeights.get(term));
+                }
+
+                if (termPostings.isEmpty()) {
+                    newPostings.remove(term);
+                } else {
+                    newPostings.put(term, termPostings);
+                }
+            }
+
+            return new LanguageIndex(lang, newDocuments, newPostings);
+        }
+
+        List<Hit> search(List<LessonSearchTokenizer.QueryToken> tokens, int limit) {
+            // Запит лише з необов'язкових слів - шукаємо за ними
+            boolean allOptional = tokens.stream().allMatch(token -> token.optional);
+
+            Map<Long, Double> scores = null;
+            List<Map<Long, Double>> optionalScores = new ArrayList<>();
+
+            for (LessonSearchTokenizer.QueryToken token : tokens) {
+                Map<Long, Double> tokenScores = scoreToken(token.term, token.prefix);
+                if (token.optional && !allOptional) {
+                    optionalScores.add(tokenScores);
+                    continue;
+                }
+
+                // AND: залишаємо тільки уроки, що знайдені за всіма словами
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    Map<Long, Double> merged = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        Double score = tokenScores.get(entry.getKey());
+                        if (score != null) {
+                            merged.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                    scores = merged;
+                }
+
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            // Необов'язкові слова підвищують оцінку знайдених уроків, але не відсікають їх
+            for (Map<Long, Double> tokenScores : optionalScores) {
+                for (Map.Entry<Long, Double> entry : tokenScores.entrySet()) {
+                    scores.computeIfPresent(entry.getKey(), (lessonId, score) -> score + entry.getValue());
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : b.getKey().compareTo(a.getKey());
+            });
+
+            List<Hit> hits = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Map.Entry<Long, Double> entry : ranked) {
+                if (hits.size() >= limit) {
+                    break;
+                }
+                Document document = documents.get(entry.getKey());
+                hits.add(new Hit(document.lessonId, document.title, document.slug, entry.getValue()));
+            }
+            return hits;
+        }
+
+        /**
+         * Оцінки уроків за одним словом запиту: точний збіг + збіги по префіксу (якщо prefix)
+         */
+        private Map<Long, Double> scoreToken(String token, boolean prefix) {
+            Map<Long, Double> scores = new HashMap<>();
+
+            Map<Long, Double> exact = postings.get(token);
+            if (exact != null) {
+                scores.putAll(exact);
+            }
+
+            if (!prefix || token.length() < MIN_PREFIX_LENGTH) {
+                return scores;
+            }
+
+            int expanded = 0;
+            for (Map.Entry<String, Map<Long, Double>> term
+                    : postings.subMap(token, false, token + Character.MAX_VALUE, false).entrySet()) {
+                if (++expanded > MAX_PREFIX_TERMS) {
+                    break;
+                }
+                for (Map.Entry<Long, Double> posting : term.getValue().entrySet()) {
+                    // Для уроку беремо найкращий збіг, а не суму по всіх розгорнутих термінах
+                    scores.merge(posting.getKey(), posting.getValue() * PREFIX_FACTOR, Math::max);
+                }
+            }
+            return scores;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package service.lesson;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Токенізація тексту уроків для пошукового індексу з урахуванням мови (uk, en, de).
+ *
+ * - нижній регістр за правилами мови
+ * - uk: апострофи (', ’, ʼ) прибираються, щоб "пам'ять" і "памʼять" збігалися;
+ *   діакритика не чіпається (й, ї - окремі літери)
+ * - en, de: діакритика прибирається (ü -> u), для de ще ß -> ss
+ * - HTML-теги в описі ігноруються
+ * - стоп-слова відкидаються при індексації
+ */
+final class LessonSearchTokenizer {
+
+    private static final Pattern HTML_TAGS = Pattern.compile("<[^>]*>");
+    private static final Pattern APOSTROPHES = Pattern.compile("['’ʼ`]");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Map<String, Set<String>> STOP_WORDS = new HashMap<>();
+
+    static {
+        STOP_WORDS.put("uk", stopWords("і", "й", "та", "в", "у", "на", "з", "із", "зі", "до", "для",
+                "що", "це", "як", "про", "по", "не", "а", "але", "або", "від", "за"));
+        STOP_WORDS.put("en", stopWords("a", "an", "and", "the", "of", "in", "on", "to", "for", "with",
+                "is", "are", "at", "by", "from", "or", "as", "it", "be"));
+        STOP_WORDS.put("de", stopWords("der", "die", "das", "und", "ein", "eine", "einen", "einer", "mit",
+                "im", "in", "zu", "zum", "zur", "den", "dem", "des", "fur", "von", "auf", "ist", "oder"));
+    }
+
+    private LessonSearchTokenizer() {
+    }
+
+    /**
+     * Токени тексту для індексації (без стоп-слів)
+     */
+    static List<String> tokenize(String lang, String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        Set<String> stopWords = STOP_WORDS.getOrDefault(lang, Collections.<String>emptySet());
+        for (String token : split(lang, HTML_TAGS.matcher(text).replaceAll(" "))) {
+            if (!stopWords.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Токени пошукового запиту.
+     *
+     * - по префіксу шукається тільки останнє слово, і тільки якщо після нього немає
+     *   роздільника (користувач його ще дописує); решта слів - точний збіг
+     * - стоп-слова відкидаються; недописане останнє стоп-слово ("the" -> "theory")
+     *   лишається як необов'язкове - додає оцінку, але не відсікає уроки
+     */
+    static List<QueryToken> tokenizeQuery(String lang, String query) {
+        List<QueryToken> tokens = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return tokens;
+        }
+
+        int lastChar = query.codePointBefore(query.length());
+        boolean lastFinished = !Character.isLetterOrDigit(lastChar) && !APOSTROPHES.matcher(
+                new String(Character.toChars(lastChar))).matches();
+
+        Set<String> stopWords = STOP_WORDS.getOrDefault(lang, Collections.<String>emptySet());
+        List<String> raw = split(lang, query);
+        for (int i = 0; i < raw.size(); i++) {
+            String token = raw.get(i);
+            boolean typing = i == raw.size() - 1 && !lastFinished;
+            boolean stopWord = stopWords.contains(token);
+            if (stopWord && !typing) {
+                continue;
+            }
+            tokens.add(new QueryToken(token, typing, stopWord));
+        }
+        return tokens;
+    }
+
+    private static List<String> split(String lang, String text) {
+        String normalized = text.toLowerCase(Locale.forLanguageTag(lang));
+        normalized = APOSTROPHES.matcher(normalized).replaceAll("");
+
+        if (!"uk".equals(lang)) {
+            if ("de".equals(lang)) {
+                normalized = normalized.replace("ß", "ss");
+            }
+            normalized = COMBINING_MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD))
+                    .replaceAll("");
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static Set<String> stopWords(String... words) {
+        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(words)));
+    }
+
+    /**
+     * Слово пошукового запиту
+     */
+    static final class QueryToken {
+        final String term;
+        /** Слово ще дописується - шукати також по префіксу */
+        final boolean prefix;
+        /** Необов'язкове (стоп-слово): тільки додає оцінку */
+        final boolean optional;
+
+        QueryToken(String term, boolean prefix, boolean optional) {
+            this.term = term;
+            this.prefix = prefix;
+            this.optional = optional;
+        }
+    }
+}
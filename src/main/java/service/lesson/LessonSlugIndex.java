@@ -0,0 +1,255 @@
+package service.lesson;
+
+import dto.LessonSlugRow;
+import entity.enums.Language;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.LessonRepository;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Індекс (lang, slug) -> lessonId для сторінок уроків.
+ *
+ * - заповнюється повністю при старті застосунку одним запитом
+ * - підтримується після коміту змін уроку в адмінці (LessonChangedEvent):
+ *   нові / змінені slug-и додаються, старі та slug-и видаленого уроку прибираються
+ * - індекс локальний для вузла, тож slug, доданий на іншому вузлі, може бути відсутній:
+ *   промах перевіряється в БД, знайдений slug додається в індекс, відсутній - кешується
+ *   як "не знайдено" на lessons.slug-index.negative-ttl-ms (боти, що перебирають
+ *   випадкові URL, доходять до БД не частіше одного разу за TTL на URL)
+ * - slug-и, перейменовані або видалені на інших вузлах, прибирає повне перезавантаження
+ *   після зміни версії каталогу (LessonChangedEvent.remote()) та кожні
+ *   lessons.slug-index.reload-interval-ms
+ * - метрики: lesson.slug.lookups{result=hit|miss|fallback}, lesson.slug.entries
+ */
+@Slf4j
+@Component
+public class LessonSlugIndex {
+
+    private final LessonRepository lessonRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Поточні slug-и. Повне перезавантаження будує новий набір і підміняє посилання,
+     * тож читачі не бачать порожнього індексу під час завантаження
+     */
+    private volatile Slugs slugs = new Slugs();
+
+    /** "lang:slug", яких немає в БД -> момент, до якого промах не перевіряється повторно */
+    private final Map<String, Long> notFoundUntil = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter fallbacks;
+
+    @Value("${lessons.slug-index.negative-ttl-ms:30000}")
+    private long negativeTtlMs;
+
+    @Value("${lessons.slug-index.negative-max-entries:10000}")
+    private int negativeMaxEntries;
+
+    public LessonSlugIndex(LessonRepository lessonRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.lessonRepository = lessonRepository;
+        this.transactionManager = transactionManager;
+
+        this.hits = Counter.builder("lesson.slug.lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lesson.slug.lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("lesson.slug.lookups")
+                .tag("result", "fallback")
+                .register(meterRegistry);
+        Gauge.builder("lesson.slug.entries", this, index -> index.slugs.lessonIds.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Знайти ID уроку за slug та мовою
+     *
+     * @param lang код мови (uk, en, de)
+     * @param slug slug уроку
+     * @return ID уроку або empty, якщо такого slug немає
+     */
+    public Optional<Long> resolve(String lang, String slug) {
+        if (!Language.isSupported(lang) || slug == null || slug.isEmpty()) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        String key = key(lang, slug);
+        Long lessonId = slugs.lessonIds.get(key);
+        if (lessonId != null) {
+            hits.increment();
+            return Optional.of(lessonId);
+        }
+
+        Long until = notFoundUntil.get(key);
+        if (until != null && until > System.currentTimeMillis()) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        // Slug міг з'явитися на іншому вузлі (або індекс ще не завантажений) - питаємо БД
+        fallbacks.increment();
+        Optional<Long> found = inReadOnlyTransaction(() -> lessonRepository.findLessonIdBySlugAndLang(slug, lang));
+        if (found.isPresent()) {
+            notFoundUntil.remove(key);
+            synchronized (writeLock) {
+                slugs.put(new LessonSlugRow(found.get(), lang, slug));
+            }
+        } else {
+            if (notFoundUntil.size() >= negativeMaxEntries) {
+                notFoundUntil.clear();
+            }
+            notFoundUntil.put(key, System.currentTimeMillis() + negativeTtlMs);
+        }
+        return found;
+    }
+
+    /**
+     * Завантажити всі slug-и при старті застосунку
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Оновити slug-и уроку після коміту змін в адмінці
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onLessonChanged(LessonChangedEvent event) {
+        if (event.isRemote()) {
+            reload();
+            return;
+        }
+        // Зміни атрибутів не чіпають slug-и
+        if (event.affectsAllLessons()) {
+            return;
+        }
+
+        try {
+            synchronized (writeLock) {
+                Long lessonId = event.getLessonId();
+                List<LessonSlugRow> rows = event.getType() == LessonChangedEvent.Type.DELETED
+                        ? Collections.<LessonSlugRow>emptyList()
+                        : lessonRepository.findSlugRowsByLessonId(lessonId);
+
+                slugs.replaceLesson(lessonId, rows);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to update slug index for lesson {}, reloading", event.getLessonId(), e);
+            reload();
+        }
+    }
+
+    /**
+     * Періодично перезавантажувати індекс (зміни slug-ів на інших вузлах)
+     */
+    @Scheduled(fixedDelayString = "${lessons.slug-index.reload-interval-ms:300000}",
+            initialDelayString = "${lessons.slug-index.reload-interval-ms:300000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * Повністю перезавантажити індекс з БД
+     */
+    public void reload() {
+        synchronized (writeLock) {
+            try {
+                List<LessonSlugRow> rows = inReadOnlyTransaction(lessonRepository::findSlugRows);
+
+                Slugs loaded = new Slugs();
+                for (LessonSlugRow row : rows) {
+                    loaded.put(row);
+                }
+                slugs = loaded;
+                notFoundUntil.clear();
+
+                log.debug("Slug index loaded: {} entries", loaded.lessonIds.size());
+            } catch (RuntimeException e) {
+                log.error("Failed to load slug index, misses will be checked in database", e);
+            }
+        }
+    }
+
+    private static String key(String lang, String slug) {
+        return lang + ":" + slug;
+    }
+
+    /**
+     * Набір slug-ів: читається без блокувань, змінюється під writeLock
+     */
+    private static final class Slugs {
+        /** "lang:slug" -> lessonId */
+        private final Map<String, Long> lessonIds = new ConcurrentHashMap<>();
+
+        /** lessonId -> ключі його slug-ів (для видалення старих при перейменуванні) */
+        private final Map<Long, Set<String>> keysByLesson = new ConcurrentHashMap<>();
+
+        private void put(LessonSlugRow row) {
+            String key = key(row.getLang(), row.getSlug());
+            lessonIds.put(key, row.getLessonId());
+            keysByLesson.computeIfAbsent(row.getLessonId(), id -> new HashSet<>()).add(key);
+        }
+
+        /**
+         * Замінити slug-и уроку. Нові ключі додаються до видалення старих,
+         * щоб читачі не бачили "дірки" для незміненого slug.
+         */
+        private void replaceLesson(Long lessonId, List<LessonSlugRow> rows) {
+            Set<String> newKeys = new HashSet<>();
+            for (LessonSlugRow row : rows) {
+                String key = key(row.getLang(), row.getSlug());
+                lessonIds.put(key, lessonId);
+                newKeys.add(key);
+            }
+
+            Set<String> oldKeys = newKeys.isEmpty()
+                    ? keysByLesson.remove(lessonId)
+                    : keysByLesson.put(lessonId, newKeys);
+            if (oldKeys != null) {
+                for (String key : oldKeys) {
+                    if (!newKeys.contains(key)) {
+                        lessonIds.remove(key, lessonId);
+                    }
+                }
+            }
+        }
+    }
+
+    private <T> T inReadOnlyTransaction(Supplier<T> action) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
@@ -6,11 +6,14 @@ import entity.order.*;
 import entity.user.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import repository.OrderPaymentAttemptRepository;
 import repository.OrderRepository;
 import repository.SubscriptionPlanRepository;
 import service.subscription.SubscriptionService;
+import service.subscription.UserEntitlementsChangedEvent;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,9 +24,11 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderPaymentAttemptRepository paymentAttemptRepository;
     private final SubscriptionService subscriptionService;
 
     private final SubscriptionPlanRepository subscriptionPlanRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Створити замовлення на підписку
@@ -61,13 +66,36 @@ public class OrderService {
     }
 
     /**
-     * Завершити замовлення після успішної оплати
+     * Завершити замовлення після успішної оплати (ідемпотентно), без токена картки
+     *
+     * @return false, якщо замовлення вже було завершене
      */
     @Transactional
-    public void completeOrder(Long orderId, String paymentGateway, String gatewayOrderId) {
-        Order order = orderRepository.findById(orderId)
+    public boolean completeOrder(Long orderId, String paymentGateway, String gatewayOrderId) {
+        return completeOrder(orderId, paymentGateway, gatewayOrderId, null);
+    }
+
+    /**
+     * Завершити замовлення після успішної оплати (ідемпотентно)
+     *
+     * @param recurringToken токен картки з callback (null - без автопродовження)
+     * @return false, якщо замовлення вже було завершене
+     */
+    @Transactional
+    public boolean completeOrder(Long orderId, String paymentGateway, String gatewayOrderId, String recurringToken) {
+        // Блокування рядка: паралельні webhooks того самого платежу виконуються по черзі
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        if (order.getStatus() == OrderStatus.COMPLETED) {
+            log.info("Order {} is already completed, ignoring repeated payment {}", orderId, gatewayOrderId);
+            // Замовлення могла завершити звірка (без токена) - токен з пізнього callback не губиться
+            if (recurringToken != null && order.getOrderType() == OrderType.SUBSCRIPTION_PURCHASE) {
+                subscriptionService.attachRecurringToken(order.getUser().getId(), recurringToken);
+            }
+            return false;
+        }
+
         order.setStatus(OrderStatus.COMPLETED);
         order.setPaymentGateway(paymentGateway);
         order.setCompletedAt(LocalDateTime.now());
@@ -82,24 +110,52 @@ public class OrderService {
             subscriptionService.createSubscription(
                     order.getUser(),
                     item.getSubscriptionPlan(),
-                    order
+                    order,
+                    recurringToken
             );
         }
 
         orderRepository.save(order);
+        // Куплений урок / нова підписка - скинути знімок прав доступу після коміту
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(order.getUser().getId()));
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, order.getUser().getId(), OrderStatus.COMPLETED));
         log.info("Order {} completed successfully", orderId);
+        return true;
     }
 
     /**
-     * Скасувати замовлення
+     * Скасувати неоплачене замовлення (ідемпотентно)
+     *
+     * @return false, якщо замовлення вже завершене або скасоване
      */
     @Transactional
-    public void cancelOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+    public boolean cancelOrder(Long orderId) {
+        // Блокування рядка: webhook, що завершує замовлення, не перетреться скасуванням
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        if (order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.PROCESSING) {
+            log.info("Order {} is {}, not cancelling", orderId, order.getStatus());
+            return false;
+        }
+
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, order.getUser().getId(), OrderStatus.CANCELLED));
+        return true;
+    }
+
+    /**
+     * Запам'ятати платіж, створений у платіжній системі (для звірки завислих замовлень).
+     * Номери попередніх спроб оплати зберігаються (OrderPaymentAttempt), у замовленні - останній.
+     */
+    @Transactional
+    public void recordPaymentReference(Long orderId, String paymentGateway, String paymentReference) {
+        if (orderRepository.updatePaymentReference(orderId, paymentGateway, paymentReference) == 0) {
+            log.warn("Order {} is no longer pending, payment reference {} not recorded", orderId, paymentReference);
+            return;
+        }
+        paymentAttemptRepository.insertIfMissing(orderId, paymentGateway, paymentReference, LocalDateTime.now());
     }
 
     /**
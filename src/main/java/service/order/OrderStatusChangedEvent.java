@@ -0,0 +1,28 @@
+package service.order;
+
+import entity.enums.OrderStatus;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Подія зміни статусу замовлення (оплата, скасування).
+ *
+ * Публікується всередині транзакції, реєстр статусів (OrderStatusRegistry)
+ * оновлюється та будить клієнтів, що чекають, після коміту.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderStatusChangedEvent {
+
+    private final Long orderId;
+
+    /** Власник замовлення */
+    private final Long userId;
+
+    private final OrderStatus status;
+
+    @Override
+    public String toString() {
+        return "OrderStatusChangedEvent{orderId=" + orderId + ", status=" + status + "}";
+    }
+}
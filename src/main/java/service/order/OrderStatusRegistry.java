@@ -0,0 +1,151 @@
+package service.order;
+
+import entity.enums.OrderStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Реєстр статусів замовлень у пам'яті для очікування результату оплати.
+ *
+ * - запис з'являється при першому запиті статусу (seed з БД) або при зміні статусу
+ * - після коміту completeOrder / cancelOrder (OrderStatusChangedEvent) статус
+ *   оновлюється і всі підписники замовлення отримують його одразу
+ * - записи без підписників видаляються через order-status.ttl-minutes після останньої зміни;
+ *   кількість записів обмежена order-status.max-entries
+ * - реєстр локальний для вузла: зміну, зроблену іншим вузлом, підписник побачить
+ *   після свого тайм-ауту (PaymentStatusService перечитує статус з БД)
+ */
+@Slf4j
+@Component
+public class OrderStatusRegistry {
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${order-status.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${order-status.max-entries:10000}")
+    private int maxEntries;
+
+    public OrderStatusRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("order.status.registry.entries", entries, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("order.status.registry.waiters", this, OrderStatusRegistry::countWaiters)
+                .description("Клієнти, що чекають на зміну статусу замовлення")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Поточний статус замовлення
+     *
+     * @return статус або null, якщо замовлення немає в реєстрі
+     */
+    public OrderStatus getStatus(Long orderId) {
+        Entry entry = entries.get(orderId);
+        return entry != null ? entry.status : null;
+    }
+
+    /**
+     * Власник замовлення
+     *
+     * @return ID користувача або null, якщо замовлення немає в реєстрі
+     */
+    public Long getOwner(Long orderId) {
+        Entry entry = entries.get(orderId);
+        return entry != null ? entry.userId : null;
+    }
+
+    /**
+     * Запам'ятати статус, прочитаний з БД, якщо новішого в реєстрі ще немає
+     *
+     * @return false, якщо реєстр заповнений і запис не створено
+     */
+    public boolean seed(Long orderId, Long userId, OrderStatus status) {
+        if (entries.size() >= maxEntries && !entries.containsKey(orderId)) {
+            log.warn("Order status registry is full ({} entries), order {} not tracked", maxEntries, orderId);
+            return false;
+        }
+        entries.putIfAbsent(orderId, new Entry(userId, status));
+        return true;
+    }
+
+    /**
+     * Оновити статус (у т.ч. статусом з БД після тайм-ауту) і розбудити підписників
+     */
+    public void update(Long orderId, Long userId, OrderStatus status) {
+        Entry entry = entries.computeIfAbsent(orderId, id -> new Entry(userId, status));
+        entry.status = status;
+        entry.updatedAtMillis = System.currentTimeMillis();
+
+        for (Consumer<OrderStatus> waiter : entry.waiters) {
+            waiter.accept(status);
+        }
+    }
+
+    /**
+     * Підписатися на зміну статусу замовлення. Після підписки статус треба перевірити
+     * ще раз: зміна могла статися між перевіркою і підпискою.
+     *
+     * @return дія для відписки
+     */
+    public Runnable subscribe(Long orderId, Consumer<OrderStatus> waiter) {
+        Entry entry = entries.get(orderId);
+        if (entry == null) {
+            return () -> { };
+        }
+        entry.waiters.add(waiter);
+        return () -> entry.waiters.remove(waiter);
+    }
+
+    /**
+     * Оновити реєстр після коміту зміни статусу
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        update(event.getOrderId(), event.getUserId(), event.getStatus());
+    }
+
+    /**
+     * Видалити давно змінені записи без підписників
+     */
+    @Scheduled(fixedDelayString = "${order-status.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long expiredBefore = System.currentTimeMillis() - ttlMinutes * 60_000;
+        entries.entrySet().removeIf(e ->
+                e.getValue().waiters.isEmpty() && e.getValue().updatedAtMillis < expiredBefore);
+    }
+
+    private int countWaiters() {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            count += entry.waiters.size();
+        }
+        return count;
+    }
+
+    private static final class Entry {
+        private final Long userId;
+        private volatile OrderStatus status;
+        private volatile long updatedAtMillis = System.currentTimeMillis();
+        private final Set<Consumer<OrderStatus>> waiters = ConcurrentHashMap.newKeySet();
+
+        private Entry(Long userId, OrderStatus status) {
+            this.userId = userId;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package service.payment;
+
+/**
+ * Hex-кодування хешів і підписів (таблиця символів замість String.format на кожен байт)
+ */
+public final class HexEncoder {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private HexEncoder() {
+    }
+
+    /**
+     * Байти у hex-рядок у нижньому регістрі
+     */
+    public static String encode(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            hex[i * 2] = HEX_DIGITS[value >>> 4];
+            hex[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(hex);
+    }
+}
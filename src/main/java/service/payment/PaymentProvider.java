@@ -3,6 +3,8 @@ package service.payment;
 import dto.payment.PaymentRequest;
 import dto.payment.PaymentResponse;
 import dto.payment.PaymentWebhookData;
+import dto.payment.RecurringChargeRequest;
+import dto.payment.RecurringChargeResult;
 
 /**
  * Абстракція для роботи з різними платіжними системами
@@ -19,8 +21,18 @@ public interface PaymentProvider {
      */
     PaymentWebhookData handleWebhook(String webhookData, String signature);
 
+    /**
+     * Списати кошти за збереженим токеном картки (автопродовження підписки).
+     * Повторний виклик з тим самим chargeReference не повинен списати кошти вдруге.
+     */
+    RecurringChargeResult chargeRecurring(RecurringChargeRequest request);
+
     /**
      * Перевірити статус платежу
+     *
+     * @param orderId номер замовлення в платіжній системі (PaymentResponse.orderId)
+     * @return success, failed, pending, not_found (платіжна система такого платежу не знає -
+     *         оплату не розпочато) або null, якщо статус не вдалося отримати
      */
     String checkPaymentStatus(String orderId);
 
@@ -0,0 +1,38 @@
+package service.payment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обмеження частоти звернень до платіжної системи (запитів за секунду).
+ *
+ * Запити розподіляються рівномірно: кожен наступний отримує слот через 1/rate секунди
+ * після попереднього, потік чекає свого слоту.
+ */
+public class PaymentRateLimiter {
+
+    private final long intervalNanos;
+    private long nextSlotNanos = System.nanoTime();
+
+    public PaymentRateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    /**
+     * Дочекатися дозволу на запит
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
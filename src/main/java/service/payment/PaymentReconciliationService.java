@@ -0,0 +1,444 @@
+package service.payment;
+
+import dto.payment.PendingOrderRow;
+import entity.order.OrderPaymentAttempt;
+import exception.LeaseLostException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.OrderPaymentAttemptRepository;
+import repository.OrderRepository;
+import service.job.JobLockService;
+import service.order.OrderService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Звірка завислих замовлень з платіжними системами (webhook загубився або не дійшов).
+ *
+ * - по cron (payment.reconcile.cron) на одному вузлі (оренда payment-reconcile)
+ * - порціями (keyset по id) перебирає PENDING замовлення, старші за min-age-minutes
+ * - статус кожного платежу замовлення (OrderPaymentAttempt - усі спроби оплати, не лише
+ *   остання) запитується через PaymentProvider.checkPaymentStatus у обмеженому пулі
+ *   потоків (payment.reconcile.concurrency) поверх bulkhead PaymentHttpClient
+ * - результати порції застосовуються однією транзакцією з перевіркою fencing token:
+ *   success - completeOrder, failed - cancelOrder, pending / not_found / статус невідомий -
+ *   позначка reconciled_at; якщо транзакція порції не вдалася, замовлення застосовуються поодинці
+ * - замовлення без платежу, з платежем, якого платіжна система не знає (покинута форма
+ *   оплати), або все ще pending після abandon-after-hours скасовуються; невідомий статус
+ *   (платіжна система недоступна) замовлення не скасовує
+ * - відновлення після збою: оброблені замовлення виходять з PENDING або отримують
+ *   reconciled_at і наступний запуск (на будь-якому вузлі) продовжує з решти;
+ *   повторна перевірка того самого замовлення - не частіше recheck-minutes
+ *
+ * Метрики: payment.reconcile.batch (час порції), payment.reconcile.orders{outcome}
+ */
+@Slf4j
+@Service
+public class PaymentReconciliationService {
+
+    private final OrderRepository orderRepository;
+    private final OrderPaymentAttemptRepository paymentAttemptRepository;
+    private final OrderService orderService;
+    private final Map<String, PaymentProvider> paymentProviders;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLockService jobLockService;
+
+    private final Timer batchTimer;
+    private final Counter completed;
+    private final Counter cancelled;
+    private final Counter stillPending;
+    private final Counter errors;
+
+    private ThreadPoolExecutor executor;
+
+    @Value("${payment.reconcile.enabled:true}")
+    private boolean enabled;
+
+    /** Замовлення молодші за цей вік ще чекають на webhook */
+    @Value("${payment.reconcile.min-age-minutes:30}")
+    private long minAgeMinutes;
+
+    @Value("${payment.reconcile.recheck-minutes:30}")
+    private long recheckMinutes;
+
+    /** Після цього замовлення без підтвердженої оплати скасовується */
+    @Value("${payment.reconcile.abandon-after-hours:24}")
+    private long abandonAfterHours;
+
+    @Value("${payment.reconcile.page-size:100}")
+    private int pageSize;
+
+    @Value("${payment.reconcile.concurrency:8}")
+    private int concurrency;
+
+    public PaymentReconciliationService(OrderRepository orderRepository,
+                                        OrderPaymentAttemptRepository paymentAttemptRepository,
+                                        OrderService orderService,
+                                        Map<String, PaymentProvider> paymentProviders,
+                                        PlatformTransactionManager transactionManager,
+                                        JobLockService jobLockService,
+                                        MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.paymentAttemptRepository = paymentAttemptRepository;
+        this.orderService = orderService;
+        this.paymentProviders = paymentProviders;
+        this.transactionManager = transactionManager;
+        this.jobLockService = jobLockService;
+
+        this.batchTimer = Timer.builder("payment.reconcile.batch")
+                .description("Час звірки однієї порції замовлень")
+                .register(meterRegistry);
+        this.completed = orders(meterRegistry, "completed");
+        this.cancelled = orders(meterRegistry, "cancelled");
+        this.stillPending = orders(meterRegistry, "pending");
+        this.errors = orders(meterRegistry, "error");
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Черга вміщує всю порцію: завдання подаються тільки порціями по pageSize
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(pageSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-reconcile-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${payment.reconcile.cron:0 */10 * * * ?}")
+    public void reconcileScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jobLockService.runExclusive("payment-reconcile", this::reconcilePendingOrders);
+        } catch (Exception e) {
+            log.error("Error during payment reconciliation", e);
+        }
+    }
+
+    /**
+     * Звірити всі завислі замовлення
+     *
+     * @return кількість замовлень, завершених або скасованих
+     */
+    public int reconcilePendingOrders() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdBefore = now.minusMinutes(minAgeMinutes);
+        LocalDateTime checkedBefore = now.minusMinutes(recheckMinutes);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        long afterId = 0;
+        int resolved = 0;
+        int checked = 0;
+        int batches = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long currentAfterId = afterId;
+            List<PendingOrderRow> page = readOnly.execute(status -> orderRepository.findPendingForReconciliation(
+                    createdBefore, checkedBefore, currentAfterId, PageRequest.of(0, pageSize)));
+            if (page == null || page.isEmpty()) {
+                break;
+            }
+            Map<Long, List<OrderPaymentAttempt>> attempts = readOnly.execute(status -> attemptsByOrder(page));
+
+            Timer.Sample sample = Timer.start();
+            BatchResult result = reconcileBatch(page, attempts);
+            long elapsedNanos = sample.stop(batchTimer);
+
+            batches++;
+            checked += page.size();
+            resolved += result.completed + result.cancelled;
+            log.info("Reconciled batch of {} orders in {} ms: {} completed, {} cancelled, {} pending, {} errors",
+                    page.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    result.completed, result.cancelled, result.pending, result.errors);
+
+            afterId = page.get(page.size() - 1).getOrderId();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        if (checked > 0) {
+            log.info("Payment reconciliation checked {} orders in {} batches, resolved {}", checked, batches, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Платежі замовлень порції, новіші спочатку
+     */
+    private Map<Long, List<OrderPaymentAttempt>> attemptsByOrder(List<PendingOrderRow> page) {
+        List<Long> orderIds = new ArrayList<>(page.size());
+        for (PendingOrderRow row : page) {
+            orderIds.add(row.getOrderId());
+        }
+        Map<Long, List<OrderPaymentAttempt>> byOrder = new HashMap<>();
+        for (OrderPaymentAttempt attempt : paymentAttemptRepository.findByOrderIdInOrderByIdDesc(orderIds)) {
+            byOrder.computeIfAbsent(attempt.getOrderId(), id -> new ArrayList<>()).add(attempt);
+        }
+        return byOrder;
+    }
+
+    /**
+     * Запитати статуси порції паралельно і застосувати результати
+     */
+    private BatchResult reconcileBatch(List<PendingOrderRow> page, Map<Long, List<OrderPaymentAttempt>> attempts) {
+        LocalDateTime abandonBefore = LocalDateTime.now().minusHours(abandonAfterHours);
+
+        List<Future<Decision>> futures = new ArrayList<>(page.size());
+        for (PendingOrderRow row : page) {
+            List<OrderPaymentAttempt> orderAttempts = attempts.getOrDefault(row.getOrderId(), Collections.emptyList());
+            futures.add(executor.submit(() -> checkStatus(row, orderAttempts)));
+        }
+
+        List<Decision> decisions = new ArrayList<>(page.size());
+        BatchResult result = new BatchResult();
+        for (int i = 0; i < page.size(); i++) {
+            PendingOrderRow row = page.get(i);
+            Decision decision;
+            try {
+                decision = futures.get(i).get();
+            } catch (ExecutionException e) {
+                log.warn("Status check for order {} failed: {}", row.getOrderId(), e.getCause().getMessage());
+                decision = new Decision(row, null, row.getPaymentGateway(), row.getPaymentReference());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                return result;
+            }
+
+            if (decision.status == null) {
+                // Статус невідомий: не скасовувати; reconciled_at - повтор не раніше recheck-minutes
+                result.errors++;
+                errors.increment();
+            } else if (!"success".equals(decision.status) && !"failed".equals(decision.status)
+                    && row.getCreatedAt().isBefore(abandonBefore)) {
+                // pending / not_found довше abandon-after-hours - оплату покинуто
+                decision = new Decision(row, "failed", decision.gateway, decision.reference);
+            }
+            decisions.add(decision);
+        }
+
+        applyDecisions(decisions, result);
+        return result;
+    }
+
+    /**
+     * Статус замовлення за всіма його платежами: success, якщо оплачено будь-який;
+     * інакше pending, невідомий (null), not_found, failed - у порядку пріоритету
+     * (failed - тільки якщо відхилено всі платежі)
+     */
+    private Decision checkStatus(PendingOrderRow row, List<OrderPaymentAttempt> attempts) {
+        if (attempts.isEmpty()) {
+            if (row.getPaymentReference() == null) {
+                // Платіж не створювався - у платіжній системі перевіряти нічого
+                return new Decision(row, "not_found", null, null);
+            }
+            // Замовлення, створене до запису спроб оплати - тільки останній номер
+            return checkAttempt(row, row.getPaymentGateway(), row.getPaymentReference());
+        }
+
+        Decision pending = null;
+        Decision unknown = null;
+        Decision notFound = null;
+        Decision failed = null;
+        for (OrderPaymentAttempt attempt : attempts) {
+            Decision decision = checkAttempt(row, attempt.getPaymentGateway(), attempt.getPaymentReference());
+            if ("success".equals(decision.status)) {
+                return decision;
+            }
+            if ("pending".equals(decision.status)) {
+                pending = pending != null ? pending : decision;
+            } else if (decision.status == null) {
+                unknown = unknown != null ? unknown : decision;
+            } else if ("not_found".equals(decision.status)) {
+                notFound = notFound != null ? notFound : decision;
+            } else {
+                failed = failed != null ? failed : decision;
+            }
+        }
+        if (pending != null) {
+            return pending;
+        }
+        if (unknown != null) {
+            return unknown;
+        }
+        return notFound != null ? notFound : failed;
+    }
+
+    /**
+     * Статус одного платежу (null - провайдер невідомий чи недоступний)
+     */
+    private Decision checkAttempt(PendingOrderRow row, String gateway, String reference) {
+        PaymentProvider provider = paymentProviders.get(gateway);
+        if (provider == null) {
+            log.warn("Unknown payment gateway {} of order {}", gateway, row.getOrderId());
+            return new Decision(row, null, gateway, reference);
+        }
+        String status = provider.checkPaymentStatus(reference);
+        if (status != null && !"success".equals(status) && !"failed".equals(status)
+                && !"pending".equals(status) && !"not_found".equals(status)) {
+            log.warn("Unexpected status {} of payment {} ({})", status, reference, gateway);
+            status = null;
+        }
+        return new Decision(row, status, gateway, reference);
+    }
+
+    /**
+     * Одна транзакція на порцію; якщо вона не вдалася - кожне замовлення окремо
+     */
+    private void applyDecisions(List<Decision> decisions, BatchResult result) {
+        if (decisions.isEmpty()) {
+            return;
+        }
+
+        try {
+            BatchResult batch = requiresNew().execute(status -> {
+                jobLockService.checkFence();
+                BatchResult applied = new BatchResult();
+                List<Long> pendingIds = new ArrayList<>();
+                for (Decision decision : decisions) {
+                    apply(decision, applied, pendingIds);
+                }
+                markReconciled(pendingIds);
+                return applied;
+            });
+            result.add(batch);
+            record(batch);
+            return;
+        } catch (LeaseLostException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.warn("Reconciliation batch failed, applying {} orders one by one: {}", decisions.size(), e.getMessage());
+        }
+
+        for (Decision decision : decisions) {
+            try {
+                BatchResult single = requiresNew().execute(status -> {
+                    jobLockService.checkFence();
+                    BatchResult applied = new BatchResult();
+                    List<Long> pendingIds = new ArrayList<>();
+                    apply(decision, applied, pendingIds);
+                    markReconciled(pendingIds);
+                    return applied;
+                });
+                result.add(single);
+                record(single);
+            } catch (LeaseLostException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                result.errors++;
+                errors.increment();
+                log.error("Failed to reconcile order {}", decision.row.getOrderId(), e);
+            }
+        }
+    }
+
+    private void apply(Decision decision, BatchResult applied, List<Long> pendingIds) {
+        PendingOrderRow row = decision.row;
+        if ("success".equals(decision.status)) {
+            if (orderService.completeOrder(row.getOrderId(), decision.gateway, decision.reference)) {
+                log.info("Order {} completed by reconciliation ({} {})",
+                        row.getOrderId(), decision.gateway, decision.reference);
+                applied.completed++;
+            }
+        } else if ("failed".equals(decision.status)) {
+            if (orderService.cancelOrder(row.getOrderId())) {
+                applied.cancelled++;
+            }
+        } else {
+            pendingIds.add(row.getOrderId());
+            if (decision.status != null) {
+                // Невідомий статус уже врахований як помилка
+                applied.pending++;
+            }
+        }
+    }
+
+    private void markReconciled(List<Long> pendingIds) {
+        if (!pendingIds.isEmpty()) {
+            orderRepository.markReconciled(pendingIds, LocalDateTime.now());
+        }
+    }
+
+    private void record(BatchResult batch) {
+        completed.increment(batch.completed);
+        cancelled.increment(batch.cancelled);
+        stillPending.increment(batch.pending);
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+    private static Counter orders(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("payment.reconcile.orders")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static final class Decision {
+        private final PendingOrderRow row;
+        /** success, failed, pending, not_found або null (статус невідомий) */
+        private final String status;
+        /** Платіж, за яким прийнято рішення */
+        private final String gateway;
+        private final String reference;
+
+        private Decision(PendingOrderRow row, String status, String gateway, String reference) {
+            this.row = row;
+            this.status = status;
+            this.gateway = gateway;
+            this.reference = reference;
+        }
+    }
+
+    private static final class BatchResult {
+        private int completed;
+        private int cancelled;
+        private int pending;
+        private int errors;
+
+        private void add(BatchResult other) {
+            completed += other.completed;
+            cancelled += other.cancelled;
+            pending += other.pending;
+            errors += other.errors;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import service.order.OrderService;
+import service.subscription.SubscriptionRenewalService;
 
 import java.util.Map;
 
@@ -18,6 +19,7 @@ public class PaymentService {
 
     private final Map<String, PaymentProvider> paymentProviders;
     private final OrderService orderService;
+    private final SubscriptionRenewalService renewalService;
 
     @Value("${payment.default-provider:wayforpay}")
     private String defaultProvider;
@@ -43,35 +45,52 @@ public class PaymentService {
                 .language(lang)
                 .build();
 
-        return provider.createPayment(request);
+        PaymentResponse response = provider.createPayment(request);
+        if (response.isSuccess() && response.getOrderId() != null) {
+            // Без номера платежу звірка не зможе запитати його статус, якщо webhook загубиться
+            orderService.recordPaymentReference(order.getId(), defaultProvider, response.getOrderId());
+        }
+        return response;
     }
 
     /**
-     * Обробити webhook від платіжної системи
+     * Розібрати webhook та перевірити підпис (без побічних ефектів)
+     *
+     * @return дані webhook або null, якщо тіло не вдалося розібрати
      */
-    public boolean handlePaymentCallback(String providerName, String data, String signature) {
-        try {
-            PaymentProvider provider = getProvider(providerName);
-            PaymentWebhookData webhookData = provider.handleWebhook(data, signature);
-
-            if (webhookData == null || !webhookData.isSignatureValid()) {
-                log.error("Invalid webhook signature from {}", providerName);
-                return false;
-            }
+    public PaymentWebhookData parseWebhook(String providerName, String data, String signature) {
+        return getProvider(providerName).handleWebhook(data, signature);
+    }
 
-            // Якщо платіж успішний - завершити замовлення
+    /**
+     * Застосувати перевірений webhook: успішний платіж завершує замовлення.
+     * Повторний webhook уже завершеного замовлення нічого не змінює (OrderService.completeOrder).
+     * Помилки прокидаються далі - WebhookInboxService повторить обробку.
+     *
+     * @return true, якщо webhook змінив замовлення
+     */
+    public boolean applyWebhook(String providerName, PaymentWebhookData webhookData) {
+        // Списання автопродовження: успішний callback завершує списання з невідомим результатом,
+        // решту з'ясує SubscriptionRenewalService перевіркою статусу
+        if (webhookData.getOrderId() != null && webhookData.getOrderId().startsWith("RENEW_")) {
             if ("success".equals(webhookData.getStatus())) {
-                Long orderId = extractOrderId(webhookData.getOrderId());
-                orderService.completeOrder(orderId, providerName, webhookData.getTransactionId());
-                return true;
+                return renewalService.applyChargeCallback(webhookData.getOrderId(), webhookData.getTransactionId());
             }
-
+            log.info("{} callback for renewal charge {} with status {} - nothing to apply",
+                    providerName, webhookData.getOrderId(), webhookData.getStatus());
             return false;
+        }
 
-        } catch (Exception e) {
-            log.error("Error handling payment callback", e);
-            return false;
+        // Якщо платіж успішний - завершити замовлення
+        if ("success".equals(webhookData.getStatus())) {
+            Long orderId = extractOrderId(webhookData.getOrderId());
+            return orderService.completeOrder(orderId, providerName, webhookData.getTransactionId(),
+                    webhookData.getRecurringToken());
         }
+
+        log.info("{} callback for {} with status {} - nothing to apply",
+                providerName, webhookData.getOrderId(), webhookData.getStatus());
+        return false;
     }
 
     // === Helper Methods ===
@@ -0,0 +1,185 @@
+package service.payment;
+
+import dto.payment.OrderStatusRow;
+import dto.payment.PaymentStatusResponse;
+import entity.enums.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+import repository.OrderRepository;
+import service.order.OrderStatusRegistry;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-poll статусу оплати для сторінки повернення з платіжної системи.
+ *
+ * Клієнт передає статус, який уже бачить (known). Якщо поточний статус інший або
+ * остаточний - відповідь одразу; інакше з'єднання паркується (DeferredResult без
+ * потоку сервлета) до зміни статусу в OrderStatusRegistry або до тайм-ауту
+ * payment.status.wait-timeout-ms. Після тайм-ауту статус перечитується з БД один раз
+ * (зміна могла статися на іншому вузлі), клієнт повторює запит.
+ *
+ * Одночасних очікувань на користувача - не більше payment.status.max-waits-per-user (далі 429).
+ *
+ * Метрики: payment.status.requests{result}
+ */
+@Slf4j
+@Service
+public class PaymentStatusService {
+
+    private final OrderStatusRegistry statusRegistry;
+    private final OrderRepository orderRepository;
+
+    /** userId -> кількість запаркованих з'єднань */
+    private final Map<Long, AtomicInteger> waitsPerUser = new ConcurrentHashMap<>();
+
+    private final Counter immediate;
+    private final Counter woken;
+    private final Counter timedOut;
+    private final Counter rejected;
+
+    @Value("${payment.status.wait-timeout-ms:25000}")
+    private long waitTimeoutMs;
+
+    @Value("${payment.status.max-waits-per-user:3}")
+    private int maxWaitsPerUser;
+
+    public PaymentStatusService(OrderStatusRegistry statusRegistry,
+                                OrderRepository orderRepository,
+                                MeterRegistry meterRegistry) {
+        this.statusRegistry = statusRegistry;
+        this.orderRepository = orderRepository;
+
+        this.immediate = requests(meterRegistry, "immediate");
+        this.woken = requests(meterRegistry, "woken");
+        this.timedOut = requests(meterRegistry, "timeout");
+        this.rejected = requests(meterRegistry, "rejected");
+    }
+
+    /**
+     * Дочекатися зміни статусу замовлення
+     *
+     * @param userId поточний користувач
+     * @param orderId ID замовлення
+     * @param known статус, який клієнт уже бачить (null - відповісти одразу)
+     */
+    public DeferredResult<ResponseEntity<PaymentStatusResponse>> awaitStatus(Long userId, Long orderId, String known) {
+        DeferredResult<ResponseEntity<PaymentStatusResponse>> result = new DeferredResult<>(waitTimeoutMs);
+
+        OrderStatus current = statusRegistry.getStatus(orderId);
+        Long owner = statusRegistry.getOwner(orderId);
+        boolean tracked = current != null;
+        if (!tracked) {
+            // Промах реєстру - один запит до БД
+            OrderStatusRow row = orderRepository.findStatusRow(orderId).orElse(null);
+            if (row == null) {
+                result.setResult(ResponseEntity.notFound().build());
+                return result;
+            }
+            current = row.getStatus();
+            owner = row.getUserId();
+            tracked = statusRegistry.seed(orderId, owner, current);
+        }
+
+        if (!userId.equals(owner)) {
+            // Чуже замовлення не відрізняється від неіснуючого
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
+
+        // Статус уже інший чи остаточний, або реєстр заповнений - відповідь без очікування
+        if (known == null || !tracked || isFinal(current) || !toApi(current).equals(known)) {
+            immediate.increment();
+            result.setResult(ok(orderId, current));
+            return result;
+        }
+
+        AtomicInteger userWaits = waitsPerUser.computeIfAbsent(userId, id -> new AtomicInteger());
+        if (userWaits.incrementAndGet() > maxWaitsPerUser) {
+            release(userId, userWaits);
+            rejected.increment();
+            log.debug("User {} exceeded {} concurrent payment status waits", userId, maxWaitsPerUser);
+            result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+            return result;
+        }
+
+        OrderStatus fallback = current;
+        AtomicBoolean done = new AtomicBoolean();
+        Runnable unsubscribe = statusRegistry.subscribe(orderId, status -> {
+            if (!toApi(status).equals(known) && done.compareAndSet(false, true)) {
+                woken.increment();
+                result.setResult(ok(orderId, status));
+            }
+        });
+
+        result.onTimeout(() -> {
+            if (done.compareAndSet(false, true)) {
+                timedOut.increment();
+                result.setResult(ok(orderId, refreshFromDatabase(orderId, fallback)));
+            }
+        });
+        result.onCompletion(() -> {
+            unsubscribe.run();
+            release(userId, userWaits);
+        });
+
+        // Статус міг змінитися між перевіркою та підпискою
+        OrderStatus afterSubscribe = statusRegistry.getStatus(orderId);
+        if (afterSubscribe != null && !toApi(afterSubscribe).equals(known) && done.compareAndSet(false, true)) {
+            immediate.increment();
+            result.setResult(ok(orderId, afterSubscribe));
+        }
+
+        return result;
+    }
+
+    private OrderStatus refreshFromDatabase(Long orderId, OrderStatus fallback) {
+        try {
+            OrderStatusRow row = orderRepository.findStatusRow(orderId).orElse(null);
+            if (row == null) {
+                return fallback;
+            }
+            if (row.getStatus() != statusRegistry.getStatus(orderId)) {
+                statusRegistry.update(orderId, row.getUserId(), row.getStatus());
+            }
+            return row.getStatus();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh status of order {}: {}", orderId, e.getMessage());
+            return fallback;
+        }
+    }
+
+    private void release(Long userId, AtomicInteger userWaits) {
+        if (userWaits.decrementAndGet() <= 0) {
+            waitsPerUser.remove(userId, userWaits);
+        }
+    }
+
+    private static ResponseEntity<PaymentStatusResponse> ok(Long orderId, OrderStatus status) {
+        return ResponseEntity.ok(new PaymentStatusResponse(orderId, toApi(status), isFinal(status)));
+    }
+
+    private static boolean isFinal(OrderStatus status) {
+        return status != OrderStatus.PENDING && status != OrderStatus.PROCESSING;
+    }
+
+    private static String toApi(OrderStatus status) {
+        return status.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("payment.status.requests")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
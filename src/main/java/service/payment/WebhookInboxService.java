@@ -0,0 +1,463 @@
+package service.payment;
+
+import dto.payment.PaymentWebhookData;
+import dto.payment.WebhookEventRow;
+import dto.payment.WebhookStatusCountRow;
+import entity.enums.WebhookEventStatus;
+import entity.order.PaymentWebhookEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.PaymentWebhookEventRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Вхідна черга webhooks платіжних систем (payment_webhook_event).
+ *
+ * 1. receive: тіло та заголовки зберігаються одним INSERT без розбору та перевірки підпису,
+ *    провайдер одразу отримує відповідь. Повторна доставка того самого тіла
+ *    (ключ SHA-256 тіла) нового рядка не створює.
+ * 2. process: подія обробляється обмеженим пулом потоків одразу після збереження;
+ *    події, що не вмістилися в чергу пулу, повтори та події після рестарту підбирає
+ *    періодичне опитування. Взяття в роботу (RECEIVED -> PROCESSING одним UPDATE)
+ *    захищає від подвійної обробки між потоками та екземплярами застосунку.
+ * 3. ідемпотентність: подія з транзакцією, вже обробленою іншою подією, позначається
+ *    DUPLICATE; OrderService.completeOrder не завершує замовлення вдруге.
+ * 4. replay: повторна обробка подій з адмінки (AdminWebhookController).
+ *
+ * Метрики: payment.webhooks.received{provider}, payment.webhooks.duplicates,
+ * payment.webhooks.processed{outcome}, payment.webhooks.failed,
+ * payment.webhooks.lag (від отримання до обробки),
+ * payment.webhooks.queue.depth (необроблені події в БД),
+ * payment.webhooks.queue.oldest-age (секунд чекає найстаріша необроблена подія)
+ */
+@Slf4j
+@Service
+public class WebhookInboxService {
+
+    /** Заголовок з підписом для кожного провайдера (імена в нижньому регістрі) */
+    private static final Map<String, String> SIGNATURE_HEADERS = new HashMap<>();
+
+    static {
+        SIGNATURE_HEADERS.put("wayforpay", "merchantsignature");
+        SIGNATURE_HEADERS.put("fondy", "signature");
+    }
+
+    /** Заголовки, що не зберігаються */
+    private static final Set<String> SKIPPED_HEADERS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList("cookie", "authorization")));
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final PaymentWebhookEventRepository eventRepository;
+    private final PaymentService paymentService;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter duplicates;
+    private final Counter failed;
+    private final Timer lag;
+    private final Map<WebhookEventStatus, Counter> processed = new EnumMap<>(WebhookEventStatus.class);
+
+    /** Події, вже передані в пул цим екземпляром */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile long queueDepth;
+    private volatile long oldestPendingAgeSeconds;
+    private ThreadPoolExecutor executor;
+
+    @Value("${payment.webhooks.worker-threads:4}")
+    private int workerThreads;
+
+    /** Скільки подій може чекати на вільний потік (решту підбере опитування) */
+    @Value("${payment.webhooks.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${payment.webhooks.page-size:200}")
+    private int pageSize;
+
+    @Value("${payment.webhooks.max-attempts:8}")
+    private int maxAttempts;
+
+    /** Пауза перед повторною спробою (подвоюється з кожною спробою) */
+    @Value("${payment.webhooks.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    /** Через скільки подія PROCESSING вважається покинутою */
+    @Value("${payment.webhooks.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    public WebhookInboxService(PaymentWebhookEventRepository eventRepository,
+                               PaymentService paymentService,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.paymentService = paymentService;
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+
+        this.duplicates = Counter.builder("payment.webhooks.duplicates")
+                .description("Повторні доставки того самого тіла")
+                .register(meterRegistry);
+        this.failed = Counter.builder("payment.webhooks.failed")
+                .description("Невдалі спроби обробки")
+                .register(meterRegistry);
+        this.lag = Timer.builder("payment.webhooks.lag")
+                .description("Час від отримання webhook до завершення обробки")
+                .register(meterRegistry);
+        for (WebhookEventStatus outcome : Arrays.asList(WebhookEventStatus.PROCESSED,
+                WebhookEventStatus.DUPLICATE, WebhookEventStatus.REJECTED)) {
+            processed.put(outcome, Counter.builder("payment.webhooks.processed")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("payment.webhooks.queue.depth", this, service -> service.queueDepth)
+                .description("Необроблені події в БД (на момент останнього опитування)")
+                .register(meterRegistry);
+        Gauge.builder("payment.webhooks.queue.oldest-age", this, service -> service.oldestPendingAgeSeconds)
+                .description("Секунд чекає найстаріша необроблена подія")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-webhook-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Черга заповнена - подія лишається в БД і буде підібрана опитуванням,
+                // потік запиту провайдера не блокується
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("payment.webhooks.executor.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Зберегти webhook і поставити його на обробку
+     *
+     * @param provider назва провайдера
+     * @param body сире тіло запиту
+     * @param headers заголовки запиту
+     * @return false, якщо це повторна доставка вже збереженого тіла
+     */
+    public boolean receive(String provider, String body, HttpHeaders headers) {
+        Counter.builder("payment.webhooks.received")
+                .tag("provider", provider)
+                .register(meterRegistry)
+                .increment();
+
+        PaymentWebhookEvent event = new PaymentWebhookEvent(provider, sha256Hex(body), body,
+                headersToJson(headers), LocalDateTime.now());
+
+        Long eventId;
+        try {
+            eventId = new TransactionTemplate(transactionManager).execute(status ->
+                    eventRepository.saveAndFlush(event).getId());
+        } catch (DataIntegrityViolationException e) {
+            duplicates.increment();
+            log.info("Duplicate {} webhook delivery ignored (key {})", provider, event.getDedupKey());
+            return false;
+        }
+
+        submit(eventId);
+        return true;
+    }
+
+    /**
+     * Підібрати події, що чекають на обробку: не вмістилися в пул, чекають на повтор
+     * або лишилися після рестарту. Заодно оновлює метрики черги.
+     */
+    @Scheduled(fixedDelayString = "${payment.webhooks.poll-interval-ms:5000}",
+            initialDelayString = "${payment.webhooks.poll-interval-ms:5000}")
+    public void pollPending() {
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+            LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+            Integer released = transactionTemplate.execute(status -> eventRepository.releaseStale(staleBefore));
+            if (released != null && released > 0) {
+                log.warn("Released {} stale payment webhook events", released);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = eventRepository.findDueIds(now, PageRequest.of(0, pageSize));
+            for (Long id : ids) {
+                if (!submit(id)) {
+                    break;
+                }
+            }
+
+            refreshQueueMetrics(now);
+        } catch (RuntimeException e) {
+            log.error("Failed to poll payment webhook inbox", e);
+        }
+    }
+
+    /**
+     * Повторно обробити подію
+     *
+     * @return true, якщо подію повернуто в чергу
+     */
+    public boolean replay(Long eventId) {
+        return replayIds(Collections.singletonList(eventId)) > 0;
+    }
+
+    /**
+     * Повторно обробити всі події у статусі FAILED, отримані після моменту
+     *
+     * @return кількість повернутих у чергу подій
+     */
+    public int replayFailed(LocalDateTime since) {
+        int total = 0;
+        while (true) {
+            List<Long> ids = eventRepository.findIdsByStatusSince(WebhookEventStatus.FAILED, since,
+                    PageRequest.of(0, pageSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int replayed = replayIds(ids);
+            total += replayed;
+            if (replayed == 0 || ids.size() < pageSize) {
+                break;
+            }
+        }
+        log.info("Replayed {} failed payment webhook events received since {}", total, since);
+        return total;
+    }
+
+    /**
+     * Останні події в статусах (адмінка)
+     */
+    public List<WebhookEventRow> getRecentEvents(List<WebhookEventStatus> statuses, int limit) {
+        return eventRepository.findRecent(statuses, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Кількість подій у черзі та проблемних статусах (адмінка)
+     */
+    public Map<WebhookEventStatus, Long> getStatusCounts() {
+        Map<WebhookEventStatus, Long> counts = new EnumMap<>(WebhookEventStatus.class);
+        for (WebhookStatusCountRow row : eventRepository.countByStatuses(Arrays.asList(
+                WebhookEventStatus.RECEIVED, WebhookEventStatus.PROCESSING,
+                WebhookEventStatus.FAILED, WebhookEventStatus.REJECTED))) {
+            counts.put(row.getStatus(), row.getCount());
+        }
+        return counts;
+    }
+
+    private int replayIds(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer replayed = new TransactionTemplate(transactionManager).execute(status ->
+                eventRepository.replay(ids, now));
+        for (Long id : ids) {
+            submit(id);
+        }
+        return replayed != null ? replayed : 0;
+    }
+
+    /**
+     * Передати подію в пул
+     *
+     * @return false, якщо черга пулу заповнена
+     */
+    private boolean submit(Long eventId) {
+        if (!inFlight.add(eventId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(eventId);
+                } finally {
+                    inFlight.remove(eventId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(eventId);
+            log.debug("Payment webhook pool is full, event {} left for polling", eventId);
+            return false;
+        }
+    }
+
+    private void process(Long eventId) {
+        String claimToken = UUID.randomUUID().toString();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        PaymentWebhookEvent event = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (eventRepository.claim(eventId, claimToken, now) == 0) {
+                return null;
+            }
+            return eventRepository.findById(eventId).orElse(null);
+        });
+        if (event == null) {
+            // Подію вже обробляє інший потік / екземпляр або час повтору ще не настав
+            return;
+        }
+
+        String provider = event.getProvider();
+        try {
+            PaymentWebhookData data = paymentService.parseWebhook(provider, event.getBody(),
+                    signatureOf(provider, event.getHeaders()));
+
+            if (data == null || !data.isSignatureValid()) {
+                log.error("Rejected {} webhook event {}: invalid signature or body", provider, eventId);
+                complete(event, claimToken, WebhookEventStatus.REJECTED, data, "Invalid signature or body");
+                return;
+            }
+
+            WebhookEventStatus outcome = transactionTemplate.execute(status -> {
+                if (data.getTransactionId() != null
+                        && eventRepository.existsProcessedTransaction(provider, data.getTransactionId(), eventId)) {
+                    return WebhookEventStatus.DUPLICATE;
+                }
+                paymentService.applyWebhook(provider, data);
+                return WebhookEventStatus.PROCESSED;
+            });
+
+            complete(event, claimToken, outcome, data, null);
+        } catch (RuntimeException e) {
+            recordFailure(event, claimToken, e);
+        }
+    }
+
+    private void complete(PaymentWebhookEvent event, String claimToken, WebhookEventStatus outcome,
+                          PaymentWebhookData data, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        new TransactionTemplate(transactionManager).execute(status -> eventRepository.complete(
+                event.getId(), claimToken, outcome,
+                data != null ? truncate(data.getOrderId(), 100) : null,
+                data != null ? truncate(data.getTransactionId(), 100) : null,
+                error, now));
+
+        processed.get(outcome).increment();
+        lag.record(Duration.between(event.getReceivedAt(), now));
+        log.debug("Payment webhook event {} ({}) completed as {}", event.getId(), event.getProvider(), outcome);
+    }
+
+    private void recordFailure(PaymentWebhookEvent event, String claimToken, RuntimeException e) {
+        int attempt = event.getAttempts() + 1;
+        boolean giveUp = attempt >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now()
+                .plusSeconds(retryDelaySeconds << Math.min(attempt - 1, 10));
+        String error = truncate(e.getClass().getSimpleName() + ": " + e.getMessage(), MAX_ERROR_LENGTH);
+
+        new TransactionTemplate(transactionManager).execute(status -> eventRepository.markAttemptFailed(
+                event.getId(), claimToken, giveUp ? WebhookEventStatus.FAILED : WebhookEventStatus.RECEIVED,
+                nextAttemptAt, error));
+        failed.increment();
+
+        if (giveUp) {
+            log.error("Payment webhook event {} ({}) failed permanently after {} attempts",
+                    event.getId(), event.getProvider(), attempt, e);
+        } else {
+            log.warn("Payment webhook event {} ({}) failed (attempt {}), retry at {}: {}",
+                    event.getId(), event.getProvider(), attempt, nextAttemptAt, error);
+        }
+    }
+
+    private void refreshQueueMetrics(LocalDateTime now) {
+        long depth = 0;
+        for (WebhookStatusCountRow row : eventRepository.countByStatuses(Arrays.asList(
+                WebhookEventStatus.RECEIVED, WebhookEventStatus.PROCESSING))) {
+            depth += row.getCount();
+        }
+        queueDepth = depth;
+
+        LocalDateTime oldest = eventRepository.findOldestPendingReceivedAt();
+        oldestPendingAgeSeconds = oldest != null
+                ? Math.max(0, ChronoUnit.SECONDS.between(oldest, now))
+                : 0;
+    }
+
+    private static String signatureOf(String provider, String headersJson) {
+        String header = SIGNATURE_HEADERS.get(provider);
+        if (header == null || headersJson == null) {
+            return null;
+        }
+        JSONObject headers = new JSONObject(headersJson);
+        return headers.optString(header, null);
+    }
+
+    private static String headersToJson(HttpHeaders headers) {
+        JSONObject json = new JSONObject();
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                String name = header.getKey().toLowerCase(Locale.ROOT);
+                if (!SKIPPED_HEADERS.contains(name) && !header.getValue().isEmpty()) {
+                    json.put(name, header.getValue().get(0));
+                }
+            }
+        }
+        return json.toString();
+    }
+
+    private static String sha256Hex(String body) {
+        try {
+            return HexEncoder.encode(MessageDigest.getInstance("SHA-256")
+                    .digest(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,85 @@
+package service.payment.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker для викликів платіжної системи.
+ *
+ * - CLOSED: запити проходять; failureThreshold невдач поспіль розмикає ланцюг
+ * - OPEN: запити відхиляються без звернення до мережі протягом openDuration
+ * - HALF_OPEN: пропускається один пробний запит; успіх замикає ланцюг, невдача - знову OPEN
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+    }
+
+    /**
+     * Чи можна виконати запит. У стані HALF_OPEN дозвіл отримує тільки один запит,
+     * він зобов'язаний завершитися onSuccess, onFailure або release.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Повернути дозвіл, не використаний для запиту
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
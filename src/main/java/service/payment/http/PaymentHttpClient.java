@@ -0,0 +1,296 @@
+package service.payment.http;
+
+import exception.PaymentGatewayUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Спільний HTTP-клієнт для викликів API платіжних систем.
+ *
+ * - один пул з'єднань (keep-alive) на всіх провайдерів: TLS-рукостискання не повторюється
+ *   на кожен запит
+ * - тайм-аути, ліміт одночасних запитів, повтори та circuit breaker налаштовуються для
+ *   кожного провайдера окремо: payment.http.{provider}.*, за замовчуванням payment.http.*
+ * - bulkhead: не більше max-concurrent запитів до провайдера; решта чекає acquire-timeout-ms,
+ *   тож повільний провайдер не забирає потоки в інших
+ * - повтори з експоненційною затримкою та jitter: ідемпотентні запити (статус, створення
+ *   checkout) - при помилці мережі, 5xx та 429; списання - тільки якщо з'єднання не встановлено
+ * - після failure-threshold невдач поспіль запити до провайдера відхиляються
+ *   (PaymentGatewayUnavailableException) протягом open-duration-ms
+ *
+ * Метрики: payment.http.requests{provider,outcome} (гістограма затримок),
+ * payment.http.retries{provider}, payment.http.bulkhead.in-use{provider},
+ * payment.http.circuit.state{provider} (0 - closed, 1 - half-open, 2 - open)
+ */
+@Slf4j
+@Component
+public class PaymentHttpClient {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    /** provider -> налаштований канал */
+    private final Map<String, ProviderChannel> channels = new ConcurrentHashMap<>();
+
+    private OkHttpClient sharedClient;
+
+    @Value("${payment.http.pool.max-idle-connections:20}")
+    private int maxIdleConnections;
+
+    @Value("${payment.http.pool.keep-alive-seconds:300}")
+    private long keepAliveSeconds;
+
+    @Value("${payment.http.connect-timeout-ms:5000}")
+    private long defaultConnectTimeoutMs;
+
+    @Value("${payment.http.read-timeout-ms:30000}")
+    private long defaultReadTimeoutMs;
+
+    /** Загальний ліміт на одну спробу: з'єднання, запис і читання */
+    @Value("${payment.http.call-timeout-ms:40000}")
+    private long defaultCallTimeoutMs;
+
+    @Value("${payment.http.max-concurrent:20}")
+    private int defaultMaxConcurrent;
+
+    @Value("${payment.http.acquire-timeout-ms:2000}")
+    private long defaultAcquireTimeoutMs;
+
+    @Value("${payment.http.max-attempts:3}")
+    private int defaultMaxAttempts;
+
+    @Value("${payment.http.backoff-ms:200}")
+    private long defaultBackoffMs;
+
+    @Value("${payment.http.max-backoff-ms:2000}")
+    private long defaultMaxBackoffMs;
+
+    @Value("${payment.http.failure-threshold:5}")
+    private int defaultFailureThreshold;
+
+    @Value("${payment.http.open-duration-ms:30000}")
+    private long defaultOpenDurationMs;
+
+    public PaymentHttpClient(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        sharedClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sharedClient.dispatcher().executorService().shutdown();
+        sharedClient.connectionPool().evictAll();
+    }
+
+    /**
+     * POST з JSON-тілом
+     *
+     * @param provider ключ провайдера (ім'я бина: fondy, wayforpay)
+     * @param idempotent чи можна безпечно повторити запит, якщо відповідь не отримано
+     * @throws IOException помилка мережі після всіх спроб
+     * @throws PaymentGatewayUnavailableException circuit breaker розімкнений або bulkhead заповнений
+     */
+    public PaymentHttpResponse postJson(String provider, String url, String json, boolean idempotent) throws IOException {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(json, JSON))
+                .build();
+        return execute(provider, request, idempotent);
+    }
+
+    /**
+     * Виконати запит з bulkhead, повторами та circuit breaker.
+     * Відповіді 5xx / 429 повертаються викликачу, якщо повтори вичерпано.
+     */
+    public PaymentHttpResponse execute(String provider, Request request, boolean idempotent) throws IOException {
+        ProviderChannel channel = channels.computeIfAbsent(provider, this::createChannel);
+
+        try {
+            if (!channel.bulkhead.tryAcquire(channel.acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                record(channel, "bulkhead_full", 0);
+                throw new PaymentGatewayUnavailableException(
+                        provider + ": more than " + channel.maxConcurrent + " concurrent requests");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + provider + " bulkhead");
+        }
+
+        try {
+            for (int attempt = 1; ; attempt++) {
+                if (!channel.circuitBreaker.tryAcquire()) {
+                    record(channel, "circuit_open", 0);
+                    throw new PaymentGatewayUnavailableException(provider + ": circuit breaker is open");
+                }
+
+                boolean lastAttempt = attempt >= channel.maxAttempts;
+                long start = System.nanoTime();
+                PaymentHttpResponse response;
+                try (Response httpResponse = channel.client.newCall(request).execute()) {
+                    ResponseBody body = httpResponse.body();
+                    response = new PaymentHttpResponse(httpResponse.code(), body != null ? body.string() : "");
+                } catch (IOException e) {
+                    record(channel, "io_error", System.nanoTime() - start);
+                    channel.circuitBreaker.onFailure();
+
+                    // Без ідемпотентності повторюємо лише запит, який точно не дійшов до провайдера
+                    if (lastAttempt || !(idempotent || e instanceof ConnectException)) {
+                        throw e;
+                    }
+                    log.debug("{} request to {} failed (attempt {}): {}", provider, request.url(), attempt, e.getMessage());
+                    backoff(channel, attempt);
+                    continue;
+                } catch (RuntimeException | Error e) {
+                    // Не відповідь провайдера: дозвіл (у т.ч. пробний half-open) повертається,
+                    // інакше circuit breaker відхилятиме всі запити до рестарту
+                    record(channel, "error", System.nanoTime() - start);
+                    channel.circuitBreaker.release();
+                    throw e;
+                }
+
+                int code = response.getCode();
+                if (code >= 500 || code == 429) {
+                    record(channel, code == 429 ? "throttled" : "server_error", System.nanoTime() - start);
+                    channel.circuitBreaker.onFailure();
+
+                    if (lastAttempt || !idempotent) {
+                        return response;
+                    }
+                    log.debug("{} responded {} to {} (attempt {})", provider, code, request.url(), attempt);
+                    backoff(channel, attempt);
+                    continue;
+                }
+
+                // 4xx теж означає, що провайдер доступний
+                record(channel, code < 400 ? "success" : "client_error", System.nanoTime() - start);
+                channel.circuitBreaker.onSuccess();
+                return response;
+            }
+        } finally {
+            channel.bulkhead.release();
+        }
+    }
+
+    /**
+     * Full jitter: випадкова затримка від 0 до min(max-backoff, backoff * 2^(attempt-1))
+     */
+    private void backoff(ProviderChannel channel, int attempt) throws InterruptedIOException {
+        channel.retries.increment();
+        long ceiling = Math.min(channel.maxBackoffMs, channel.backoffMs << Math.min(attempt - 1, 16));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+
+    private void record(ProviderChannel channel, String outcome, long nanos) {
+        Timer.builder("payment.http.requests")
+                .tag("provider", channel.provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private ProviderChannel createChannel(String provider) {
+        String prefix = "payment.http." + provider + ".";
+        long connectTimeoutMs = environment.getProperty(prefix + "connect-timeout-ms", Long.class, defaultConnectTimeoutMs);
+        long readTimeoutMs = environment.getProperty(prefix + "read-timeout-ms", Long.class, defaultReadTimeoutMs);
+        long callTimeoutMs = environment.getProperty(prefix + "call-timeout-ms", Long.class, defaultCallTimeoutMs);
+        int maxConcurrent = environment.getProperty(prefix + "max-concurrent", Integer.class, defaultMaxConcurrent);
+        int failureThreshold = environment.getProperty(prefix + "failure-threshold", Integer.class, defaultFailureThreshold);
+        long openDurationMs = environment.getProperty(prefix + "open-duration-ms", Long.class, defaultOpenDurationMs);
+
+        // Похідний клієнт ділить пул з'єднань і диспетчер зі спільним
+        OkHttpClient client = sharedClient.newBuilder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        ProviderChannel channel = new ProviderChannel(provider, client, maxConcurrent,
+                new CircuitBreaker(failureThreshold, openDurationMs, TimeUnit.MILLISECONDS));
+        channel.acquireTimeoutMs = environment.getProperty(prefix + "acquire-timeout-ms", Long.class, defaultAcquireTimeoutMs);
+        channel.maxAttempts = Math.max(1, environment.getProperty(prefix + "max-attempts", Integer.class, defaultMaxAttempts));
+        channel.backoffMs = environment.getProperty(prefix + "backoff-ms", Long.class, defaultBackoffMs);
+        channel.maxBackoffMs = environment.getProperty(prefix + "max-backoff-ms", Long.class, defaultMaxBackoffMs);
+        channel.retries = Counter.builder("payment.http.retries")
+                .tag("provider", provider)
+                .register(meterRegistry);
+
+        Gauge.builder("payment.http.bulkhead.in-use", channel,
+                        c -> c.maxConcurrent - c.bulkhead.availablePermits())
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("payment.http.circuit.state", channel.circuitBreaker,
+                        breaker -> breaker.getState().ordinal())
+                .tag("provider", provider)
+                .register(meterRegistry);
+
+        log.info("Payment HTTP channel for {}: connect {} ms, read {} ms, {} concurrent, {} attempts",
+                provider, connectTimeoutMs, readTimeoutMs, maxConcurrent, channel.maxAttempts);
+        return channel;
+    }
+
+    /**
+     * Налаштування та стан викликів одного провайдера
+     */
+    private static final class ProviderChannel {
+        private final String provider;
+        private final OkHttpClient client;
+        private final int maxConcurrent;
+        private final Semaphore bulkhead;
+        private final CircuitBreaker circuitBreaker;
+
+        private long acquireTimeoutMs;
+        private int maxAttempts;
+        private long backoffMs;
+        private long maxBackoffMs;
+        private Counter retries;
+
+        private ProviderChannel(String provider, OkHttpClient client, int maxConcurrent, CircuitBreaker circuitBreaker) {
+            this.provider = provider;
+            this.client = client;
+            this.maxConcurrent = maxConcurrent;
+            this.bulkhead = new Semaphore(maxConcurrent);
+            this.circuitBreaker = circuitBreaker;
+        }
+    }
+}
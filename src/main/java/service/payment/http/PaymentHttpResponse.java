@@ -0,0 +1,21 @@
+package service.payment.http;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Відповідь платіжної системи (тіло вже прочитане, з'єднання повернуте в пул)
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentHttpResponse {
+
+    private final int code;
+
+    /** Тіло відповіді (порожній рядок, якщо тіла немає) */
+    private final String body;
+
+    public boolean isSuccessful() {
+        return code >= 200 && code < 300;
+    }
+}
@@ -1,16 +1,25 @@
 package service.payment.provider;
 
 import dto.payment.*;
+import exception.PaymentGatewayUnavailableException;
 import lombok.extern.slf4j.Slf4j;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import service.payment.HexEncoder;
 import service.payment.PaymentProvider;
+import service.payment.http.PaymentHttpClient;
+import service.payment.http.PaymentHttpResponse;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Інтеграція з Fondy (Portmone/CloudPayments)
@@ -29,6 +38,23 @@ public class FondyProvider implements PaymentProvider {
     @Value("${payment.fondy.api-url:https://pay.fondy.eu/api/checkout/url/}")
     private String apiUrl;
 
+    /** API для регулярних списань за rectoken */
+    @Value("${payment.fondy.recurring-url:https://pay.fondy.eu/api/recurring}")
+    private String recurringUrl;
+
+    /** API перевірки статусу замовлення */
+    @Value("${payment.fondy.status-url:https://pay.fondy.eu/api/status/order_id}")
+    private String statusUrl;
+
+    /** Ключ провайдера для налаштувань payment.http.fondy.* */
+    private static final String HTTP_CHANNEL = "fondy";
+
+    private final PaymentHttpClient httpClient;
+
+    public FondyProvider(PaymentHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
     @Override
     public PaymentResponse createPayment(PaymentRequest request) {
         try {
@@ -36,25 +62,43 @@ public class FondyProvider implements PaymentProvider {
 
             // Підготувати параметри
             String orderId = "ORDER_" + request.getOrderId();
-            String amount = String.valueOf(request.getAmount()); // В копійках
 
-            // Згенерувати підпис
-            String signature = generateSignature(
-                    merchantId,
-                    orderId,
-                    amount,
-                    request.getCurrency().name()
-            );
+            Map<String, String> params = new TreeMap<>();
+            params.put("amount", String.valueOf(request.getAmount())); // В копійках
+            params.put("currency", request.getCurrency().name());
+            params.put("merchant_id", merchantId);
+            params.put("order_desc", request.getDescription());
+            params.put("order_id", orderId);
+            params.put("response_url", request.getReturnUrl());
+            params.put("server_callback_url", request.getCallbackUrl());
+            params.put("sender_email", request.getCustomerEmail());
+            params.put("lang", request.getLanguage());
+            // Токен картки в callback - для автопродовження підписки (SubscriptionRenewalService)
+            params.put("required_rectoken", "Y");
 
-            // TODO: Зробити HTTP POST запит до Fondy API
-            // Отримати checkout_url у відповідь
+            // Повтор безпечний: Fondy не створить другий платіж з тим самим order_id
+            PaymentHttpResponse response = httpClient.postJson(HTTP_CHANNEL, apiUrl, signedRequest(params), true);
+            if (!response.isSuccessful()) {
+                return PaymentResponse.builder()
+                        .success(false)
+                        .error("HTTP " + response.getCode())
+                        .build();
+            }
 
-            String paymentUrl = "https://pay.fondy.eu/merchants/" + merchantId +
-                    "/checkout?order_id=" + orderId;
+            JSONObject result = new JSONObject(response.getBody()).optJSONObject("response");
+            String checkoutUrl = result != null ? result.optString("checkout_url") : "";
+            if (checkoutUrl.isEmpty()) {
+                String error = result != null ? result.optString("error_message") : "Empty response";
+                log.warn("Fondy did not return checkout URL for {}: {}", orderId, error);
+                return PaymentResponse.builder()
+                        .success(false)
+                        .error(error)
+                        .build();
+            }
 
             return PaymentResponse.builder()
                     .success(true)
-                    .paymentUrl(paymentUrl)
+                    .paymentUrl(checkoutUrl)
                     .orderId(orderId)
                     .build();
 
@@ -67,38 +111,173 @@ public class FondyProvider implements PaymentProvider {
         }
     }
 
+    /**
+     * Callback Fondy: {"order_id", "payment_id", "order_status", "rectoken", ..., "signature"}.
+     * Підпис - SHA-1 від секретного ключа та непорожніх значень полів в алфавітному порядку ключів
+     * (без signature і response_signature_string).
+     */
     @Override
     public PaymentWebhookData handleWebhook(String webhookData, String receivedSignature) {
+        JSONObject callback;
         try {
-            // Парсинг JSON від Fondy
-            boolean signatureValid = verifySignature(webhookData, receivedSignature);
+            callback = new JSONObject(webhookData);
+        } catch (JSONException e) {
+            log.error("Malformed Fondy webhook: {}", e.getMessage());
+            return null;
+        }
+
+        String orderId = callback.optString("order_id", null);
+        // Підпис передається в тілі; заголовок - тільки якщо в тілі його немає
+        String signature = callback.optString("signature", receivedSignature);
+
+        if (!merchantId.equals(callback.optString("merchant_id")) || !verifySignature(callback, signature)) {
+            log.error("Invalid Fondy webhook signature for order {}", orderId);
+            return PaymentWebhookData.builder()
+                    .orderId(orderId)
+                    .signatureValid(false)
+                    .build();
+        }
+
+        String orderStatus = callback.optString("order_status");
+        String rectoken = callback.optString("rectoken");
+        return PaymentWebhookData.builder()
+                .orderId(orderId)
+                // payment_id один на платіж, а стани змінюються - ключ ідемпотентності з обох
+                .transactionId(callback.optString("payment_id") + ":" + orderStatus)
+                .status(mapStatus(orderStatus))
+                .amount(callback.has("amount") ? callback.optLong("amount") : null)
+                .currency(callback.optString("currency", null))
+                .recurringToken(rectoken.isEmpty() ? null : rectoken)
+                .signatureValid(true)
+                .build();
+    }
+
+    /**
+     * Списання за rectoken. order_id = chargeReference: Fondy не приймає повторний
+     * order_id, тож подвійного списання немає.
+     */
+    @Override
+    public RecurringChargeResult chargeRecurring(RecurringChargeRequest request) {
+        String amount = String.valueOf(request.getAmount()); // В копійках
+        String currency = request.getCurrency().name();
+
+        // Параметри підпису в алфавітному порядку ключів
+        String signature = generateSignature(
+                amount,
+                currency,
+                merchantId,
+                request.getDescription(),
+                request.getChargeReference(),
+                request.getRecurringToken()
+        );
+
+        JSONObject body = new JSONObject().put("request", new JSONObject()
+                .put("amount", amount)
+                .put("currency", currency)
+                .put("merchant_id", merchantId)
+                .put("order_desc", request.getDescription())
+                .put("order_id", request.getChargeReference())
+                .put("rectoken", request.getRecurringToken())
+                .put("signature", signature));
+
+        try {
+            // Списання не повторюється, якщо запит міг дійти до Fondy
+            PaymentHttpResponse response = httpClient.postJson(HTTP_CHANNEL, recurringUrl, body.toString(), false);
+            if (!response.isSuccessful()) {
+                return RecurringChargeResult.pending("HTTP " + response.getCode());
+            }
+
+            JSONObject result = new JSONObject(response.getBody()).optJSONObject("response");
+            if (result == null) {
+                return RecurringChargeResult.pending("Empty response");
+            }
 
-            if (!signatureValid) {
-                log.error("Invalid Fondy webhook signature");
-                return PaymentWebhookData.builder()
-                        .signatureValid(false)
+            String orderStatus = result.optString("order_status");
+            if ("approved".equals(orderStatus)) {
+                return RecurringChargeResult.builder()
+                        .status(RecurringChargeResult.Status.SUCCESS)
+                        .transactionId(result.optString("payment_id", request.getChargeReference()))
                         .build();
             }
+            if ("declined".equals(orderStatus) || "expired".equals(orderStatus)) {
+                return RecurringChargeResult.builder()
+                        .status(RecurringChargeResult.Status.DECLINED)
+                        .error(result.optString("response_description", orderStatus))
+                        .build();
+            }
+            String errorMessage = result.optString("error_message");
+            if (errorMessage.toLowerCase().contains("duplicate order_id")) {
+                // order_id уже відомий Fondy: результат - статус першого списання
+                return chargeStatus(request.getChargeReference(), errorMessage);
+            }
+            // processing, created або помилка запиту - результат з'ясується пізніше
+            return RecurringChargeResult.pending(orderStatus + " " + errorMessage);
 
-            // TODO: Витягти дані з webhook
+        } catch (PaymentGatewayUnavailableException e) {
+            // Запит не відправлено - результат відомий: списання не було
+            log.warn("Fondy charge {} not sent: {}", request.getChargeReference(), e.getMessage());
+            return RecurringChargeResult.notSent(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Fondy charge {} failed: {}", request.getChargeReference(), e.getMessage());
+            return RecurringChargeResult.pending(e.getMessage());
+        }
+    }
 
-            return PaymentWebhookData.builder()
-                    .orderId("extracted_order_id")
-                    .transactionId("extracted_transaction_id")
-                    .status("success")
-                    .signatureValid(true)
+    /**
+     * Результат уже відправленого списання за статусом у Fondy
+     */
+    private RecurringChargeResult chargeStatus(String chargeReference, String error) {
+        String status = checkPaymentStatus(chargeReference);
+        if ("success".equals(status)) {
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.SUCCESS)
+                    .transactionId(chargeReference)
+                    .build();
+        }
+        if ("failed".equals(status)) {
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.DECLINED)
+                    .error(error)
                     .build();
-
-        } catch (Exception e) {
-            log.error("Error handling Fondy webhook", e);
-            return null;
         }
+        return RecurringChargeResult.pending(error + ", status " + status);
     }
 
+    /**
+     * Статус за order_id
+     *
+     * @return success, failed, pending, not_found або null, якщо статус не вдалося отримати
+     */
     @Override
     public String checkPaymentStatus(String orderId) {
-        // TODO: Реалізувати API запит до Fondy
-        return "PENDING";
+        Map<String, String> params = new TreeMap<>();
+        params.put("merchant_id", merchantId);
+        params.put("order_id", orderId);
+
+        try {
+            PaymentHttpResponse response = httpClient.postJson(HTTP_CHANNEL, statusUrl, signedRequest(params), true);
+            if (!response.isSuccessful()) {
+                log.warn("Fondy status check for {} returned HTTP {}", orderId, response.getCode());
+                return null;
+            }
+
+            JSONObject result = new JSONObject(response.getBody()).optJSONObject("response");
+            String orderStatus = result != null ? result.optString("order_status") : "";
+            if (orderStatus.isEmpty()) {
+                String error = result != null ? result.optString("error_message") : "Empty response";
+                if (error.toLowerCase().contains("not found")) {
+                    // Checkout створено, але до оплати користувач не дійшов
+                    return "not_found";
+                }
+                log.warn("Fondy status check for {} failed: {}", orderId, error);
+                return null;
+            }
+            return mapStatus(orderStatus);
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("Fondy status check for {} failed: {}", orderId, e.getMessage());
+            return null;
+        }
     }
 
     @Override
@@ -108,6 +287,26 @@ public class FondyProvider implements PaymentProvider {
 
     // === Helper Methods ===
 
+    /**
+     * {"request": {...params, signature}}: підпис за непорожніми значеннями в алфавітному порядку ключів
+     */
+    private String signedRequest(Map<String, String> sortedParams) {
+        JSONObject request = new JSONObject();
+        StringBuilder values = new StringBuilder();
+        for (Map.Entry<String, String> param : sortedParams.entrySet()) {
+            if (param.getValue() == null || param.getValue().isEmpty()) {
+                continue;
+            }
+            request.put(param.getKey(), param.getValue());
+            if (values.length() > 0) {
+                values.append('|');
+            }
+            values.append(param.getValue());
+        }
+        request.put("signature", generateSignature(values.toString()));
+        return new JSONObject().put("request", request).toString();
+    }
+
     private String generateSignature(String... params) {
         try {
             String data = secretKey + "|" + String.join("|", params);
@@ -115,7 +314,7 @@ public class FondyProvider implements PaymentProvider {
             MessageDigest digest = MessageDigest.getInstance("SHA-1");
             byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
 
-            return bytesToHex(hash);
+            return HexEncoder.encode(hash);
 
         } catch (Exception e) {
             log.error("Error generating signature", e);
@@ -123,16 +322,38 @@ public class FondyProvider implements PaymentProvider {
         }
     }
 
-    private boolean verifySignature(String data, String receivedSignature) {
-        String calculatedSignature = generateSignature(data);
-        return calculatedSignature != null && calculatedSignature.equals(receivedSignature);
+    private boolean verifySignature(JSONObject callback, String receivedSignature) {
+        if (receivedSignature == null) {
+            return false;
+        }
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (String key : callback.keySet()) {
+            if ("signature".equals(key) || "response_signature_string".equals(key)) {
+                continue;
+            }
+            String value = String.valueOf(callback.get(key));
+            if (!value.isEmpty()) {
+                sorted.put(key, value);
+            }
+        }
+        String calculatedSignature = generateSignature(String.join("|", sorted.values()));
+        // Порівняння за сталий час
+        return calculatedSignature != null && MessageDigest.isEqual(
+                calculatedSignature.getBytes(StandardCharsets.US_ASCII),
+                receivedSignature.getBytes(StandardCharsets.US_ASCII));
     }
 
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    /**
+     * order_status Fondy -> статус PaymentWebhookData
+     */
+    private static String mapStatus(String orderStatus) {
+        if ("approved".equals(orderStatus)) {
+            return "success";
+        }
+        if ("declined".equals(orderStatus) || "expired".equals(orderStatus) || "reversed".equals(orderStatus)) {
+            return "failed";
         }
-        return result.toString();
+        // created, processing - оплата ще не завершена
+        return "pending";
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package service.payment.provider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Поля callback WayForPay, потрібні для перевірки підпису та застосування платежу.
+ *
+ * Розбір потоковий (Jackson JsonParser): тіло не перетворюється на дерево, значення
+ * беруться тільки для потрібних полів верхнього рівня, решта (вкладені об'єкти,
+ * масиви товарів) пропускається. Числові поля зберігаються в тому вигляді, в якому
+ * прийшли - саме цей текст входить у рядок підпису.
+ */
+@Getter
+final class WayForPayCallback {
+
+    /** Потокобезпечна після налаштування, створює легкі парсери */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private String merchantAccount;
+    private String orderReference;
+    private String amount;
+    private String currency;
+    private String authCode;
+    private String cardPan;
+    private String transactionStatus;
+    private String reasonCode;
+    private String merchantSignature;
+    /** Токен картки для регулярних списань (є, якщо токенізація ввімкнена для мерчанта) */
+    private String recToken;
+
+    private WayForPayCallback() {
+    }
+
+    /**
+     * Розібрати тіло callback
+     *
+     * @throws IOException тіло не є JSON-об'єктом
+     */
+    static WayForPayCallback parse(String body) throws IOException {
+        WayForPayCallback callback = new WayForPayCallback();
+
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("WayForPay callback is not a JSON object");
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                // null-значення лишає поле null
+                String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (field) {
+                    case "merchantAccount": callback.merchantAccount = text; break;
+                    case "orderReference": callback.orderReference = text; break;
+                    case "amount": callback.amount = text; break;
+                    case "currency": callback.currency = text; break;
+                    case "authCode": callback.authCode = text; break;
+                    case "cardPan": callback.cardPan = text; break;
+                    case "transactionStatus": callback.transactionStatus = text; break;
+                    case "reasonCode": callback.reasonCode = text; break;
+                    case "merchantSignature": callback.merchantSignature = text; break;
+                    case "recToken": callback.recToken = text; break;
+                    default: break;
+                }
+            }
+
+            if (token != JsonToken.END_OBJECT) {
+                throw new IOException("Malformed WayForPay callback");
+            }
+        }
+
+        return callback;
+    }
+
+    /**
+     * Поля рядка підпису callback у порядку документації WayForPay
+     */
+    String[] signatureFields() {
+        return new String[]{merchantAccount, orderReference, amount, currency,
+                authCode, cardPan, transactionStatus, reasonCode};
+    }
+}
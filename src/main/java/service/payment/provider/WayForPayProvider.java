@@ -1,14 +1,24 @@
 package service.payment.provider;
 
 import dto.payment.*;
+import exception.PaymentGatewayUnavailableException;
 import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import service.payment.HexEncoder;
 import service.payment.PaymentProvider;
+import service.payment.http.PaymentHttpClient;
+import service.payment.http.PaymentHttpResponse;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -34,6 +44,25 @@ public class WayForPayProvider implements PaymentProvider {
     @Value("${payment.wayforpay.api-url:https://secure.wayforpay.com/pay}")
     private String apiUrl;
 
+    /** API для регулярних списань (CHARGE) та перевірки статусу (CHECK_STATUS) */
+    @Value("${payment.wayforpay.charge-url:https://api.wayforpay.com/api}")
+    private String chargeUrl;
+
+    /** Ключ провайдера для налаштувань payment.http.wayforpay.* */
+    private static final String HTTP_CHANNEL = "wayforpay";
+
+    private static final String HMAC_ALGORITHM = "HmacMD5";
+    private static final byte SEPARATOR = ';';
+
+    /** Ініціалізований ключем Mac на потік (secretKey вже підставлений на момент першого виклику) */
+    private final ThreadLocal<Mac> threadMac = ThreadLocal.withInitial(this::createMac);
+
+    private final PaymentHttpClient httpClient;
+
+    public WayForPayProvider(PaymentHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
     @Override
     public PaymentResponse createPayment(PaymentRequest request) {
         try {
@@ -86,40 +115,179 @@ public class WayForPayProvider implements PaymentProvider {
 
     @Override
     public PaymentWebhookData handleWebhook(String webhookData, String receivedSignature) {
+        WayForPayCallback callback;
+        try {
+            callback = WayForPayCallback.parse(webhookData);
+        } catch (IOException e) {
+            log.error("Malformed WayForPay webhook: {}", e.getMessage());
+            return null;
+        }
+
+        // Підпис передається в тілі; заголовок - тільки якщо в тілі його немає
+        String signature = callback.getMerchantSignature() != null
+                ? callback.getMerchantSignature()
+                : receivedSignature;
+
+        if (!merchantAccount.equals(callback.getMerchantAccount())
+                || !verifySignature(signature, callback.signatureFields())) {
+            log.error("Invalid WayForPay webhook signature for order {}", callback.getOrderReference());
+            return PaymentWebhookData.builder()
+                    .orderId(callback.getOrderReference())
+                    .signatureValid(false)
+                    .build();
+        }
+
+        return PaymentWebhookData.builder()
+                .orderId(callback.getOrderReference())
+                // WayForPay не передає окремого id транзакції: один платіж проходить кілька
+                // станів, тож ключем ідемпотентності є пара (orderReference, transactionStatus)
+                .transactionId(callback.getOrderReference() + ":" + callback.getTransactionStatus())
+                .status(mapStatus(callback.getTransactionStatus()))
+                .amount(toMinorUnits(callback.getAmount()))
+                .currency(callback.getCurrency())
+                .recurringToken(callback.getRecToken())
+                .signatureValid(true)
+                .build();
+    }
+
+    /**
+     * Списання за recToken. orderReference = chargeReference: WayForPay відхиляє
+     * повторний orderReference (Duplicate Order ID), тож подвійного списання немає.
+     */
+    @Override
+    public RecurringChargeResult chargeRecurring(RecurringChargeRequest request) {
+        String orderDate = String.valueOf(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+        String amount = formatAmount(request.getAmount());
+
+        String signature = generateSignature(
+                merchantAccount,
+                merchantDomain,
+                request.getChargeReference(),
+                orderDate,
+                amount,
+                request.getCurrency().name(),
+                request.getDescription(),
+                "1",
+                amount
+        );
+
+        JSONObject body = new JSONObject()
+                .put("transactionType", "CHARGE")
+                .put("merchantAccount", merchantAccount)
+                .put("merchantAuthType", "SimpleSignature")
+                .put("merchantDomainName", merchantDomain)
+                .put("merchantSignature", signature)
+                .put("apiVersion", 1)
+                .put("orderReference", request.getChargeReference())
+                .put("orderDate", orderDate)
+                .put("amount", amount)
+                .put("currency", request.getCurrency().name())
+                .put("recToken", request.getRecurringToken())
+                .put("productName", new JSONArray().put(request.getDescription()))
+                .put("productCount", new JSONArray().put(1))
+                .put("productPrice", new JSONArray().put(amount));
+        if (request.getCustomerEmail() != null) {
+            body.put("clientEmail", request.getCustomerEmail());
+        }
+
         try {
-            // Парсинг JSON від WayForPay
-            // TODO: Використати Jackson для парсингу
+            // Списання не повторюється, якщо запит міг дійти до WayForPay
+            PaymentHttpResponse response = httpClient.postJson(HTTP_CHANNEL, chargeUrl, body.toString(), false);
+            if (!response.isSuccessful()) {
+                return RecurringChargeResult.pending("HTTP " + response.getCode());
+            }
 
-            // Перевірити підпис
-            boolean signatureValid = verifySignature(webhookData, receivedSignature);
+            JSONObject result = new JSONObject(response.getBody());
+            String transactionStatus = result.optString("transactionStatus");
+            String reason = result.optString("reason");
 
-            if (!signatureValid) {
-                log.error("Invalid WayForPay webhook signature");
-                return PaymentWebhookData.builder()
-                        .signatureValid(false)
+            if ("Approved".equals(transactionStatus)) {
+                return RecurringChargeResult.builder()
+                        .status(RecurringChargeResult.Status.SUCCESS)
+                        .transactionId(result.optString("orderReference", request.getChargeReference()))
                         .build();
             }
+            if ("Declined".equals(transactionStatus) || "Expired".equals(transactionStatus)) {
+                return RecurringChargeResult.builder()
+                        .status(RecurringChargeResult.Status.DECLINED)
+                        .error(reason)
+                        .build();
+            }
+            if (reason.toLowerCase().contains("duplicate order")) {
+                // Номер списання вже відомий WayForPay: результат - статус першого списання
+                return chargeStatus(request.getChargeReference(), reason);
+            }
+            // InProcessing, Pending тощо - результат з'ясується пізніше
+            return RecurringChargeResult.pending(transactionStatus + " " + reason);
 
-            // Витягти дані з webhook
-            // TODO: Реалізувати парсинг конкретних полів
+        } catch (PaymentGatewayUnavailableException e) {
+            // Запит не відправлено - результат відомий: списання не було
+            log.warn("WayForPay charge {} not sent: {}", request.getChargeReference(), e.getMessage());
+            return RecurringChargeResult.notSent(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("WayForPay charge {} failed: {}", request.getChargeReference(), e.getMessage());
+            return RecurringChargeResult.pending(e.getMessage());
+        }
+    }
 
-            return PaymentWebhookData.builder()
-                    .orderId("extracted_order_id")
-                    .transactionId("extracted_transaction_id")
-                    .status("success")
-                    .signatureValid(true)
+    /**
+     * Результат уже відправленого списання за статусом у WayForPay
+     */
+    private RecurringChargeResult chargeStatus(String chargeReference, String reason) {
+        String status = checkPaymentStatus(chargeReference);
+        if ("success".equals(status)) {
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.SUCCESS)
+                    .transactionId(chargeReference)
                     .build();
-
-        } catch (Exception e) {
-            log.error("Error handling WayForPay webhook", e);
-            return null;
         }
+        if ("failed".equals(status)) {
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.DECLINED)
+                    .error(reason)
+                    .build();
+        }
+        return RecurringChargeResult.pending(reason + ", status " + status);
     }
 
+    /**
+     * Статус за orderReference (transactionType CHECK_STATUS)
+     *
+     * @return success, failed, pending, not_found або null, якщо статус не вдалося отримати
+     */
     @Override
     public String checkPaymentStatus(String orderId) {
-        // TODO: Реалізувати API запит до WayForPay для перевірки статусу
-        return "PENDING";
+        JSONObject body = new JSONObject()
+                .put("transactionType", "CHECK_STATUS")
+                .put("merchantAccount", merchantAccount)
+                .put("orderReference", orderId)
+                .put("merchantSignature", generateSignature(merchantAccount, orderId))
+                .put("apiVersion", 1);
+
+        try {
+            PaymentHttpResponse response = httpClient.postJson(HTTP_CHANNEL, chargeUrl, body.toString(), true);
+            if (!response.isSuccessful()) {
+                log.warn("WayForPay status check for {} returned HTTP {}", orderId, response.getCode());
+                return null;
+            }
+
+            JSONObject result = new JSONObject(response.getBody());
+            String transactionStatus = result.optString("transactionStatus");
+            if (transactionStatus.isEmpty()) {
+                String reason = result.optString("reason");
+                if (reason.toLowerCase().contains("not found")) {
+                    // Форму оплати відкрили, але платіж у WayForPay не створено
+                    return "not_found";
+                }
+                log.warn("WayForPay status check for {} failed: {}", orderId, reason);
+                return null;
+            }
+            return mapStatus(transactionStatus);
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("WayForPay status check for {} failed: {}", orderId, e.getMessage());
+            return null;
+        }
     }
 
     @Override
@@ -129,19 +297,23 @@ public class WayForPayProvider implements PaymentProvider {
 
     // === Helper Methods ===
 
+    /**
+     * HMAC_MD5 від полів, з'єднаних через ";" (відсутнє поле - порожній рядок).
+     * Mac на потік створюється один раз (Mac.getInstance та init дорогі і не потокобезпечні),
+     * doFinal скидає його стан для наступного виклику.
+     */
     private String generateSignature(String... params) {
         try {
-            String data = String.join(";", params);
-
-            Mac hmac = Mac.getInstance("HmacMD5");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(
-                    secretKey.getBytes(StandardCharsets.UTF_8),
-                    "HmacMD5"
-            );
-            hmac.init(secretKeySpec);
-
-            byte[] hash = hmac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
+            Mac hmac = threadMac.get();
+            for (int i = 0; i < params.length; i++) {
+                if (i > 0) {
+                    hmac.update(SEPARATOR);
+                }
+                if (params[i] != null) {
+                    hmac.update(params[i].getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return HexEncoder.encode(hmac.doFinal());
 
         } catch (Exception e) {
             log.error("Error generating signature", e);
@@ -149,9 +321,50 @@ public class WayForPayProvider implements PaymentProvider {
         }
     }
 
-    private boolean verifySignature(String data, String receivedSignature) {
-        String calculatedSignature = generateSignature(data);
-        return calculatedSignature != null && calculatedSignature.equals(receivedSignature);
+    private boolean verifySignature(String receivedSignature, String... params) {
+        if (receivedSignature == null) {
+            return false;
+        }
+        String calculatedSignature = generateSignature(params);
+        // Порівняння за сталий час
+        return calculatedSignature != null && MessageDigest.isEqual(
+                calculatedSignature.getBytes(StandardCharsets.US_ASCII),
+                receivedSignature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac createMac() {
+        try {
+            Mac hmac = Mac.getInstance(HMAC_ALGORITHM);
+            hmac.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Статус транзакції WayForPay -> статус PaymentWebhookData
+     */
+    private static String mapStatus(String transactionStatus) {
+        if ("Approved".equals(transactionStatus)) {
+            return "success";
+        }
+        if ("Declined".equals(transactionStatus) || "Expired".equals(transactionStatus)
+                || "Refunded".equals(transactionStatus) || "Voided".equals(transactionStatus)) {
+            return "failed";
+        }
+        return "pending";
+    }
+
+    private static Long toMinorUnits(String amount) {
+        if (amount == null || amount.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     private String buildPaymentUrl(
@@ -182,12 +395,4 @@ public class WayForPayProvider implements PaymentProvider {
     private String formatAmount(Long amountInCents) {
         return String.format("%.2f", amountInCents / 100.0);
     }
-
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
-        }
-        return result.toString();
-    }
 }
@@ -0,0 +1,154 @@
+package service.subscription;
+
+import dto.ExpiredSubscriptionRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.UserSubscriptionRepository;
+import service.job.JobLockService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Пакетна деактивація прострочених підписок порціями (chunk).
+ *
+ * Кожна порція - окрема коротка транзакція з трьох запитів без завантаження сутностей:
+ * - ID наступної порції (keyset по id)
+ * - UPDATE ... WHERE id IN (...) з повторною перевіркою умови закінчення
+ * - рядки, деактивовані саме цим UPDATE (для слухачів)
+ * Після коміту порції слухачі отримують SubscriptionsExpiredEvent з її ID.
+ * Запущена по cron, кожна порція перевіряє fencing token оренди завдання (JobLockService).
+ *
+ * Метрики: subscription.deactivation.chunk (час порції),
+ * subscription.deactivation.subscriptions, subscription.deactivation.chunks
+ */
+@Slf4j
+@Component
+public class ExpiredSubscriptionDeactivator {
+
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobLockService jobLockService;
+
+    private final Timer chunkTimer;
+    private final Counter deactivated;
+    private final Counter chunks;
+
+    @Value("${subscription.deactivation.chunk-size:500}")
+    private int chunkSize;
+
+    public ExpiredSubscriptionDeactivator(UserSubscriptionRepository subscriptionRepository,
+                                          PlatformTransactionManager transactionManager,
+                                          ApplicationEventPublisher eventPublisher,
+                                          JobLockService jobLockService,
+                                          MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.transactionManager = transactionManager;
+        this.eventPublisher = eventPublisher;
+        this.jobLockService = jobLockService;
+
+        this.chunkTimer = Timer.builder("subscription.deactivation.chunk")
+                .register(meterRegistry);
+        this.deactivated = Counter.builder("subscription.deactivation.subscriptions")
+                .register(meterRegistry);
+        this.chunks = Counter.builder("subscription.deactivation.chunks")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Деактивувати всі прострочені підписки порціями
+     *
+     * @param gracePeriodDays grace period для підписок з автопродовженням
+     * @return кількість деактивованих підписок
+     */
+    public int deactivateExpired(int gracePeriodDays) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long afterId = 0;
+        int total = 0;
+        int chunkCount = 0;
+
+        while (true) {
+            // Точність до секунди: updatedAt = now має збігтися зі значенням у БД
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+            LocalDateTime gracePeriodEnd = now.minusDays(gracePeriodDays);
+            long currentAfterId = afterId;
+
+            Timer.Sample sample = Timer.start();
+            ChunkResult result = transactionTemplate.execute(status ->
+                    processChunk(now, gracePeriodEnd, currentAfterId));
+            sample.stop(chunkTimer);
+
+            if (result == null || result.lastId == null) {
+                break;
+            }
+
+            chunks.increment();
+            deactivated.increment(result.deactivated);
+            chunkCount++;
+            total += result.deactivated;
+            afterId = result.lastId;
+
+            log.debug("Deactivation chunk {}: {} of {} subscriptions deactivated (ids up to {})",
+                    chunkCount, result.deactivated, result.selected, result.lastId);
+
+            if (result.selected < chunkSize) {
+                break;
+            }
+        }
+
+        if (total == 0) {
+            log.info("No expired subscriptions found");
+        } else {
+            log.info("Deactivated {} expired subscriptions in {} chunks", total, chunkCount);
+        }
+        return total;
+    }
+
+    private ChunkResult processChunk(LocalDateTime now, LocalDateTime gracePeriodEnd, long afterId) {
+        jobLockService.checkFence();
+
+        List<Long> ids = subscriptionRepository.findExpiredIds(now, gracePeriodEnd, afterId,
+                PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, null);
+        }
+
+        int updated = subscriptionRepository.expireByIds(ids, now, gracePeriodEnd);
+        List<ExpiredSubscriptionRow> rows = updated > 0
+                ? subscriptionRepository.findExpiredRows(ids, now)
+                : Collections.<ExpiredSubscriptionRow>emptyList();
+
+        if (!rows.isEmpty()) {
+            // Слухачі (кеші прав доступу, планувальник, метрики) отримають порцію після коміту
+            eventPublisher.publishEvent(new SubscriptionsExpiredEvent(rows));
+        }
+
+        return new ChunkResult(ids.size(), updated, ids.get(ids.size() - 1));
+    }
+
+    private static final class ChunkResult {
+        private final int selected;
+        private final int deactivated;
+        private final Long lastId;
+
+        private ChunkResult(int selected, int deactivated, Long lastId) {
+            this.selected = selected;
+            this.deactivated = deactivated;
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package service.subscription;
+
+import service.subscription.LessonAccessService.AccessDenialReason;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Незмінний результат пакетної перевірки доступу до уроків.
+ *
+ * - bitmap відкритих уроків (біт = ID уроку)
+ * - причина відмови для кожного закритого уроку
+ * Невідомі уроки (не передані в перевірку або видалені) вважаються закритими без причини.
+ */
+public class LessonAccessMap {
+
+    private final BitSet unlockedLessonIds;
+
+    private final Map<Long, AccessDenialReason> denialReasons;
+
+    LessonAccessMap(BitSet unlockedLessonIds, Map<Long, AccessDenialReason> denialReasons) {
+        this.unlockedLessonIds = unlockedLessonIds;
+        this.denialReasons = Collections.unmodifiableMap(new HashMap<>(denialReasons));
+    }
+
+    /**
+     * Чи є доступ до уроку
+     */
+    public boolean isUnlocked(Long lessonId) {
+        return lessonId != null && lessonId >= 0 && lessonId <= Integer.MAX_VALUE
+                && unlockedLessonIds.get(lessonId.intValue());
+    }
+
+    /**
+     * Причина відмови в доступі (null - доступ є або урок не перевірявся)
+     */
+    public AccessDenialReason getDenialReason(Long lessonId) {
+        return denialReasons.get(lessonId);
+    }
+
+    /**
+     * Причини відмови для всіх закритих уроків (lessonId -> причина)
+     */
+    public Map<Long, AccessDenialReason> getDenialReasons() {
+        return denialReasons;
+    }
+
+    /**
+     * Bitmap відкритих уроків (копія)
+     */
+    public BitSet getUnlockedLessonIds() {
+        return (BitSet) unlockedLessonIds.clone();
+    }
+
+    /**
+     * Кількість відкритих уроків
+     */
+    public int getUnlockedCount() {
+        return unlockedLessonIds.cardinality();
+    }
+}
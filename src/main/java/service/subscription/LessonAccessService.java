@@ -1,5 +1,8 @@
 package service.subscription;
 
+import dto.LessonAccessLevelRow;
+import dto.LessonCardDto;
+import dto.SubscriptionStatusRow;
 import entity.enums.SubscriptionStatus;
 import entity.lesson.Lesson;
 import entity.order.UserSubscription;
@@ -7,15 +10,34 @@ import entity.user.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.LessonRepository;
 import repository.OrderRepository;
+import repository.UserSubscriptionArchiveRepository;
 import repository.UserSubscriptionRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Сервіс для перевірки доступу до платних уроків
+ * Сервіс для перевірки доступу до платних уроків.
+ *
+ * Перевірки працюють зі знімком прав користувача (UserEntitlements), який
+ * завантажується двома запитами і кешується до зміни замовлень / підписок.
+ * Для списків уроків (каталог, головна) - пакетна перевірка evaluateAccess / withAccessFlags.
  */
 @Slf4j
 @Service
@@ -25,6 +47,16 @@ public class LessonAccessService {
 
     private final OrderRepository orderRepository;
     private final UserSubscriptionRepository subscriptionRepository;
+    private final UserSubscriptionArchiveRepository subscriptionArchiveRepository;
+    private final UserEntitlementCache entitlementCache;
+    private final LessonRepository lessonRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Статуси минулих підписок (для SUBSCRIPTION_EXPIRED) */
+    private static final List<SubscriptionStatus> PAST_STATUSES = Arrays.asList(
+            SubscriptionStatus.EXPIRED,
+            SubscriptionStatus.CANCELED
+    );
 
     // ========== ГОЛОВНІ МЕТОДИ ==========
 
@@ -35,6 +67,7 @@ public class LessonAccessService {
      * @param lesson урок
      * @return true якщо є доступ
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasAccessToLesson(User user, Lesson lesson) {
 
         // 1. FREE уроки доступні всім (навіть незалогіненим)
@@ -75,15 +108,13 @@ public class LessonAccessService {
      * @param user користувач
      * @return true якщо є активна підписка
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasActiveSubscription(User user) {
         if (user == null) {
             return false;
         }
 
-        return subscriptionRepository.hasActiveSubscription(
-                user.getId(),
-                LocalDateTime.now()
-        );
+        return getEntitlements(user.getId()).hasActiveSubscription(LocalDateTime.now());
     }
 
     /**
@@ -93,15 +124,24 @@ public class LessonAccessService {
      * @param lesson урок
      * @return true якщо придбав
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasPurchasedLesson(User user, Lesson lesson) {
         if (user == null || lesson == null) {
             return false;
         }
 
-        return orderRepository.existsCompletedOrderForLesson(
-                user.getId(),
-                lesson.getId()
-        );
+        return getEntitlements(user.getId()).hasPurchased(lesson.getId());
+    }
+
+    /**
+     * Отримати знімок прав доступу користувача
+     *
+     * @param userId ID користувача
+     * @return знімок (з кешу або щойно завантажений)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserEntitlements getEntitlements(Long userId) {
+        return entitlementCache.get(userId, this::loadEntitlements);
     }
 
     /**
@@ -128,44 +168,187 @@ public class LessonAccessService {
      * @param lesson урок
      * @return причина або null якщо є доступ
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AccessDenialReason getAccessDenialReason(User user, Lesson lesson) {
+        UserEntitlements entitlements = user != null && lesson.getAccessLevel() != Lesson.AccessLevel.FREE
+                ? getEntitlements(user.getId())
+                : null;
+
+        return denialReason(lesson.getId(), lesson.getAccessLevel(), entitlements, LocalDateTime.now());
+    }
+
+    // ========== ПАКЕТНА ПЕРЕВІРКА (СПИСКИ УРОКІВ) ==========
+
+    /**
+     * Перевірити доступ до кількох уроків одразу
+     *
+     * Запити: рівні доступу уроків (1) + знімок прав користувача
+     * (з кешу; при промаху - 2 запити). Для FREE-only списків і анонімів знімок не потрібен.
+     *
+     * @param user користувач (може бути null якщо не залогінений)
+     * @param lessonIds ID уроків
+     * @return bitmap відкритих уроків і причини відмови для закритих
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LessonAccessMap evaluateAccess(User user, Collection<Long> lessonIds) {
+        if (lessonIds == null || lessonIds.isEmpty()) {
+            return evaluateAccess(user != null ? user.getId() : null, Collections.<Long, Lesson.AccessLevel>emptyMap());
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        List<LessonAccessLevelRow> rows = transactionTemplate.execute(status ->
+                lessonRepository.findAccessLevelRows(new HashSet<>(lessonIds)));
+
+        Map<Long, Lesson.AccessLevel> accessLevels = new HashMap<>();
+        for (LessonAccessLevelRow row : rows) {
+            accessLevels.put(row.getLessonId(), row.getAccessLevel());
+        }
+
+        return evaluateAccess(user != null ? user.getId() : null, accessLevels);
+    }
+
+    /**
+     * Перевірити доступ до уроків, рівні доступу яких уже відомі (наприклад, з карток)
+     *
+     * @param userId ID користувача (null - не залогінений)
+     * @param accessLevels lessonId -> рівень доступу
+     * @return bitmap відкритих уроків і причини відмови для закритих
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LessonAccessMap evaluateAccess(Long userId, Map<Long, Lesson.AccessLevel> accessLevels) {
+        UserEntitlements entitlements = userId != null && accessLevels.containsValue(Lesson.AccessLevel.PAID)
+                ? getEntitlements(userId)
+                : null;
+        LocalDateTime now = LocalDateTime.now();
+
+        BitSet unlocked = new BitSet();
+        Map<Long, AccessDenialReason> denialReasons = new HashMap<>();
+        for (Map.Entry<Long, Lesson.AccessLevel> lesson : accessLevels.entrySet()) {
+            AccessDenialReason reason = denialReason(lesson.getKey(), lesson.getValue(), entitlements, now);
+            if (reason != null) {
+                denialReasons.put(lesson.getKey(), reason);
+            } else if (lesson.getKey() >= 0 && lesson.getKey() <= Integer.MAX_VALUE) {
+                unlocked.set(lesson.getKey().intValue());
+            }
+        }
+
+        return new LessonAccessMap(unlocked, denialReasons);
+    }
+
+    /**
+     * Позначити відкриті картки уроків для користувача
+     *
+     * Картки з кешу каталогу спільні для всіх запитів, тому повертаються копії з прапорцем unlocked.
+     *
+     * @param userId ID користувача (null - не залогінений)
+     * @param cards картки уроків
+     * @return копії карток у тому ж порядку
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<LessonCardDto> withAccessFlags(Long userId, List<LessonCardDto> cards) {
+        Map<Long, Lesson.AccessLevel> accessLevels = new HashMap<>();
+        for (LessonCardDto card : cards) {
+            accessLevels.put(card.getId(), card.isFree() ? Lesson.AccessLevel.FREE : Lesson.AccessLevel.PAID);
+        }
+
+        LessonAccessMap access = evaluateAccess(userId, accessLevels);
+
+        List<LessonCardDto> result = new ArrayList<>(cards.size());
+        for (LessonCardDto card : cards) {
+            result.add(card.copyWithUnlocked(access.isUnlocked(card.getId())));
+        }
+        return result;
+    }
+
+    /**
+     * Причина відмови в доступі за рівнем доступу уроку та знімком прав
+     *
+     * @param entitlements знімок прав (null - користувач не залогінений)
+     * @return причина або null якщо є доступ
+     */
+    private static AccessDenialReason denialReason(Long lessonId, Lesson.AccessLevel accessLevel,
+                                                   UserEntitlements entitlements, LocalDateTime now) {
 
         // FREE урок - доступ є
-        if (lesson.getAccessLevel() == Lesson.AccessLevel.FREE) {
+        if (accessLevel == Lesson.AccessLevel.FREE) {
             return null;
         }
 
         // Не залогінений
-        if (user == null) {
+        if (entitlements == null) {
             return AccessDenialReason.NOT_AUTHENTICATED;
         }
 
         // Є підписка - доступ є
-        if (hasActiveSubscription(user)) {
+        if (entitlements.hasActiveSubscription(now)) {
             return null;
         }
 
         // Купив урок - доступ є
-        if (hasPurchasedLesson(user, lesson)) {
+        if (entitlements.hasPurchased(lessonId)) {
             return null;
         }
 
         // Перевіряємо чи була підписка раніше
-        boolean hadSubscription = subscriptionRepository.existsByUserIdAndStatusIn(
-                user.getId(),
-                Arrays.asList(
-                        SubscriptionStatus.EXPIRED,
-                        SubscriptionStatus.CANCELED
-                )
-        );
-
-        if (hadSubscription) {
+        if (entitlements.isHadSubscription()) {
             return AccessDenialReason.SUBSCRIPTION_EXPIRED;
         }
 
         return AccessDenialReason.NO_SUBSCRIPTION;
     }
 
+    /**
+     * Скинути знімок прав після коміту замовлення / зміни підписки
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onEntitlementsChanged(UserEntitlementsChangedEvent event) {
+        entitlementCache.evict(event.getUserId());
+    }
+
+    /**
+     * Скинути знімки прав користувачів після коміту порції пакетної деактивації
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onSubscriptionsExpired(SubscriptionsExpiredEvent event) {
+        for (Long userId : event.getUserIds()) {
+            entitlementCache.evict(userId);
+        }
+    }
+
+    /**
+     * Завантажити знімок прав (2 запити): підписки за статусами (дата закінчення ACTIVE,
+     * наявність минулих) та ID куплених уроків; без жодної підписки - ще перевірка архіву
+     */
+    private UserEntitlements loadEntitlements(Long userId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        return transactionTemplate.execute(status -> {
+            LocalDateTime subscriptionEndDate = null;
+            boolean hadSubscription = false;
+            for (SubscriptionStatusRow row : subscriptionRepository.findStatusRowsByUserId(userId)) {
+                if (row.getStatus() == SubscriptionStatus.ACTIVE) {
+                    subscriptionEndDate = row.getMaxEndDate();
+                } else if (PAST_STATUSES.contains(row.getStatus())) {
+                    hadSubscription = true;
+                }
+            }
+            if (subscriptionEndDate == null && !hadSubscription) {
+                // Давні підписки перенесені в архів (SubscriptionArchiver)
+                hadSubscription = subscriptionArchiveRepository.existsByUserId(userId);
+            }
+            List<Long> purchasedLessonIds = orderRepository.findPurchasedLessonIdsByUserId(userId);
+
+            log.debug("Entitlements loaded for user {}: subscription until {}, {} purchased lessons",
+                    userId, subscriptionEndDate, purchasedLessonIds.size());
+
+            return new UserEntitlements(userId, subscriptionEndDate, hadSubscription, purchasedLessonIds);
+        });
+    }
+
     // ========== ENUM ДЛЯ ПРИЧИН ВІДМОВИ ==========
 
     /**
@@ -0,0 +1,146 @@
+package service.subscription;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.UserSubscriptionArchiveRepository;
+import repository.UserSubscriptionRepository;
+import service.job.JobLockService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Перенесення давно завершених підписок з user_subscription в user_subscription_archive.
+ *
+ * Гаряча таблиця лишається малою для діапазонних вибірок планувальників (idx_end_date).
+ * Переносяться підписки EXPIRED / CANCELED, що закінчилися більше subscription.archive.retention-months
+ * тому. Кожна порція - окрема транзакція без завантаження сутностей:
+ * - ID наступної порції (keyset по id)
+ * - INSERT ... SELECT в архів з повторною перевіркою умови
+ * - DELETE з user_subscription тільки тих рядків, що вже є в архіві
+ * Запущене по cron, кожна порція перевіряє fencing token оренди завдання (JobLockService).
+ *
+ * Метрики: subscription.archive.chunk (час порції), subscription.archive.subscriptions
+ */
+@Slf4j
+@Component
+public class SubscriptionArchiver {
+
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final UserSubscriptionArchiveRepository archiveRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLockService jobLockService;
+
+    private final Timer chunkTimer;
+    private final Counter archived;
+
+    @Value("${subscription.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscription.archive.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${subscription.archive.chunk-size:500}")
+    private int chunkSize;
+
+    public SubscriptionArchiver(UserSubscriptionRepository subscriptionRepository,
+                                UserSubscriptionArchiveRepository archiveRepository,
+                                PlatformTransactionManager transactionManager,
+                                JobLockService jobLockService,
+                                MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionManager = transactionManager;
+        this.jobLockService = jobLockService;
+
+        this.chunkTimer = Timer.builder("subscription.archive.chunk")
+                .register(meterRegistry);
+        this.archived = Counter.builder("subscription.archive.subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Перенести в архів усі підписки, що закінчилися до межі зберігання
+     *
+     * @return кількість перенесених підписок
+     */
+    public int archiveExpired() {
+        if (!enabled) {
+            return 0;
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMonths(retentionMonths);
+        long afterId = 0;
+        int total = 0;
+        int chunkCount = 0;
+
+        while (true) {
+            long currentAfterId = afterId;
+
+            Timer.Sample sample = Timer.start();
+            ChunkResult result = transactionTemplate.execute(status -> processChunk(cutoff, currentAfterId));
+            sample.stop(chunkTimer);
+
+            if (result == null || result.lastId == null) {
+                break;
+            }
+
+            archived.increment(result.archived);
+            chunkCount++;
+            total += result.archived;
+            afterId = result.lastId;
+
+            if (result.selected < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Archived {} subscriptions ended before {} in {} chunks", total, cutoff, chunkCount);
+        }
+        return total;
+    }
+
+    private ChunkResult processChunk(LocalDateTime cutoff, long afterId) {
+        jobLockService.checkFence();
+
+        List<Long> ids = subscriptionRepository.findArchivableIds(cutoff, afterId, PageRequest.of(0, chunkSize));
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0, null);
+        }
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        int copied = archiveRepository.copyFromHot(ids, cutoff, now);
+        int deleted = copied > 0 ? subscriptionRepository.deleteArchived(ids) : 0;
+        if (deleted != copied) {
+            // Транзакція відкотиться, порція повториться при наступному запуску
+            throw new IllegalStateException("Archived " + copied + " subscriptions but deleted " + deleted);
+        }
+
+        return new ChunkResult(ids.size(), deleted, ids.get(ids.size() - 1));
+    }
+
+    private static final class ChunkResult {
+        private final int selected;
+        private final int archived;
+        private final Long lastId;
+
+        private ChunkResult(int selected, int archived, Long lastId) {
+            this.selected = selected;
+            this.archived = archived;
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package service.subscription;
+
+import dto.SubscriptionExpiryRow;
+import entity.order.UserSubscription;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.UserSubscriptionRepository;
+import service.job.JobLockService;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Планувальник точного закінчення підписок (delay queue).
+ *
+ * - при старті та щогодини (subscription.expiry.reload-interval-ms) завантажує активні
+ *   підписки, що закінчуються в межах горизонту (subscription.expiry.horizon-hours)
+ * - після коміту створення / продовження / скасування підписки (SubscriptionLifecycleEvent)
+ *   перепланує її на новий момент деактивації без звернення до БД
+ * - окремий потік деактивує підписку протягом секунд після дедлайну
+ *   (SubscriptionService.expireSubscription перевіряє стан заново)
+ * - на підписку одне актуальне завдання: застарілі завдання в черзі пропускаються
+ * - черга є на кожному вузлі, деактивацію виконує той, хто захопив оренду
+ *   subscription-expiry; інші повторюють спробу через busy-retry-ms
+ * - нічний cron (SubscriptionScheduler) лишається страховкою
+ * - метрики: subscription.expiry.scheduled, subscription.expiry.expired,
+ *   subscription.expiry.failures, subscription.expiry.lag
+ */
+@Slf4j
+@Component
+public class SubscriptionExpiryScheduler {
+
+    private final SubscriptionService subscriptionService;
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLockService jobLockService;
+
+    private final DelayQueue<ExpiryTask> queue = new DelayQueue<>();
+
+    /** subscriptionId -> актуальне завдання */
+    private final Map<Long, ExpiryTask> scheduled = new ConcurrentHashMap<>();
+
+    private final Counter expired;
+    private final Counter failures;
+    private final Timer lag;
+
+    private volatile Thread worker;
+
+    @Value("${subscription.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${subscription.expiry.horizon-hours:48}")
+    private long horizonHours;
+
+    /** Затримка повторної спроби після помилки деактивації */
+    @Value("${subscription.expiry.retry-delay-ms:60000}")
+    private long retryDelayMs;
+
+    /** Повтор, якщо в цей момент деактивацію виконує інший вузол */
+    @Value("${subscription.expiry.busy-retry-ms:5000}")
+    private long busyRetryMs;
+
+    public SubscriptionExpiryScheduler(SubscriptionService subscriptionService,
+                                       UserSubscriptionRepository subscriptionRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       JobLockService jobLockService,
+                                       MeterRegistry meterRegistry) {
+        this.subscriptionService = subscriptionService;
+        this.subscriptionRepository = subscriptionRepository;
+        this.transactionManager = transactionManager;
+        this.jobLockService = jobLockService;
+
+        this.expired = Counter.builder("subscription.expiry.expired")
+                .register(meterRegistry);
+        this.failures = Counter.builder("subscription.expiry.failures")
+                .register(meterRegistry);
+        this.lag = Timer.builder("subscription.expiry.lag")
+                .description("Час між дедлайном підписки та її деактивацією")
+                .register(meterRegistry);
+        Gauge.builder("subscription.expiry.scheduled", scheduled, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запустити потік деактивації та завантажити найближчі дедлайни
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("Subscription expiry scheduler disabled");
+            return;
+        }
+
+        Thread thread = new Thread(this::run, "subscription-expiry");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+
+        reload();
+    }
+
+    /**
+     * Періодично довантажувати дедлайни, що увійшли в горизонт
+     */
+    @Scheduled(fixedDelayString = "${subscription.expiry.reload-interval-ms:3600000}",
+            initialDelayString = "${subscription.expiry.reload-interval-ms:3600000}")
+    public void reload() {
+        if (!enabled || worker == null) {
+            return;
+        }
+
+        try {
+            LocalDateTime horizon = LocalDateTime.now().plusHours(horizonHours);
+
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            List<SubscriptionExpiryRow> rows = transactionTemplate.execute(status ->
+                    subscriptionRepository.findExpiryRows(horizon));
+
+            int gracePeriodDays = subscriptionService.getGracePeriodDays();
+            for (SubscriptionExpiryRow row : rows) {
+                schedule(row.getSubscriptionId(), UserSubscription.expiryDeadline(
+                        row.getEndDate(), row.getNextBillingDate(), row.getAutoRenew(),
+                        row.getCancelledAt(), gracePeriodDays));
+            }
+
+            log.info("Subscription expiry scheduler loaded {} deadlines until {}", rows.size(), horizon);
+        } catch (RuntimeException e) {
+            log.error("Failed to load subscription deadlines, relying on the nightly sweep", e);
+        }
+    }
+
+    /**
+     * Перепланувати підписку після коміту її зміни
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSubscriptionChanged(SubscriptionLifecycleEvent event) {
+        if (!event.isActive() || event.getExpiresAt() == null) {
+            cancel(event.getSubscriptionId());
+            return;
+        }
+
+        // Далекі дедлайни підхопить періодичне довантаження
+        if (event.getExpiresAt().isAfter(LocalDateTime.now().plusHours(horizonHours))) {
+            cancel(event.getSubscriptionId());
+            return;
+        }
+
+        schedule(event.getSubscriptionId(), event.getExpiresAt());
+    }
+
+    /**
+     * Прибрати завдання підписок, деактивованих нічним проходом
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSubscriptionsExpired(SubscriptionsExpiredEvent event) {
+        for (Long subscriptionId : event.getSubscriptionIds()) {
+            cancel(subscriptionId);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void schedule(Long subscriptionId, LocalDateTime deadline) {
+        if (deadline == null) {
+            return;
+        }
+
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        ExpiryTask current = scheduled.get(subscriptionId);
+        if (current != null && current.deadlineMillis == deadlineMillis) {
+            // Той самий дедлайн (повторне довантаження) - нове завдання не потрібне
+            return;
+        }
+
+        ExpiryTask task = new ExpiryTask(subscriptionId, deadlineMillis, deadlineMillis);
+        scheduled.put(subscriptionId, task);
+        queue.add(task);
+    }
+
+    private void cancel(Long subscriptionId) {
+        // Завдання лишається в черзі, але більше не актуальне і буде пропущене
+        scheduled.remove(subscriptionId);
+    }
+
+    private void run() {
+        log.info("Subscription expiry worker started");
+        while (worker == Thread.currentThread()) {
+            ExpiryTask task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (scheduled.get(task.subscriptionId) != task) {
+                continue;
+            }
+
+            try {
+                AtomicBoolean expiredNow = new AtomicBoolean();
+                boolean ran = jobLockService.runExclusive("subscription-expiry", () ->
+                        expiredNow.set(subscriptionService.expireSubscription(task.subscriptionId)));
+                if (!ran) {
+                    reschedule(task, busyRetryMs);
+                    continue;
+                }
+
+                if (expiredNow.get()) {
+                    expired.increment();
+                    lag.record(Math.max(0, System.currentTimeMillis() - task.deadlineMillis), TimeUnit.MILLISECONDS);
+                }
+                scheduled.remove(task.subscriptionId, task);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.error("Failed to expire subscription {}, retrying in {} ms", task.subscriptionId, retryDelayMs, e);
+
+                reschedule(task, retryDelayMs);
+            }
+        }
+        log.info("Subscription expiry worker stopped");
+    }
+
+    private void reschedule(ExpiryTask task, long delayMs) {
+        // Дедлайн лишається початковим: довантаження його впізнає, lag рахується від нього
+        ExpiryTask retry = new ExpiryTask(task.subscriptionId, task.deadlineMillis, System.currentTimeMillis() + delayMs);
+        if (scheduled.replace(task.subscriptionId, task, retry)) {
+            queue.add(retry);
+        }
+    }
+
+    /**
+     * Завдання деактивації підписки з дедлайном deadlineMillis, що виконується в момент
+     * runAtMillis (дедлайн або час повторної спроби)
+     */
+    private static final class ExpiryTask implements Delayed {
+        private final Long subscriptionId;
+        private final long deadlineMillis;
+        private final long runAtMillis;
+
+        private ExpiryTask(Long subscriptionId, long deadlineMillis, long runAtMillis) {
+            this.subscriptionId = subscriptionId;
+            this.deadlineMillis = deadlineMillis;
+            this.runAtMillis = runAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(runAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ExpiryTask) {
+                return Long.compare(runAtMillis, ((ExpiryTask) other).runAtMillis);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package service.subscription;
+
+import entity.enums.SubscriptionStatus;
+import entity.order.UserSubscription;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Подія життєвого циклу підписки: створення, продовження, скасування, закінчення.
+ *
+ * Публікується з SubscriptionService всередині транзакції зі знімком полів підписки
+ * на момент зміни, слухачі обробляють її після коміту без звернення до БД.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class SubscriptionLifecycleEvent {
+
+    public enum Type {
+        CREATED,
+        EXTENDED,
+        CANCELLED,
+        EXPIRED
+    }
+
+    private final Type type;
+
+    private final Long subscriptionId;
+
+    private final Long userId;
+
+    private final Long planId;
+
+    private final LocalDateTime endDate;
+
+    /** Момент, коли підписку треба деактивувати (з урахуванням grace period) */
+    private final LocalDateTime expiresAt;
+
+    /** Чи підписка ACTIVE після зміни */
+    private final boolean active;
+
+    public static SubscriptionLifecycleEvent of(Type type, UserSubscription subscription, int gracePeriodDays) {
+        return new SubscriptionLifecycleEvent(
+                type,
+                subscription.getId(),
+                subscription.getUser().getId(),
+                subscription.getSubscriptionPlan() != null ? subscription.getSubscriptionPlan().getId() : null,
+                subscription.getEndDate(),
+                subscription.getExpiryDeadline(gracePeriodDays),
+                subscription.getStatus() == SubscriptionStatus.ACTIVE);
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionLifecycleEvent{" + type + ", subscriptionId=" + subscriptionId + "}";
+    }
+}
@@ -0,0 +1,212 @@
+package service.subscription;
+
+import dto.ExpiredSubscriptionRow;
+import dto.PlanCountRow;
+import dto.PlanMetricsRow;
+import dto.PlanSubscriptionStateRow;
+import dto.SubscriptionDailyMetricsRow;
+import dto.SubscriptionDashboardDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.SubscriptionMetricsRepository;
+import repository.SubscriptionPlanCounterRepository;
+import repository.UserSubscriptionRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-модель метрик підписок: лічильники по днях і планах (subscription_daily_metrics)
+ * та поточна кількість активних підписок плану (subscription_plan_counter).
+ *
+ * - події життєвого циклу після коміту збільшують лічильники одним upsert без читання
+ * - звірка (reconcile, щогодини на одному вузлі) перераховує останні дні з user_subscription,
+ *   записує знімок стану (активні, закінчуються незабаром, у grace period) і виправляє
+ *   лічильники, якщо подію втрачено (рестарт між комітом і слухачем)
+ * - адмінка читає рядки за N днів замість сканування всієї історії
+ */
+@Slf4j
+@Service
+public class SubscriptionMetricsService {
+
+    private final SubscriptionMetricsRepository metricsRepository;
+    private final SubscriptionPlanCounterRepository planCounterRepository;
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /** "Закінчуються незабаром" - дата списання / закінчення в межах стількох днів */
+    @Value("${subscription.metrics.expiring-soon-days:7}")
+    private int expiringSoonDays;
+
+    /** Скільки останніх днів звірка перераховує з user_subscription */
+    @Value("${subscription.metrics.reconcile-days:2}")
+    private int reconcileDays;
+
+    public SubscriptionMetricsService(SubscriptionMetricsRepository metricsRepository,
+                                      SubscriptionPlanCounterRepository planCounterRepository,
+                                      UserSubscriptionRepository subscriptionRepository,
+                                      PlatformTransactionManager transactionManager) {
+        this.metricsRepository = metricsRepository;
+        this.planCounterRepository = planCounterRepository;
+        this.subscriptionRepository = subscriptionRepository;
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Створення / продовження / скасування / закінчення однієї підписки
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSubscriptionChanged(SubscriptionLifecycleEvent event) {
+        Long planId = event.getPlanId();
+        if (planId == null) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        switch (event.getType()) {
+            case CREATED:
+                metricsRepository.increment(today, planId, 1, 0, 0, 0);
+                planCounterRepository.addActive(planId, 1);
+                break;
+            case EXTENDED:
+                metricsRepository.increment(today, planId, 0, 1, 0, 0);
+                break;
+            case CANCELLED:
+                metricsRepository.increment(today, planId, 0, 0, 1, 0);
+                break;
+            case EXPIRED:
+                metricsRepository.increment(today, planId, 0, 0, 0, 1);
+                planCounterRepository.addActive(planId, -1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Порція підписок, деактивованих пакетно
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSubscriptionsExpired(SubscriptionsExpiredEvent event) {
+        Map<Long, Long> expiredByPlan = new HashMap<>();
+        for (ExpiredSubscriptionRow row : event.getSubscriptions()) {
+            expiredByPlan.merge(row.getPlanId(), 1L, Long::sum);
+        }
+
+        LocalDate today = LocalDate.now();
+        for (Map.Entry<Long, Long> entry : expiredByPlan.entrySet()) {
+            metricsRepository.increment(today, entry.getKey(), 0, 0, 0, entry.getValue());
+            planCounterRepository.addActive(entry.getKey(), -entry.getValue());
+        }
+    }
+
+    /**
+     * Перерахувати останні reconcile-days днів і знімок поточного стану
+     */
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> {
+            for (int i = 0; i < reconcileDays; i++) {
+                reconcileFlows(today.minusDays(i));
+            }
+            reconcileState(today, now);
+            return null;
+        });
+
+        log.info("Subscription metrics reconciled for {} days up to {}", reconcileDays, today);
+    }
+
+    /**
+     * Підписки для головної сторінки адмінки
+     *
+     * @param days кількість днів динаміки
+     */
+    @Transactional(readOnly = true)
+    public SubscriptionDashboardDto getDashboard(int days) {
+        LocalDate from = LocalDate.now().minusDays(days - 1L);
+        List<SubscriptionDailyMetricsRow> daily = metricsRepository.findDailyTotals(from);
+        List<PlanMetricsRow> plans = planCounterRepository.findPlanMetrics();
+
+        long active = 0;
+        for (PlanMetricsRow plan : plans) {
+            active += plan.getActive();
+        }
+
+        long created = 0;
+        long churned = 0;
+        for (SubscriptionDailyMetricsRow row : daily) {
+            created += row.getCreated();
+            churned += row.getExpired();
+        }
+
+        // Знімок стану - з найновішого дня, для якого була звірка
+        long expiringSoon = 0;
+        long inGrace = 0;
+        for (SubscriptionDailyMetricsRow row : daily) {
+            if (row.getActive() > 0 || row.getExpiringSoon() > 0 || row.getInGrace() > 0) {
+                expiringSoon = row.getExpiringSoon();
+                inGrace = row.getInGrace();
+                break;
+            }
+        }
+
+        return new SubscriptionDashboardDto(days, active, expiringSoon, inGrace, created, churned, plans, daily);
+    }
+
+    private void reconcileFlows(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        Map<Long, long[]> flows = new HashMap<>();
+        for (PlanCountRow row : subscriptionRepository.countCreatedByPlan(from, to)) {
+            flows.computeIfAbsent(row.getPlanId(), id -> new long[3])[0] = row.getCount();
+        }
+        for (PlanCountRow row : subscriptionRepository.countCancelledByPlan(from, to)) {
+            flows.computeIfAbsent(row.getPlanId(), id -> new long[3])[1] = row.getCount();
+        }
+        for (PlanCountRow row : subscriptionRepository.countExpiredByPlan(from, to)) {
+            flows.computeIfAbsent(row.getPlanId(), id -> new long[3])[2] = row.getCount();
+        }
+
+        for (Map.Entry<Long, long[]> entry : flows.entrySet()) {
+            long[] counts = entry.getValue();
+            metricsRepository.setFlows(day, entry.getKey(), counts[0], counts[1], counts[2]);
+        }
+    }
+
+    private void reconcileState(LocalDate today, LocalDateTime now) {
+        Set<Long> planIds = new HashSet<>();
+        for (PlanSubscriptionStateRow row : subscriptionRepository.findActiveStateByPlan(
+                now, now.plusDays(expiringSoonDays))) {
+            planIds.add(row.getPlanId());
+            metricsRepository.setSnapshot(today, row.getPlanId(), row.getActive(),
+                    row.getExpiringSoon(), row.getInGrace());
+            planCounterRepository.setActive(row.getPlanId(), row.getActive());
+        }
+
+        // Плани, в яких активних підписок більше немає
+        for (PlanMetricsRow plan : planCounterRepository.findPlanMetrics()) {
+            if (!planIds.contains(plan.getPlanId()) && plan.getActive() != 0) {
+                planCounterRepository.setActive(plan.getPlanId(), 0);
+                metricsRepository.setSnapshot(today, plan.getPlanId(), 0, 0, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package service.subscription;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Подія зміни плану підписки в адмін-панелі (створення, оновлення, видалення, статус).
+ *
+ * Публікується з SubscriptionPlanService всередині транзакції,
+ * слухачі (кеші публічних сторінок) обробляють її після коміту.
+ */
+@Getter
+@RequiredArgsConstructor
+public class SubscriptionPlanChangedEvent {
+
+    /** ID плану */
+    private final Long planId;
+
+    @Override
+    public String toString() {
+        return "SubscriptionPlanChangedEvent{planId=" + planId + "}";
+    }
+}
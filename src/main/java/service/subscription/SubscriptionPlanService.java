@@ -9,6 +9,7 @@ import entity.order.SubscriptionPlanPrice;
 import entity.order.SubscriptionPlanTranslation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import repository.SubscriptionPlanRepository;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
 public class SubscriptionPlanService {
 
     private final SubscriptionPlanRepository planRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     /**
@@ -95,7 +97,9 @@ public class SubscriptionPlanService {
             plan.getPrices().add(price);
         }
 
-        return planRepository.save(plan);
+        SubscriptionPlan saved = planRepository.save(plan);
+        eventPublisher.publishEvent(new SubscriptionPlanChangedEvent(saved.getId()));
+        return saved;
     }
 
     /**
@@ -130,7 +134,9 @@ public class SubscriptionPlanService {
             plan.getPrices().add(price);
         }
 
-        return planRepository.save(plan);
+        SubscriptionPlan saved = planRepository.save(plan);
+        eventPublisher.publishEvent(new SubscriptionPlanChangedEvent(id));
+        return saved;
     }
 
     /**
@@ -141,6 +147,7 @@ public class SubscriptionPlanService {
         log.info("Видалення плану підписки #{}", id);
         SubscriptionPlan plan = getPlanById(id);
         planRepository.delete(plan);
+        eventPublisher.publishEvent(new SubscriptionPlanChangedEvent(id));
     }
 
     /**
@@ -151,6 +158,7 @@ public class SubscriptionPlanService {
         SubscriptionPlan plan = getPlanById(id);
         plan.setIsActive(!plan.getIsActive());
         planRepository.save(plan);
+        eventPublisher.publishEvent(new SubscriptionPlanChangedEvent(id));
         log.info("Статус плану #{} змінено на: {}", id, plan.getIsActive());
     }
 
@@ -0,0 +1,154 @@
+package service.subscription;
+
+import dto.ReminderJobRow;
+import entity.enums.Language;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Формування та відправка листів-нагадувань про закінчення підписки.
+ *
+ * Порція листів відправляється одним викликом JavaMailSender.send(MimeMessage...):
+ * JavaMailSenderImpl відкриває одне SMTP-з'єднання на всю порцію замість з'єднання на лист.
+ * Залежність тільки від інтерфейсу JavaMailSender - в інтеграційних тестах можна підставити
+ * SMTP-сервер у тій самій JVM (GreenMail тощо) через spring.mail.host / spring.mail.port.
+ */
+@Slf4j
+@Component
+public class SubscriptionReminderMailer {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final ObjectProvider<JavaMailSender> mailSenderProvider;
+    private final MessageSource messageSource;
+
+    @Value("${subscription.reminders.from:noreply@deutschvektor.com}")
+    private String from;
+
+    @Value("${app.base-url:}")
+    private String baseUrl;
+
+    public SubscriptionReminderMailer(ObjectProvider<JavaMailSender> mailSenderProvider,
+                                      MessageSource messageSource) {
+        this.mailSenderProvider = mailSenderProvider;
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * Чи налаштована пошта (spring.mail.host)
+     */
+    public boolean isAvailable() {
+        return mailSenderProvider.getIfAvailable() != null;
+    }
+
+    /**
+     * Відправити порцію нагадувань одним SMTP-з'єднанням
+     *
+     * @param jobs завдання з адресатами (email не null)
+     * @return reminderId -> текст помилки для невідправлених листів (порожня - всі відправлені)
+     */
+    public Map<Long, String> send(List<ReminderJobRow> jobs) {
+        Map<Long, String> failures = new HashMap<>();
+        JavaMailSender mailSender = mailSenderProvider.getIfAvailable();
+        if (mailSender == null) {
+            for (ReminderJobRow job : jobs) {
+                failures.put(job.getReminderId(), "Mail sender is not configured");
+            }
+            return failures;
+        }
+
+        Map<MimeMessage, Long> messages = new IdentityHashMap<>();
+        List<MimeMessage> batch = new ArrayList<>(jobs.size());
+        for (ReminderJobRow job : jobs) {
+            try {
+                MimeMessage message = createMessage(mailSender, job);
+                messages.put(message, job.getReminderId());
+                batch.add(message);
+            } catch (MessagingException | RuntimeException e) {
+                failures.put(job.getReminderId(), describe(e));
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return failures;
+        }
+
+        try {
+            mailSender.send(batch.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Частина листів могла піти - невдалі повертає getFailedMessages()
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                markAll(messages, failures, describe(e));
+            }
+            for (Map.Entry<Object, Exception> failed : failedMessages.entrySet()) {
+                Long reminderId = messages.get(failed.getKey());
+                if (reminderId != null) {
+                    failures.put(reminderId, describe(failed.getValue()));
+                }
+            }
+        } catch (MailException e) {
+            // Автентифікація / з'єднання - не пішов жоден лист
+            log.warn("Reminder batch of {} messages failed: {}", batch.size(), e.getMessage());
+            markAll(messages, failures, describe(e));
+        }
+
+        return failures;
+    }
+
+    private MimeMessage createMessage(JavaMailSender mailSender, ReminderJobRow job) throws MessagingException {
+        Locale locale = resolveLocale(job.getLanguage());
+        String name = job.getUserName() != null ? job.getUserName() : "";
+        String endDate = job.getEndDate().format(DATE_FORMATTER);
+        String link = baseUrl + "/" + locale.getLanguage() + "/cabinet/subscription";
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom(from);
+        helper.setTo(job.getEmail());
+        helper.setSubject(messageSource.getMessage("subscription.reminder.subject",
+                new Object[]{job.getReminderDay()}, locale));
+        helper.setText(messageSource.getMessage("subscription.reminder.body",
+                new Object[]{name, job.getReminderDay(), endDate, link}, locale));
+        return message;
+    }
+
+    /**
+     * Мова інтерфейсу користувача -> Locale (у налаштуваннях українська зберігається як "ua")
+     */
+    private static Locale resolveLocale(String language) {
+        if (language == null || "ua".equals(language) || !Language.isSupported(language)) {
+            return Locale.forLanguageTag(Language.UK.getCode());
+        }
+        return Locale.forLanguageTag(language);
+    }
+
+    private static void markAll(Map<MimeMessage, Long> messages, Map<Long, String> failures, String error) {
+        for (Long reminderId : messages.values()) {
+            failures.put(reminderId, error);
+        }
+    }
+
+    private static String describe(Exception e) {
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
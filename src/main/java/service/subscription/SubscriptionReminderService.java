@@ -0,0 +1,376 @@
+package service.subscription;
+
+import dto.ExpiringSubscriptionRow;
+import dto.ReminderJobRow;
+import entity.enums.ReminderStatus;
+import entity.order.SubscriptionReminder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.SubscriptionReminderRepository;
+import repository.UserSubscriptionRepository;
+import service.job.JobLockService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Нагадування про закінчення підписки через outbox-таблицю subscription_reminder.
+ *
+ * 1. enqueue: для кожного дня з subscription.reminder-days підписки, що закінчуються
+ *    в цей день, вибираються порціями (keyset по id) і записуються як завдання.
+ *    Повторний запуск не створює дублікатів: одне завдання на
+ *    (підписка, день нагадування, end_date), що гарантує й унікальний індекс.
+ * 2. dispatch: завдання, час яких настав, беруться в роботу (PENDING -> SENDING одним
+ *    UPDATE), діляться на SMTP-порції і відправляються обмеженим пулом потоків.
+ *    Невдалі завдання повертаються в чергу з паузою, після max-attempts - FAILED.
+ *
+ * Метрики: subscription.reminders.enqueued, subscription.reminders.sent,
+ * subscription.reminders.failed, subscription.reminders.run{phase} (час запуску),
+ * subscription.reminders.throughput (листів за секунду в останньому запуску)
+ */
+@Slf4j
+@Service
+public class SubscriptionReminderService {
+
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final SubscriptionReminderRepository reminderRepository;
+    private final SubscriptionReminderMailer mailer;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLockService jobLockService;
+
+    private final Counter enqueued;
+    private final Counter sent;
+    private final Counter failed;
+    private final Timer enqueueTimer;
+    private final Timer dispatchTimer;
+
+    private volatile double lastThroughput;
+    private ThreadPoolExecutor executor;
+
+    @Value("${subscription.reminder-days:1,3,5}")
+    private int[] reminderDays;
+
+    @Value("${subscription.reminders.page-size:500}")
+    private int pageSize;
+
+    @Value("${subscription.reminders.worker-threads:4}")
+    private int workerThreads;
+
+    /** Скільки SMTP-порцій може чекати на вільний потік */
+    @Value("${subscription.reminders.queue-capacity:50}")
+    private int queueCapacity;
+
+    /** Листів на одне SMTP-з'єднання */
+    @Value("${subscription.reminders.smtp-batch-size:50}")
+    private int smtpBatchSize;
+
+    @Value("${subscription.reminders.max-attempts:5}")
+    private int maxAttempts;
+
+    /** Пауза перед повторною спробою (подвоюється з кожною спробою) */
+    @Value("${subscription.reminders.retry-delay-minutes:15}")
+    private long retryDelayMinutes;
+
+    /** Через скільки завдання SENDING вважається покинутим */
+    @Value("${subscription.reminders.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    public SubscriptionReminderService(UserSubscriptionRepository subscriptionRepository,
+                                       SubscriptionReminderRepository reminderRepository,
+                                       SubscriptionReminderMailer mailer,
+                                       PlatformTransactionManager transactionManager,
+                                       JobLockService jobLockService,
+                                       MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.reminderRepository = reminderRepository;
+        this.mailer = mailer;
+        this.transactionManager = transactionManager;
+        this.jobLockService = jobLockService;
+
+        this.enqueued = Counter.builder("subscription.reminders.enqueued")
+                .register(meterRegistry);
+        this.sent = Counter.builder("subscription.reminders.sent")
+                .register(meterRegistry);
+        this.failed = Counter.builder("subscription.reminders.failed")
+                .description("Невдалі спроби відправки")
+                .register(meterRegistry);
+        this.enqueueTimer = Timer.builder("subscription.reminders.run")
+                .tag("phase", "enqueue")
+                .register(meterRegistry);
+        this.dispatchTimer = Timer.builder("subscription.reminders.run")
+                .tag("phase", "dispatch")
+                .register(meterRegistry);
+        Gauge.builder("subscription.reminders.throughput", this, service -> service.lastThroughput)
+                .description("Листів за секунду в останньому запуску відправки")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "subscription-reminder-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Черга заповнена - порцію відправляє потік планувальника (природний backpressure)
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Поставити в чергу нагадування для підписок, що закінчуються через reminder-days днів
+     *
+     * @param today поточна дата
+     * @return кількість нових завдань
+     */
+    public int enqueueReminders(LocalDate today) {
+        Timer.Sample sample = Timer.start();
+        int total = 0;
+        for (int reminderDay : reminderDays) {
+            total += enqueueDay(today, reminderDay);
+        }
+        sample.stop(enqueueTimer);
+
+        log.info("Enqueued {} subscription reminders for days {}", total, Arrays.toString(reminderDays));
+        return total;
+    }
+
+    /**
+     * Відправити всі завдання, час яких настав
+     *
+     * @return кількість відправлених листів
+     */
+    public int dispatchDueReminders() {
+        if (!mailer.isAvailable()) {
+            log.debug("Mail sender is not configured, subscription reminders stay queued");
+            return 0;
+        }
+
+        Timer.Sample sample = Timer.start();
+        long startedAt = System.nanoTime();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+        Integer released = transactionTemplate.execute(status -> reminderRepository.releaseStale(staleBefore));
+        if (released != null && released > 0) {
+            log.warn("Released {} stale subscription reminders", released);
+        }
+
+        int sentTotal = 0;
+        int failedTotal = 0;
+        while (true) {
+            String claimToken = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+            List<ReminderJobRow> jobs = transactionTemplate.execute(status -> {
+                jobLockService.checkFence();
+                List<Long> ids = reminderRepository.findDueIds(now, PageRequest.of(0, pageSize));
+                if (ids.isEmpty() || reminderRepository.claim(ids, claimToken, now) == 0) {
+                    return new ArrayList<ReminderJobRow>();
+                }
+                return reminderRepository.findClaimedJobs(claimToken);
+            });
+            if (jobs == null || jobs.isEmpty()) {
+                break;
+            }
+
+            int[] result = sendPage(jobs);
+            sentTotal += result[0];
+            failedTotal += result[1];
+        }
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        sample.stop(dispatchTimer);
+        lastThroughput = sentTotal == 0 ? 0 : sentTotal / (elapsedNanos / 1_000_000_000.0);
+
+        if (sentTotal > 0 || failedTotal > 0) {
+            log.info("Subscription reminders dispatched: {} sent, {} failed in {} ms ({} msg/s)",
+                    sentTotal, failedTotal, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    String.format("%.1f", lastThroughput));
+        }
+        return sentTotal;
+    }
+
+    private int enqueueDay(LocalDate today, int reminderDay) {
+        LocalDateTime from = today.plusDays(reminderDay).atStartOfDay();
+        LocalDateTime to = from.plusDays(1).minusSeconds(1);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        long afterId = 0;
+        int total = 0;
+        while (true) {
+            List<ExpiringSubscriptionRow> rows = subscriptionRepository.findExpiringSubscriptions(
+                    from, to, afterId, PageRequest.of(0, pageSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            try {
+                Integer created = transactionTemplate.execute(status -> enqueuePage(rows, reminderDay, from, to));
+                total += created != null ? created : 0;
+            } catch (DataIntegrityViolationException e) {
+                // Ту саму порцію паралельно поставив у чергу інший екземпляр
+                log.warn("Reminder page for day {} already enqueued concurrently: {}", reminderDay, e.getMessage());
+            }
+
+            afterId = rows.get(rows.size() - 1).getSubscriptionId();
+            if (rows.size() < pageSize) {
+                break;
+            }
+        }
+
+        enqueued.increment(total);
+        return total;
+    }
+
+    private int enqueuePage(List<ExpiringSubscriptionRow> rows, int reminderDay,
+                            LocalDateTime from, LocalDateTime to) {
+        jobLockService.checkFence();
+
+        List<Long> subscriptionIds = rows.stream()
+                .map(ExpiringSubscriptionRow::getSubscriptionId)
+                .collect(Collectors.toList());
+        Set<Long> existing = new HashSet<>(reminderRepository.findEnqueuedSubscriptionIds(
+                subscriptionIds, reminderDay, from, to));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<SubscriptionReminder> reminders = new ArrayList<>();
+        for (ExpiringSubscriptionRow row : rows) {
+            if (!existing.contains(row.getSubscriptionId())) {
+                reminders.add(new SubscriptionReminder(row.getSubscriptionId(), row.getUserId(),
+                        reminderDay, row.getEndDate(), now));
+            }
+        }
+
+        reminderRepository.saveAll(reminders);
+        return reminders.size();
+    }
+
+    /**
+     * Відправити взяті завдання SMTP-порціями в пулі потоків і зафіксувати результат
+     *
+     * @return {відправлено, невдало}
+     */
+    private int[] sendPage(List<ReminderJobRow> jobs) {
+        List<ReminderJobRow> deliverable = new ArrayList<>(jobs.size());
+        int failedCount = 0;
+        for (ReminderJobRow job : jobs) {
+            if (job.getEmail() == null) {
+                // Без адреси повторні спроби не допоможуть
+                recordFailure(job, "User has no primary email", true);
+                failedCount++;
+            } else {
+                deliverable.add(job);
+            }
+        }
+
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < deliverable.size(); i += smtpBatchSize) {
+            List<ReminderJobRow> batch = deliverable.subList(i, Math.min(i + smtpBatchSize, deliverable.size()));
+            futures.add(executor.submit(() -> sendBatch(batch)));
+        }
+
+        int sentCount = 0;
+        for (Future<int[]> future : futures) {
+            try {
+                int[] result = future.get();
+                sentCount += result[0];
+                failedCount += result[1];
+            } catch (ExecutionException e) {
+                // Завдання лишились SENDING і повернуться в чергу як покинуті
+                log.error("Subscription reminder batch failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return new int[]{sentCount, failedCount};
+    }
+
+    private int[] sendBatch(List<ReminderJobRow> batch) {
+        Map<Long, String> failures = mailer.send(batch);
+
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        for (ReminderJobRow job : batch) {
+            String error = failures.get(job.getReminderId());
+            if (error == null) {
+                sentIds.add(job.getReminderId());
+            } else {
+                recordFailure(job, error, false);
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            new TransactionTemplate(transactionManager).execute(status -> reminderRepository.markSent(sentIds, now));
+            sent.increment(sentIds.size());
+        }
+        return new int[]{sentIds.size(), batch.size() - sentIds.size()};
+    }
+
+    private void recordFailure(ReminderJobRow job, String error, boolean permanent) {
+        int attempt = job.getAttempts() + 1;
+        boolean giveUp = permanent || attempt >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now()
+                .plusMinutes(retryDelayMinutes << Math.min(attempt - 1, 10));
+
+        new TransactionTemplate(transactionManager).execute(status -> reminderRepository.markAttemptFailed(
+                job.getReminderId(), giveUp ? ReminderStatus.FAILED : ReminderStatus.PENDING, nextAttemptAt, error));
+        failed.increment();
+
+        if (giveUp) {
+            log.warn("Subscription reminder {} (subscription {}) failed permanently: {}",
+                    job.getReminderId(), job.getSubscriptionId(), error);
+        } else {
+            log.debug("Subscription reminder {} failed (attempt {}), retry at {}: {}",
+                    job.getReminderId(), attempt, nextAttemptAt, error);
+        }
+    }
+}
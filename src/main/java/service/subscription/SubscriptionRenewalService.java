@@ -0,0 +1,527 @@
+package service.subscription;
+
+import dto.PlanPriceRow;
+import dto.RenewalCandidateRow;
+import dto.payment.RecurringChargeRequest;
+import dto.payment.RecurringChargeResult;
+import entity.enums.Currency;
+import entity.enums.RenewalStatus;
+import entity.order.SubscriptionRenewal;
+import exception.LeaseLostException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.SubscriptionPlanPriceRepository;
+import repository.SubscriptionRenewalRepository;
+import repository.UserSubscriptionRepository;
+import service.payment.PaymentProvider;
+import service.job.JobLease;
+import service.job.JobLockService;
+import service.payment.PaymentRateLimiter;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Автопродовження підписок: списання за збереженим токеном картки.
+ *
+ * - підписки до продовження читаються порціями (keyset по id)
+ * - кожна платіжна система має власний пул потоків (subscription.renewal.concurrency)
+ *   і ліміт запитів за секунду (subscription.renewal.rate-per-second); значення можна
+ *   перевизначити для провайдера: subscription.renewal.{provider}.concurrency тощо
+ * - на платіжний період один запис SubscriptionRenewal (ключ ідемпотентності), тож
+ *   повторний запуск не списує кошти вдруге
+ * - успішне списання і продовження (UserSubscription.renew) - одна транзакція
+ * - перед кожним списанням перевіряється fencing token оренди завдання: вузол,
+ *   що втратив оренду, нових списань не починає
+ * - відмова: повтор через retry-delay-hours з новим номером списання, після
+ *   max-attempts - FAILED (підписку деактивує grace period)
+ * - невідомий результат: перед повтором з тим самим номером статус списання
+ *   запитується у платіжної системи (checkPaymentStatus) - повторне списання лише якщо
+ *   статус не знайдено; після max-pending-attempts - UNRESOLVED (ручна перевірка)
+ * - запит не відправлено (circuit breaker / bulkhead PaymentHttpClient): повтор через
+ *   pending-retry-minutes, до max-pending-attempts не рахується
+ * - успішний webhook списання (RENEW_...) завершує PENDING / UNRESOLVED списання
+ *   (applyChargeCallback)
+ *
+ * Метрики: subscription.renewal.charges{provider, result}, subscription.renewal.charge{provider}
+ * (час запиту до платіжної системи), subscription.renewal.run
+ */
+@Slf4j
+@Service
+public class SubscriptionRenewalService {
+
+    private static final DateTimeFormatter PERIOD_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmm");
+    private static final String DESCRIPTION = "DLL Community Subscription";
+
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final SubscriptionRenewalRepository renewalRepository;
+    private final SubscriptionPlanPriceRepository planPriceRepository;
+    private final SubscriptionService subscriptionService;
+    private final Map<String, PaymentProvider> paymentProviders;
+    private final PlatformTransactionManager transactionManager;
+    private final Environment environment;
+    private final JobLockService jobLockService;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer runTimer;
+
+    /** Провайдер -> пул потоків і ліміт частоти */
+    private final Map<String, ProviderLane> lanes = new ConcurrentHashMap<>();
+
+    @Value("${subscription.renewal.page-size:200}")
+    private int pageSize;
+
+    @Value("${subscription.renewal.concurrency:4}")
+    private int defaultConcurrency;
+
+    @Value("${subscription.renewal.rate-per-second:5}")
+    private double defaultRatePerSecond;
+
+    /** Спроб списання (відмов) за період до статусу FAILED */
+    @Value("${subscription.renewal.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${subscription.renewal.retry-delay-hours:24}")
+    private long retryDelayHours;
+
+    /** Повтор запиту з невідомим результатом (той самий номер списання) */
+    @Value("${subscription.renewal.pending-retry-minutes:60}")
+    private long pendingRetryMinutes;
+
+    /** Повторів з невідомим результатом до статусу UNRESOLVED */
+    @Value("${subscription.renewal.max-pending-attempts:6}")
+    private int maxPendingAttempts;
+
+    @Value("${payment.default-provider:wayforpay}")
+    private String defaultProvider;
+
+    /** Валюта, якщо у підписки немає замовлення */
+    @Value("${subscription.renewal.default-currency:UAH}")
+    private Currency defaultCurrency;
+
+    public SubscriptionRenewalService(UserSubscriptionRepository subscriptionRepository,
+                                      SubscriptionRenewalRepository renewalRepository,
+                                      SubscriptionPlanPriceRepository planPriceRepository,
+                                      SubscriptionService subscriptionService,
+                                      Map<String, PaymentProvider> paymentProviders,
+                                      PlatformTransactionManager transactionManager,
+                                      Environment environment,
+                                      JobLockService jobLockService,
+                                      MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.renewalRepository = renewalRepository;
+        this.planPriceRepository = planPriceRepository;
+        this.subscriptionService = subscriptionService;
+        this.paymentProviders = paymentProviders;
+        this.transactionManager = transactionManager;
+        this.environment = environment;
+        this.jobLockService = jobLockService;
+        this.meterRegistry = meterRegistry;
+
+        this.runTimer = Timer.builder("subscription.renewal.run")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (ProviderLane lane : lanes.values()) {
+            lane.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Продовжити всі підписки, дата списання яких настала
+     *
+     * @return кількість продовжених підписок
+     */
+    public int renewDueSubscriptions() {
+        Timer.Sample sample = Timer.start();
+        LocalDateTime now = LocalDateTime.now();
+        // Оренда запуску для перевірки в потоках провайдерів
+        JobLease lease = jobLockService.currentLease();
+
+        Map<String, Long> prices = new HashMap<>();
+        for (PlanPriceRow row : planPriceRepository.findPriceRows()) {
+            prices.put(priceKey(row.getPlanId(), row.getCurrency()), row.getAmount());
+        }
+
+        long afterId = 0;
+        int renewed = 0;
+        int processed = 0;
+        while (true) {
+            List<RenewalCandidateRow> rows = subscriptionRepository.findSubscriptionsForRenewal(
+                    now, afterId, PageRequest.of(0, pageSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            renewed += renewPage(rows, prices, now, lease);
+            if (lease != null && lease.isLost()) {
+                log.warn("Renewal lease lost, stopping this run after {} renewals", renewed);
+                break;
+            }
+            processed += rows.size();
+
+            afterId = rows.get(rows.size() - 1).getSubscriptionId();
+            if (rows.size() < pageSize) {
+                break;
+            }
+        }
+
+        long elapsedNanos = sample.stop(runTimer);
+        if (processed > 0) {
+            log.info("Subscription renewal run: {} due, {} renewed in {} s",
+                    processed, renewed, TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+        }
+        return renewed;
+    }
+
+    /**
+     * Застосувати успішний webhook списання автопродовження (ідемпотентно)
+     *
+     * @param chargeReference номер списання (RENEW_{підписка}_{період}_{спроба})
+     * @return true, якщо підписку продовжено
+     */
+    @Transactional
+    public boolean applyChargeCallback(String chargeReference, String transactionId) {
+        int separator = chargeReference.lastIndexOf('_');
+        SubscriptionRenewal renewal = separator > 0
+                ? renewalRepository.findByIdempotencyKey(chargeReference.substring(0, separator)).orElse(null)
+                : null;
+        if (renewal == null || !chargeReference.equals(renewal.getChargeReference())) {
+            log.warn("Renewal callback for unknown or outdated charge {}", chargeReference);
+            return false;
+        }
+        if (renewal.getStatus() != RenewalStatus.PENDING && renewal.getStatus() != RenewalStatus.UNRESOLVED) {
+            if (renewal.getStatus() != RenewalStatus.SUCCEEDED) {
+                log.error("Charge {} reported successful but renewal is {}, check manually",
+                        chargeReference, renewal.getStatus());
+            }
+            return false;
+        }
+
+        renewal.setStatus(RenewalStatus.SUCCEEDED);
+        renewal.setTransactionId(transactionId);
+        renewal.setLastError(null);
+        renewalRepository.save(renewal);
+
+        // Якщо той самий результат уже застосував запуск продовження - період не збігається
+        boolean applied = subscriptionService.applyRenewal(renewal.getSubscriptionId(), renewal.getBillingDate());
+        log.info("Renewal charge {} settled by callback{}", chargeReference, applied ? "" : " (period already changed)");
+        return applied;
+    }
+
+    /**
+     * Розкласти порцію по пулах провайдерів і дочекатися результатів
+     */
+    private int renewPage(List<RenewalCandidateRow> rows, Map<String, Long> prices, LocalDateTime now,
+                          JobLease lease) {
+        Map<String, SubscriptionRenewal> existing = renewalRepository.findByIdempotencyKeyIn(
+                        rows.stream().map(SubscriptionRenewalService::idempotencyKey).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(SubscriptionRenewal::getIdempotencyKey, renewal -> renewal));
+
+        List<Future<Boolean>> futures = new ArrayList<>(rows.size());
+        for (RenewalCandidateRow row : rows) {
+            SubscriptionRenewal renewal = existing.get(idempotencyKey(row));
+            if (renewal != null && !isDue(renewal, now)) {
+                continue;
+            }
+
+            String providerName = row.getPaymentGateway() != null ? row.getPaymentGateway() : defaultProvider;
+            PaymentProvider provider = paymentProviders.get(providerName);
+            Currency currency = row.getCurrency() != null ? row.getCurrency() : defaultCurrency;
+            Long amount = prices.get(priceKey(row.getPlanId(), currency));
+            if (provider == null || amount == null) {
+                log.error("Cannot renew subscription {}: provider '{}' or {} price of plan {} not found",
+                        row.getSubscriptionId(), providerName, currency, row.getPlanId());
+                continue;
+            }
+
+            ProviderLane lane = lanes.computeIfAbsent(providerName, this::createLane);
+            futures.add(lane.executor.submit(() -> renew(row, renewal, lane, provider, amount, currency, lease)));
+        }
+
+        int renewed = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (Boolean.TRUE.equals(future.get())) {
+                    renewed++;
+                }
+            } catch (ExecutionException e) {
+                log.error("Subscription renewal failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return renewed;
+    }
+
+    /**
+     * Одне списання: зафіксувати спробу, списати, застосувати результат
+     */
+    private boolean renew(RenewalCandidateRow row, SubscriptionRenewal previous, ProviderLane lane,
+                          PaymentProvider provider, Long amount, Currency currency,
+                          JobLease lease) throws InterruptedException {
+        SubscriptionRenewal renewal;
+        try {
+            renewal = requiresNew().execute(status -> {
+                jobLockService.checkFence(lease);
+                return prepareAttempt(row, previous, lane.name, amount, currency);
+            });
+        } catch (LeaseLostException e) {
+            // Запуск продовжує інший вузол
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            // Той самий період паралельно почав інший запуск
+            log.warn("Renewal of subscription {} already started concurrently", row.getSubscriptionId());
+            return false;
+        }
+        if (renewal == null) {
+            return false;
+        }
+
+        RecurringChargeRequest request = RecurringChargeRequest.builder()
+                .subscriptionId(row.getSubscriptionId())
+                .chargeReference(renewal.getChargeReference())
+                .recurringToken(row.getRecurringToken())
+                .amount(amount)
+                .currency(currency)
+                .description(DESCRIPTION)
+                .build();
+
+        RecurringChargeResult result = null;
+        if (previous != null && previous.getStatus() == RenewalStatus.PENDING) {
+            // Попереднє списання з цим номером могло пройти - спершу з'ясувати його статус
+            lane.rateLimiter.acquire();
+            result = lookUpCharge(provider, renewal.getChargeReference());
+        }
+        if (result == null) {
+            lane.rateLimiter.acquire();
+            Timer.Sample sample = Timer.start();
+            result = provider.chargeRecurring(request);
+            sample.stop(lane.chargeTimer);
+        }
+
+        RecurringChargeResult outcome = result;
+
+        Boolean renewed = requiresNew().execute(status -> applyResult(renewal.getId(), row, outcome));
+        lane.counter(outcome.getStatus()).increment();
+        return Boolean.TRUE.equals(renewed);
+    }
+
+    /**
+     * Статус раніше відправленого списання
+     *
+     * @return результат або null, якщо платіжна система списання не знає (можна списувати)
+     */
+    private RecurringChargeResult lookUpCharge(PaymentProvider provider, String chargeReference) {
+        String status = provider.checkPaymentStatus(chargeReference);
+        if ("success".equals(status)) {
+            log.info("Renewal charge {} found successful on status check", chargeReference);
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.SUCCESS)
+                    .transactionId(chargeReference)
+                    .build();
+        }
+        if ("failed".equals(status)) {
+            return RecurringChargeResult.builder()
+                    .status(RecurringChargeResult.Status.DECLINED)
+                    .error("Declined (status check)")
+                    .build();
+        }
+        if ("pending".equals(status)) {
+            return RecurringChargeResult.pending("Still processing (status check)");
+        }
+        return null;
+    }
+
+    private SubscriptionRenewal prepareAttempt(RenewalCandidateRow row, SubscriptionRenewal previous,
+                                               String providerName, Long amount, Currency currency) {
+        SubscriptionRenewal renewal;
+        if (previous == null) {
+            renewal = new SubscriptionRenewal();
+            renewal.setIdempotencyKey(idempotencyKey(row));
+            renewal.setSubscriptionId(row.getSubscriptionId());
+            renewal.setBillingDate(row.getNextBillingDate());
+            renewal.setProvider(providerName);
+            renewal.setAmount(amount);
+            renewal.setCurrency(currency);
+        } else {
+            renewal = renewalRepository.findById(previous.getId()).orElse(null);
+            if (renewal == null || !isDue(renewal, LocalDateTime.now())) {
+                return null;
+            }
+            if (renewal.getStatus() == RenewalStatus.DECLINED) {
+                // Після остаточної відмови - новий номер списання
+                renewal.setChargeAttempt(renewal.getChargeAttempt() + 1);
+                renewal.setPendingAttempts(0);
+                renewal.setStatus(RenewalStatus.PENDING);
+            }
+        }
+
+        renewal.setAttempts(renewal.getAttempts() + 1);
+        // Якщо процес впаде під час списання - повтор з тим самим номером не раніше цього часу
+        renewal.setNextAttemptAt(LocalDateTime.now().plusMinutes(pendingRetryMinutes));
+        return renewalRepository.saveAndFlush(renewal);
+    }
+
+    private boolean applyResult(Long renewalId, RenewalCandidateRow row, RecurringChargeResult result) {
+        SubscriptionRenewal renewal = renewalRepository.findById(renewalId)
+                .orElseThrow(() -> new IllegalStateException("Renewal not found: " + renewalId));
+        LocalDateTime now = LocalDateTime.now();
+
+        switch (result.getStatus()) {
+            case SUCCESS:
+                renewal.setStatus(RenewalStatus.SUCCEEDED);
+                renewal.setTransactionId(result.getTransactionId());
+                renewal.setLastError(null);
+                renewalRepository.save(renewal);
+
+                boolean applied = subscriptionService.applyRenewal(row.getSubscriptionId(), row.getNextBillingDate());
+                if (!applied) {
+                    log.error("Subscription {} charged ({}) but its billing period has changed, check manually",
+                            row.getSubscriptionId(), renewal.getChargeReference());
+                }
+                return applied;
+
+            case DECLINED:
+                boolean exhausted = renewal.getChargeAttempt() >= maxAttempts;
+                renewal.setStatus(exhausted ? RenewalStatus.FAILED : RenewalStatus.DECLINED);
+                renewal.setNextAttemptAt(now.plusHours(retryDelayHours));
+                renewal.setLastError(truncate(result.getError()));
+                renewalRepository.save(renewal);
+                log.info("Renewal charge {} declined{}: {}", renewal.getChargeReference(),
+                        exhausted ? " (no attempts left)" : "", result.getError());
+                return false;
+
+            case NOT_SENT:
+                // Платіжна система недоступна, запит не відправлявся: не спроба з невідомим
+                // результатом, pendingAttempts не змінюється; статус (PENDING) лишається
+                renewal.setNextAttemptAt(now.plusMinutes(pendingRetryMinutes));
+                renewal.setLastError(truncate(result.getError()));
+                renewalRepository.save(renewal);
+                log.warn("Renewal charge {} not sent, retrying at {}: {}",
+                        renewal.getChargeReference(), renewal.getNextAttemptAt(), result.getError());
+                return false;
+
+            default:
+                renewal.setPendingAttempts(renewal.getPendingAttempts() + 1);
+                renewal.setLastError(truncate(result.getError()));
+                if (renewal.getPendingAttempts() >= maxPendingAttempts) {
+                    // Автоматично з'ясувати не вдалося: без ручної перевірки не списувати
+                    renewal.setStatus(RenewalStatus.UNRESOLVED);
+                    renewalRepository.save(renewal);
+                    log.error("Renewal charge {} result still unknown after {} attempts, check manually: {}",
+                            renewal.getChargeReference(), renewal.getPendingAttempts(), result.getError());
+                    return false;
+                }
+                renewal.setStatus(RenewalStatus.PENDING);
+                renewal.setNextAttemptAt(now.plusMinutes(pendingRetryMinutes));
+                renewalRepository.save(renewal);
+                log.warn("Renewal charge {} result unknown, checking again at {}: {}",
+                        renewal.getChargeReference(), renewal.getNextAttemptAt(), result.getError());
+                return false;
+        }
+    }
+
+    private ProviderLane createLane(String providerName) {
+        int concurrency = environment.getProperty(
+                "subscription.renewal." + providerName + ".concurrency", Integer.class, defaultConcurrency);
+        double ratePerSecond = environment.getProperty(
+                "subscription.renewal." + providerName + ".rate-per-second", Double.class, defaultRatePerSecond);
+
+        log.info("Renewal lane for {}: {} threads, {} requests/s", providerName, concurrency, ratePerSecond);
+        return new ProviderLane(providerName, concurrency, ratePerSecond, meterRegistry);
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+    private static boolean isDue(SubscriptionRenewal renewal, LocalDateTime now) {
+        return (renewal.getStatus() == RenewalStatus.PENDING || renewal.getStatus() == RenewalStatus.DECLINED)
+                && !renewal.getNextAttemptAt().isAfter(now);
+    }
+
+    /**
+     * Ключ ідемпотентності платіжного періоду: підписка + дата списання
+     */
+    private static String idempotencyKey(RenewalCandidateRow row) {
+        return "RENEW_" + row.getSubscriptionId() + "_" + row.getNextBillingDate().format(PERIOD_FORMATTER);
+    }
+
+    private static String priceKey(Long planId, Currency currency) {
+        return planId + ":" + currency;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 500 ? error.substring(0, 500) : error;
+    }
+
+    /**
+     * Пул потоків, ліміт частоти та метрики однієї платіжної системи
+     */
+    private static final class ProviderLane {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final PaymentRateLimiter rateLimiter;
+        private final Timer chargeTimer;
+        private final Map<RecurringChargeResult.Status, Counter> counters = new HashMap<>();
+
+        private ProviderLane(String name, int concurrency, double ratePerSecond, MeterRegistry meterRegistry) {
+            this.name = name;
+            AtomicInteger threadNumber = new AtomicInteger();
+            // Черга без обмеження: її розмір обмежує порція - renewPage чекає на всі її завдання
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "renewal-" + name + "-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.executor.allowCoreThreadTimeOut(true);
+            this.rateLimiter = new PaymentRateLimiter(ratePerSecond);
+            this.chargeTimer = Timer.builder("subscription.renewal.charge")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            for (RecurringChargeResult.Status status : RecurringChargeResult.Status.values()) {
+                counters.put(status, Counter.builder("subscription.renewal.charges")
+                        .tag("provider", name)
+                        .tag("result", status.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+
+        private Counter counter(RecurringChargeResult.Status status) {
+            return counters.get(status);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import service.job.JobLockService;
 
 @Component
 @RequiredArgsConstructor
@@ -11,14 +12,60 @@ import org.springframework.stereotype.Component;
 public class SubscriptionScheduler {
 
     private final SubscriptionService subscriptionService;
+    private final SubscriptionRenewalService renewalService;
+    private final JobLockService jobLockService;
+    private final SubscriptionMetricsService metricsService;
+    private final SubscriptionArchiver subscriptionArchiver;
 
+    /**
+     * Звірка метрик підписок для адмінки (щогодини)
+     */
+    @Scheduled(cron = "${subscription.metrics.reconcile-cron:0 5 * * * ?}")
+    public void reconcileMetrics() {
+        try {
+            jobLockService.runExclusive("subscription-metrics", metricsService::reconcile);
+        } catch (Exception e) {
+            log.error("Error during subscription metrics reconciliation", e);
+        }
+    }
+
+    /**
+     * Автопродовження підписок, дата списання яких настала (щогодини)
+     */
+    @Scheduled(cron = "${subscription.renewal.cron:0 15 * * * ?}")
+    public void renewSubscriptions() {
+        log.info("Starting subscription auto-renewal job");
+        try {
+            jobLockService.runExclusive("subscription-renewal", renewalService::renewDueSubscriptions);
+        } catch (Exception e) {
+            log.error("Error during subscription auto-renewal", e);
+        }
+    }
+
+    /**
+     * Страховка для SubscriptionExpiryScheduler: підписки, пропущені через рестарт
+     * або помилку планувальника, деактивуються не пізніше ночі
+     */
     @Scheduled(cron = "0 0 2 * * ?") // щодня о 02:00
     public void deactivateExpiredSubscriptions() {
         log.info("Starting expired subscriptions deactivation job");
         try {
-            subscriptionService.deactivateExpiredSubscriptions();
+            jobLockService.runExclusive("subscription-deactivation",
+                    subscriptionService::deactivateExpiredSubscriptions);
         } catch (Exception e) {
             log.error("Error during expired subscriptions deactivation", e);
         }
     }
+
+    /**
+     * Перенесення давно завершених підписок в архів (щоночі, після деактивації)
+     */
+    @Scheduled(cron = "${subscription.archive.cron:0 30 3 * * ?}")
+    public void archiveSubscriptions() {
+        try {
+            jobLockService.runExclusive("subscription-archive", subscriptionArchiver::archiveExpired);
+        } catch (Exception e) {
+            log.error("Error during subscription archiving", e);
+        }
+    }
 }
@@ -2,22 +2,28 @@
 
 package service.subscription;
 
+import dto.SubscriptionHistoryPage;
+import dto.SubscriptionHistoryRow;
 import entity.enums.SubscriptionStatus;
 import entity.order.*;
 import entity.user.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import repository.OrderRepository;
 import repository.SubscriptionPlanRepository;
 import repository.UserRepository;
+import repository.UserSubscriptionArchiveRepository;
 import repository.UserSubscriptionRepository;
 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -25,9 +31,19 @@ import java.util.Optional;
 public class SubscriptionService {
 
     private final UserSubscriptionRepository subscriptionRepository;
+    private final UserSubscriptionArchiveRepository archiveRepository;
     private final SubscriptionPlanRepository planRepository;
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExpiredSubscriptionDeactivator expiredSubscriptionDeactivator;
+
+    /** Grace period для підписок з автопродовженням (днів після дати списання) */
+    @Value("${subscription.grace-period-days:5}")
+    private int gracePeriodDays;
+
+    @Value("${subscription.history.page-size:20}")
+    private int historyPageSize;
 
     /**
      * Отримати активну підписку користувача
@@ -45,15 +61,21 @@ public class SubscriptionService {
 
     /**
      * Створити нову підписку після успішної оплати
+     *
+     * @param recurringToken токен картки з callback: є - підписка продовжується автоматично
+     *                       (SubscriptionRenewalService), null - без автопродовження
      */
     @Transactional
-    public UserSubscription createSubscription(User user, SubscriptionPlan plan, Order order) {
+    public UserSubscription createSubscription(User user, SubscriptionPlan plan, Order order, String recurringToken) {
         log.info("Creating subscription for user {} with plan {}", user.getId(), plan.getId());
 
         // Перевірити чи немає активної підписки
         UserSubscription existingActive = getActiveSubscription(user.getId());
         if (existingActive != null) {
             // Якщо є активна - продовжити її
+            if (recurringToken != null) {
+                enableAutoRenew(existingActive, recurringToken);
+            }
             return extendSubscription(existingActive, plan);
         }
 
@@ -65,9 +87,15 @@ public class SubscriptionService {
         subscription.setStartDate(LocalDateTime.now());
         subscription.setEndDate(LocalDateTime.now().plusDays(plan.getDurationInDays()));
         subscription.setStatus(SubscriptionStatus.ACTIVE);
-        subscription.setAutoRenew(false); // За замовчуванням без авто-продовження
+        subscription.setAutoRenew(false); // Без токена картки - без авто-продовження
+        if (recurringToken != null) {
+            enableAutoRenew(subscription, recurringToken);
+        }
 
-        return subscriptionRepository.save(subscription);
+        UserSubscription saved = subscriptionRepository.save(subscription);
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(user.getId()));
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.CREATED, saved);
+        return saved;
     }
 
     /**
@@ -90,8 +118,45 @@ public class SubscriptionService {
         subscription.setEndDate(newEndDate);
         subscription.setStatus(SubscriptionStatus.ACTIVE);
         subscription.setSubscriptionPlan(newPlan);
+        if (Boolean.TRUE.equals(subscription.getAutoRenew())) {
+            // Оплачений період подовжено - наступне списання в його кінці
+            subscription.setNextBillingDate(newEndDate);
+        }
 
-        return subscriptionRepository.save(subscription);
+        UserSubscription saved = subscriptionRepository.save(subscription);
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(subscription.getUser().getId()));
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.EXTENDED, saved);
+        return saved;
+    }
+
+    /**
+     * Прив'язати токен картки з пізнього callback до активної підписки користувача
+     * (замовлення вже завершене, наприклад звіркою PaymentReconciliationService)
+     *
+     * @return true, якщо автопродовження ввімкнено або токен оновлено
+     */
+    @Transactional
+    public boolean attachRecurringToken(Long userId, String recurringToken) {
+        UserSubscription subscription = getActiveSubscription(userId);
+        if (subscription == null || recurringToken.equals(subscription.getGatewaySubscriptionId())) {
+            return false;
+        }
+
+        enableAutoRenew(subscription, recurringToken);
+        subscriptionRepository.save(subscription);
+        log.info("Recurring token attached to subscription {} of user {}", subscription.getId(), userId);
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.EXTENDED, subscription);
+        return true;
+    }
+
+    /**
+     * Ввімкнути автопродовження: токен для списань, перше списання в кінці оплаченого періоду
+     */
+    private void enableAutoRenew(UserSubscription subscription, String recurringToken) {
+        subscription.setGatewaySubscriptionId(recurringToken);
+        subscription.setAutoRenew(true);
+        subscription.setCancelledAt(null);
+        subscription.setNextBillingDate(subscription.getEndDate());
     }
 
     /**
@@ -107,49 +172,143 @@ public class SubscriptionService {
 
         log.info("Subscription {} cancelled by user", subscriptionId);
         subscriptionRepository.save(subscription);
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(subscription.getUser().getId()));
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.CANCELLED, subscription);
     }
 
     /**
-     * Деактивувати прострочені підписки (запускається по cron)
+     * Деактивувати одну підписку в момент її закінчення (планувальник SubscriptionExpiryScheduler)
+     *
+     * Стан перевіряється заново: якщо підписку встигли продовжити або вона вже неактивна - нічого не робить.
+     *
+     * @param subscriptionId ID підписки
+     * @return true, якщо підписку деактивовано
      */
     @Transactional
-    public void deactivateExpiredSubscriptions() {
+    public boolean expireSubscription(Long subscriptionId) {
+        UserSubscription subscription = subscriptionRepository.findById(subscriptionId).orElse(null);
+        if (subscription == null || subscription.getStatus() != SubscriptionStatus.ACTIVE) {
+            return false;
+        }
+
         LocalDateTime now = LocalDateTime.now();
-        int gracePeriodDays = 5; // можна винести в application.properties
-        LocalDateTime gracePeriodEnd = now.minusDays(gracePeriodDays);
+        LocalDateTime deadline = subscription.getExpiryDeadline(gracePeriodDays);
+        if (deadline == null || deadline.isAfter(now)) {
+            return false;
+        }
+
+        subscription.setStatus(SubscriptionStatus.EXPIRED);
+        subscription.setUpdatedAt(now);
+        subscriptionRepository.save(subscription);
 
-        List<UserSubscription> expiredSubs =
-                subscriptionRepository.findExpiredSubscriptions(now, gracePeriodEnd);
+        log.info("Deactivated subscription {} for user {} at deadline {}",
+                subscription.getId(), subscription.getUser().getId(), deadline);
 
-        if (expiredSubs.isEmpty()) {
-            log.info("No expired subscriptions found");
-            return;
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(subscription.getUser().getId()));
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.EXPIRED, subscription);
+        return true;
+    }
+
+    /**
+     * Продовжити підписку на наступний період після успішного списання (автопродовження)
+     *
+     * Період рахується від дати списання (або від end_date, якщо вона пізніша).
+     * Якщо дата списання вже не збігається (період продовжено раніше) - нічого не робить.
+     *
+     * @param subscriptionId ID підписки
+     * @param billingDate дата списання, за яку отримано оплату
+     * @return true, якщо підписку продовжено
+     */
+    @Transactional
+    public boolean applyRenewal(Long subscriptionId, LocalDateTime billingDate) {
+        UserSubscription subscription = subscriptionRepository.findById(subscriptionId).orElse(null);
+        if (subscription == null
+                || subscription.getStatus() != SubscriptionStatus.ACTIVE
+                || !billingDate.equals(subscription.getNextBillingDate())) {
+            return false;
         }
 
-        for (UserSubscription sub : expiredSubs) {
-            String reason = sub.getAutoRenew()
-                    ? "failed renewal after grace period"
-                    : "expired without auto-renewal";
+        LocalDateTime periodStart = subscription.getEndDate().isAfter(billingDate)
+                ? subscription.getEndDate()
+                : billingDate;
+        LocalDateTime newEndDate = periodStart.plusDays(subscription.getSubscriptionPlan().getDurationInDays());
+        subscription.renew(newEndDate, newEndDate);
+        subscriptionRepository.save(subscription);
 
-            sub.setStatus(SubscriptionStatus.EXPIRED);
-            sub.setUpdatedAt(now);
+        log.info("Subscription {} renewed until {}", subscriptionId, newEndDate);
 
-            log.info("Deactivated subscription {} for user {} ({})",
-                    sub.getId(), sub.getUser().getId(), reason);
+        eventPublisher.publishEvent(new UserEntitlementsChangedEvent(subscription.getUser().getId()));
+        publishLifecycleEvent(SubscriptionLifecycleEvent.Type.EXTENDED, subscription);
+        return true;
+    }
 
-            // Опціонально: відправити email про деактивацію
-            // emailService.sendSubscriptionExpiredEmail(sub);
-        }
+    /**
+     * Grace period для підписок з автопродовженням (днів)
+     */
+    public int getGracePeriodDays() {
+        return gracePeriodDays;
+    }
+
+    /**
+     * Деактивувати прострочені підписки (запускається по cron).
+     * Вчасну деактивацію виконує SubscriptionExpiryScheduler, цей прохід - страховка.
+     *
+     * Порціями з комітом кожної (ExpiredSubscriptionDeactivator), без завантаження сутностей.
+     *
+     * @return кількість деактивованих підписок
+     */
+    public int deactivateExpiredSubscriptions() {
+        return expiredSubscriptionDeactivator.deactivateExpired(gracePeriodDays);
+    }
 
-        subscriptionRepository.saveAll(expiredSubs);
-        log.info("Deactivated {} expired subscriptions", expiredSubs.size());
+    private void publishLifecycleEvent(SubscriptionLifecycleEvent.Type type, UserSubscription subscription) {
+        eventPublisher.publishEvent(SubscriptionLifecycleEvent.of(type, subscription, gracePeriodDays));
     }
 
     /**
-     * Отримати всі підписки користувача (історію)
+     * Сторінка історії підписок користувача, новіші спочатку.
+     *
+     * Читає user_subscription і архів (SubscriptionArchiver) по одному keyset-запиту
+     * на таблицю та зливає їх по id: підписка в архіві має той самий id, тож порядок
+     * і курсор не залежать від того, де лежить рядок.
+     *
+     * @param userId ID користувача
+     * @param lang мова назв планів
+     * @param beforeId курсор - id останньої підписки попередньої сторінки (null для першої)
+     * @return сторінка з курсором наступної
      */
-    public Optional<List<UserSubscription>> getUserSubscriptionHistory(Long userId) {
-        return subscriptionRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public SubscriptionHistoryPage getSubscriptionHistory(Long userId, String lang, Long beforeId) {
+        long cursor = beforeId != null ? beforeId : Long.MAX_VALUE;
+        // +1 рядок: чи є наступна сторінка
+        PageRequest page = PageRequest.of(0, historyPageSize + 1);
+
+        List<SubscriptionHistoryRow> hot = subscriptionRepository.findHistory(userId, lang, cursor, page);
+        List<SubscriptionHistoryRow> archived = archiveRepository.findHistory(userId, lang, cursor, page);
+
+        List<SubscriptionHistoryRow> merged = new ArrayList<>(hot.size() + archived.size());
+        int h = 0;
+        int a = 0;
+        while (merged.size() <= historyPageSize && (h < hot.size() || a < archived.size())) {
+            if (a >= archived.size()
+                    || (h < hot.size() && hot.get(h).getId() > archived.get(a).getId())) {
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+
+        Long nextCursor = null;
+        if (merged.size() > historyPageSize) {
+            merged = merged.subList(0, historyPageSize);
+            nextCursor = merged.get(historyPageSize - 1).getId();
+        }
+
+        return SubscriptionHistoryPage.builder()
+                .items(merged)
+                .nextCursor(nextCursor)
+                .pageSize(historyPageSize)
+                .build();
     }
 
     /**
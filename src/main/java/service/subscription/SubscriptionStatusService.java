@@ -0,0 +1,142 @@
+package service.subscription;
+
+import dto.ActiveSubscriptionRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.UserSubscriptionRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статус підписки для header без запиту до БД на кожен перегляд сторінки.
+ *
+ * - токен (SubscriptionStatusToken) зберігається в сесії користувача
+ * - перезавантажується, коли минув TTL (subscription.status-token.ttl-seconds)
+ *   або після коміту зміни підписки / замовлення користувача (UserEntitlementsChangedEvent)
+ * - сесії інших вузлів / користувачів напряму недоступні, тому зберігається тільки
+ *   момент останньої зміни по користувачу; записи, старші за TTL, не потрібні і прибираються
+ * - метрики: subscription.status.tokens{result=hit|refresh}
+ */
+@Slf4j
+@Service
+public class SubscriptionStatusService {
+
+    private final UserSubscriptionRepository subscriptionRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /** userId -> момент останньої зміни підписки (System.currentTimeMillis) */
+    private final Map<Long, Long> changedAt = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter refreshes;
+
+    @Value("${subscription.status-token.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public SubscriptionStatusService(UserSubscriptionRepository subscriptionRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.transactionManager = transactionManager;
+
+        this.hits = Counter.builder("subscription.status.tokens")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.refreshes = Counter.builder("subscription.status.tokens")
+                .tag("result", "refresh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отримати статус підписки користувача
+     *
+     * @param userId ID користувача
+     * @param cached токен із сесії (може бути null)
+     * @return той самий токен, якщо він актуальний, або щойно завантажений
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SubscriptionStatusToken getStatus(Long userId, SubscriptionStatusToken cached) {
+        if (isFresh(userId, cached)) {
+            hits.increment();
+            return cached;
+        }
+
+        refreshes.increment();
+        return load(userId);
+    }
+
+    /**
+     * Позначити статус користувача застарілим після коміту зміни підписки / замовлення
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onEntitlementsChanged(UserEntitlementsChangedEvent event) {
+        markChanged(Collections.singleton(event.getUserId()));
+    }
+
+    /**
+     * Позначити статуси застарілими після коміту порції пакетної деактивації
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onSubscriptionsExpired(SubscriptionsExpiredEvent event) {
+        markChanged(event.getUserIds());
+    }
+
+    private void markChanged(Collection<Long> userIds) {
+        long now = System.currentTimeMillis();
+        for (Long userId : userIds) {
+            changedAt.put(userId, now);
+        }
+
+        // Токени, завантажені раніше за TTL, прострочені й без цієї позначки
+        long expired = now - TimeUnit.SECONDS.toMillis(ttlSeconds);
+        changedAt.values().removeIf(time -> time < expired);
+    }
+
+    private boolean isFresh(Long userId, SubscriptionStatusToken token) {
+        if (token == null || !userId.equals(token.getUserId())) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (token.getLoadedAt() + TimeUnit.SECONDS.toMillis(ttlSeconds) <= now) {
+            return false;
+        }
+
+        // Зміна в ту ж мілісекунду, що й завантаження, теж вважається новішою за токен
+        Long lastChange = changedAt.get(userId);
+        return lastChange == null || lastChange < token.getLoadedAt();
+    }
+
+    private SubscriptionStatusToken load(Long userId) {
+        long loadedAt = System.currentTimeMillis();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        ActiveSubscriptionRow row = transactionTemplate.execute(status ->
+                subscriptionRepository.findActiveRowByUserId(userId, LocalDateTime.now()).orElse(null));
+
+        log.debug("Subscription status loaded for user {}: {}", userId,
+                row != null ? row.getPlanKey() + " until " + row.getEndDate() : "none");
+
+        return row != null
+                ? new SubscriptionStatusToken(userId, row.getPlanKey(), row.getEndDate(),
+                        Boolean.TRUE.equals(row.getAutoRenew()), loadedAt)
+                : new SubscriptionStatusToken(userId, null, null, false, loadedAt);
+    }
+}
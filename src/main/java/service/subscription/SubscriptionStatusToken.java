@@ -0,0 +1,56 @@
+package service.subscription;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Компактний статус підписки користувача для header, що зберігається в сесії.
+ *
+ * Замість managed-сутності UserSubscription - тільки ключ плану, дата закінчення
+ * та автопродовження. Закінчення підписки визначається порівнянням часу,
+ * тому токен не потрібно оновлювати в момент закінчення.
+ */
+@Getter
+public class SubscriptionStatusToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long userId;
+
+    /** Ключ плану активної підписки (null - немає) */
+    private final String planKey;
+
+    /** Дата закінчення активної підписки (null - немає) */
+    private final LocalDateTime endDate;
+
+    private final boolean autoRenew;
+
+    /** Коли токен завантажено з БД (System.currentTimeMillis) */
+    private final long loadedAt;
+
+    public SubscriptionStatusToken(Long userId, String planKey, LocalDateTime endDate,
+                                   boolean autoRenew, long loadedAt) {
+        this.userId = userId;
+        this.planKey = planKey;
+        this.endDate = endDate;
+        this.autoRenew = autoRenew;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * Чи активна підписка на момент now
+     */
+    public boolean isActive(LocalDateTime now) {
+        return endDate != null && endDate.isAfter(now);
+    }
+
+    /**
+     * Кількість повних днів до закінчення підписки (0 - немає активної)
+     */
+    public long getDaysUntilExpiration(LocalDateTime now) {
+        return isActive(now) ? ChronoUnit.DAYS.between(now, endDate) : 0;
+    }
+}
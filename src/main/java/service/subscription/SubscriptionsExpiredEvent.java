@@ -0,0 +1,52 @@
+package service.subscription;
+
+import dto.ExpiredSubscriptionRow;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Подія пакетної деактивації прострочених підписок: одна подія на порцію (chunk).
+ *
+ * Публікується всередині транзакції порції, слухачі обробляють її після коміту.
+ */
+@Getter
+public class SubscriptionsExpiredEvent {
+
+    private final List<ExpiredSubscriptionRow> subscriptions;
+
+    public SubscriptionsExpiredEvent(List<ExpiredSubscriptionRow> subscriptions) {
+        this.subscriptions = Collections.unmodifiableList(new ArrayList<>(subscriptions));
+    }
+
+    /**
+     * ID деактивованих підписок
+     */
+    public List<Long> getSubscriptionIds() {
+        List<Long> ids = new ArrayList<>(subscriptions.size());
+        for (ExpiredSubscriptionRow row : subscriptions) {
+            ids.add(row.getSubscriptionId());
+        }
+        return ids;
+    }
+
+    /**
+     * ID користувачів деактивованих підписок (без повторів)
+     */
+    public Set<Long> getUserIds() {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (ExpiredSubscriptionRow row : subscriptions) {
+            ids.add(row.getUserId());
+        }
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionsExpiredEvent{" + subscriptions.size() + " subscriptions}";
+    }
+}
@@ -0,0 +1,139 @@
+package service.subscription;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-process LRU-кеш знімків прав доступу (UserEntitlements) по ID користувача.
+ *
+ * - обмежений за кількістю користувачів (subscription.entitlements.max-entries)
+ * - скидається для користувача після коміту замовлення / зміни підписки;
+ *   TTL (subscription.entitlements.ttl-seconds) - страховка від змін в обхід сервісів
+ * - запис після завантаження відкидається, якщо під час завантаження був evict
+ * - метрики: subscription.entitlements.requests{result=hit|miss},
+ *   subscription.entitlements.load, subscription.entitlements.evictions,
+ *   subscription.entitlements.entries
+ */
+@Slf4j
+@Component
+public class UserEntitlementCache {
+
+    private final Map<Long, CachedEntitlements> entries;
+
+    /** Лічильник evict-ів: змінюється при кожному видаленні з кешу */
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Timer loadTimer;
+
+    @Value("${subscription.entitlements.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${subscription.entitlements.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public UserEntitlementCache(MeterRegistry meterRegistry) {
+        this.entries = new LinkedHashMap<Long, CachedEntitlements>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedEntitlements> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.hits = Counter.builder("subscription.entitlements.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("subscription.entitlements.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("subscription.entitlements.evictions")
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("subscription.entitlements.load")
+                .register(meterRegistry);
+        Gauge.builder("subscription.entitlements.entries", this, UserEntitlementCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Отримати знімок прав користувача, завантаживши його при промаху
+     *
+     * @param userId ID користувача
+     * @param loader завантаження з БД
+     */
+    public UserEntitlements get(Long userId, Function<Long, UserEntitlements> loader) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (entries) {
+            CachedEntitlements entry = entries.get(userId);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.entitlements;
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        UserEntitlements entitlements = loadTimer.record(() -> loader.apply(userId));
+
+        if (entitlements != null) {
+            synchronized (entries) {
+                if (generation == loadGeneration) {
+                    entries.put(userId, new CachedEntitlements(entitlements, now + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+                }
+            }
+        }
+        return entitlements;
+    }
+
+    /**
+     * Видалити знімок прав користувача
+     */
+    public void evict(Long userId) {
+        synchronized (entries) {
+            generation++;
+            if (entries.remove(userId) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Видалити всі знімки
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+        evictions.increment();
+        log.info("User entitlements invalidated");
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class CachedEntitlements {
+        private final UserEntitlements entitlements;
+        private final long expiresAt;
+
+        private CachedEntitlements(UserEntitlements entitlements, long expiresAt) {
+            this.entitlements = entitlements;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package service.subscription;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Незмінний знімок прав доступу користувача до платних уроків.
+ *
+ * Замість запитів на кожну перевірку: доступ за підпискою - порівняння часу,
+ * доступ до купленого уроку - пошук у BitSet за ID уроку.
+ */
+@Getter
+public class UserEntitlements {
+
+    private final Long userId;
+
+    /** Найпізніша дата закінчення ACTIVE підписки (null - немає) */
+    private final LocalDateTime subscriptionEndDate;
+
+    /** Чи була підписка раніше (EXPIRED / CANCELED) */
+    private final boolean hadSubscription;
+
+    /** ID куплених окремо уроків */
+    private final BitSet purchasedLessonIds;
+
+    public UserEntitlements(Long userId, LocalDateTime subscriptionEndDate,
+                            boolean hadSubscription, Collection<Long> purchasedLessonIds) {
+        this.userId = userId;
+        this.subscriptionEndDate = subscriptionEndDate;
+        this.hadSubscription = hadSubscription;
+        this.purchasedLessonIds = new BitSet();
+        for (Long lessonId : purchasedLessonIds) {
+            if (lessonId != null && lessonId >= 0 && lessonId <= Integer.MAX_VALUE) {
+                this.purchasedLessonIds.set(lessonId.intValue());
+            }
+        }
+    }
+
+    /**
+     * Чи активна підписка на момент now
+     */
+    public boolean hasActiveSubscription(LocalDateTime now) {
+        return subscriptionEndDate != null && subscriptionEndDate.isAfter(now);
+    }
+
+    /**
+     * Чи куплений урок окремо
+     */
+    public boolean hasPurchased(Long lessonId) {
+        return lessonId != null && lessonId >= 0 && lessonId <= Integer.MAX_VALUE
+                && purchasedLessonIds.get(lessonId.intValue());
+    }
+
+    /**
+     * Кількість куплених уроків
+     */
+    public int getPurchasedCount() {
+        return purchasedLessonIds.cardinality();
+    }
+
+    /** BitSet змінний - назовні віддається копія */
+    public BitSet getPurchasedLessonIds() {
+        return (BitSet) purchasedLessonIds.clone();
+    }
+}
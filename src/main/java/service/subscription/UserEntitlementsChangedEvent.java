@@ -0,0 +1,24 @@
+package service.subscription;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Подія зміни прав доступу користувача: оплачене замовлення, створення,
+ * продовження, скасування або деактивація підписки.
+ *
+ * Публікується всередині транзакції, знімок прав доступу (UserEntitlements)
+ * скидається після коміту.
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserEntitlementsChangedEvent {
+
+    /** ID користувача */
+    private final Long userId;
+
+    @Override
+    public String toString() {
+        return "UserEntitlementsChangedEvent{userId=" + userId + "}";
+    }
+}